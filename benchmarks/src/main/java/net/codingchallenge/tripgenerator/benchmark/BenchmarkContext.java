@@ -0,0 +1,33 @@
+package net.codingchallenge.tripgenerator.benchmark;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import net.codingchallenge.tripgenerator.TripGeneratorApplication;
+
+/**
+ * The BenchmarkContext class starts the application context once for all
+ * benchmarks of a fork. The test profile is used so that the command line
+ * runner isn't started, and debug logging is turned off so that only the trip
+ * generation is measured.
+ * 
+ * @author Gihan Rajakaruna
+ *
+ */
+public final class BenchmarkContext {
+
+	private static ConfigurableApplicationContext context;
+
+	private BenchmarkContext() {
+	}
+
+	public static synchronized <T> T getBean(Class<T> beanClass) {
+		if (context == null) {
+			context = new SpringApplicationBuilder(TripGeneratorApplication.class).profiles("test")
+					.web(WebApplicationType.NONE).logStartupInfo(false)
+					.properties("logging.config=classpath:log4j2-benchmark.xml").run();
+		}
+		return context.getBean(beanClass);
+	}
+}
@@ -0,0 +1,152 @@
+package net.codingchallenge.tripgenerator.benchmark;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.core.util.DefaultPrettyPrinter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import net.codingchallenge.tripgenerator.config.JacksonConfig;
+import net.codingchallenge.tripgenerator.enums.TapType;
+import net.codingchallenge.tripgenerator.enums.TripStatus;
+import net.codingchallenge.tripgenerator.model.Tap;
+import net.codingchallenge.tripgenerator.model.Taps;
+import net.codingchallenge.tripgenerator.model.Trip;
+import net.codingchallenge.tripgenerator.model.Trips;
+
+/**
+ * The JacksonBenchmark class compares the warm throughput of creating a new
+ * ObjectMapper for every file with reusing the readers and writers of a shared
+ * ObjectMapper, with and without the Afterburner module.
+ * 
+ * @author Gihan Rajakaruna
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JacksonBenchmark {
+
+	@Param({ "100", "10000" })
+	int tapCount;
+
+	byte[] tapsJson;
+
+	Trips trips;
+
+	ObjectReader sharedTapsReader;
+
+	ObjectWriter sharedTripsWriter;
+
+	ObjectReader afterburnerTapsReader;
+
+	ObjectWriter afterburnerTripsWriter;
+
+	@Setup
+	public void setup() throws IOException {
+		ZonedDateTime time = ZonedDateTime.of(2021, 1, 22, 13, 0, 0, 0, ZoneId.of("UTC"));
+		List<Tap> tapList = new ArrayList<Tap>();
+		List<Trip> tripList = new ArrayList<Trip>();
+		for (int i = 0; i < tapCount; i++) {
+			String primaryAccountNumber = String.valueOf(5500005555550000L + i / 2);
+			tapList.add(new Tap(i + 1, time.plusSeconds(i), i % 2 == 0 ? TapType.ON : TapType.OFF, "Stop" + (i % 3 + 1),
+					"Company1", "Bus" + (i % 40), primaryAccountNumber));
+			if (i % 2 == 0) {
+				tripList.add(new Trip(time.plusSeconds(i), time.plusSeconds(i + 1), 1, "Stop1", "Stop2", 3.25,
+						"Company1", "Bus" + (i % 40), primaryAccountNumber, TripStatus.COMPLETED));
+			}
+		}
+		Taps taps = new Taps();
+		taps.setTaps(tapList);
+		tapsJson = newObjectMapper().writeValueAsBytes(taps);
+		trips = new Trips();
+		trips.setTrips(tripList);
+
+		ObjectMapper sharedMapper = JacksonConfig.createObjectMapper(false);
+		sharedTapsReader = sharedMapper.readerFor(Taps.class);
+		sharedTripsWriter = sharedMapper.writerFor(Trips.class).with(new DefaultPrettyPrinter());
+		ObjectMapper afterburnerMapper = JacksonConfig.createObjectMapper(true);
+		afterburnerTapsReader = afterburnerMapper.readerFor(Taps.class);
+		afterburnerTripsWriter = afterburnerMapper.writerFor(Trips.class).with(new DefaultPrettyPrinter());
+	}
+
+	/**
+	 * Same as reading the input file before the ObjectMapper was shared.
+	 */
+	@Benchmark
+	public Taps readTapsWithNewMapper() throws IOException {
+		return newObjectMapper().readValue(tapsJson, Taps.class);
+	}
+
+	@Benchmark
+	public Taps readTapsWithSharedReader() throws IOException {
+		return sharedTapsReader.readValue(tapsJson);
+	}
+
+	@Benchmark
+	public Taps readTapsWithAfterburner() throws IOException {
+		return afterburnerTapsReader.readValue(tapsJson);
+	}
+
+	/**
+	 * Same as writing the output file before the ObjectMapper was shared.
+	 */
+	@Benchmark
+	public void writeTripsWithNewMapper() throws IOException {
+		newObjectMapper().writer(new DefaultPrettyPrinter()).writeValue(new NullOutputStream(), trips);
+	}
+
+	@Benchmark
+	public void writeTripsWithSharedWriter() throws IOException {
+		sharedTripsWriter.writeValue(new NullOutputStream(), trips);
+	}
+
+	@Benchmark
+	public void writeTripsWithAfterburner() throws IOException {
+		afterburnerTripsWriter.writeValue(new NullOutputStream(), trips);
+	}
+
+	private static ObjectMapper newObjectMapper() {
+		ObjectMapper mapper = new ObjectMapper();
+		mapper.registerModule(new JavaTimeModule());
+		return mapper;
+	}
+
+	/**
+	 * Output stream which discards everything, so that only the serialization is
+	 * measured.
+	 */
+	static class NullOutputStream extends OutputStream {
+
+		@Override
+		public void write(int b) {
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+		}
+	}
+}
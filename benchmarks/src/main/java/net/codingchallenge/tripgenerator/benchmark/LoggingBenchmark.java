@@ -0,0 +1,110 @@
+package net.codingchallenge.tripgenerator.benchmark;
+
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import net.codingchallenge.tripgenerator.enums.TripStatus;
+import net.codingchallenge.tripgenerator.metrics.ProgressLogger;
+import net.codingchallenge.tripgenerator.model.Trip;
+
+/**
+ * The LoggingBenchmark class compares the throughput of the trip loop when
+ * every trip is logged at debug level, on a synchronous and on an asynchronous
+ * file logger, with the trip loop as it is now, where a trip is only logged
+ * when trace logging is on and the progress is logged every million trips.
+ * 
+ * @author Gihan Rajakaruna
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configurationFile=log4j2-benchmark.xml")
+public class LoggingBenchmark {
+
+	final static int TRIP_COUNT = 1000;
+
+	final static long PROGRESS_INTERVAL = 1000000;
+
+	Logger syncLogger;
+
+	Logger asyncLogger;
+
+	Trip[] trips;
+
+	ProgressLogger progressLogger;
+
+	@Setup
+	public void setup() {
+		syncLogger = LogManager.getLogger("benchmark.sync");
+		asyncLogger = LogManager.getLogger("benchmark.async");
+		progressLogger = new ProgressLogger(syncLogger, "trips", PROGRESS_INTERVAL);
+		ZonedDateTime time = ZonedDateTime.of(2021, 1, 22, 13, 0, 0, 0, ZoneId.of("UTC"));
+		trips = new Trip[TRIP_COUNT];
+		for (int i = 0; i < TRIP_COUNT; i++) {
+			trips[i] = new Trip(time.plusSeconds(i), time.plusSeconds(i + 60), 60, "Stop1", "Stop2", 3.25, "Company1",
+					"Bus" + (i % 40), String.valueOf(5500005555550000L + i), TripStatus.COMPLETED);
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		LogManager.shutdown();
+	}
+
+	/**
+	 * Same as the trip loop before, with a debug message for each trip.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(TRIP_COUNT)
+	public void debugEachTripSync(Blackhole blackhole) {
+		for (Trip trip : trips) {
+			syncLogger.debug("Successfully generated trip. {}", () -> trip.toString());
+			blackhole.consume(trip);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(TRIP_COUNT)
+	public void debugEachTripAsync(Blackhole blackhole) {
+		for (Trip trip : trips) {
+			asyncLogger.debug("Successfully generated trip. {}", () -> trip.toString());
+			blackhole.consume(trip);
+		}
+	}
+
+	/**
+	 * Same as the trip loop now, with trace logging off.
+	 */
+	@Benchmark
+	@OperationsPerInvocation(TRIP_COUNT)
+	public void traceGuardedWithProgress(Blackhole blackhole) {
+		boolean traceEnabled = syncLogger.isTraceEnabled();
+		for (Trip trip : trips) {
+			if (traceEnabled) {
+				syncLogger.trace("Successfully generated trip. {}", trip);
+			}
+			progressLogger.increment();
+			blackhole.consume(trip);
+		}
+	}
+}
@@ -0,0 +1,114 @@
+package net.codingchallenge.tripgenerator.controller;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.codingchallenge.tripgenerator.benchmark.BenchmarkContext;
+import net.codingchallenge.tripgenerator.exception.InputFileException;
+import net.codingchallenge.tripgenerator.exception.OutputFileException;
+import net.codingchallenge.tripgenerator.exception.TripGenerationException;
+import net.codingchallenge.tripgenerator.generator.TapDataGenerator;
+import net.codingchallenge.tripgenerator.model.Tap;
+import net.codingchallenge.tripgenerator.model.TapBatch;
+import net.codingchallenge.tripgenerator.model.Trip;
+import net.codingchallenge.tripgenerator.store.TripCostStore;
+
+/**
+ * The TripGeneratorControllerBenchmark class measures reading the input file,
+ * generating the trips, writing the output file and the whole pipeline from
+ * input file to output file. The input file is created by the seeded tap data
+ * generator in a temporary directory, from 10 thousand taps up to 50 million
+ * taps with -p tapCount=50000000. Large inputs need a large heap, e.g. -jvmArgs
+ * -Xmx16g.
+ * 
+ * @author Gihan Rajakaruna
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class TripGeneratorControllerBenchmark {
+
+	@Param({ "10000", "1000000" })
+	int tapCount;
+
+	@Param({ "42" })
+	long seed;
+
+	TripGeneratorController tripGeneratorController;
+
+	Path directory;
+
+	String inputFilePath;
+
+	String outputFilePath;
+
+	List<Tap> taps;
+
+	List<Trip> trips;
+
+	@Setup
+	public void setup() throws IOException, OutputFileException, InputFileException, TripGenerationException {
+		tripGeneratorController = BenchmarkContext.getBean(TripGeneratorController.class);
+		directory = Files.createTempDirectory("trip-generator-benchmark");
+		inputFilePath = directory.resolve("taps.json").toString();
+		outputFilePath = directory.resolve("trips.json").toString();
+		new TapDataGenerator(seed, Math.max(100, tapCount / 10)).writeTaps(inputFilePath, tapCount,
+				tripGeneratorController.jacksonConfig.getObjectMapper().writerFor(Tap.class));
+		taps = tripGeneratorController.readTapsFromInputFile(inputFilePath);
+		trips = tripGeneratorController.generateTripsFromTaps(taps);
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		FileUtils.deleteDirectory(directory.toFile());
+	}
+
+	@Benchmark
+	public List<Tap> readTapsFromInputFile() throws InputFileException {
+		return tripGeneratorController.readTapsFromInputFile(inputFilePath);
+	}
+
+	@Benchmark
+	public TapBatch readTapBatch() throws InputFileException {
+		return tripGeneratorController.tapStreamReader.readTapBatch(inputFilePath, TripCostStore.getFareIndex());
+	}
+
+	@Benchmark
+	public List<Trip> generateTripsFromTaps() throws TripGenerationException {
+		return tripGeneratorController.generateTripsFromTaps(taps);
+	}
+
+	@Benchmark
+	public void writeTripsToOutputFile() throws OutputFileException {
+		tripGeneratorController.writeTripsToOutputFile(trips, outputFilePath);
+	}
+
+	/**
+	 * Same as running the application with the input and output files.
+	 */
+	@Benchmark
+	public void generateTripsFromInputFile() {
+		tripGeneratorController.generateTripsFromTaps(inputFilePath, outputFilePath);
+	}
+}
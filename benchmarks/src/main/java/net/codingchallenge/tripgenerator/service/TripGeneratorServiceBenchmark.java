@@ -0,0 +1,186 @@
+package net.codingchallenge.tripgenerator.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.codingchallenge.tripgenerator.benchmark.BenchmarkContext;
+import net.codingchallenge.tripgenerator.exception.TripGenerationException;
+import net.codingchallenge.tripgenerator.generator.TapDataGenerator;
+import net.codingchallenge.tripgenerator.model.FareBand;
+import net.codingchallenge.tripgenerator.model.FarePeriod;
+import net.codingchallenge.tripgenerator.model.FareRules;
+import net.codingchallenge.tripgenerator.model.FareZone;
+import net.codingchallenge.tripgenerator.model.Tap;
+import net.codingchallenge.tripgenerator.model.TapBatch;
+import net.codingchallenge.tripgenerator.store.FareIndex;
+import net.codingchallenge.tripgenerator.store.TripCostStore;
+
+/**
+ * The TripGeneratorServiceBenchmark class measures the service methods on
+ * synthetic taps. Lookups cycle through a fixed sample of ON taps and stops, so
+ * every invocation does the same amount of work.
+ * 
+ * @author Gihan Rajakaruna
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TripGeneratorServiceBenchmark {
+
+	final static int SAMPLE_SIZE = 1024;
+
+	final static int ZONE_COUNT = 8;
+
+	@Param({ "10000", "1000000" })
+	int tapCount;
+
+	@Param({ "42" })
+	long seed;
+
+	TripGeneratorService tripGeneratorService;
+
+	List<Tap> taps;
+
+	TapBatch tapBatch;
+
+	Tap[] tapOnSample;
+
+	String[] sourceStopSample;
+
+	String[] destinationStopSample;
+
+	FareIndex ruleFareIndex;
+
+	int[] ruleSourceStopSample;
+
+	int[] ruleDestinationStopSample;
+
+	long[] tapOnTimeSample;
+
+	int sampleIndex;
+
+	@Setup
+	public void setup() {
+		tripGeneratorService = BenchmarkContext.getBean(TripGeneratorService.class);
+		taps = new TapDataGenerator(seed, Math.max(100, tapCount / 10)).generateTaps(tapCount);
+		tapBatch = TapBatch.of(taps, TripCostStore.getFareIndex());
+
+		List<Tap> tapOns = new ArrayList<Tap>(tripGeneratorService.getAllTapOns(taps));
+		tapOnSample = new Tap[SAMPLE_SIZE];
+		sourceStopSample = new String[SAMPLE_SIZE];
+		destinationStopSample = new String[SAMPLE_SIZE];
+		for (int i = 0; i < SAMPLE_SIZE; i++) {
+			tapOnSample[i] = tapOns.get((int) ((long) i * tapOns.size() / SAMPLE_SIZE));
+			sourceStopSample[i] = taps.get(i % taps.size()).getStopId();
+			destinationStopSample[i] = taps.get((i * 7 + 1) % taps.size()).getStopId();
+		}
+
+		// Stops of the taps are spread over the zones of the fare rules
+		Set<String> stops = new LinkedHashSet<String>();
+		for (Tap tap : taps) {
+			stops.add(tap.getStopId());
+		}
+		List<List<String>> zoneStops = new ArrayList<List<String>>();
+		for (int zone = 0; zone < ZONE_COUNT; zone++) {
+			zoneStops.add(new ArrayList<String>());
+		}
+		int stopNumber = 0;
+		for (String stop : stops) {
+			zoneStops.get(stopNumber++ % ZONE_COUNT).add(stop);
+		}
+		List<FareZone> zones = new ArrayList<FareZone>();
+		for (int zone = 0; zone < ZONE_COUNT; zone++) {
+			zones.add(new FareZone("Zone" + (zone + 1), zone, zoneStops.get(zone)));
+		}
+		FareRules fareRules = new FareRules();
+		fareRules.setZones(zones);
+		fareRules.setBands(Arrays.asList(new FareBand(1, 2.50), new FareBand(3, 4.00), new FareBand(ZONE_COUNT, 6.50)));
+		fareRules.setPeriods(
+				Arrays.asList(new FarePeriod("07:00", "09:30", 1.5), new FarePeriod("16:00", "18:30", 1.5)));
+		ruleFareIndex = FareIndex.compile(fareRules);
+		ruleSourceStopSample = new int[SAMPLE_SIZE];
+		ruleDestinationStopSample = new int[SAMPLE_SIZE];
+		tapOnTimeSample = new long[SAMPLE_SIZE];
+		for (int i = 0; i < SAMPLE_SIZE; i++) {
+			ruleSourceStopSample[i] = ruleFareIndex.getStopOrdinal(sourceStopSample[i]);
+			ruleDestinationStopSample[i] = ruleFareIndex.getStopOrdinal(destinationStopSample[i]);
+			tapOnTimeSample[i] = tapOnSample[i].getDatetimeUTC().toEpochSecond();
+		}
+	}
+
+	private int nextSample() {
+		sampleIndex = (sampleIndex + 1) & (SAMPLE_SIZE - 1);
+		return sampleIndex;
+	}
+
+	/**
+	 * Scans the tap list once for the OFF tap of one ON tap, looking only at the
+	 * taps of its journey recorded after it.
+	 */
+	@Benchmark
+	public Tap getTapOff() {
+		return tripGeneratorService.getTapOff(taps, tapOnSample[nextSample()]);
+	}
+
+	/**
+	 * Pairs every ON tap of the list.
+	 */
+	@Benchmark
+	public Map<Tap, Tap> getTapOffs() {
+		return tripGeneratorService.getTapOffs(taps);
+	}
+
+	/**
+	 * Pairs every ON tap of the tap batch.
+	 */
+	@Benchmark
+	public int[] getTapOffRows() {
+		return tripGeneratorService.getTapOffRows(tapBatch);
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.NANOSECONDS)
+	public double getMaxTripFare() throws TripGenerationException {
+		return tripGeneratorService.getTripFare(sourceStopSample[nextSample()]);
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.NANOSECONDS)
+	public double getTripFare() throws TripGenerationException {
+		int sample = nextSample();
+		return tripGeneratorService.getTripFare(sourceStopSample[sample], destinationStopSample[sample]);
+	}
+
+	/**
+	 * Looks up the fare of a trip in the zone fares and minute levels compiled
+	 * from fare rules.
+	 */
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.NANOSECONDS)
+	public double getRuleTripFare() throws TripGenerationException {
+		int sample = nextSample();
+		return tripGeneratorService.getTripFare(ruleFareIndex, ruleSourceStopSample[sample],
+				ruleDestinationStopSample[sample], tapOnTimeSample[sample]);
+	}
+}
@@ -1,5 +1,8 @@
 package net.codingchallenge.tripgenerator;
 
+import java.util.Arrays;
+
+import org.apache.commons.lang3.math.NumberUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -8,6 +11,8 @@ import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 
 import net.codingchallenge.tripgenerator.controller.TripGeneratorController;
+import net.codingchallenge.tripgenerator.exception.OutputFileException;
+import net.codingchallenge.tripgenerator.metrics.PipelineMetrics;
 
 /**
  * The CommandLineTaskExecutor class implements CommandLineRunner. It is
@@ -31,12 +36,56 @@ public class CommandLineTaskExecutor implements CommandLineRunner {
 	@Autowired(required = true)
 	TripGeneratorController tripGeneratorController;
 
+	@Autowired(required = true)
+	TapDataGeneratorTask tapDataGeneratorTask;
+
+	@Autowired(required = true)
+	TapIngestionTask tapIngestionTask;
+
+	@Autowired(required = true)
+	TripBatchTask tripBatchTask;
+
+	@Autowired(required = true)
+	PipelineMetrics pipelineMetrics;
+
+	final static String GENERATE_COMMAND = "generate";
+
+	final static String SERVE_COMMAND = "serve";
+
+	final static String BATCH_COMMAND = "batch";
+
+	/**
+	 * Options starting with -- are application properties, the other arguments
+	 * are either the input and output file paths, the generate command with the
+	 * output file path and the number of taps, the serve command with the tap
+	 * source and the output file path, or the batch command with one or more
+	 * input files, directories or glob patterns and the output directory. The
+	 * metrics of the run are saved at the end when a metrics file is configured.
+	 */
 	@Override
 	public void run(String... args) throws Exception {
-		if (args.length == 2) {
-			tripGeneratorController.generateTripsFromTaps(args[0], args[1]);
+		String[] arguments = Arrays.stream(args).filter(arg -> !arg.startsWith("--")).toArray(String[]::new);
+		if (arguments.length == 3 && GENERATE_COMMAND.equals(arguments[0])) {
+			if (NumberUtils.isDigits(arguments[2])) {
+				tapDataGeneratorTask.generateTaps(arguments[1], Long.parseLong(arguments[2]));
+			} else {
+				logger.error("Please provide the number of taps to generate.");
+			}
+		} else if (arguments.length == 3 && SERVE_COMMAND.equals(arguments[0])) {
+			tapIngestionTask.serve(arguments[1], arguments[2]);
+		} else if (arguments.length >= 3 && BATCH_COMMAND.equals(arguments[0])) {
+			tripBatchTask.generateTrips(Arrays.asList(arguments).subList(1, arguments.length - 1),
+					arguments[arguments.length - 1]);
+		} else if (arguments.length == 2) {
+			tripGeneratorController.generateTripsFromTaps(arguments[0], arguments[1]);
 		} else {
 			logger.error("Please provide the input and output file paths.");
+			return;
+		}
+		try {
+			pipelineMetrics.writeSummary();
+		} catch (OutputFileException e) {
+			logger.error("Error occured while saving the metrics. {}", () -> e.getMessage());
 		}
 	}
 }
@@ -0,0 +1,96 @@
+package net.codingchallenge.tripgenerator;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import net.codingchallenge.tripgenerator.config.JacksonConfig;
+import net.codingchallenge.tripgenerator.exception.OutputFileException;
+import net.codingchallenge.tripgenerator.generator.TapDataGenerator;
+import net.codingchallenge.tripgenerator.validator.TripGeneratorValidator;
+
+/**
+ * The TapDataGeneratorTask class writes synthetic tap data files for load
+ * testing. It is run by the CommandLineTaskExecutor with the generate command.
+ * The mix of taps is configured with the tripgenerator.generator properties,
+ * which can also be given on the command line.
+ * 
+ * @author Gihan Rajakaruna
+ *
+ */
+@Component
+public class TapDataGeneratorTask {
+
+	final static Logger logger = LogManager.getLogger(TapDataGeneratorTask.class);
+
+	@Autowired(required = true)
+	JacksonConfig jacksonConfig;
+
+	@Autowired(required = true)
+	TripGeneratorValidator tripGeneratorValidator;
+
+	@Value("${tripgenerator.generator.seed:42}")
+	long seed;
+
+	@Value("${tripgenerator.generator.accounts:100000}")
+	int accountCount;
+
+	@Value("${tripgenerator.generator.companies:2}")
+	int companyCount;
+
+	@Value("${tripgenerator.generator.buses:40}")
+	int busCount;
+
+	@Value("${tripgenerator.generator.stops:3}")
+	int stopCount;
+
+	@Value("${tripgenerator.generator.missing-off-ratio:0.05}")
+	double missingTapOffRatio;
+
+	@Value("${tripgenerator.generator.cancelled-ratio:0.05}")
+	double cancelledRatio;
+
+	@Value("${tripgenerator.generator.orphan-off-ratio:0.01}")
+	double orphanTapOffRatio;
+
+	@Value("${tripgenerator.generator.clock-skew-seconds:0}")
+	int clockSkewSeconds;
+
+	@Value("${tripgenerator.generator.threads:0}")
+	int threadCount;
+
+	/**
+	 * generateTaps method writes the given number of synthetic taps into the
+	 * output file.
+	 * 
+	 * @param outputFilePath
+	 * @param tapCount
+	 */
+	public void generateTaps(String outputFilePath, long tapCount) {
+		try {
+			tripGeneratorValidator.validateOutputFilePath(outputFilePath);
+			TapDataGenerator tapDataGenerator = createTapDataGenerator();
+			int threads = threadCount > 0 ? threadCount : Runtime.getRuntime().availableProcessors();
+			logger.debug("Generating {} taps with seed {} on {} thread(s)...", () -> tapCount, () -> seed,
+					() -> threads);
+			long startTime = System.nanoTime();
+			tapDataGenerator.writeTaps(outputFilePath, tapCount, jacksonConfig.getTapWriter(), threads);
+			logger.debug("Successfully saved {} taps to output file: {} in {} ms", () -> tapCount,
+					() -> outputFilePath, () -> (System.nanoTime() - startTime) / 1000000);
+		} catch (OutputFileException e) {
+			logger.error("Error occured while saving tap data. {}", () -> e.getMessage());
+		}
+	}
+
+	TapDataGenerator createTapDataGenerator() {
+		TapDataGenerator tapDataGenerator = new TapDataGenerator(seed, accountCount, stopCount, companyCount,
+				busCount);
+		tapDataGenerator.setMissingTapOffRatio(missingTapOffRatio);
+		tapDataGenerator.setCancelledRatio(cancelledRatio);
+		tapDataGenerator.setOrphanTapOffRatio(orphanTapOffRatio);
+		tapDataGenerator.setClockSkewSeconds(clockSkewSeconds);
+		return tapDataGenerator;
+	}
+}
@@ -0,0 +1,328 @@
+package net.codingchallenge.tripgenerator;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PreDestroy;
+
+import org.apache.commons.lang3.math.NumberUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import net.codingchallenge.tripgenerator.codec.CodecRegistry;
+import net.codingchallenge.tripgenerator.config.JacksonConfig;
+import net.codingchallenge.tripgenerator.controller.TripGeneratorController;
+import net.codingchallenge.tripgenerator.exception.InputFileException;
+import net.codingchallenge.tripgenerator.exception.OutputFileException;
+import net.codingchallenge.tripgenerator.exception.TripGenerationException;
+import net.codingchallenge.tripgenerator.io.TapDirectoryWatcher;
+import net.codingchallenge.tripgenerator.io.TapStreamReader;
+import net.codingchallenge.tripgenerator.io.TripBatchWriter;
+import net.codingchallenge.tripgenerator.metrics.PipelineMetrics;
+import net.codingchallenge.tripgenerator.metrics.ProgressLogger;
+import net.codingchallenge.tripgenerator.model.Tap;
+import net.codingchallenge.tripgenerator.service.JourneyMatcher;
+import net.codingchallenge.tripgenerator.validator.TripGeneratorValidator;
+
+/**
+ * The TapIngestionTask class runs the application as a resident service. Taps
+ * are read from an input directory, from newline delimited JSON on stdin or
+ * from connections to a local port. All inputs are put into one queue and a
+ * single thread matches the taps with the journey matcher of the controller,
+ * so open journeys are kept in memory across files and connections. Trips are
+ * written to the JSON Lines output file in micro-batches as soon as their OFF
+ * tap is read. A journey whose trip can't be generated is logged and skipped,
+ * so it doesn't stop the service. It is run by the CommandLineTaskExecutor
+ * with the serve command.
+ * 
+ * @author Gihan Rajakaruna
+ *
+ */
+@Component
+public class TapIngestionTask {
+
+	final static Logger logger = LogManager.getLogger(TapIngestionTask.class);
+
+	final static String STDIN_SOURCE = "-";
+
+	/**
+	 * Marks the end of the stdin input. Open journeys don't get an OFF tap after
+	 * it, so they generate INCOMPLETE trips.
+	 */
+	final static Tap END_OF_INPUT = new Tap();
+
+	/**
+	 * Stops the service. Open journeys are not completed.
+	 */
+	final static Tap STOP = new Tap();
+
+	final static long STOP_TIMEOUT_MILLIS = 5000;
+
+	@Autowired(required = true)
+	TripGeneratorController tripGeneratorController;
+
+	@Autowired(required = true)
+	TapStreamReader tapStreamReader;
+
+	@Autowired(required = true)
+	CodecRegistry codecRegistry;
+
+	@Autowired(required = true)
+	PipelineMetrics pipelineMetrics;
+
+	@Autowired(required = true)
+	JacksonConfig jacksonConfig;
+
+	@Autowired(required = true)
+	TripGeneratorValidator tripGeneratorValidator;
+
+	@Value("${tripgenerator.service.batch-size:1000}")
+	int batchSize;
+
+	@Value("${tripgenerator.service.max-latency-ms:1000}")
+	long maxLatencyMillis;
+
+	@Value("${tripgenerator.service.queue-capacity:65536}")
+	int queueCapacity;
+
+	@Value("${tripgenerator.log.progress-interval-taps:1000000}")
+	long progressIntervalTaps;
+
+	private volatile BlockingQueue<Tap> tapQueue;
+
+	private volatile CountDownLatch stopped;
+
+	/**
+	 * serve method reads taps from the source until the end of stdin or until the
+	 * application is stopped. The source is - for stdin, a port number for
+	 * connections to the local port, or else an input directory.
+	 * 
+	 * @param source
+	 * @param outputFilePath
+	 */
+	public void serve(String source, String outputFilePath) {
+		try {
+			tripGeneratorValidator.validateJsonLinesFilePath(outputFilePath);
+			TripBatchWriter tripBatchWriter = new TripBatchWriter(new FileOutputStream(outputFilePath),
+					jacksonConfig.getTripWriter(), batchSize, maxLatencyMillis);
+			// Batches written before a failure are complete lines, so they are kept
+			boolean completed = false;
+			try {
+				if (STDIN_SOURCE.equals(source)) {
+					ingest(System.in, tripBatchWriter);
+				} else if (NumberUtils.isDigits(source)) {
+					serveLocalPort(Integer.parseInt(source), tripBatchWriter);
+				} else {
+					serveDirectory(Paths.get(source), tripBatchWriter);
+				}
+				tripBatchWriter.close();
+				completed = true;
+			} finally {
+				if (!completed) {
+					tripBatchWriter.abort();
+				}
+			}
+			logger.debug("{} trip(s) saved to output file {} in {} batch(es).", () -> tripBatchWriter.getTripCount(),
+					() -> outputFilePath, () -> tripBatchWriter.getBatchCount());
+		} catch (IOException e) {
+			logger.error("Error occured while opening the tap input {}.", () -> source);
+		} catch (InputFileException e) {
+			logger.error("Error occured while reading the tap data. {}", () -> e.getMessage());
+		} catch (TripGenerationException e) {
+			logger.error("Error occured while generating trips from tap data. {}", () -> e.getMessage());
+		} catch (OutputFileException e) {
+			logger.error("Error occured while saving trip data. {}", () -> e.getMessage());
+		}
+	}
+
+	/**
+	 * ingest method reads newline delimited taps from the input stream on a reader
+	 * thread and generates the trips until the end of the stream.
+	 * 
+	 * @param inputStream
+	 * @param tripBatchWriter
+	 * @return number of taps read
+	 * @throws TripGenerationException
+	 * @throws OutputFileException
+	 */
+	long ingest(InputStream inputStream, TripBatchWriter tripBatchWriter)
+			throws TripGenerationException, OutputFileException {
+		BlockingQueue<Tap> queue = start();
+		startThread("tap-stream-reader", () -> {
+			readTapLines(inputStream, queue);
+			try {
+				enqueue(queue, END_OF_INPUT);
+			} catch (TripGenerationException e) {
+				logger.error("Error occured while reading the tap data. {}", () -> e.getMessage());
+			}
+		});
+		return consumeTaps(queue, tripBatchWriter);
+	}
+
+	private void serveLocalPort(int port, TripBatchWriter tripBatchWriter)
+			throws IOException, TripGenerationException, OutputFileException {
+		BlockingQueue<Tap> queue = start();
+		try (ServerSocket serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress())) {
+			startThread("tap-socket-acceptor", () -> acceptConnections(serverSocket, queue));
+			logger.debug("Reading taps from local port {}.", () -> port);
+			consumeTaps(queue, tripBatchWriter);
+		}
+	}
+
+	private void acceptConnections(ServerSocket serverSocket, BlockingQueue<Tap> queue) {
+		try {
+			while (true) {
+				Socket socket = serverSocket.accept();
+				startThread("tap-socket-reader-" + socket.getPort(), () -> {
+					try (Socket connection = socket) {
+						readTapLines(connection.getInputStream(), queue);
+					} catch (IOException e) {
+						logger.error("Error occured while reading taps from {}.", () -> socket);
+					}
+				});
+			}
+		} catch (IOException e) {
+			logger.debug("Stopped reading taps from local port {}.", () -> serverSocket.getLocalPort());
+		}
+	}
+
+	private void serveDirectory(Path directory, TripBatchWriter tripBatchWriter)
+			throws IOException, InputFileException, TripGenerationException, OutputFileException {
+		if (!Files.isDirectory(directory)) {
+			throw new InputFileException("Can't find the input directory.");
+		}
+		BlockingQueue<Tap> queue = start();
+		try (TapDirectoryWatcher tapDirectoryWatcher = new TapDirectoryWatcher(directory, file -> {
+			try {
+				long tapCount = codecRegistry.getCodec(null, file.toString()).readTaps(file.toString(),
+						tap -> enqueue(queue, tap));
+				logger.debug("{} taps read from input file {}.", () -> tapCount, () -> file);
+			} catch (InputFileException | TripGenerationException | OutputFileException e) {
+				logger.error("Error occured while reading the tap data of {}. {}", () -> file, () -> e.getMessage());
+			}
+		})) {
+			tapDirectoryWatcher.start();
+			consumeTaps(queue, tripBatchWriter);
+		}
+	}
+
+	private void readTapLines(InputStream inputStream, BlockingQueue<Tap> queue) {
+		try {
+			tapStreamReader.readTapLines(inputStream, tap -> enqueue(queue, tap));
+		} catch (InputFileException | TripGenerationException | OutputFileException e) {
+			logger.error("Error occured while reading the tap data. {}", () -> e.getMessage());
+		}
+	}
+
+	private static void enqueue(BlockingQueue<Tap> queue, Tap tap) throws TripGenerationException {
+		try {
+			queue.put(tap);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new TripGenerationException("Tap ingestion was interrupted.");
+		}
+	}
+
+	private static void startThread(String name, Runnable runnable) {
+		Thread thread = new Thread(runnable, name);
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * start method creates the queue of a new run of the service.
+	 * 
+	 * @return tap queue
+	 */
+	BlockingQueue<Tap> start() {
+		stopped = new CountDownLatch(1);
+		tapQueue = new ArrayBlockingQueue<Tap>(queueCapacity);
+		return tapQueue;
+	}
+
+	/**
+	 * consumeTaps method matches the taps of the queue until the end of the input
+	 * or until the service is stopped. While waiting for taps, the current batch
+	 * of trips is flushed when its latency runs out.
+	 * 
+	 * @param queue
+	 * @param tripBatchWriter
+	 * @return number of taps read
+	 * @throws TripGenerationException
+	 * @throws OutputFileException
+	 */
+	long consumeTaps(BlockingQueue<Tap> queue, TripBatchWriter tripBatchWriter)
+			throws TripGenerationException, OutputFileException {
+		JourneyMatcher journeyMatcher = tripGeneratorController.createJourneyMatcher(tripBatchWriter, true);
+		ProgressLogger progressLogger = new ProgressLogger(logger, "taps", progressIntervalTaps);
+		long tapCount = 0;
+		try {
+			try {
+				while (true) {
+					long nanosUntilFlush = tripBatchWriter.getNanosUntilFlush();
+					Tap tap = nanosUntilFlush == Long.MAX_VALUE ? queue.take()
+							: queue.poll(nanosUntilFlush, TimeUnit.NANOSECONDS);
+					if (tap == END_OF_INPUT) {
+						journeyMatcher.complete();
+						break;
+					} else if (tap == STOP) {
+						break;
+					} else if (tap != null) {
+						journeyMatcher.accept(tap);
+						progressLogger.increment();
+						tapCount++;
+					}
+					tripBatchWriter.flushIfDue();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			// The current batch isn't written when the trips failed
+			tripBatchWriter.flush();
+		} finally {
+			stopped.countDown();
+		}
+		pipelineMetrics.countTaps(tapCount);
+		long readTapCount = tapCount;
+		logger.debug("{} taps read. {} journey(s) are still open, {} closed by the watermark and {} tap(s) were late.",
+				() -> readTapCount, () -> journeyMatcher.getOpenJourneyCount(),
+				() -> journeyMatcher.getExpiredJourneyCount(), () -> journeyMatcher.getLateTapCount());
+		return tapCount;
+	}
+
+	/**
+	 * stop method stops the service when the application is shut down, and waits
+	 * for the trips of the current batch to be written.
+	 */
+	@PreDestroy
+	public void stop() {
+		BlockingQueue<Tap> queue = tapQueue;
+		if (queue != null && stopped.getCount() > 0) {
+			// Taps which are still queued are matched before stopping, unless the
+			// queue is full
+			if (!queue.offer(STOP)) {
+				queue.clear();
+				queue.offer(STOP);
+			}
+			try {
+				stopped.await(STOP_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+}
@@ -0,0 +1,268 @@
+package net.codingchallenge.tripgenerator;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import net.codingchallenge.tripgenerator.codec.CodecRegistry;
+import net.codingchallenge.tripgenerator.config.JacksonConfig;
+import net.codingchallenge.tripgenerator.controller.TripGeneratorController;
+import net.codingchallenge.tripgenerator.exception.InputFileException;
+import net.codingchallenge.tripgenerator.exception.OutputFileException;
+import net.codingchallenge.tripgenerator.exception.TripGenerationException;
+import net.codingchallenge.tripgenerator.io.CompressedFiles;
+import net.codingchallenge.tripgenerator.model.BatchSummary;
+import net.codingchallenge.tripgenerator.model.TripFileSummary;
+
+/**
+ * The TripBatchTask class generates the trips of many input files in one run,
+ * so the SpringBoot startup, the fare index, the Jackson setup and the JIT
+ * warm-up are shared by all of them. Inputs are files, directories or glob
+ * patterns. The files are processed at the same time on a fixed number of
+ * threads, each into its own output file in the output directory, and a
+ * summary of all files is written into the output directory at the end. A
+ * file which fails doesn't stop the other files. It is run by the
+ * CommandLineTaskExecutor with the batch command.
+ * 
+ * @author Gihan Rajakaruna
+ *
+ */
+@Component
+public class TripBatchTask {
+
+	final static Logger logger = LogManager.getLogger(TripBatchTask.class);
+
+	final static String SUMMARY_FILE_NAME = "batch-summary.json";
+
+	final static String GLOB_CHARACTERS = "*?[{";
+
+	@Autowired(required = true)
+	TripGeneratorController tripGeneratorController;
+
+	@Autowired(required = true)
+	CodecRegistry codecRegistry;
+
+	@Autowired(required = true)
+	JacksonConfig jacksonConfig;
+
+	@Value("${tripgenerator.batch.threads:0}")
+	int threadCount;
+
+	@Value("${tripgenerator.batch.output-extension:}")
+	String outputExtension;
+
+	/**
+	 * generateTrips method generates the trips of every input file into the output
+	 * directory and writes the summary.
+	 * 
+	 * @param inputs
+	 * @param outputDirectory
+	 * @return batch summary, or null if the inputs or the output directory are not
+	 *         valid
+	 */
+	public BatchSummary generateTrips(List<String> inputs, String outputDirectory) {
+		try {
+			Path outputDirectoryPath = Paths.get(outputDirectory);
+			if (!Files.isDirectory(outputDirectoryPath)) {
+				throw new OutputFileException("Can't find the output directory. The directory must exists.");
+			}
+			List<Path> inputFiles = findInputFiles(inputs);
+			logger.debug("Generating trips of {} input file(s) into {}.", () -> inputFiles.size(),
+					() -> outputDirectory);
+			BatchSummary batchSummary = generateTrips(inputFiles, outputDirectoryPath);
+			writeSummary(batchSummary, outputDirectoryPath.resolve(SUMMARY_FILE_NAME));
+			logger.info("{} trip(s) generated from {} file(s) in {} ms. {} file(s) failed.",
+					() -> batchSummary.getTripCount(), () -> batchSummary.getFileCount(),
+					() -> batchSummary.getDurationMillis(), () -> batchSummary.getFailedFileCount());
+			return batchSummary;
+		} catch (InputFileException e) {
+			logger.error("Error occured while reading the tap data. {}", () -> e.getMessage());
+		} catch (OutputFileException e) {
+			logger.error("Error occured while saving trip data. {}", () -> e.getMessage());
+		}
+		return null;
+	}
+
+	/**
+	 * generateTrips method submits one task for each input file to the executor
+	 * and collects the file summaries in input file order.
+	 */
+	private BatchSummary generateTrips(List<Path> inputFiles, Path outputDirectory) {
+		long startTime = System.nanoTime();
+		int threads = threadCount > 0 ? threadCount : Runtime.getRuntime().availableProcessors();
+		AtomicInteger threadNumber = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, inputFiles.size())),
+				runnable -> {
+					Thread thread = new Thread(runnable, "trip-batch-" + threadNumber.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				});
+		List<TripFileSummary> tripFileSummaries = new ArrayList<TripFileSummary>(inputFiles.size());
+		try {
+			List<Future<TripFileSummary>> futures = new ArrayList<Future<TripFileSummary>>(inputFiles.size());
+			Set<Path> outputFiles = new HashSet<Path>();
+			for (Path inputFile : inputFiles) {
+				Path outputFile = outputDirectory.resolve(getOutputFileName(inputFile));
+				if (inputFile.toAbsolutePath().normalize().equals(outputFile.toAbsolutePath().normalize())) {
+					futures.add(CompletableFuture.completedFuture(
+							failed(inputFile, outputFile, "Output file would replace the input file.")));
+				} else if (!outputFiles.add(outputFile)) {
+					futures.add(CompletableFuture.completedFuture(
+							failed(inputFile, outputFile, "Output file is written for another input file.")));
+				} else {
+					futures.add(executor.submit(() -> generateTrips(inputFile, outputFile)));
+				}
+			}
+			for (Future<TripFileSummary> future : futures) {
+				tripFileSummaries.add(future.get());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			// Every task returns its errors in the file summary
+			logger.error("Error occured while generating trips. {}", () -> e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+
+		BatchSummary batchSummary = new BatchSummary();
+		batchSummary.setFiles(tripFileSummaries);
+		batchSummary.setFileCount(tripFileSummaries.size());
+		for (TripFileSummary tripFileSummary : tripFileSummaries) {
+			if (tripFileSummary.getError() != null) {
+				batchSummary.setFailedFileCount(batchSummary.getFailedFileCount() + 1);
+			}
+			batchSummary.setTapCount(batchSummary.getTapCount() + tripFileSummary.getTapCount());
+			batchSummary.setTripCount(batchSummary.getTripCount() + tripFileSummary.getTripCount());
+		}
+		batchSummary.setDurationMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+		return batchSummary;
+	}
+
+	private TripFileSummary generateTrips(Path inputFile, Path outputFile) {
+		try {
+			TripFileSummary tripFileSummary = tripGeneratorController.generateTrips(inputFile.toString(),
+					outputFile.toString());
+			logger.debug("{} trip(s) generated from input file {} in {} ms.", () -> tripFileSummary.getTripCount(),
+					() -> inputFile, () -> tripFileSummary.getDurationMillis());
+			return tripFileSummary;
+		} catch (TripGenerationException | InputFileException | OutputFileException | RuntimeException e) {
+			logger.error("Error occured while generating trips from input file {}. {}", () -> inputFile,
+					() -> e.getMessage());
+			return failed(inputFile, outputFile, e.getMessage() != null ? e.getMessage() : e.toString());
+		}
+	}
+
+	private static TripFileSummary failed(Path inputFile, Path outputFile, String error) {
+		TripFileSummary tripFileSummary = new TripFileSummary(inputFile.toString(), outputFile.toString());
+		tripFileSummary.setError(error);
+		return tripFileSummary;
+	}
+
+	/**
+	 * findInputFiles method returns the input files of the inputs, in input order
+	 * and without duplicates. A directory has the files in it with a supported
+	 * data format, in file name order. A glob pattern, such as
+	 * taps/2021-01-22/*.json.gz, has the matching files under the directory
+	 * before the first glob character, in path order.
+	 * 
+	 * @param inputs
+	 * @return list of input files
+	 * @throws InputFileException
+	 */
+	List<Path> findInputFiles(List<String> inputs) throws InputFileException {
+		Set<Path> inputFiles = new LinkedHashSet<Path>();
+		for (String input : inputs) {
+			if (isGlob(input)) {
+				inputFiles.addAll(findGlobFiles(input));
+				continue;
+			}
+			Path path = Paths.get(input);
+			if (Files.isDirectory(path)) {
+				inputFiles.addAll(listFiles(path, 1, file -> codecRegistry.getInputCodec(file.toString()) != null));
+			} else if (Files.isRegularFile(path)) {
+				inputFiles.add(path);
+			} else {
+				throw new InputFileException("Can't find the input file or directory " + input + ".");
+			}
+		}
+		return new ArrayList<Path>(inputFiles);
+	}
+
+	private List<Path> findGlobFiles(String glob) throws InputFileException {
+		int globStart = StringUtils.indexOfAny(glob, GLOB_CHARACTERS);
+		int separator = Math.max(glob.lastIndexOf('/', globStart), glob.lastIndexOf('\\', globStart));
+		Path directory = Paths.get(separator < 0 ? "." : glob.substring(0, separator + 1));
+		PathMatcher pathMatcher = FileSystems.getDefault()
+				.getPathMatcher("glob:" + (separator < 0 ? directory.resolve(glob).toString() : glob));
+		if (!Files.isDirectory(directory)) {
+			throw new InputFileException("Can't find the input directory of " + glob + ".");
+		}
+		return listFiles(directory, Integer.MAX_VALUE, pathMatcher::matches);
+	}
+
+	private static List<Path> listFiles(Path directory, int maxDepth, Predicate<Path> filter)
+			throws InputFileException {
+		try (Stream<Path> paths = Files.walk(directory, maxDepth)) {
+			return paths.filter(Files::isRegularFile).filter(filter).sorted().collect(Collectors.toList());
+		} catch (IOException e) {
+			throw new InputFileException("Can't read the input directory " + directory + ".");
+		}
+	}
+
+	private static boolean isGlob(String input) {
+		return StringUtils.containsAny(input, GLOB_CHARACTERS);
+	}
+
+	/**
+	 * getOutputFileName method returns the name of the output file of an input
+	 * file. It is the input file name, with the configured output extension in
+	 * place of the data format and compression extensions.
+	 * 
+	 * @param inputFile
+	 * @return output file name
+	 */
+	String getOutputFileName(Path inputFile) {
+		String fileName = inputFile.getFileName().toString();
+		if (StringUtils.isBlank(outputExtension)) {
+			return fileName;
+		}
+		return FilenameUtils.removeExtension(CompressedFiles.removeCompressionExtention(fileName)) + "."
+				+ outputExtension.trim();
+	}
+
+	private void writeSummary(BatchSummary batchSummary, Path summaryFilePath) throws OutputFileException {
+		try {
+			jacksonConfig.getObjectMapper().writerWithDefaultPrettyPrinter().writeValue(summaryFilePath.toFile(),
+					batchSummary);
+		} catch (IOException e) {
+			throw new OutputFileException("Can't write the summary file.");
+		}
+	}
+}
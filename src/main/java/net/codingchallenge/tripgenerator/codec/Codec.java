@@ -0,0 +1,90 @@
+package net.codingchallenge.tripgenerator.codec;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import net.codingchallenge.tripgenerator.exception.InputFileException;
+import net.codingchallenge.tripgenerator.exception.OutputFileException;
+import net.codingchallenge.tripgenerator.exception.TripGenerationException;
+import net.codingchallenge.tripgenerator.io.TapStreamReader.TapHandler;
+import net.codingchallenge.tripgenerator.io.TripFileWriter;
+import net.codingchallenge.tripgenerator.model.TapBatch;
+import net.codingchallenge.tripgenerator.store.FareIndex;
+
+/**
+ * The Codec interface reads the taps of an input file and writes the trips of
+ * an output file in one data format. Codecs are chosen by the file extension
+ * or by the configured format name.
+ * 
+ * @author Gihan Rajakaruna
+ *
+ */
+public interface Codec {
+
+	/**
+	 * getName method returns the format name used to choose the codec.
+	 * 
+	 * @return format name
+	 */
+	String getName();
+
+	/**
+	 * getExtensions method returns the file extensions of the format, without
+	 * the dot.
+	 * 
+	 * @return list of extensions
+	 */
+	List<String> getExtensions();
+
+	/**
+	 * readTaps method reads the taps of the input file one at a time and passes
+	 * each tap to the handler.
+	 * 
+	 * @param inputFilePath
+	 * @param tapHandler
+	 * @return number of taps read
+	 * @throws InputFileException
+	 * @throws TripGenerationException
+	 * @throws OutputFileException
+	 */
+	long readTaps(String inputFilePath, TapHandler tapHandler)
+			throws InputFileException, TripGenerationException, OutputFileException;
+
+	/**
+	 * readTapBatch method reads the taps of the input file into a tap batch.
+	 * 
+	 * @param inputFilePath
+	 * @param fareIndex
+	 * @return tap batch
+	 * @throws InputFileException
+	 */
+	TapBatch readTapBatch(String inputFilePath, FareIndex fareIndex) throws InputFileException;
+
+	/**
+	 * readTapBatch method reads the taps of the input file into a tap batch, in
+	 * chunks of about the given size on the fork-join pool when the format can be
+	 * split. The rows are in the same order as reading the file on one thread.
+	 * 
+	 * @param inputFilePath
+	 * @param fareIndex
+	 * @param forkJoinPool
+	 * @param chunkSize
+	 * @return tap batch
+	 * @throws InputFileException
+	 */
+	default TapBatch readTapBatch(String inputFilePath, FareIndex fareIndex, ForkJoinPool forkJoinPool,
+			int chunkSize) throws InputFileException {
+		return readTapBatch(inputFilePath, fareIndex);
+	}
+
+	/**
+	 * createTripWriter method opens the output file to write trips one at a time.
+	 * Pretty printing only applies to text formats.
+	 * 
+	 * @param outputFilePath
+	 * @param prettyPrint
+	 * @return trip file writer
+	 * @throws OutputFileException
+	 */
+	TripFileWriter createTripWriter(String outputFilePath, boolean prettyPrint) throws OutputFileException;
+}
@@ -0,0 +1,137 @@
+package net.codingchallenge.tripgenerator.codec;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.annotation.PostConstruct;
+
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+import net.codingchallenge.tripgenerator.config.JacksonConfig;
+import net.codingchallenge.tripgenerator.io.CompressedFiles;
+import net.codingchallenge.tripgenerator.io.TapStreamReader;
+
+/**
+ * The CodecRegistry class keeps the codecs of the supported data formats. The
+ * codec of a file is the one of the configured format name, or else the one of
+ * the file extension.
+ * 
+ * @author Gihan Rajakaruna
+ *
+ */
+@Component
+public class CodecRegistry {
+
+	public final static String JSON = "json";
+
+	public final static String JSON_LINES = "jsonl";
+
+	public final static String SMILE = "smile";
+
+	public final static String CBOR = "cbor";
+
+	public final static String BINARY = "binary";
+
+	@Autowired(required = true)
+	JacksonConfig jacksonConfig;
+
+	@Autowired(required = true)
+	TapStreamReader tapStreamReader;
+
+	@Autowired(required = true)
+	CompressedFiles compressedFiles;
+
+	@Value("${tripgenerator.input.format:}")
+	String inputFormat;
+
+	@Value("${tripgenerator.output.format:}")
+	String outputFormat;
+
+	private final List<Codec> codecs = new ArrayList<Codec>();
+
+	@PostConstruct
+	public void init() {
+		codecs.add(new JacksonCodec(JSON, Collections.singletonList("json"), jacksonConfig.getObjectMapper(),
+				tapStreamReader, compressedFiles));
+		codecs.add(new JsonLinesCodec(JSON_LINES, Arrays.asList("jsonl", "ndjson"), jacksonConfig.getObjectMapper(),
+				tapStreamReader, compressedFiles));
+		codecs.add(new JacksonCodec(SMILE, Arrays.asList("smile", "sml"),
+				jacksonConfig.createObjectMapper(new SmileFactory()), tapStreamReader, compressedFiles));
+		codecs.add(new JacksonCodec(CBOR, Collections.singletonList("cbor"),
+				jacksonConfig.createObjectMapper(new CBORFactory()), tapStreamReader, compressedFiles));
+		codecs.add(new RecordCodec(BINARY, Collections.singletonList("bin"), compressedFiles));
+	}
+
+	/**
+	 * getInputCodec method returns the codec to read the input file, or null if
+	 * the format isn't supported.
+	 * 
+	 * @param inputFilePath
+	 * @return codec
+	 */
+	public Codec getInputCodec(String inputFilePath) {
+		return getCodec(inputFormat, inputFilePath);
+	}
+
+	/**
+	 * getOutputCodec method returns the codec to write the output file, or null if
+	 * the format isn't supported.
+	 * 
+	 * @param outputFilePath
+	 * @return codec
+	 */
+	public Codec getOutputCodec(String outputFilePath) {
+		return getCodec(outputFormat, outputFilePath);
+	}
+
+	/**
+	 * getCodec method returns the codec with the format name, or the codec of the
+	 * file extension when no format name is given. The extension of a compressed
+	 * file is the one before the compression extension.
+	 * 
+	 * @param format
+	 * @param filePath
+	 * @return codec
+	 */
+	public Codec getCodec(String format, String filePath) {
+		if (StringUtils.isNotBlank(format)) {
+			for (Codec codec : codecs) {
+				if (codec.getName().equalsIgnoreCase(format.trim())) {
+					return codec;
+				}
+			}
+			return null;
+		}
+		String fileExtention = FilenameUtils.getExtension(CompressedFiles.removeCompressionExtention(filePath));
+		for (Codec codec : codecs) {
+			for (String extension : codec.getExtensions()) {
+				if (extension.equalsIgnoreCase(fileExtention)) {
+					return codec;
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * getExtensions method returns the file extensions of all codecs.
+	 * 
+	 * @return list of extensions
+	 */
+	public List<String> getExtensions() {
+		List<String> extensions = new ArrayList<String>();
+		for (Codec codec : codecs) {
+			extensions.addAll(codec.getExtensions());
+		}
+		return extensions;
+	}
+}
@@ -0,0 +1,111 @@
+package net.codingchallenge.tripgenerator.codec;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import net.codingchallenge.tripgenerator.exception.InputFileException;
+import net.codingchallenge.tripgenerator.exception.OutputFileException;
+import net.codingchallenge.tripgenerator.exception.TripGenerationException;
+import net.codingchallenge.tripgenerator.io.CompressedFiles;
+import net.codingchallenge.tripgenerator.io.TapStreamReader;
+import net.codingchallenge.tripgenerator.io.TapStreamReader.TapHandler;
+import net.codingchallenge.tripgenerator.io.TripFileWriter;
+import net.codingchallenge.tripgenerator.io.TripStreamWriter;
+import net.codingchallenge.tripgenerator.model.Tap;
+import net.codingchallenge.tripgenerator.model.TapBatch;
+import net.codingchallenge.tripgenerator.model.Trip;
+import net.codingchallenge.tripgenerator.store.FareIndex;
+
+/**
+ * The JacksonCodec class reads the taps and writes the trips in a data format
+ * of Jackson, such as JSON, Smile or CBOR. The streaming readers and
+ * writers only use the token API of the parser and the generator, so they are
+ * the same for every format.
+ * 
+ * @author Gihan Rajakaruna
+ *
+ */
+public class JacksonCodec implements Codec {
+
+	private final String name;
+
+	private final List<String> extensions;
+
+	private final ObjectMapper objectMapper;
+
+	private final TapStreamReader tapStreamReader;
+
+	private final CompressedFiles compressedFiles;
+
+	private final ObjectReader tapReader;
+
+	private final ObjectWriter tripWriter;
+
+	public JacksonCodec(String name, List<String> extensions, ObjectMapper objectMapper,
+			TapStreamReader tapStreamReader, CompressedFiles compressedFiles) {
+		this.name = name;
+		this.extensions = extensions;
+		this.objectMapper = objectMapper;
+		this.tapStreamReader = tapStreamReader;
+		this.compressedFiles = compressedFiles;
+		this.tapReader = objectMapper.readerFor(Tap.class);
+		this.tripWriter = objectMapper.writerFor(Trip.class);
+	}
+
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public List<String> getExtensions() {
+		return extensions;
+	}
+
+	@Override
+	public long readTaps(String inputFilePath, TapHandler tapHandler)
+			throws InputFileException, TripGenerationException, OutputFileException {
+		return tapStreamReader.readTaps(inputFilePath, tapReader, tapHandler);
+	}
+
+	@Override
+	public TapBatch readTapBatch(String inputFilePath, FareIndex fareIndex) throws InputFileException {
+		return tapStreamReader.readTapBatch(inputFilePath, fareIndex, objectMapper.getFactory());
+	}
+
+	/**
+	 * Only JSON can be split into chunks at the boundaries between tap objects.
+	 */
+	@Override
+	public TapBatch readTapBatch(String inputFilePath, FareIndex fareIndex, ForkJoinPool forkJoinPool,
+			int chunkSize) throws InputFileException {
+		if (JsonFactory.FORMAT_NAME_JSON.equals(objectMapper.getFactory().getFormatName())) {
+			return tapStreamReader.readTapBatch(inputFilePath, fareIndex, forkJoinPool, chunkSize);
+		}
+		return readTapBatch(inputFilePath, fareIndex);
+	}
+
+	/**
+	 * Binary formats are never pretty printed. Compressed files are written
+	 * through the compressor instead of the file channel.
+	 */
+	@Override
+	public TripFileWriter createTripWriter(String outputFilePath, boolean prettyPrint) throws OutputFileException {
+		boolean prettyPrintText = prettyPrint && !objectMapper.getFactory().canHandleBinaryNatively();
+		if (CompressedFiles.isCompressed(outputFilePath)) {
+			try {
+				return new TripStreamWriter(compressedFiles.newOutputStream(outputFilePath), tripWriter,
+						prettyPrintText);
+			} catch (IOException e) {
+				throw new OutputFileException();
+			}
+		}
+		return new TripStreamWriter(outputFilePath, tripWriter, prettyPrintText);
+	}
+}
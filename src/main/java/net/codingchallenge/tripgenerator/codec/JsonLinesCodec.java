@@ -0,0 +1,96 @@
+package net.codingchallenge.tripgenerator.codec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import net.codingchallenge.tripgenerator.exception.InputFileException;
+import net.codingchallenge.tripgenerator.exception.OutputFileException;
+import net.codingchallenge.tripgenerator.exception.TripGenerationException;
+import net.codingchallenge.tripgenerator.io.CompressedFiles;
+import net.codingchallenge.tripgenerator.io.TapStreamReader;
+import net.codingchallenge.tripgenerator.io.TapStreamReader.TapHandler;
+import net.codingchallenge.tripgenerator.io.TripBatchWriter;
+import net.codingchallenge.tripgenerator.io.TripFileWriter;
+import net.codingchallenge.tripgenerator.model.TapBatch;
+import net.codingchallenge.tripgenerator.model.Trip;
+import net.codingchallenge.tripgenerator.store.FareIndex;
+
+/**
+ * The JsonLinesCodec class reads and writes JSON Lines files, with one tap or
+ * one trip JSON object per line and without the taps and trips wrappers. The
+ * files can be appended to, split at any line and streamed through pipes.
+ * 
+ * @author Gihan Rajakaruna
+ *
+ */
+public class JsonLinesCodec implements Codec {
+
+	private final String name;
+
+	private final List<String> extensions;
+
+	private final TapStreamReader tapStreamReader;
+
+	private final CompressedFiles compressedFiles;
+
+	private final ObjectWriter tripWriter;
+
+	public JsonLinesCodec(String name, List<String> extensions, ObjectMapper objectMapper,
+			TapStreamReader tapStreamReader, CompressedFiles compressedFiles) {
+		this.name = name;
+		this.extensions = extensions;
+		this.tapStreamReader = tapStreamReader;
+		this.compressedFiles = compressedFiles;
+		this.tripWriter = objectMapper.writerFor(Trip.class);
+	}
+
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public List<String> getExtensions() {
+		return extensions;
+	}
+
+	@Override
+	public long readTaps(String inputFilePath, TapHandler tapHandler)
+			throws InputFileException, TripGenerationException, OutputFileException {
+		try (InputStream inputStream = compressedFiles.newInputStream(inputFilePath)) {
+			return tapStreamReader.readTapLines(inputStream, tapHandler);
+		} catch (IOException e) {
+			throw new InputFileException();
+		}
+	}
+
+	@Override
+	public TapBatch readTapBatch(String inputFilePath, FareIndex fareIndex) throws InputFileException {
+		return tapStreamReader.readTapLineBatch(inputFilePath, fareIndex);
+	}
+
+	@Override
+	public TapBatch readTapBatch(String inputFilePath, FareIndex fareIndex, ForkJoinPool forkJoinPool,
+			int chunkSize) throws InputFileException {
+		return tapStreamReader.readTapLineBatch(inputFilePath, fareIndex, forkJoinPool, chunkSize);
+	}
+
+	/**
+	 * JSON Lines are never pretty printed. The trips are only flushed when the
+	 * buffer is full.
+	 */
+	@Override
+	public TripFileWriter createTripWriter(String outputFilePath, boolean prettyPrint) throws OutputFileException {
+		try {
+			return new TripBatchWriter(compressedFiles.newOutputStream(outputFilePath), tripWriter,
+					Integer.MAX_VALUE, 0);
+		} catch (IOException e) {
+			throw new OutputFileException();
+		}
+	}
+}
@@ -0,0 +1,309 @@
+package net.codingchallenge.tripgenerator.codec;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.ZonedDateTime;
+import java.util.List;
+
+import net.codingchallenge.tripgenerator.enums.TapType;
+import net.codingchallenge.tripgenerator.exception.InputFileException;
+import net.codingchallenge.tripgenerator.exception.OutputFileException;
+import net.codingchallenge.tripgenerator.exception.TripGenerationException;
+import net.codingchallenge.tripgenerator.io.CompressedFiles;
+import net.codingchallenge.tripgenerator.io.TapStreamReader.TapHandler;
+import net.codingchallenge.tripgenerator.io.TripFileWriter;
+import net.codingchallenge.tripgenerator.json.DateTimeCodec;
+import net.codingchallenge.tripgenerator.model.Tap;
+import net.codingchallenge.tripgenerator.model.TapBatch;
+import net.codingchallenge.tripgenerator.model.Trip;
+import net.codingchallenge.tripgenerator.store.FareIndex;
+
+/**
+ * The RecordCodec class reads and writes taps and trips as length prefixed
+ * binary records. A file starts with a magic number and a version, and each
+ * record is its length followed by its fields. Times are epoch seconds, enums
+ * are ordinals and strings are UTF-8 bytes with their length, so nothing is
+ * parsed from text. Readers skip the bytes of a record after the fields they
+ * know, so fields can be added to the end of a record in a later version.
+ * 
+ * Tap record: id, tap time, tap type, stop id, company id, bus id and account
+ * number. Trip record: started, finished, duration, from stop id, to stop id,
+ * charge amount, company id, bus id, account number and status.
+ * 
+ * @author Gihan Rajakaruna
+ *
+ */
+public class RecordCodec implements Codec {
+
+	final static int TAP_FILE_MAGIC = 0x54415052;
+
+	final static int TRIP_FILE_MAGIC = 0x54525052;
+
+	final static int VERSION = 1;
+
+	final static int BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * Length of a null string, and value of a null time or number
+	 */
+	final static int NULL_LENGTH = -1;
+
+	final static long NULL_VALUE = Long.MIN_VALUE;
+
+	final static byte NULL_ORDINAL = -1;
+
+	private final String name;
+
+	private final List<String> extensions;
+
+	private final CompressedFiles compressedFiles;
+
+	public RecordCodec(String name, List<String> extensions, CompressedFiles compressedFiles) {
+		this.name = name;
+		this.extensions = extensions;
+		this.compressedFiles = compressedFiles;
+	}
+
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public List<String> getExtensions() {
+		return extensions;
+	}
+
+	@Override
+	public long readTaps(String inputFilePath, TapHandler tapHandler)
+			throws InputFileException, TripGenerationException, OutputFileException {
+		long tapCount = 0;
+		try (RecordReader recordReader = new RecordReader(compressedFiles.newInputStream(inputFilePath), TAP_FILE_MAGIC)) {
+			ByteBuffer record;
+			while ((record = recordReader.next()) != null) {
+				tapHandler.onTap(new Tap(record.getInt(), toZonedDateTime(record.getLong()),
+						getTapType(record.get()), getString(record), getString(record), getString(record),
+						getString(record)));
+				tapCount++;
+			}
+		} catch (IOException | RuntimeException e) {
+			throw new InputFileException();
+		}
+		return tapCount;
+	}
+
+	@Override
+	public TapBatch readTapBatch(String inputFilePath, FareIndex fareIndex) throws InputFileException {
+		TapBatch tapBatch = new TapBatch(fareIndex);
+		try (RecordReader recordReader = new RecordReader(compressedFiles.newInputStream(inputFilePath), TAP_FILE_MAGIC)) {
+			ByteBuffer record;
+			while ((record = recordReader.next()) != null) {
+				int id = record.getInt();
+				long epochSecond = record.getLong();
+				if (epochSecond == NULL_VALUE) {
+					throw new InputFileException("Tap " + id + " doesn't have a tap time.");
+				}
+				tapBatch.add(id, epochSecond, getTapType(record.get()), getString(record), getString(record),
+						getString(record), getString(record));
+			}
+		} catch (IOException | RuntimeException e) {
+			throw new InputFileException();
+		}
+		return tapBatch;
+	}
+
+	@Override
+	public TripFileWriter createTripWriter(String outputFilePath, boolean prettyPrint) throws OutputFileException {
+		try {
+			return new RecordTripWriter(new RecordWriter(compressedFiles.newOutputStream(outputFilePath), TRIP_FILE_MAGIC));
+		} catch (IOException e) {
+			throw new OutputFileException();
+		}
+	}
+
+	private static TapType getTapType(byte ordinal) {
+		return ordinal == NULL_ORDINAL ? null : TapType.values()[ordinal];
+	}
+
+	static ZonedDateTime toZonedDateTime(long epochSecond) {
+		return epochSecond == NULL_VALUE ? null : DateTimeCodec.toZonedDateTime(epochSecond);
+	}
+
+	static String getString(ByteBuffer record) {
+		int length = record.getInt();
+		if (length == NULL_LENGTH) {
+			return null;
+		}
+		String value = new String(record.array(), record.arrayOffset() + record.position(), length,
+				StandardCharsets.UTF_8);
+		record.position(record.position() + length);
+		return value;
+	}
+
+	static void writeString(DataOutputStream record, String value) throws IOException {
+		if (value == null) {
+			record.writeInt(NULL_LENGTH);
+		} else {
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			record.writeInt(bytes.length);
+			record.write(bytes);
+		}
+	}
+
+	/**
+	 * The RecordTripWriter class writes each trip as a record as soon as it is
+	 * generated.
+	 */
+	static class RecordTripWriter implements TripFileWriter {
+
+		private final RecordWriter recordWriter;
+
+		private long tripCount;
+
+		RecordTripWriter(RecordWriter recordWriter) {
+			this.recordWriter = recordWriter;
+		}
+
+		@Override
+		public void write(Trip trip) throws OutputFileException {
+			try {
+				DataOutputStream record = recordWriter.startRecord();
+				record.writeLong(trip.getStarted() == null ? NULL_VALUE : trip.getStarted().toEpochSecond());
+				record.writeLong(trip.getFinished() == null ? NULL_VALUE : trip.getFinished().toEpochSecond());
+				record.writeLong(trip.getDurationSecs() == null ? NULL_VALUE : trip.getDurationSecs());
+				writeString(record, trip.getFromStopId());
+				writeString(record, trip.getToStopId());
+				record.writeBoolean(trip.getChargeAmount() != null);
+				if (trip.getChargeAmount() != null) {
+					record.writeDouble(trip.getChargeAmount());
+				}
+				writeString(record, trip.getCompanyId());
+				writeString(record, trip.getBusId());
+				writeString(record, trip.getPrimaryAccountNumber());
+				record.writeByte(trip.getStatus() == null ? NULL_ORDINAL : trip.getStatus().ordinal());
+				recordWriter.endRecord();
+				tripCount++;
+			} catch (IOException e) {
+				throw new OutputFileException();
+			}
+		}
+
+		@Override
+		public long getTripCount() {
+			return tripCount;
+		}
+
+		@Override
+		public void close() throws OutputFileException {
+			try {
+				recordWriter.close();
+			} catch (IOException e) {
+				throw new OutputFileException();
+			}
+		}
+
+		@Override
+		public void abort() {
+			recordWriter.abort();
+		}
+	}
+
+	/**
+	 * The RecordWriter class writes the file header and the records. The fields
+	 * of a record are written into a reused buffer, so the length can be written
+	 * before them.
+	 */
+	static class RecordWriter implements AutoCloseable {
+
+		private final OutputStream outputStream;
+
+		private final DataOutputStream output;
+
+		private final ByteArrayOutputStream recordBuffer = new ByteArrayOutputStream();
+
+		private final DataOutputStream record = new DataOutputStream(recordBuffer);
+
+		RecordWriter(OutputStream outputStream, int magic) throws IOException {
+			this.outputStream = outputStream;
+			output = new DataOutputStream(new BufferedOutputStream(outputStream, BUFFER_SIZE));
+			output.writeInt(magic);
+			output.writeInt(VERSION);
+		}
+
+		DataOutputStream startRecord() {
+			recordBuffer.reset();
+			return record;
+		}
+
+		void endRecord() throws IOException {
+			output.writeInt(recordBuffer.size());
+			recordBuffer.writeTo(output);
+		}
+
+		@Override
+		public void close() throws IOException {
+			output.close();
+		}
+
+		/**
+		 * abort method closes the output without writing the buffered records.
+		 */
+		void abort() {
+			try {
+				outputStream.close();
+			} catch (IOException e) {
+				// The output file is incomplete anyway
+			}
+		}
+	}
+
+	/**
+	 * The RecordReader class checks the file header and reads one record at a
+	 * time into a reused buffer.
+	 */
+	static class RecordReader implements AutoCloseable {
+
+		private final DataInputStream input;
+
+		private byte[] buffer = new byte[256];
+
+		RecordReader(InputStream inputStream, int magic) throws IOException, InputFileException {
+			input = new DataInputStream(new BufferedInputStream(inputStream, BUFFER_SIZE));
+			if (input.readInt() != magic || input.readInt() != VERSION) {
+				input.close();
+				throw new InputFileException("Input file is not a binary record file.");
+			}
+		}
+
+		/**
+		 * next method returns the next record, or null at the end of the file.
+		 */
+		ByteBuffer next() throws IOException {
+			int length;
+			try {
+				length = input.readInt();
+			} catch (EOFException e) {
+				return null;
+			}
+			if (length > buffer.length) {
+				buffer = new byte[Math.max(length, buffer.length * 2)];
+			}
+			input.readFully(buffer, 0, length);
+			return ByteBuffer.wrap(buffer, 0, length);
+		}
+
+		@Override
+		public void close() throws IOException {
+			input.close();
+		}
+	}
+}
@@ -0,0 +1,114 @@
+package net.codingchallenge.tripgenerator.config;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.util.DefaultPrettyPrinter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
+
+import net.codingchallenge.tripgenerator.model.Tap;
+import net.codingchallenge.tripgenerator.model.Taps;
+import net.codingchallenge.tripgenerator.model.Trip;
+import net.codingchallenge.tripgenerator.model.Trips;
+
+/**
+ * The JacksonConfig class creates the ObjectMapper once and provides readers
+ * and writers for the input and output models. ObjectReader and ObjectWriter
+ * are immutable and thread-safe, and they share the serializer and
+ * deserializer caches of the ObjectMapper, so they are reused for every file.
+ * 
+ * @author Gihan Rajakaruna
+ *
+ */
+@Component
+public class JacksonConfig {
+
+	@Value("${tripgenerator.jackson.afterburner:false}")
+	boolean afterburner;
+
+	private ObjectMapper objectMapper;
+
+	private ObjectReader tapsReader;
+
+	private ObjectReader tapReader;
+
+	private ObjectWriter tapWriter;
+
+	private ObjectWriter tripsWriter;
+
+	private ObjectWriter tripWriter;
+
+	@PostConstruct
+	public void init() {
+		objectMapper = createObjectMapper(afterburner);
+		tapsReader = objectMapper.readerFor(Taps.class);
+		tapReader = objectMapper.readerFor(Tap.class);
+		tapWriter = objectMapper.writerFor(Tap.class);
+		// Create ObjectWriter using DefaultPrettyPrinter instance to format the output
+		tripsWriter = objectMapper.writerFor(Trips.class).with(new DefaultPrettyPrinter());
+		tripWriter = objectMapper.writerFor(Trip.class);
+	}
+
+	/**
+	 * createObjectMapper method creates an ObjectMapper which can read and write
+	 * the input and output models. Afterburner module replaces reflection with
+	 * generated bytecode when accessing the model properties.
+	 * 
+	 * @param afterburner
+	 * @return object mapper
+	 */
+	public static ObjectMapper createObjectMapper(boolean afterburner) {
+		return createObjectMapper(new ObjectMapper(), afterburner);
+	}
+
+	private static ObjectMapper createObjectMapper(ObjectMapper mapper, boolean afterburner) {
+		// Need to register JavaTimeModule to work with Java 8 ZonedDateTime
+		mapper.registerModule(new JavaTimeModule());
+		if (afterburner) {
+			mapper.registerModule(new AfterburnerModule());
+		}
+		return mapper;
+	}
+
+	/**
+	 * createObjectMapper method creates an ObjectMapper like the JSON one for
+	 * another data format of Jackson, such as Smile or CBOR.
+	 * 
+	 * @param jsonFactory
+	 * @return object mapper
+	 */
+	public ObjectMapper createObjectMapper(JsonFactory jsonFactory) {
+		return createObjectMapper(new ObjectMapper(jsonFactory), afterburner);
+	}
+
+	public ObjectMapper getObjectMapper() {
+		return objectMapper;
+	}
+
+	public ObjectReader getTapsReader() {
+		return tapsReader;
+	}
+
+	public ObjectReader getTapReader() {
+		return tapReader;
+	}
+
+	public ObjectWriter getTapWriter() {
+		return tapWriter;
+	}
+
+	public ObjectWriter getTripsWriter() {
+		return tripsWriter;
+	}
+
+	public ObjectWriter getTripWriter() {
+		return tripWriter;
+	}
+}
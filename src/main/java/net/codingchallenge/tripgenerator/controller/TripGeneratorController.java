@@ -1,28 +1,55 @@
 package net.codingchallenge.tripgenerator.controller;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Controller;
 
-import com.fasterxml.jackson.core.util.DefaultPrettyPrinter;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.ObjectWriter;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
-
+import net.codingchallenge.tripgenerator.codec.Codec;
+import net.codingchallenge.tripgenerator.codec.CodecRegistry;
+import net.codingchallenge.tripgenerator.config.JacksonConfig;
+import net.codingchallenge.tripgenerator.enums.TapType;
 import net.codingchallenge.tripgenerator.exception.InputFileException;
 import net.codingchallenge.tripgenerator.exception.OutputFileException;
 import net.codingchallenge.tripgenerator.exception.TripGenerationException;
+import net.codingchallenge.tripgenerator.io.CompressedFiles;
+import net.codingchallenge.tripgenerator.io.TapStreamReader;
+import net.codingchallenge.tripgenerator.io.TripCheckpoint;
+import net.codingchallenge.tripgenerator.io.TripFileWriter;
+import net.codingchallenge.tripgenerator.io.TripSink;
+import net.codingchallenge.tripgenerator.io.TripStreamWriter;
+import net.codingchallenge.tripgenerator.metrics.PipelineMetrics;
+import net.codingchallenge.tripgenerator.metrics.ProgressLogger;
+import net.codingchallenge.tripgenerator.model.JourneyKey;
+import net.codingchallenge.tripgenerator.model.StringDictionary;
 import net.codingchallenge.tripgenerator.model.Tap;
+import net.codingchallenge.tripgenerator.model.TapBatch;
 import net.codingchallenge.tripgenerator.model.Taps;
 import net.codingchallenge.tripgenerator.model.Trip;
-import net.codingchallenge.tripgenerator.model.Trips;
+import net.codingchallenge.tripgenerator.model.TripFileSummary;
+import net.codingchallenge.tripgenerator.service.JourneyMatcher;
 import net.codingchallenge.tripgenerator.service.TripGeneratorService;
+import net.codingchallenge.tripgenerator.store.OpenJourneyStore;
+import net.codingchallenge.tripgenerator.store.TripCostStore;
 import net.codingchallenge.tripgenerator.validator.TripGeneratorValidator;
 
 /**
@@ -43,6 +70,84 @@ public class TripGeneratorController {
 	@Autowired(required = true)
 	TripGeneratorValidator tripGeneratorValidator;
 
+	@Autowired(required = true)
+	TapStreamReader tapStreamReader;
+
+	@Autowired(required = true)
+	JacksonConfig jacksonConfig;
+
+	@Autowired(required = true)
+	CodecRegistry codecRegistry;
+
+	@Autowired(required = true)
+	CompressedFiles compressedFiles;
+
+	@Autowired(required = true)
+	PipelineMetrics pipelineMetrics;
+
+	@Value("${tripgenerator.input.streaming:false}")
+	boolean streamingInput;
+
+	@Value("${tripgenerator.output.pretty:true}")
+	boolean prettyOutput;
+
+	@Value("${tripgenerator.parallelism:0}")
+	int parallelism;
+
+	@Value("${tripgenerator.parallel.threshold:10000}")
+	int parallelThreshold;
+
+	@Value("${tripgenerator.input.chunk-size:16777216}")
+	int inputChunkSize;
+
+	@Value("${tripgenerator.watermark.max-journey-seconds:0}")
+	long maxJourneySeconds;
+
+	@Value("${tripgenerator.watermark.allowed-lateness-seconds:0}")
+	long allowedLatenessSeconds;
+
+	@Value("${tripgenerator.journeys.off-heap:false}")
+	boolean offHeapJourneys;
+
+	@Value("${tripgenerator.journeys.initial-capacity:65536}")
+	int initialJourneyCapacity;
+
+	@Value("${tripgenerator.checkpoint.interval-taps:0}")
+	long checkpointIntervalTaps;
+
+	@Value("${tripgenerator.log.progress-interval-taps:1000000}")
+	long progressIntervalTaps;
+
+	final static String CHECKPOINT_FILE_EXTENTION = ".checkpoint";
+
+	/**
+	 * Partitions are smaller than the work of one thread, so that a few large
+	 * journeys don't keep one thread busy while the others are idle.
+	 */
+	final static int PARTITIONS_PER_THREAD = 4;
+
+	ForkJoinPool forkJoinPool;
+
+	/**
+	 * initForkJoinPool method creates the pool used to generate trips in parallel.
+	 * Parallelism 0 uses all available processors and parallelism 1 generates
+	 * trips on the calling thread.
+	 */
+	@PostConstruct
+	public void initForkJoinPool() {
+		int threadCount = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+		if (threadCount > 1) {
+			forkJoinPool = new ForkJoinPool(threadCount);
+		}
+	}
+
+	@PreDestroy
+	public void shutdownForkJoinPool() {
+		if (forkJoinPool != null) {
+			forkJoinPool.shutdown();
+		}
+	}
+
 	/**
 	 * generateTripsFromTaps method reads taps data from the input file and generate
 	 * the trips output.
@@ -52,18 +157,75 @@ public class TripGeneratorController {
 	 */
 	public void generateTripsFromTaps(String inputFilePath, String outputFilePath) {
 		try {
-			tripGeneratorValidator.validateFilePaths(inputFilePath, outputFilePath);
+			generateTrips(inputFilePath, outputFilePath);
+		} catch (TripGenerationException e) {
+			logger.error("Error occured while generating trips from tap data. {}", () -> e.getMessage());
+		} catch (InputFileException e) {
+			logger.error("Error occured while reading the tap data. {}", () -> e.getMessage());
+		} catch (OutputFileException e) {
+			logger.error("Error occured while saving trip data. {}", () -> e.getMessage());
+		}
+	}
+
+	/**
+	 * generateTrips method reads taps data from the input file and generate the
+	 * trips output like generateTripsFromTaps, but throws the errors to the
+	 * caller. It can be called for different files at the same time.
+	 * 
+	 * @param inputFilePath
+	 * @param outputFilePath
+	 * @return summary with the number of taps read and trips saved
+	 * @throws TripGenerationException
+	 * @throws InputFileException
+	 * @throws OutputFileException
+	 */
+	public TripFileSummary generateTrips(String inputFilePath, String outputFilePath)
+			throws TripGenerationException, InputFileException, OutputFileException {
+		TripFileSummary tripFileSummary = new TripFileSummary(inputFilePath, outputFilePath);
+		long startTime = System.nanoTime();
+		tripGeneratorValidator.validateFilePaths(inputFilePath, outputFilePath);
 
+		// Checkpoints have the byte offsets of JSON input and output files
+		if (streamingInput && checkpointIntervalTaps > 0 && isJsonFormat(inputFilePath, outputFilePath)) {
+			logger.debug("Streaming Tap data from input file with checkpoints: {}", () -> inputFilePath);
+			streamTripsWithCheckpoints(inputFilePath, outputFilePath, tripFileSummary);
+			pipelineMetrics.recordStage(PipelineMetrics.STAGE_STREAM, startTime);
+		} else if (streamingInput) {
+			logger.debug("Streaming Tap data from input file: {}", () -> inputFilePath);
+			TripFileWriter tripFileWriter = codecRegistry.getOutputCodec(outputFilePath)
+					.createTripWriter(outputFilePath, prettyOutput);
+			boolean completed = false;
+			try {
+				tripFileSummary.setTapCount(streamTripsFromInputFile(inputFilePath, tripFileWriter));
+				tripFileWriter.close();
+				completed = true;
+			} finally {
+				if (!completed) {
+					abortTripFile(tripFileWriter, outputFilePath);
+				}
+			}
+			tripFileSummary.setTripCount(tripFileWriter.getTripCount());
+			logger.debug("{} trip(s) generated from input data and saved to output file: {}",
+					() -> tripFileWriter.getTripCount(), () -> outputFilePath);
+			pipelineMetrics.recordStage(PipelineMetrics.STAGE_STREAM, startTime);
+		} else {
 			logger.debug("Reading Tap data from input file: {}", () -> inputFilePath);
 
-			List<Tap> taps = readTapsFromInputFile(inputFilePath);
-			if (taps != null && !taps.isEmpty()) {
-				logger.debug("Input file contains {} taps. Processing...", () -> taps.size());
-				List<Trip> trips = generateTripsFromTaps(taps);
+			// Taps are read into columns, Tap objects are never created
+			TapBatch tapBatch = readTapBatchFromInputFile(inputFilePath);
+			tripFileSummary.setTapCount(tapBatch.size());
+			pipelineMetrics.recordStage(PipelineMetrics.STAGE_READ, startTime);
+			if (tapBatch.size() > 0) {
+				logger.debug("Input file contains {} taps. Processing...", () -> tapBatch.size());
+				List<Trip> trips = generateTripsFromTapBatch(tapBatch);
 				if (trips != null && !trips.isEmpty()) {
 					logger.debug("{} trip(s) generated from input data. Saving the data to output file...",
 							() -> trips.size());
+					pipelineMetrics.countTrips(trips);
+					long writeStartTime = System.nanoTime();
 					writeTripsToOutputFile(trips, outputFilePath);
+					pipelineMetrics.recordStage(PipelineMetrics.STAGE_WRITE, writeStartTime);
+					tripFileSummary.setTripCount(trips.size());
 					logger.debug("Successfully saved trip data to output file: {}", () -> outputFilePath);
 				} else {
 					logger.debug("No trips were generated. Nothing to output into file. Please check the input data.");
@@ -71,13 +233,38 @@ public class TripGeneratorController {
 			} else {
 				logger.debug("No taps were found in input data. Please check the input data.");
 			}
-		} catch (TripGenerationException e) {
-			logger.error("Error occured while generating trips from tap data. {}", () -> e.getMessage());
-		} catch (InputFileException e) {
-			logger.error("Error occured while reading the tap data. {}", () -> e.getMessage());
-		} catch (OutputFileException e) {
-			logger.error("Error occured while saving trip data. {}", () -> e.getMessage());
 		}
+		pipelineMetrics.countFile(tripFileSummary.getTapCount(), inputFilePath, outputFilePath);
+		tripFileSummary.setDurationMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+		return tripFileSummary;
+	}
+
+	/**
+	 * Checkpoints have byte offsets, so they are only taken when both files are
+	 * uncompressed JSON.
+	 */
+	private boolean isJsonFormat(String inputFilePath, String outputFilePath) {
+		return CodecRegistry.JSON.equals(codecRegistry.getInputCodec(inputFilePath).getName())
+				&& CodecRegistry.JSON.equals(codecRegistry.getOutputCodec(outputFilePath).getName())
+				&& !CompressedFiles.isCompressed(inputFilePath) && !CompressedFiles.isCompressed(outputFilePath);
+	}
+
+	/**
+	 * readTapBatchFromInputFile method reads the input file into a tap batch with
+	 * the codec of the input file. JSON and JSON Lines input files larger than the
+	 * chunk size are split into chunks which are parsed in parallel on the
+	 * fork-join pool.
+	 * 
+	 * @param inputFilePath
+	 * @return tap batch
+	 * @throws InputFileException
+	 */
+	TapBatch readTapBatchFromInputFile(String inputFilePath) throws InputFileException {
+		Codec codec = codecRegistry.getInputCodec(inputFilePath);
+		if (forkJoinPool != null && Paths.get(inputFilePath).toFile().length() > inputChunkSize) {
+			return codec.readTapBatch(inputFilePath, TripCostStore.getFareIndex(), forkJoinPool, inputChunkSize);
+		}
+		return codec.readTapBatch(inputFilePath, TripCostStore.getFareIndex());
 	}
 
 	/**
@@ -90,16 +277,21 @@ public class TripGeneratorController {
 	 * @throws TripFareException
 	 */
 	List<Trip> generateTripsFromTaps(List<Tap> taps) throws TripGenerationException {
+		if (forkJoinPool != null && taps.size() >= parallelThreshold) {
+			return generateTripsInParallel(taps);
+		}
 		List<Trip> trips = new ArrayList<Trip>();
-		// Get all tap ON's from the tap list
-		List<Tap> tapOnList = tripGeneratorService.getAllTapOns(taps);
-		if (tapOnList != null && !tapOnList.isEmpty()) {
-			// Look for corresponding tap OFF for each tap ON and generate trip
-			for (Tap tapOn : tapOnList) {
-				logger.debug("Tap Id {} is a ON tap. Now looking for corresponding OFF tap.", () -> tapOn.getId());
-				Tap tapOff = tripGeneratorService.getTapOff(taps, tapOn);
-				Trip trip = generateTripFromTap(tapOn, tapOff);
-				logger.debug("Successfully generated trip. {}", () -> trip.toString());
+		// Pair every tap ON with its tap OFF in a single pass over the tap list
+		Map<Tap, Tap> tapOffs = tripGeneratorService.getTapOffs(taps);
+		if (tapOffs != null && !tapOffs.isEmpty()) {
+			// Generate a trip for each tap ON in input order. Trips are only traced when
+			// trace logging is on, so the loop doesn't create any log message
+			boolean traceEnabled = logger.isTraceEnabled();
+			for (Map.Entry<Tap, Tap> entry : tapOffs.entrySet()) {
+				Trip trip = generateTripFromTap(entry.getKey(), entry.getValue());
+				if (traceEnabled) {
+					logger.trace("Successfully generated trip. {}", trip);
+				}
 				trips.add(trip);
 			}
 		} else {
@@ -108,6 +300,371 @@ public class TripGeneratorController {
 		return trips;
 	}
 
+	/**
+	 * generateTripsInParallel method splits the taps into partitions by a hash of
+	 * the account number, company id and bus id. All taps of a journey are in the
+	 * same partition, so each partition is matched and priced independently on the
+	 * fork-join pool. Trips are merged back in ON tap input order, which is the
+	 * same order as generating them on a single thread.
+	 * 
+	 * @param taps
+	 * @return list of trip's
+	 * @throws TripGenerationException
+	 */
+	List<Trip> generateTripsInParallel(List<Tap> taps) throws TripGenerationException {
+		int partitionCount = forkJoinPool.getParallelism() * PARTITIONS_PER_THREAD;
+		int[] tapPartitions = new int[taps.size()];
+		int[] partitionSizes = new int[partitionCount];
+		for (int i = 0; i < taps.size(); i++) {
+			int partition = Math.floorMod(JourneyKey.of(taps.get(i)).hashCode(), partitionCount);
+			tapPartitions[i] = partition;
+			partitionSizes[partition]++;
+		}
+		Tap[][] partitionTaps = new Tap[partitionCount][];
+		int[][] tapPositions = new int[partitionCount][];
+		for (int partition = 0; partition < partitionCount; partition++) {
+			partitionTaps[partition] = new Tap[partitionSizes[partition]];
+			tapPositions[partition] = new int[partitionSizes[partition]];
+			partitionSizes[partition] = 0;
+		}
+		for (int i = 0; i < taps.size(); i++) {
+			int partition = tapPartitions[i];
+			partitionTaps[partition][partitionSizes[partition]] = taps.get(i);
+			tapPositions[partition][partitionSizes[partition]++] = i;
+		}
+
+		// Each task writes trips at the input position of their ON taps
+		Trip[] tripsByPosition = new Trip[taps.size()];
+		List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(partitionCount);
+		for (int partition = 0; partition < partitionCount; partition++) {
+			Tap[] partitionTapArray = partitionTaps[partition];
+			int[] partitionTapPositions = tapPositions[partition];
+			if (partitionTapArray.length > 0) {
+				tasks.add(() -> {
+					generatePartitionTrips(partitionTapArray, partitionTapPositions, tripsByPosition);
+					return null;
+				});
+			}
+		}
+		invokeAll(tasks);
+		return collectTrips(tripsByPosition);
+	}
+
+	/**
+	 * invokeAll method runs the tasks on the fork-join pool and waits for all of
+	 * them. The first trip generation error of the tasks is thrown.
+	 * 
+	 * @param tasks
+	 * @throws TripGenerationException
+	 */
+	private void invokeAll(List<Callable<Void>> tasks) throws TripGenerationException {
+		for (Future<Void> future : forkJoinPool.invokeAll(tasks)) {
+			try {
+				future.get();
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof TripGenerationException) {
+					throw (TripGenerationException) e.getCause();
+				}
+				throw new TripGenerationException(String.valueOf(e.getCause()));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new TripGenerationException("Trip generation was interrupted.");
+			}
+		}
+	}
+
+	private static List<Trip> collectTrips(Trip[] tripsByPosition) {
+		List<Trip> trips = new ArrayList<Trip>();
+		for (Trip trip : tripsByPosition) {
+			if (trip != null) {
+				trips.add(trip);
+			}
+		}
+		return trips;
+	}
+
+	private void generatePartitionTrips(Tap[] partitionTaps, int[] tapPositions, Trip[] tripsByPosition)
+			throws TripGenerationException {
+		Map<Tap, Tap> tapOffs = tripGeneratorService.getTapOffs(Arrays.asList(partitionTaps));
+		boolean traceEnabled = logger.isTraceEnabled();
+		for (int i = 0; i < partitionTaps.length; i++) {
+			Tap tapOn = partitionTaps[i];
+			if (tapOn.getTapType() == TapType.ON) {
+				Trip trip = generateTripFromTap(tapOn, tapOffs.get(tapOn));
+				if (traceEnabled) {
+					logger.trace("Successfully generated trip. {}", trip);
+				}
+				tripsByPosition[tapPositions[i]] = trip;
+			}
+		}
+	}
+
+	/**
+	 * generateTripsFromTapBatch method generates the trips of a tap batch in ON
+	 * tap input order. Taps are matched on the batch columns, and Trip objects are
+	 * only created for the output. Taps of large batches are matched and their
+	 * trips are created in parallel on the fork-join pool. Matching and creating
+	 * the trips are timed as the match and price stages.
+	 * 
+	 * @param tapBatch
+	 * @return list of trip's
+	 * @throws TripGenerationException
+	 */
+	List<Trip> generateTripsFromTapBatch(TapBatch tapBatch) throws TripGenerationException {
+		Trip[] tripsByRow = new Trip[tapBatch.size()];
+		long startTime = System.nanoTime();
+		if (forkJoinPool != null && tapBatch.size() >= parallelThreshold) {
+			int partitionCount = forkJoinPool.getParallelism() * PARTITIONS_PER_THREAD;
+			// Accounts are matched in parallel, each journey is in one partition
+			int[] tapOffRows = tripGeneratorService.getTapOffRows(tapBatch, forkJoinPool, partitionCount);
+			startTime = pipelineMetrics.recordStage(PipelineMetrics.STAGE_MATCH, startTime);
+			int partitionSize = (tapBatch.size() + partitionCount - 1) / partitionCount;
+			List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(partitionCount);
+			for (int start = 0; start < tapBatch.size(); start += partitionSize) {
+				int from = start;
+				int to = Math.min(start + partitionSize, tapBatch.size());
+				tasks.add(() -> {
+					generateTapBatchTrips(tapBatch, tapOffRows, from, to, tripsByRow);
+					return null;
+				});
+			}
+			invokeAll(tasks);
+		} else {
+			int[] tapOffRows = tripGeneratorService.getTapOffRows(tapBatch);
+			startTime = pipelineMetrics.recordStage(PipelineMetrics.STAGE_MATCH, startTime);
+			generateTapBatchTrips(tapBatch, tapOffRows, 0, tapBatch.size(), tripsByRow);
+		}
+		List<Trip> trips = collectTrips(tripsByRow);
+		pipelineMetrics.recordStage(PipelineMetrics.STAGE_PRICE, startTime);
+		if (trips.isEmpty()) {
+			logger.debug("Input file doesn't have any ON tap. Please check the input data.");
+		}
+		return trips;
+	}
+
+	private void generateTapBatchTrips(TapBatch tapBatch, int[] tapOffRows, int from, int to, Trip[] tripsByRow)
+			throws TripGenerationException {
+		boolean traceEnabled = logger.isTraceEnabled();
+		for (int row = from; row < to; row++) {
+			if (tapBatch.getTapType(row) == TapBatch.TAP_ON) {
+				Trip trip = generateTripFromTapBatch(tapBatch, row, tapOffRows[row]);
+				if (traceEnabled) {
+					logger.trace("Successfully generated trip. {}", trip);
+				}
+				tripsByRow[row] = trip;
+			}
+		}
+	}
+
+	/**
+	 * generateTripFromTapBatch method generates a trip from the ON and OFF tap
+	 * rows of a tap batch, the same as generateTripFromTap does for Tap objects.
+	 * 
+	 * @param tapBatch
+	 * @param tapOnRow
+	 * @param tapOffRow
+	 * @return trip
+	 * @throws TripGenerationException
+	 */
+	Trip generateTripFromTapBatch(TapBatch tapBatch, int tapOnRow, int tapOffRow) throws TripGenerationException {
+		Trip trip = new Trip();
+		int fromStop = tapBatch.getStop(tapOnRow);
+		trip.setStarted(tapBatch.getDatetimeUTC(tapOnRow));
+		trip.setFromStopId(tapBatch.getStopId(tapOnRow));
+		trip.setCompanyId(tapBatch.getCompanyId(tapOnRow));
+		trip.setBusId(tapBatch.getBusId(tapOnRow));
+		trip.setPrimaryAccountNumber(tapBatch.getPrimaryAccountNumber(tapOnRow));
+		if (tapOffRow != TapBatch.NO_ROW) {
+			int toStop = tapBatch.getStop(tapOffRow);
+			trip.setFinished(tapBatch.getDatetimeUTC(tapOffRow));
+			trip.setDurationSecs(tripGeneratorService.getTripDuration(tapBatch.getEpochSecond(tapOnRow),
+					tapBatch.getEpochSecond(tapOffRow)));
+			trip.setToStopId(tapBatch.getStopId(tapOffRow));
+			trip.setChargeAmount(tripGeneratorService.getTripFare(tapBatch.getFareIndex(), fromStop, toStop,
+					tapBatch.getEpochSecond(tapOnRow)));
+			trip.setStatus(tripGeneratorService.getTripStatus(fromStop, toStop));
+		} else {
+			trip.setChargeAmount(tripGeneratorService.getTripFare(tapBatch.getFareIndex(), fromStop,
+					tapBatch.getEpochSecond(tapOnRow)));
+			trip.setStatus(tripGeneratorService.getTripStatus(fromStop, StringDictionary.NO_VALUE));
+		}
+		return trip;
+	}
+
+	/**
+	 * streamTripsFromInputFile method reads the taps from the input file one at a
+	 * time and passes each trip to the sink as soon as its OFF tap is read. Only
+	 * the ON taps waiting for an OFF tap are kept in memory. ON taps without an OFF
+	 * tap generate trips after the last tap is read.
+	 * 
+	 * @param inputFilePath
+	 * @param tripSink
+	 * @return number of taps read
+	 * @throws InputFileException
+	 * @throws TripGenerationException
+	 * @throws OutputFileException
+	 */
+	long streamTripsFromInputFile(String inputFilePath, TripSink tripSink)
+			throws InputFileException, TripGenerationException, OutputFileException {
+		JourneyMatcher journeyMatcher = createJourneyMatcher(tripSink);
+		ProgressLogger progressLogger = new ProgressLogger(logger, "taps", progressIntervalTaps);
+		long tapCount = codecRegistry.getInputCodec(inputFilePath).readTaps(inputFilePath, tap -> {
+			journeyMatcher.accept(tap);
+			progressLogger.increment();
+		});
+		journeyMatcher.complete();
+		logger.debug("Input file contains {} taps.", () -> tapCount);
+		return tapCount;
+	}
+
+	/**
+	 * streamTripsWithCheckpoints method streams the trips from the input file like
+	 * streamTripsFromInputFile, and saves a checkpoint next to the output file
+	 * after every configured number of taps. The checkpoint has the input offset
+	 * after the last tap, the output position after the last trip written and the
+	 * open journeys. When a checkpoint of the same input file is found, the run
+	 * continues from it, so a failed or killed run doesn't read the taps before
+	 * the checkpoint again and the output has every trip exactly once. The
+	 * checkpoint is removed when the whole input has been read.
+	 * 
+	 * @param inputFilePath
+	 * @param outputFilePath
+	 * @return number of taps read
+	 * @throws InputFileException
+	 * @throws TripGenerationException
+	 * @throws OutputFileException
+	 */
+	long streamTripsWithCheckpoints(String inputFilePath, String outputFilePath)
+			throws InputFileException, TripGenerationException, OutputFileException {
+		TripFileSummary tripFileSummary = new TripFileSummary(inputFilePath, outputFilePath);
+		streamTripsWithCheckpoints(inputFilePath, outputFilePath, tripFileSummary);
+		return tripFileSummary.getTapCount();
+	}
+
+	private void streamTripsWithCheckpoints(String inputFilePath, String outputFilePath,
+			TripFileSummary tripFileSummary) throws InputFileException, TripGenerationException, OutputFileException {
+		Path checkpointFilePath = Paths.get(outputFilePath + CHECKPOINT_FILE_EXTENTION);
+		long inputFileSize = Paths.get(inputFilePath).toFile().length();
+		TripCheckpoint checkpoint = readCheckpoint(checkpointFilePath, inputFileSize, outputFilePath);
+		long startOffset = checkpoint != null ? checkpoint.getInputOffset() : 0;
+		long[] tapCount = { checkpoint != null ? checkpoint.getTapCount() : 0 };
+		TripStreamWriter tripStreamWriter = new TripStreamWriter(outputFilePath, jacksonConfig.getTripWriter(),
+				prettyOutput, checkpoint != null ? checkpoint.getOutputPosition() : 0,
+				checkpoint != null ? checkpoint.getTripCount() : 0);
+		boolean completed = false;
+		try {
+			JourneyMatcher journeyMatcher = createJourneyMatcher(tripStreamWriter);
+			if (checkpoint != null) {
+				journeyMatcher.restore(checkpoint.getOpenTaps(), checkpoint.getMaxEpochSecond(),
+						checkpoint.getExpiredJourneyCount(), checkpoint.getLateTapCount());
+				logger.info("Resuming from checkpoint after {} taps and {} trips.", () -> checkpoint.getTapCount(),
+						() -> checkpoint.getTripCount());
+			}
+			ProgressLogger progressLogger = new ProgressLogger(logger, "taps", progressIntervalTaps);
+			tapStreamReader.readTaps(inputFilePath, startOffset, (tap, endOffset) -> {
+				journeyMatcher.accept(tap);
+				progressLogger.increment();
+				if (++tapCount[0] % checkpointIntervalTaps == 0) {
+					long outputPosition = tripStreamWriter.sync();
+					new TripCheckpoint(inputFileSize, endOffset, outputPosition, tapCount[0],
+							tripStreamWriter.getTripCount(), journeyMatcher.getMaxEpochSecond(),
+							journeyMatcher.getExpiredJourneyCount(), journeyMatcher.getLateTapCount(),
+							journeyMatcher.getOpenTaps()).write(checkpointFilePath);
+					logger.debug("Checkpoint saved after {} taps.", () -> tapCount[0]);
+				}
+			});
+			journeyMatcher.complete();
+			tripStreamWriter.close();
+			completed = true;
+		} finally {
+			// The output file of a failed run is kept when the next run can continue it
+			// from a checkpoint
+			if (!completed && Files.exists(checkpointFilePath)) {
+				tripStreamWriter.abort();
+			} else if (!completed) {
+				abortTripFile(tripStreamWriter, outputFilePath);
+			}
+		}
+		tripFileSummary.setTapCount(tapCount[0]);
+		tripFileSummary.setTripCount(tripStreamWriter.getTripCount());
+		logger.debug("{} trip(s) generated from {} taps and saved to output file: {}",
+				() -> tripStreamWriter.getTripCount(), () -> tapCount[0], () -> outputFilePath);
+		try {
+			Files.deleteIfExists(checkpointFilePath);
+		} catch (IOException e) {
+			throw new OutputFileException("Can't remove the checkpoint file.");
+		}
+	}
+
+	/**
+	 * readCheckpoint method returns the checkpoint to resume from, or null when
+	 * there is no checkpoint or it doesn't belong to the input and output files.
+	 */
+	private TripCheckpoint readCheckpoint(Path checkpointFilePath, long inputFileSize, String outputFilePath)
+			throws InputFileException {
+		if (!Files.exists(checkpointFilePath)) {
+			return null;
+		}
+		TripCheckpoint checkpoint = TripCheckpoint.read(checkpointFilePath);
+		if (checkpoint.getInputFileSize() != inputFileSize
+				|| checkpoint.getOutputPosition() > Paths.get(outputFilePath).toFile().length()) {
+			logger.warn("Checkpoint file {} doesn't match the input and output files. Starting from the beginning.",
+					() -> checkpointFilePath);
+			return null;
+		}
+		return checkpoint;
+	}
+
+	/**
+	 * createJourneyMatcher method creates a journey matcher which generates the
+	 * trip of each journey and passes it to the sink. The matcher keeps the open
+	 * journeys, so the same matcher can be given taps from more than one input.
+	 * When the maximum journey length is configured, open journeys are closed as
+	 * INCOMPLETE trips once the watermark has passed them. Open journeys are kept
+	 * off-heap when tripgenerator.journeys.off-heap is true.
+	 * 
+	 * @param tripSink
+	 * @return journey matcher
+	 */
+	public JourneyMatcher createJourneyMatcher(TripSink tripSink) {
+		return createJourneyMatcher(tripSink, false);
+	}
+
+	/**
+	 * createJourneyMatcher method creates a journey matcher like the one above.
+	 * When skipFailedJourneys is true, a journey whose trip can't be generated,
+	 * such as a journey from a stop without a fare, is logged and counted as a
+	 * failed journey instead of stopping the matcher.
+	 * 
+	 * @param tripSink
+	 * @param skipFailedJourneys
+	 * @return journey matcher
+	 */
+	public JourneyMatcher createJourneyMatcher(TripSink tripSink, boolean skipFailedJourneys) {
+		JourneyMatcher journeyMatcher = new JourneyMatcher((tapOn, tapOff) -> {
+			Trip trip;
+			try {
+				trip = generateTripFromTap(tapOn, tapOff);
+			} catch (TripGenerationException e) {
+				if (!skipFailedJourneys) {
+					throw e;
+				}
+				pipelineMetrics.countFailedJourney();
+				logger.error("Error occured while generating the trip of ON tap {}. {}", () -> tapOn.getId(),
+						() -> e.getMessage());
+				return;
+			}
+			if (logger.isTraceEnabled()) {
+				logger.trace("Successfully generated trip. {}", trip);
+			}
+			pipelineMetrics.countTrip(trip.getStatus());
+			tripSink.write(trip);
+		}, maxJourneySeconds, allowedLatenessSeconds,
+				offHeapJourneys ? new OpenJourneyStore(initialJourneyCapacity) : null);
+		pipelineMetrics.watchOpenJourneys(journeyMatcher);
+		return journeyMatcher;
+	}
+
 	/**
 	 * generateTripFromTap method accepts two tap objects and generates a trip using
 	 * the service class.
@@ -121,23 +678,22 @@ public class TripGeneratorController {
 	Trip generateTripFromTap(Tap tapOn, Tap tapOff) throws TripGenerationException {
 		Trip trip = new Trip();
 		if (tapOff != null) {
-			logger.debug("Tap Id {} is the OFF tap of Tap Id {}. Generating the trip...", () -> tapOff.getId(),
-					() -> tapOn.getId());
 			trip.setStarted(tapOn.getDatetimeUTC());
 			trip.setFinished(tapOff.getDatetimeUTC());
 			trip.setDurationSecs(tripGeneratorService.getTripDuration(tapOn.getDatetimeUTC(), tapOff.getDatetimeUTC()));
 			trip.setFromStopId(tapOn.getStopId());
 			trip.setToStopId(tapOff.getStopId());
-			trip.setChargeAmount(tripGeneratorService.getTripFare(tapOn.getStopId(), tapOff.getStopId()));
+			trip.setChargeAmount(tripGeneratorService.getTripFare(tapOn.getStopId(), tapOff.getStopId(),
+					tapOn.getDatetimeUTC().toEpochSecond()));
 			trip.setCompanyId(tapOn.getCompanyId());
 			trip.setBusId(tapOn.getBusId());
 			trip.setPrimaryAccountNumber(tapOn.getPrimaryAccountNumber());
 			trip.setStatus(tripGeneratorService.getTripStatus(tapOn.getStopId(), tapOff.getStopId()));
 		} else {
-			logger.debug("Tap Id {} doesn't have a OFF tap. Generating the trip with max fare...", () -> tapOn.getId());
 			trip.setStarted(tapOn.getDatetimeUTC());
 			trip.setFromStopId(tapOn.getStopId());
-			trip.setChargeAmount(tripGeneratorService.getTripFare(tapOn.getStopId()));
+			trip.setChargeAmount(
+					tripGeneratorService.getTripFare(tapOn.getStopId(), tapOn.getDatetimeUTC().toEpochSecond()));
 			trip.setCompanyId(tapOn.getCompanyId());
 			trip.setBusId(tapOn.getBusId());
 			trip.setPrimaryAccountNumber(tapOn.getPrimaryAccountNumber());
@@ -147,7 +703,8 @@ public class TripGeneratorController {
 	}
 
 	/**
-	 * readTapsFromInputFile method reads list of taps from the input file.
+	 * readTapsFromInputFile method reads list of taps from the input file, which
+	 * may be compressed.
 	 * 
 	 * @param inputFilePath
 	 * @return list of tap's
@@ -155,10 +712,9 @@ public class TripGeneratorController {
 	 */
 	List<Tap> readTapsFromInputFile(String inputFilePath) throws InputFileException {
 		List<Tap> taps = null;
-		ObjectMapper mapper = getObjectMapper();
 		Taps tapsWrapper;
-		try {
-			tapsWrapper = mapper.readValue(Paths.get(inputFilePath).toFile(), Taps.class);
+		try (InputStream inputStream = compressedFiles.newInputStream(inputFilePath)) {
+			tapsWrapper = jacksonConfig.getTapsReader().readValue(inputStream);
 			taps = tapsWrapper.getTaps();
 		} catch (IOException e) {
 			throw new InputFileException();
@@ -175,22 +731,39 @@ public class TripGeneratorController {
 	 * @throws OutputFileException
 	 */
 	void writeTripsToOutputFile(List<Trip> trips, String outputFilePath) throws OutputFileException {
-		ObjectMapper mapper = getObjectMapper();
-		// Create ObjectWriter using DefaultPrettyPrinter instance to format the output
-		ObjectWriter writer = mapper.writer(new DefaultPrettyPrinter());
-		Trips tripsWrapper = new Trips();
-		tripsWrapper.setTrips(trips);
+		// Trips are written one at a time by the codec of the output file. JSON is
+		// formatted with DefaultPrettyPrinter unless compact output is configured
+		TripFileWriter tripFileWriter = codecRegistry.getOutputCodec(outputFilePath).createTripWriter(outputFilePath,
+				prettyOutput);
+		boolean completed = false;
 		try {
-			writer.writeValue(Paths.get(outputFilePath).toFile(), tripsWrapper);
-		} catch (IOException e) {
-			throw new OutputFileException();
+			for (Trip trip : trips) {
+				tripFileWriter.write(trip);
+			}
+			tripFileWriter.close();
+			completed = true;
+		} finally {
+			if (!completed) {
+				abortTripFile(tripFileWriter, outputFilePath);
+			}
 		}
 	}
 
-	private ObjectMapper getObjectMapper() {
-		ObjectMapper mapper = new ObjectMapper();
-		// Need to register JavaTimeModule to work with Java 8 ZonedDateTime
-		mapper.registerModule(new JavaTimeModule());
-		return mapper;
+	/**
+	 * abortTripFile method closes the trip writer of a failed run without
+	 * completing the output file, and removes the output file. A failed run
+	 * doesn't leave a trip file which looks complete, like a failed run which
+	 * writes all trips at the end.
+	 * 
+	 * @param tripFileWriter
+	 * @param outputFilePath
+	 */
+	void abortTripFile(TripFileWriter tripFileWriter, String outputFilePath) {
+		tripFileWriter.abort();
+		try {
+			Files.deleteIfExists(Paths.get(outputFilePath));
+		} catch (IOException e) {
+			logger.warn("Can't remove the incomplete output file {}.", () -> outputFilePath);
+		}
 	}
 }
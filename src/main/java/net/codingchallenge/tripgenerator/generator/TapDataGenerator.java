@@ -0,0 +1,364 @@
+package net.codingchallenge.tripgenerator.generator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import net.codingchallenge.tripgenerator.enums.TapType;
+import net.codingchallenge.tripgenerator.exception.OutputFileException;
+import net.codingchallenge.tripgenerator.json.DateTimeCodec;
+import net.codingchallenge.tripgenerator.model.Tap;
+
+/**
+ * The TapDataGenerator class creates synthetic taps. Customers start journeys
+ * at random stops, and the OFF tap of each journey is created when the journey
+ * ends. Some customers forget to tap OFF, some tap OFF at the stop they tapped
+ * ON and some OFF taps don't have an ON tap, so all trip statuses are
+ * generated. The clock of each bus can be skewed, so tap times of different
+ * buses are not in order. The same seed always generates the same taps.
+ * 
+ * @author Gihan Rajakaruna
+ *
+ */
+public class TapDataGenerator {
+
+	final static String FILE_HEADER = "{\"taps\":[";
+
+	final static String FILE_TRAILER = "]}";
+
+	/**
+	 * Number of taps generated by each task when writing a file
+	 */
+	final static int CHUNK_SIZE = 64 * 1024;
+
+	/**
+	 * Taps start on the first day of the sample input files
+	 */
+	final static long START_EPOCH_SECOND = DateTimeCodec.parseEpochSecond("22-01-2021 00:00:00");
+
+	final static long FIRST_ACCOUNT_NUMBER = 5500005555550000L;
+
+	/**
+	 * Maximum number of seconds between two taps. On average there is one tap a
+	 * second.
+	 */
+	final static int MAX_TAP_INTERVAL = 2;
+
+	final static int MIN_JOURNEY_SECONDS = 60;
+
+	final static int MAX_JOURNEY_SECONDS = 3600;
+
+	final static int MAX_CANCELLED_SECONDS = 120;
+
+	private final long seed;
+
+	private final SplittableRandom random;
+
+	private final int accountCount;
+
+	private final int stopCount;
+
+	private final int companyCount;
+
+	private final int busCount;
+
+	/**
+	 * OFF taps of the journeys which haven't ended yet, in journey end order
+	 */
+	private final PriorityQueue<PendingTapOff> pendingTapOffs = new PriorityQueue<PendingTapOff>();
+
+	private double missingTapOffRatio = 0.05;
+
+	private double cancelledRatio = 0.05;
+
+	private double orphanTapOffRatio = 0.01;
+
+	private int clockSkewSeconds;
+
+	int chunkSize = CHUNK_SIZE;
+
+	private long epochSecond = START_EPOCH_SECOND;
+
+	private int tapId;
+
+	/**
+	 * Creates a generator for the stops of the default fare table.
+	 * 
+	 * @param seed
+	 * @param accountCount
+	 */
+	public TapDataGenerator(long seed, int accountCount) {
+		this(seed, accountCount, 3, 2, 40);
+	}
+
+	public TapDataGenerator(long seed, int accountCount, int stopCount, int companyCount, int busCount) {
+		this.seed = seed;
+		this.random = new SplittableRandom(seed);
+		this.accountCount = accountCount;
+		this.stopCount = stopCount;
+		this.companyCount = companyCount;
+		this.busCount = busCount;
+	}
+
+	/**
+	 * Share of the ON taps without an OFF tap
+	 * 
+	 * @param missingTapOffRatio
+	 */
+	public void setMissingTapOffRatio(double missingTapOffRatio) {
+		this.missingTapOffRatio = missingTapOffRatio;
+	}
+
+	/**
+	 * Share of the journeys which end at the stop they started
+	 * 
+	 * @param cancelledRatio
+	 */
+	public void setCancelledRatio(double cancelledRatio) {
+		this.cancelledRatio = cancelledRatio;
+	}
+
+	/**
+	 * Share of the taps which are OFF taps without an ON tap
+	 * 
+	 * @param orphanTapOffRatio
+	 */
+	public void setOrphanTapOffRatio(double orphanTapOffRatio) {
+		this.orphanTapOffRatio = orphanTapOffRatio;
+	}
+
+	/**
+	 * Maximum number of seconds the clock of a bus is ahead or behind. Both taps of
+	 * a journey are on the same bus, so trip durations are not changed.
+	 * 
+	 * @param clockSkewSeconds
+	 */
+	public void setClockSkewSeconds(int clockSkewSeconds) {
+		this.clockSkewSeconds = clockSkewSeconds;
+	}
+
+	/**
+	 * nextTap method creates the next tap. Taps are created in the order they
+	 * happen, but tap times are recorded by the skewed bus clocks.
+	 * 
+	 * @return tap
+	 */
+	public Tap nextTap() {
+		epochSecond += random.nextInt(MAX_TAP_INTERVAL + 1);
+		PendingTapOff pendingTapOff = pendingTapOffs.peek();
+		if (pendingTapOff != null && pendingTapOff.epochSecond <= epochSecond) {
+			pendingTapOffs.poll();
+			return createTap(pendingTapOff.epochSecond, TapType.OFF, pendingTapOff.stop, pendingTapOff.company,
+					pendingTapOff.bus, pendingTapOff.account);
+		}
+
+		int account = random.nextInt(accountCount);
+		int company = random.nextInt(companyCount);
+		int bus = random.nextInt(busCount);
+		int stop = random.nextInt(stopCount);
+		if (random.nextDouble() < orphanTapOffRatio) {
+			return createTap(epochSecond, TapType.OFF, stop, company, bus, account);
+		}
+		if (random.nextDouble() >= missingTapOffRatio) {
+			if (stopCount < 2 || random.nextDouble() < cancelledRatio) {
+				pendingTapOffs.add(new PendingTapOff(epochSecond + 1 + random.nextInt(MAX_CANCELLED_SECONDS), stop,
+						company, bus, account));
+			} else {
+				int tapOffStop = (stop + 1 + random.nextInt(stopCount - 1)) % stopCount;
+				pendingTapOffs.add(new PendingTapOff(
+						epochSecond + MIN_JOURNEY_SECONDS
+								+ random.nextInt(MAX_JOURNEY_SECONDS - MIN_JOURNEY_SECONDS + 1),
+						tapOffStop, company, bus, account));
+			}
+		}
+		return createTap(epochSecond, TapType.ON, stop, company, bus, account);
+	}
+
+	private Tap createTap(long epochSecond, TapType tapType, int stop, int company, int bus, int account) {
+		return new Tap(++tapId, DateTimeCodec.toZonedDateTime(epochSecond + getClockSkew(company, bus)), tapType,
+				"Stop" + (stop + 1), "Company" + (company + 1), "Bus" + (bus + 1),
+				String.valueOf(FIRST_ACCOUNT_NUMBER + account));
+	}
+
+	/**
+	 * getClockSkew method returns the fixed skew of a bus clock. It only depends
+	 * on the seed, so every chunk of a file uses the same bus clocks.
+	 */
+	int getClockSkew(int company, int bus) {
+		if (clockSkewSeconds == 0) {
+			return 0;
+		}
+		long hash = (seed + company * 0x9E3779B97F4A7C15L + bus) * 0xBF58476D1CE4E5B9L;
+		hash ^= hash >>> 31;
+		return (int) Math.floorMod(hash, 2L * clockSkewSeconds + 1) - clockSkewSeconds;
+	}
+
+	/**
+	 * generateTaps method creates a list of taps.
+	 * 
+	 * @param tapCount
+	 * @return list of tap's
+	 */
+	public List<Tap> generateTaps(int tapCount) {
+		List<Tap> taps = new ArrayList<Tap>(tapCount);
+		for (int i = 0; i < tapCount; i++) {
+			taps.add(nextTap());
+		}
+		return taps;
+	}
+
+	/**
+	 * writeTaps method writes taps into an input file on a single thread.
+	 * 
+	 * @param outputFilePath
+	 * @param tapCount
+	 * @param tapWriter
+	 * @throws OutputFileException
+	 */
+	public void writeTaps(String outputFilePath, long tapCount, ObjectWriter tapWriter) throws OutputFileException {
+		writeTaps(outputFilePath, tapCount, tapWriter, 1);
+	}
+
+	/**
+	 * writeTaps method writes taps into an input file. The taps are split into
+	 * chunks, and each chunk is generated into a buffer by its own generator on
+	 * the thread pool. Buffers are written to the file channel in chunk order, and
+	 * only a few buffers per thread are kept in memory, so files larger than the
+	 * memory can be created. Each chunk generator is seeded from the seed and the
+	 * chunk number, so the file is the same for any number of threads. Journeys
+	 * which haven't ended at the end of a chunk don't have an OFF tap.
+	 * 
+	 * @param outputFilePath
+	 * @param tapCount
+	 * @param tapWriter
+	 * @param threadCount
+	 * @throws OutputFileException
+	 */
+	public void writeTaps(String outputFilePath, long tapCount, ObjectWriter tapWriter, int threadCount)
+			throws OutputFileException {
+		ObjectWriter writer = tapWriter.without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+		long chunkCount = (tapCount + chunkSize - 1) / chunkSize;
+		ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+		try (FileChannel channel = FileChannel.open(Paths.get(outputFilePath), StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			writeFully(channel, ByteBuffer.wrap(FILE_HEADER.getBytes(StandardCharsets.UTF_8)));
+			Deque<Future<ByteBuffer>> chunks = new ArrayDeque<Future<ByteBuffer>>();
+			for (long chunk = 0; chunk < chunkCount; chunk++) {
+				if (chunks.size() >= 2 * threadCount) {
+					writeFully(channel, chunks.poll().get());
+				}
+				long currentChunk = chunk;
+				int currentChunkSize = (int) Math.min(chunkSize, tapCount - chunk * chunkSize);
+				chunks.add(executor.submit(() -> generateChunk(currentChunk, currentChunkSize, writer)));
+			}
+			while (!chunks.isEmpty()) {
+				writeFully(channel, chunks.poll().get());
+			}
+			writeFully(channel, ByteBuffer.wrap(FILE_TRAILER.getBytes(StandardCharsets.UTF_8)));
+		} catch (IOException | ExecutionException e) {
+			throw new OutputFileException();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new OutputFileException("Tap generation was interrupted.");
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * generateChunk method writes the taps of a chunk into a buffer. Chunks after
+	 * the first one start with the separator of the array elements.
+	 */
+	private ByteBuffer generateChunk(long chunk, int chunkTapCount, ObjectWriter writer) throws IOException {
+		TapDataGenerator generator = new TapDataGenerator(seed + chunk * 0x9E3779B97F4A7C15L, accountCount,
+				stopCount, companyCount, busCount);
+		generator.missingTapOffRatio = missingTapOffRatio;
+		generator.cancelledRatio = cancelledRatio;
+		generator.orphanTapOffRatio = orphanTapOffRatio;
+		generator.clockSkewSeconds = clockSkewSeconds;
+		generator.tapId = (int) (chunk * chunkSize);
+		// Chunks can't overlap because a tap is at most MAX_TAP_INTERVAL seconds
+		// after the previous one
+		generator.epochSecond = START_EPOCH_SECOND + chunk * chunkSize * MAX_TAP_INTERVAL;
+		ChunkBuffer buffer = new ChunkBuffer(chunkTapCount * 160);
+		if (chunk > 0) {
+			buffer.write(',');
+		}
+		try (JsonGenerator jsonGenerator = writer.getFactory().createGenerator(buffer, JsonEncoding.UTF8)) {
+			jsonGenerator.setRootValueSeparator(new SerializedString(","));
+			for (int i = 0; i < chunkTapCount; i++) {
+				writer.writeValue(jsonGenerator, generator.nextTap());
+			}
+		}
+		return buffer.toByteBuffer();
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+
+	/**
+	 * Output stream which gives the written bytes without copying them
+	 */
+	static class ChunkBuffer extends ByteArrayOutputStream {
+
+		ChunkBuffer(int size) {
+			super(size);
+		}
+
+		ByteBuffer toByteBuffer() {
+			return ByteBuffer.wrap(buf, 0, count);
+		}
+	}
+
+	/**
+	 * The OFF tap of a journey which hasn't ended yet
+	 */
+	static class PendingTapOff implements Comparable<PendingTapOff> {
+
+		final long epochSecond;
+
+		final int stop;
+
+		final int company;
+
+		final int bus;
+
+		final int account;
+
+		PendingTapOff(long epochSecond, int stop, int company, int bus, int account) {
+			this.epochSecond = epochSecond;
+			this.stop = stop;
+			this.company = company;
+			this.bus = bus;
+			this.account = account;
+		}
+
+		@Override
+		public int compareTo(PendingTapOff other) {
+			return Long.compare(epochSecond, other.epochSecond);
+		}
+	}
+}
@@ -0,0 +1,126 @@
+package net.codingchallenge.tripgenerator.io;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.io.FilenameUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.luben.zstd.ZstdInputStream;
+import com.github.luben.zstd.ZstdOutputStream;
+
+/**
+ * The CompressedFiles class opens input and output files which may be
+ * compressed with gzip or Zstandard. The compression is chosen by the last file
+ * extension, .gz or .zst, and the data format by the extension before it, so
+ * tap-data.json.gz is a gzip compressed JSON file. Compressed files are
+ * decompressed and compressed while they are streamed, with large buffers on
+ * both sides of the decompressor, and the decompression can run on its own
+ * thread. Files without a compression extension are opened as they are.
+ * 
+ * @author Gihan Rajakaruna
+ *
+ */
+@Component
+public class CompressedFiles {
+
+	public final static String GZIP_EXTENTION = "gz";
+
+	public final static String ZSTD_EXTENTION = "zst";
+
+	final static String DECOMPRESSION_THREAD_NAME = "decompression";
+
+	final static int READ_AHEAD_BLOCK_COUNT = 4;
+
+	@Value("${tripgenerator.io.buffer-size:1048576}")
+	int bufferSize;
+
+	@Value("${tripgenerator.input.decompression-thread:false}")
+	boolean decompressionThread;
+
+	/**
+	 * isCompressed method checks if the file has a compression extension.
+	 * 
+	 * @param filePath
+	 * @return true if the file is compressed
+	 */
+	public static boolean isCompressed(String filePath) {
+		String fileExtention = FilenameUtils.getExtension(filePath);
+		return GZIP_EXTENTION.equalsIgnoreCase(fileExtention) || ZSTD_EXTENTION.equalsIgnoreCase(fileExtention);
+	}
+
+	/**
+	 * removeCompressionExtention method returns the file path without its
+	 * compression extension, to find the data format of a compressed file.
+	 * 
+	 * @param filePath
+	 * @return file path of the uncompressed data
+	 */
+	public static String removeCompressionExtention(String filePath) {
+		return isCompressed(filePath) ? FilenameUtils.removeExtension(filePath) : filePath;
+	}
+
+	/**
+	 * newInputStream method opens the file and decompresses it while it is read.
+	 * 
+	 * @param filePath
+	 * @return input stream
+	 * @throws IOException
+	 */
+	public InputStream newInputStream(String filePath) throws IOException {
+		Path path = Paths.get(filePath);
+		String fileExtention = FilenameUtils.getExtension(filePath);
+		InputStream inputStream;
+		if (GZIP_EXTENTION.equalsIgnoreCase(fileExtention)) {
+			inputStream = new GZIPInputStream(Files.newInputStream(path), bufferSize);
+		} else if (ZSTD_EXTENTION.equalsIgnoreCase(fileExtention)) {
+			inputStream = new ZstdInputStream(new BufferedInputStream(Files.newInputStream(path), bufferSize));
+		} else {
+			return Files.newInputStream(path);
+		}
+		if (decompressionThread) {
+			return new ReadAheadInputStream(inputStream, bufferSize, READ_AHEAD_BLOCK_COUNT,
+					DECOMPRESSION_THREAD_NAME);
+		}
+		// Parsers read small blocks, each of which would be a call to the
+		// decompressor without this buffer
+		return new BufferedInputStream(inputStream, bufferSize);
+	}
+
+	/**
+	 * newOutputStream method creates the file, or truncates it, and compresses the
+	 * bytes written to it.
+	 * 
+	 * @param filePath
+	 * @return output stream
+	 * @throws IOException
+	 */
+	public OutputStream newOutputStream(String filePath) throws IOException {
+		Path path = Paths.get(filePath);
+		String fileExtention = FilenameUtils.getExtension(filePath);
+		if (GZIP_EXTENTION.equalsIgnoreCase(fileExtention)) {
+			return new BufferedOutputStream(new GZIPOutputStream(Files.newOutputStream(path), bufferSize), bufferSize);
+		} else if (ZSTD_EXTENTION.equalsIgnoreCase(fileExtention)) {
+			return new BufferedOutputStream(
+					new ZstdOutputStream(new BufferedOutputStream(Files.newOutputStream(path), bufferSize)), bufferSize);
+		}
+		return Files.newOutputStream(path);
+	}
+
+	public boolean isDecompressionThread() {
+		return decompressionThread;
+	}
+
+	public void setDecompressionThread(boolean decompressionThread) {
+		this.decompressionThread = decompressionThread;
+	}
+}
@@ -0,0 +1,155 @@
+package net.codingchallenge.tripgenerator.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * The ReadAheadInputStream class reads another input stream on its own thread,
+ * so a slow source such as a decompressor runs at the same time as the parser.
+ * The thread fills a fixed number of blocks and waits when all of them are full,
+ * so the memory used is bounded. Blocks are reused after they have been read.
+ * The stream isn't thread-safe.
+ * 
+ * @author Gihan Rajakaruna
+ *
+ */
+public class ReadAheadInputStream extends InputStream {
+
+	/**
+	 * Block which marks the end of the input stream
+	 */
+	private final static ByteBuffer END = ByteBuffer.allocate(0);
+
+	private final InputStream inputStream;
+
+	private final BlockingQueue<ByteBuffer> filledBlocks;
+
+	private final BlockingQueue<ByteBuffer> freeBlocks;
+
+	private final Thread thread;
+
+	private volatile IOException exception;
+
+	private ByteBuffer block;
+
+	/**
+	 * Starts reading the input stream on a daemon thread. The input stream is
+	 * closed with this stream.
+	 * 
+	 * @param inputStream
+	 * @param blockSize
+	 * @param blockCount
+	 * @param threadName
+	 */
+	public ReadAheadInputStream(InputStream inputStream, int blockSize, int blockCount, String threadName) {
+		this.inputStream = inputStream;
+		this.filledBlocks = new ArrayBlockingQueue<ByteBuffer>(blockCount + 1);
+		this.freeBlocks = new ArrayBlockingQueue<ByteBuffer>(blockCount);
+		for (int i = 0; i < blockCount; i++) {
+			freeBlocks.add(ByteBuffer.allocate(blockSize));
+		}
+		thread = new Thread(this::readBlocks, threadName);
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	private void readBlocks() {
+		try {
+			try {
+				while (true) {
+					ByteBuffer freeBlock = freeBlocks.take();
+					int length = IOUtils.read(inputStream, freeBlock.array());
+					if (length == 0) {
+						break;
+					}
+					freeBlock.clear();
+					freeBlock.limit(length);
+					filledBlocks.put(freeBlock);
+				}
+			} catch (IOException e) {
+				exception = e;
+			}
+			filledBlocks.put(END);
+		} catch (InterruptedException e) {
+			// Stream has been closed
+		}
+	}
+
+	@Override
+	public int read() throws IOException {
+		if (!nextBlock()) {
+			return -1;
+		}
+		return block.get() & 0xFF;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (len == 0) {
+			return 0;
+		}
+		if (!nextBlock()) {
+			return -1;
+		}
+		int length = Math.min(len, block.remaining());
+		block.get(b, off, length);
+		return length;
+	}
+
+	@Override
+	public int available() {
+		return block == null || block == END ? 0 : block.remaining();
+	}
+
+	/**
+	 * nextBlock method takes the next filled block when the current one has been
+	 * read, and gives the current one back to the reading thread.
+	 * 
+	 * @return false at the end of the input stream
+	 * @throws IOException
+	 */
+	private boolean nextBlock() throws IOException {
+		if (block == END) {
+			return false;
+		}
+		if (block != null && block.hasRemaining()) {
+			return true;
+		}
+		try {
+			if (block != null) {
+				freeBlocks.put(block);
+			}
+			block = filledBlocks.take();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		}
+		if (block == END) {
+			if (exception != null) {
+				throw exception;
+			}
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * close method stops the reading thread and closes the input stream.
+	 */
+	@Override
+	public void close() throws IOException {
+		thread.interrupt();
+		try {
+			thread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		inputStream.close();
+	}
+}
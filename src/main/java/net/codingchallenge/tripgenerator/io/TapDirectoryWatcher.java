@@ -0,0 +1,144 @@
+package net.codingchallenge.tripgenerator.io;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.apache.commons.io.FilenameUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * The TapDirectoryWatcher class watches an input directory and runs the file
+ * action for every tap file in it. Files which are already in the directory
+ * are processed first, and then each new file once, in file name order. Files
+ * should be moved into the directory when they are complete.
+ * 
+ * @author Gihan Rajakaruna
+ *
+ */
+public class TapDirectoryWatcher implements Runnable, AutoCloseable {
+
+	final static Logger logger = LogManager.getLogger(TapDirectoryWatcher.class);
+
+	final static List<String> FILE_EXTENTIONS = Arrays.asList("json", "jsonl", "ndjson");
+
+	/**
+	 * Files created within this delay are processed together, in name order
+	 */
+	final static long SETTLE_DELAY_MILLIS = 200;
+
+	private final Path directory;
+
+	private final Consumer<Path> fileAction;
+
+	private final Set<Path> processedFiles = new HashSet<Path>();
+
+	private WatchService watchService;
+
+	public TapDirectoryWatcher(Path directory, Consumer<Path> fileAction) {
+		this.directory = directory.toAbsolutePath();
+		this.fileAction = fileAction;
+	}
+
+	/**
+	 * start method registers the directory with the watch service and starts the
+	 * watcher thread.
+	 * 
+	 * @throws IOException
+	 */
+	public void start() throws IOException {
+		watchService = directory.getFileSystem().newWatchService();
+		directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE);
+		Thread thread = new Thread(this, "tap-directory-watcher");
+		thread.setDaemon(true);
+		thread.start();
+		logger.debug("Watching input directory {} for tap files.", () -> directory);
+	}
+
+	@Override
+	public void run() {
+		try {
+			// Files created before the directory was registered are listed
+			processFiles(listTapFiles());
+			while (true) {
+				WatchKey watchKey = watchService.take();
+				Set<Path> createdFiles = new TreeSet<Path>();
+				boolean overflow = addCreatedFiles(watchKey, createdFiles);
+				Thread.sleep(SETTLE_DELAY_MILLIS);
+				WatchKey pendingKey;
+				while ((pendingKey = watchService.poll(SETTLE_DELAY_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+					overflow |= addCreatedFiles(pendingKey, createdFiles);
+				}
+				// Events may have been lost when the directory overflows
+				processFiles(overflow ? listTapFiles() : createdFiles);
+			}
+		} catch (ClosedWatchServiceException | InterruptedException e) {
+			logger.debug("Stopped watching input directory {}.", () -> directory);
+		} catch (IOException e) {
+			logger.error("Error occured while listing input directory {}.", () -> directory);
+		}
+	}
+
+	private boolean addCreatedFiles(WatchKey watchKey, Set<Path> createdFiles) {
+		boolean overflow = false;
+		for (WatchEvent<?> event : watchKey.pollEvents()) {
+			if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+				overflow = true;
+			} else {
+				Path file = directory.resolve((Path) event.context());
+				if (isTapFile(file)) {
+					createdFiles.add(file);
+				}
+			}
+		}
+		watchKey.reset();
+		return overflow;
+	}
+
+	private Set<Path> listTapFiles() throws IOException {
+		Set<Path> files = new TreeSet<Path>();
+		try (DirectoryStream<Path> directoryStream = Files.newDirectoryStream(directory)) {
+			for (Path file : directoryStream) {
+				if (isTapFile(file)) {
+					files.add(file);
+				}
+			}
+		}
+		return files;
+	}
+
+	private void processFiles(Set<Path> files) {
+		for (Path file : files) {
+			if (processedFiles.add(file)) {
+				fileAction.accept(file);
+			}
+		}
+	}
+
+	private static boolean isTapFile(Path file) {
+		return FILE_EXTENTIONS.contains(
+				FilenameUtils.getExtension(CompressedFiles.removeCompressionExtention(file.toString())).toLowerCase())
+				&& Files.isRegularFile(file);
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (watchService != null) {
+			watchService.close();
+		}
+	}
+}
@@ -0,0 +1,636 @@
+package net.codingchallenge.tripgenerator.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+
+import net.codingchallenge.tripgenerator.config.JacksonConfig;
+import net.codingchallenge.tripgenerator.enums.TapType;
+import net.codingchallenge.tripgenerator.exception.InputFileException;
+import net.codingchallenge.tripgenerator.exception.OutputFileException;
+import net.codingchallenge.tripgenerator.exception.TripGenerationException;
+import net.codingchallenge.tripgenerator.json.DateTimeCodec;
+import net.codingchallenge.tripgenerator.model.Tap;
+import net.codingchallenge.tripgenerator.model.TapBatch;
+import net.codingchallenge.tripgenerator.store.FareIndex;
+
+/**
+ * The TapStreamReader class reads the taps array of the input file one tap at
+ * a time using the Jackson streaming API. The taps are never collected into a
+ * list, so the memory use doesn't depend on the size of the input file.
+ * 
+ * @author Gihan Rajakaruna
+ * 
+ */
+@Component
+public class TapStreamReader {
+
+	final static String TAPS_FIELD = "taps";
+
+	final static byte[] ARRAY_START = { '[' };
+
+	final static byte[] ARRAY_END = { ']' };
+
+	final static int SEPARATOR_BUFFER_SIZE = 256;
+
+	@Autowired(required = true)
+	JacksonConfig jacksonConfig;
+
+	@Autowired(required = true)
+	CompressedFiles compressedFiles;
+
+	/**
+	 * The TapHandler interface receives each tap as soon as it is read.
+	 */
+	public interface TapHandler {
+
+		void onTap(Tap tap) throws TripGenerationException, OutputFileException;
+	}
+
+	/**
+	 * The TapOffsetHandler interface receives each tap with the byte offset of the
+	 * input file right after the tap.
+	 */
+	public interface TapOffsetHandler {
+
+		void onTap(Tap tap, long endOffset) throws TripGenerationException, OutputFileException;
+	}
+
+	/**
+	 * readTaps method walks the taps array of the input file and passes each tap
+	 * to the handler.
+	 * 
+	 * @param inputFilePath
+	 * @param tapHandler
+	 * @return number of taps read
+	 * @throws InputFileException
+	 * @throws TripGenerationException
+	 * @throws OutputFileException
+	 */
+	public long readTaps(String inputFilePath, TapHandler tapHandler)
+			throws InputFileException, TripGenerationException, OutputFileException {
+		return readTaps(inputFilePath, 0, (tap, endOffset) -> tapHandler.onTap(tap));
+	}
+
+	/**
+	 * readTaps method walks the taps array of the input file from a byte offset
+	 * and passes each tap to the handler with the byte offset after it. Offset 0
+	 * reads the whole file. Any other offset must be the end offset of a tap, the
+	 * rest of the taps array is read from there as a new array.
+	 * 
+	 * @param inputFilePath
+	 * @param startOffset
+	 * @param tapOffsetHandler
+	 * @return number of taps read
+	 * @throws InputFileException
+	 * @throws TripGenerationException
+	 * @throws OutputFileException
+	 */
+	public long readTaps(String inputFilePath, long startOffset, TapOffsetHandler tapOffsetHandler)
+			throws InputFileException, TripGenerationException, OutputFileException {
+		ObjectReader tapReader = jacksonConfig.getTapReader();
+		if (startOffset > 0) {
+			return readTapsFrom(inputFilePath, startOffset, tapReader, tapOffsetHandler);
+		}
+		return readTaps(inputFilePath, tapReader, tapOffsetHandler);
+	}
+
+	/**
+	 * readTaps method walks the taps array of the input file with the parser of
+	 * the tap reader, so the input file can be in any data format of Jackson which
+	 * the reader was created for.
+	 * 
+	 * @param inputFilePath
+	 * @param tapReader
+	 * @param tapHandler
+	 * @return number of taps read
+	 * @throws InputFileException
+	 * @throws TripGenerationException
+	 * @throws OutputFileException
+	 */
+	public long readTaps(String inputFilePath, ObjectReader tapReader, TapHandler tapHandler)
+			throws InputFileException, TripGenerationException, OutputFileException {
+		return readTaps(inputFilePath, tapReader, (tap, endOffset) -> tapHandler.onTap(tap));
+	}
+
+	private long readTaps(String inputFilePath, ObjectReader tapReader, TapOffsetHandler tapOffsetHandler)
+			throws InputFileException, TripGenerationException, OutputFileException {
+		long tapCount = 0;
+		try (JsonParser parser = tapReader.getFactory().createParser(compressedFiles.newInputStream(inputFilePath))) {
+			if (parser.nextToken() != JsonToken.START_OBJECT) {
+				throw new InputFileException("Input file doesn't contain the taps object.");
+			}
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String fieldName = parser.getCurrentName();
+				JsonToken token = parser.nextToken();
+				if (TAPS_FIELD.equals(fieldName) && token == JsonToken.START_ARRAY) {
+					tapCount += readTapArray(parser, tapReader, 0, tapOffsetHandler);
+				} else {
+					// Ignore any other field of the root object
+					parser.skipChildren();
+				}
+			}
+		} catch (IOException e) {
+			throw new InputFileException();
+		}
+		return tapCount;
+	}
+
+	/**
+	 * readTapsFrom method skips the separator after the tap at the start offset,
+	 * and parses the rest of the taps array behind an array start. The bytes after
+	 * the end of the taps array are not read.
+	 */
+	private long readTapsFrom(String inputFilePath, long startOffset, ObjectReader tapReader,
+			TapOffsetHandler tapOffsetHandler) throws InputFileException, TripGenerationException, OutputFileException {
+		try (FileChannel channel = FileChannel.open(Paths.get(inputFilePath), StandardOpenOption.READ)) {
+			long offset = skipSeparator(channel, startOffset);
+			channel.position(offset);
+			InputStream inputStream = new SequenceInputStream(new ByteArrayInputStream(ARRAY_START),
+					Channels.newInputStream(channel));
+			try (JsonParser parser = tapReader.getFactory().createParser(inputStream)) {
+				if (parser.nextToken() != JsonToken.START_ARRAY) {
+					throw new InputFileException("Input file doesn't continue the taps array.");
+				}
+				return readTapArray(parser, tapReader, offset - ARRAY_START.length, tapOffsetHandler);
+			}
+		} catch (IOException e) {
+			throw new InputFileException();
+		}
+	}
+
+	private long readTapArray(JsonParser parser, ObjectReader tapReader, long baseOffset,
+			TapOffsetHandler tapOffsetHandler) throws IOException, TripGenerationException, OutputFileException {
+		long tapCount = 0;
+		JsonToken token;
+		while ((token = parser.nextToken()) != JsonToken.END_ARRAY && token != null) {
+			if (token == JsonToken.START_OBJECT) {
+				Tap tap = tapReader.readValue(parser);
+				tapOffsetHandler.onTap(tap, baseOffset + parser.getCurrentLocation().getByteOffset());
+				tapCount++;
+			} else {
+				parser.skipChildren();
+			}
+		}
+		return tapCount;
+	}
+
+	/**
+	 * skipSeparator method returns the offset of the first byte after the offset
+	 * which isn't whitespace or a comma.
+	 */
+	private static long skipSeparator(FileChannel channel, long offset) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(SEPARATOR_BUFFER_SIZE);
+		long position = offset;
+		int read;
+		while ((read = channel.read(buffer, position)) > 0) {
+			for (int i = 0; i < read; i++) {
+				byte b = buffer.get(i);
+				if (b != ',' && b != ' ' && b != '\n' && b != '\r' && b != '\t') {
+					return position + i;
+				}
+			}
+			position += read;
+			buffer.clear();
+		}
+		return position;
+	}
+
+	/**
+	 * readTapLines method reads newline delimited taps, one tap object per line,
+	 * from an input stream until the end of the stream, and passes each tap to the
+	 * handler as soon as its line is read. It is used for stdin and socket inputs
+	 * which never end with the taps array. The stream is not closed.
+	 * 
+	 * @param inputStream
+	 * @param tapHandler
+	 * @return number of taps read
+	 * @throws InputFileException
+	 * @throws TripGenerationException
+	 * @throws OutputFileException
+	 */
+	public long readTapLines(InputStream inputStream, TapHandler tapHandler)
+			throws InputFileException, TripGenerationException, OutputFileException {
+		ObjectReader tapReader = jacksonConfig.getTapReader();
+		long tapCount = 0;
+		try (JsonParser parser = tapReader.getFactory().createParser(inputStream)) {
+			parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+			JsonToken token;
+			while ((token = parser.nextToken()) != null) {
+				if (token != JsonToken.START_OBJECT) {
+					throw new InputFileException("Tap " + (tapCount + 1) + " is not a JSON object.");
+				}
+				Tap tap = tapReader.readValue(parser);
+				tapHandler.onTap(tap);
+				tapCount++;
+			}
+		} catch (IOException e) {
+			throw new InputFileException();
+		}
+		return tapCount;
+	}
+
+	/**
+	 * readTapLineBatch method reads newline delimited taps, one tap object per
+	 * line, from the input file into a tap batch.
+	 * 
+	 * @param inputFilePath
+	 * @param fareIndex
+	 * @return tap batch
+	 * @throws InputFileException
+	 */
+	public TapBatch readTapLineBatch(String inputFilePath, FareIndex fareIndex) throws InputFileException {
+		TapBatch tapBatch = new TapBatch(fareIndex);
+		try (JsonParser parser = jacksonConfig.getObjectMapper().getFactory()
+				.createParser(compressedFiles.newInputStream(inputFilePath))) {
+			readTapLines(parser, tapBatch);
+		} catch (IOException | IllegalArgumentException | DateTimeParseException e) {
+			throw new InputFileException();
+		}
+		return tapBatch;
+	}
+
+	/**
+	 * readTapLineBatch method reads newline delimited taps from the input file
+	 * into a tap batch on the fork-join pool. The file is memory mapped and split
+	 * into chunks of about the given size after a new line. JSON strings can't
+	 * have a new line, so every chunk has whole taps. Each chunk is parsed into
+	 * its own tap batch, and the batches are appended in chunk order. Compressed
+	 * files can't be split, so they are read on the calling thread.
+	 * 
+	 * @param inputFilePath
+	 * @param fareIndex
+	 * @param forkJoinPool
+	 * @param chunkSize
+	 * @return tap batch
+	 * @throws InputFileException
+	 */
+	public TapBatch readTapLineBatch(String inputFilePath, FareIndex fareIndex, ForkJoinPool forkJoinPool,
+			int chunkSize) throws InputFileException {
+		if (CompressedFiles.isCompressed(inputFilePath)) {
+			return readTapLineBatch(inputFilePath, fareIndex);
+		}
+		List<Future<TapBatch>> chunkTapBatches;
+		try (FileChannel channel = FileChannel.open(Paths.get(inputFilePath), StandardOpenOption.READ)) {
+			List<Callable<TapBatch>> tasks = new ArrayList<Callable<TapBatch>>();
+			long fileSize = channel.size();
+			long start = 0;
+			while (start < fileSize) {
+				long end = fileSize - start > chunkSize ? findLineEnd(channel, start + chunkSize) : fileSize;
+				ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+				tasks.add(() -> {
+					TapBatch tapBatch = new TapBatch(fareIndex);
+					try (JsonParser parser = jacksonConfig.getObjectMapper().getFactory()
+							.createParser(new ByteBufferBackedInputStream(buffer))) {
+						readTapLines(parser, tapBatch);
+					}
+					return tapBatch;
+				});
+				start = end;
+			}
+			chunkTapBatches = forkJoinPool.invokeAll(tasks);
+		} catch (IOException e) {
+			throw new InputFileException();
+		}
+		TapBatch tapBatch = new TapBatch(fareIndex);
+		try {
+			for (Future<TapBatch> chunkTapBatch : chunkTapBatches) {
+				tapBatch.append(chunkTapBatch.get());
+			}
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof InputFileException) {
+				throw (InputFileException) e.getCause();
+			}
+			throw new InputFileException();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InputFileException("Reading the input file was interrupted.");
+		}
+		return tapBatch;
+	}
+
+	private void readTapLines(JsonParser parser, TapBatch tapBatch) throws IOException, InputFileException {
+		JsonToken token;
+		while ((token = parser.nextToken()) != null) {
+			if (token != JsonToken.START_OBJECT) {
+				throw new InputFileException("Input file has a line which isn't a JSON object.");
+			}
+			readTap(parser, tapBatch);
+		}
+	}
+
+	/**
+	 * findLineEnd method returns the offset after the first new line at or after
+	 * the offset, or the end of the file.
+	 */
+	private static long findLineEnd(FileChannel channel, long offset) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(SEPARATOR_BUFFER_SIZE);
+		long position = offset;
+		int read;
+		while ((read = channel.read(buffer, position)) > 0) {
+			for (int i = 0; i < read; i++) {
+				if (buffer.get(i) == '\n') {
+					return position + i + 1;
+				}
+			}
+			position += read;
+			buffer.clear();
+		}
+		return position;
+	}
+
+	/**
+	 * readTapBatch method reads the taps array of the input file into a tap batch.
+	 * The fields of each tap are read directly from the parser, so no Tap or
+	 * ZonedDateTime objects are created.
+	 * 
+	 * @param inputFilePath
+	 * @param fareIndex
+	 * @return tap batch
+	 * @throws InputFileException
+	 */
+	public TapBatch readTapBatch(String inputFilePath, FareIndex fareIndex) throws InputFileException {
+		return readTapBatch(inputFilePath, fareIndex, jacksonConfig.getObjectMapper().getFactory());
+	}
+
+	/**
+	 * readTapBatch method reads the taps array of the input file into a tap batch
+	 * with a parser of the given factory, so the input file can be in any data
+	 * format of Jackson.
+	 * 
+	 * @param inputFilePath
+	 * @param fareIndex
+	 * @param jsonFactory
+	 * @return tap batch
+	 * @throws InputFileException
+	 */
+	public TapBatch readTapBatch(String inputFilePath, FareIndex fareIndex, JsonFactory jsonFactory)
+			throws InputFileException {
+		TapBatch tapBatch = new TapBatch(fareIndex);
+		try (JsonParser parser = jsonFactory.createParser(compressedFiles.newInputStream(inputFilePath))) {
+			if (parser.nextToken() != JsonToken.START_OBJECT) {
+				throw new InputFileException("Input file doesn't contain the taps object.");
+			}
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String fieldName = parser.getCurrentName();
+				JsonToken token = parser.nextToken();
+				if (TAPS_FIELD.equals(fieldName) && token == JsonToken.START_ARRAY) {
+					while ((token = parser.nextToken()) != JsonToken.END_ARRAY && token != null) {
+						if (token == JsonToken.START_OBJECT) {
+							readTap(parser, tapBatch);
+						} else {
+							parser.skipChildren();
+						}
+					}
+				} else {
+					// Ignore any other field of the root object
+					parser.skipChildren();
+				}
+			}
+		} catch (IOException | IllegalArgumentException | DateTimeParseException e) {
+			throw new InputFileException();
+		}
+		return tapBatch;
+	}
+
+	/**
+	 * readTapBatch method reads the taps array of the input file into a tap batch
+	 * on the fork-join pool. The file is memory mapped and the taps array is split
+	 * into chunks of about the given size at the boundaries between tap objects.
+	 * Each chunk is parsed into its own tap batch, and the batches are appended in
+	 * chunk order, so the rows are in the same order as reading the file on one
+	 * thread.
+	 * 
+	 * Tap objects don't have nested objects, so a boundary is a closing brace
+	 * followed by a comma and an opening brace. A chunk split inside a string
+	 * value with that sequence doesn't parse, and then the file is read again on
+	 * the calling thread, which also reports any error of the input file.
+	 * Compressed files are always read on the calling thread.
+	 * 
+	 * @param inputFilePath
+	 * @param fareIndex
+	 * @param forkJoinPool
+	 * @param chunkSize
+	 * @return tap batch
+	 * @throws InputFileException
+	 */
+	public TapBatch readTapBatch(String inputFilePath, FareIndex fareIndex, ForkJoinPool forkJoinPool, int chunkSize)
+			throws InputFileException {
+		if (CompressedFiles.isCompressed(inputFilePath)) {
+			return readTapBatch(inputFilePath, fareIndex);
+		}
+		List<Future<TapBatch>> chunkTapBatches;
+		try (FileChannel channel = FileChannel.open(Paths.get(inputFilePath), StandardOpenOption.READ)) {
+			long arrayOffset = findTapArray(inputFilePath);
+			if (arrayOffset < 0) {
+				return readTapBatch(inputFilePath, fareIndex);
+			}
+			List<long[]> chunks = splitChunks(channel, arrayOffset, chunkSize);
+			List<Callable<TapBatch>> tasks = new ArrayList<Callable<TapBatch>>(chunks.size());
+			for (int i = 0; i < chunks.size(); i++) {
+				long start = chunks.get(i)[0];
+				long end = chunks.get(i)[1];
+				boolean last = i == chunks.size() - 1;
+				ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+				tasks.add(() -> readChunk(buffer, last, fareIndex));
+			}
+			chunkTapBatches = forkJoinPool.invokeAll(tasks);
+		} catch (IOException e) {
+			throw new InputFileException();
+		}
+		TapBatch tapBatch = null;
+		try {
+			for (Future<TapBatch> chunkTapBatch : chunkTapBatches) {
+				if (tapBatch == null) {
+					tapBatch = chunkTapBatch.get();
+				} else {
+					tapBatch.append(chunkTapBatch.get());
+				}
+			}
+		} catch (ExecutionException e) {
+			// The error is reported by reading the file on this thread
+			return readTapBatch(inputFilePath, fareIndex);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InputFileException("Reading the input file was interrupted.");
+		}
+		return tapBatch;
+	}
+
+	/**
+	 * findTapArray method returns the offset of the first byte inside the taps
+	 * array, or -1 if the input file doesn't have a taps array.
+	 */
+	private long findTapArray(String inputFilePath) throws IOException {
+		try (JsonParser parser = jacksonConfig.getObjectMapper().getFactory()
+				.createParser(Paths.get(inputFilePath).toFile())) {
+			if (parser.nextToken() != JsonToken.START_OBJECT) {
+				return -1;
+			}
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String fieldName = parser.getCurrentName();
+				JsonToken token = parser.nextToken();
+				if (TAPS_FIELD.equals(fieldName) && token == JsonToken.START_ARRAY) {
+					return parser.getCurrentLocation().getByteOffset();
+				}
+				parser.skipChildren();
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * splitChunks method returns the start and end offsets of the chunks. Every
+	 * chunk but the last one starts at an opening brace and ends after a closing
+	 * brace. The last chunk ends at the end of the file, and only the taps up to
+	 * the end of the taps array are read from it.
+	 */
+	private static List<long[]> splitChunks(FileChannel channel, long arrayOffset, int chunkSize)
+			throws IOException {
+		List<long[]> chunks = new ArrayList<long[]>();
+		long fileSize = channel.size();
+		long start = arrayOffset;
+		while (fileSize - start > chunkSize) {
+			long[] boundary = findObjectBoundary(channel, start + chunkSize);
+			if (boundary == null) {
+				break;
+			}
+			chunks.add(new long[] { start, boundary[0] });
+			start = boundary[1];
+		}
+		chunks.add(new long[] { start, fileSize });
+		return chunks;
+	}
+
+	/**
+	 * findObjectBoundary method finds the first closing brace after the offset
+	 * which is followed by a comma and an opening brace. It returns the offset
+	 * after the closing brace and the offset of the opening brace, or null at the
+	 * end of the file.
+	 */
+	private static long[] findObjectBoundary(FileChannel channel, long offset) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(SEPARATOR_BUFFER_SIZE);
+		long position = offset;
+		long objectEnd = -1;
+		boolean comma = false;
+		int read;
+		while ((read = channel.read(buffer, position)) > 0) {
+			for (int i = 0; i < read; i++) {
+				byte b = buffer.get(i);
+				if (b == '}') {
+					objectEnd = position + i + 1;
+					comma = false;
+				} else if (objectEnd >= 0 && !comma && b == ',') {
+					comma = true;
+				} else if (objectEnd >= 0 && comma && b == '{') {
+					return new long[] { objectEnd, position + i };
+				} else if (b != ' ' && b != '\n' && b != '\r' && b != '\t') {
+					objectEnd = -1;
+				}
+			}
+			position += read;
+			buffer.clear();
+		}
+		return null;
+	}
+
+	/**
+	 * readChunk method parses the tap objects of a chunk behind an array start.
+	 * The array of every chunk but the last one is closed after the chunk.
+	 */
+	private TapBatch readChunk(ByteBuffer buffer, boolean last, FareIndex fareIndex)
+			throws IOException, InputFileException {
+		TapBatch tapBatch = new TapBatch(fareIndex);
+		InputStream inputStream = new SequenceInputStream(new ByteArrayInputStream(ARRAY_START),
+				new ByteBufferBackedInputStream(buffer));
+		if (!last) {
+			inputStream = new SequenceInputStream(inputStream, new ByteArrayInputStream(ARRAY_END));
+		}
+		try (JsonParser parser = jacksonConfig.getObjectMapper().getFactory().createParser(inputStream)) {
+			parser.nextToken();
+			JsonToken token;
+			while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+				if (token != JsonToken.START_OBJECT) {
+					throw new InputFileException();
+				}
+				readTap(parser, tapBatch);
+			}
+		}
+		return tapBatch;
+	}
+
+	/**
+	 * readTap method reads the fields of one tap object, in any order. Like the
+	 * Tap reader, unknown fields and invalid values are errors.
+	 */
+	private void readTap(JsonParser parser, TapBatch tapBatch) throws IOException, InputFileException {
+		int id = 0;
+		long epochSecond = DateTimeCodec.INVALID;
+		TapType tapType = null;
+		String stopId = null;
+		String companyId = null;
+		String busId = null;
+		String primaryAccountNumber = null;
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String fieldName = parser.getCurrentName();
+			JsonToken token = parser.nextToken();
+			switch (fieldName) {
+			case "id":
+				id = parser.getValueAsInt();
+				break;
+			case "datetimeUTC":
+				if (token == JsonToken.VALUE_STRING) {
+					epochSecond = DateTimeCodec.parseEpochSecond(parser.getTextCharacters(), parser.getTextOffset(),
+							parser.getTextLength());
+					if (epochSecond == DateTimeCodec.INVALID) {
+						epochSecond = DateTimeCodec.parseEpochSecond(parser.getText());
+					}
+				}
+				break;
+			case "tapType":
+				tapType = token == JsonToken.VALUE_NULL ? null : TapType.valueOf(parser.getText());
+				break;
+			case "stopId":
+				stopId = parser.getValueAsString();
+				break;
+			case "companyId":
+				companyId = parser.getValueAsString();
+				break;
+			case "busId":
+				busId = parser.getValueAsString();
+				break;
+			case "primaryAccountNumber":
+				primaryAccountNumber = parser.getValueAsString();
+				break;
+			default:
+				throw new InputFileException();
+			}
+		}
+		if (epochSecond == DateTimeCodec.INVALID) {
+			throw new InputFileException("Tap " + id + " doesn't have a tap time.");
+		}
+		tapBatch.add(id, epochSecond, tapType, stopId, companyId, busId, primaryAccountNumber);
+	}
+}
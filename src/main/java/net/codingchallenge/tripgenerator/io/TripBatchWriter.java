@@ -0,0 +1,163 @@
+package net.codingchallenge.tripgenerator.io;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import net.codingchallenge.tripgenerator.exception.OutputFileException;
+import net.codingchallenge.tripgenerator.model.Trip;
+
+/**
+ * The TripBatchWriter class writes trips as newline delimited JSON, one trip
+ * per line, in micro-batches. Trips are written into a buffer and the buffer
+ * is flushed to the output when the batch is full, or when the first trip of
+ * the batch has waited for the maximum latency. The writer isn't thread-safe.
+ * 
+ * @author Gihan Rajakaruna
+ *
+ */
+public class TripBatchWriter implements TripFileWriter {
+
+	final static int BUFFER_SIZE = 64 * 1024;
+
+	private final OutputStream output;
+
+	private final JsonGenerator generator;
+
+	private final ObjectWriter tripWriter;
+
+	private final int batchSize;
+
+	private final long maxLatencyNanos;
+
+	private int batchTripCount;
+
+	private long batchDeadline;
+
+	private long tripCount;
+
+	private long batchCount;
+
+	/**
+	 * Creates a writer for the output stream. The output stream is closed with the
+	 * writer.
+	 * 
+	 * @param outputStream
+	 * @param tripWriter
+	 * @param batchSize
+	 * @param maxLatencyMillis
+	 * @throws OutputFileException
+	 */
+	public TripBatchWriter(OutputStream outputStream, ObjectWriter tripWriter, int batchSize, long maxLatencyMillis)
+			throws OutputFileException {
+		this.tripWriter = tripWriter.without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+		this.batchSize = Math.max(1, batchSize);
+		this.maxLatencyNanos = TimeUnit.MILLISECONDS.toNanos(maxLatencyMillis);
+		this.output = outputStream;
+		try {
+			generator = tripWriter.getFactory().createGenerator(new BufferedOutputStream(outputStream, BUFFER_SIZE),
+					JsonEncoding.UTF8);
+			// Lines are separated by the new line after each trip
+			generator.setRootValueSeparator(null);
+		} catch (IOException e) {
+			throw new OutputFileException();
+		}
+	}
+
+	@Override
+	public void write(Trip trip) throws OutputFileException {
+		try {
+			if (batchTripCount == 0) {
+				batchDeadline = System.nanoTime() + maxLatencyNanos;
+			}
+			tripWriter.writeValue(generator, trip);
+			generator.writeRaw('\n');
+			tripCount++;
+			if (++batchTripCount >= batchSize) {
+				flush();
+			}
+		} catch (IOException e) {
+			throw new OutputFileException();
+		}
+	}
+
+	/**
+	 * getNanosUntilFlush method returns the time left before the current batch
+	 * must be flushed, or Long.MAX_VALUE when there is no trip to flush.
+	 * 
+	 * @return nanoseconds
+	 */
+	public long getNanosUntilFlush() {
+		return batchTripCount == 0 ? Long.MAX_VALUE : Math.max(0, batchDeadline - System.nanoTime());
+	}
+
+	/**
+	 * flushIfDue method flushes the current batch if its latency has run out.
+	 * 
+	 * @throws OutputFileException
+	 */
+	public void flushIfDue() throws OutputFileException {
+		if (getNanosUntilFlush() == 0) {
+			flush();
+		}
+	}
+
+	/**
+	 * flush method writes the trips of the current batch to the output.
+	 * 
+	 * @throws OutputFileException
+	 */
+	public void flush() throws OutputFileException {
+		if (batchTripCount == 0) {
+			return;
+		}
+		try {
+			generator.flush();
+			batchTripCount = 0;
+			batchCount++;
+		} catch (IOException e) {
+			throw new OutputFileException();
+		}
+	}
+
+	@Override
+	public long getTripCount() {
+		return tripCount;
+	}
+
+	public long getBatchCount() {
+		return batchCount;
+	}
+
+	/**
+	 * close method flushes the last batch and closes the output.
+	 */
+	@Override
+	public void close() throws OutputFileException {
+		try {
+			flush();
+			generator.close();
+		} catch (IOException e) {
+			throw new OutputFileException();
+		}
+	}
+
+	/**
+	 * abort method closes the output without writing the current batch. The
+	 * batches written before are kept.
+	 */
+	@Override
+	public void abort() {
+		try {
+			output.close();
+		} catch (IOException e) {
+			// The current batch is dropped anyway
+		}
+	}
+}
@@ -0,0 +1,246 @@
+package net.codingchallenge.tripgenerator.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+import net.codingchallenge.tripgenerator.enums.TapType;
+import net.codingchallenge.tripgenerator.exception.InputFileException;
+import net.codingchallenge.tripgenerator.exception.OutputFileException;
+import net.codingchallenge.tripgenerator.json.DateTimeCodec;
+import net.codingchallenge.tripgenerator.model.StringDictionary;
+import net.codingchallenge.tripgenerator.model.Tap;
+
+/**
+ * The TripCheckpoint class is the saved progress of a streaming run. It has
+ * the input byte offset after the last tap matched, the output file position
+ * after the last trip written and the open journeys at that point. A run which
+ * resumes from the checkpoint writes every trip exactly once.
+ * 
+ * The checkpoint file is binary. The strings of the open taps are written once
+ * in a string table and each open tap is a fixed width record of ordinals. The
+ * file is written sequentially through a file channel into a temporary file,
+ * which then replaces the previous checkpoint, and ends with a CRC32 checksum.
+ * 
+ * @author Gihan Rajakaruna
+ *
+ */
+public class TripCheckpoint {
+
+	final static int MAGIC = 0x54474350;
+
+	final static int VERSION = 1;
+
+	final static int BUFFER_SIZE = 64 * 1024;
+
+	final static String TEMP_FILE_EXTENTION = ".tmp";
+
+	final static int HEADER_SIZE = 2 * 4 + 8 * 8;
+
+	final static int CHECKSUM_SIZE = 8;
+
+	private final long inputFileSize;
+
+	private final long inputOffset;
+
+	private final long outputPosition;
+
+	private final long tapCount;
+
+	private final long tripCount;
+
+	private final long maxEpochSecond;
+
+	private final long expiredJourneyCount;
+
+	private final long lateTapCount;
+
+	private final List<Tap> openTaps;
+
+	public TripCheckpoint(long inputFileSize, long inputOffset, long outputPosition, long tapCount, long tripCount,
+			long maxEpochSecond, long expiredJourneyCount, long lateTapCount, List<Tap> openTaps) {
+		this.inputFileSize = inputFileSize;
+		this.inputOffset = inputOffset;
+		this.outputPosition = outputPosition;
+		this.tapCount = tapCount;
+		this.tripCount = tripCount;
+		this.maxEpochSecond = maxEpochSecond;
+		this.expiredJourneyCount = expiredJourneyCount;
+		this.lateTapCount = lateTapCount;
+		this.openTaps = openTaps;
+	}
+
+	/**
+	 * write method saves the checkpoint into the checkpoint file.
+	 * 
+	 * @param checkpointFilePath
+	 * @throws OutputFileException
+	 */
+	public void write(Path checkpointFilePath) throws OutputFileException {
+		Path tempFilePath = checkpointFilePath.resolveSibling(checkpointFilePath.getFileName() + TEMP_FILE_EXTENTION);
+		StringDictionary strings = new StringDictionary();
+		int[] ordinals = new int[openTaps.size() * 4];
+		for (int i = 0; i < openTaps.size(); i++) {
+			Tap tap = openTaps.get(i);
+			ordinals[i * 4] = strings.intern(tap.getStopId());
+			ordinals[i * 4 + 1] = strings.intern(tap.getCompanyId());
+			ordinals[i * 4 + 2] = strings.intern(tap.getBusId());
+			ordinals[i * 4 + 3] = strings.intern(tap.getPrimaryAccountNumber());
+		}
+		try (FileChannel channel = FileChannel.open(tempFilePath, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			CheckedOutputStream checkedOutputStream = new CheckedOutputStream(Channels.newOutputStream(channel),
+					new CRC32());
+			DataOutputStream output = new DataOutputStream(new BufferedOutputStream(checkedOutputStream, BUFFER_SIZE));
+			output.writeInt(MAGIC);
+			output.writeInt(VERSION);
+			output.writeLong(inputFileSize);
+			output.writeLong(inputOffset);
+			output.writeLong(outputPosition);
+			output.writeLong(tapCount);
+			output.writeLong(tripCount);
+			output.writeLong(maxEpochSecond);
+			output.writeLong(expiredJourneyCount);
+			output.writeLong(lateTapCount);
+			output.writeInt(strings.size());
+			for (int i = 0; i < strings.size(); i++) {
+				output.writeUTF(strings.get(i));
+			}
+			output.writeInt(openTaps.size());
+			for (int i = 0; i < openTaps.size(); i++) {
+				Tap tap = openTaps.get(i);
+				output.writeInt(tap.getId());
+				output.writeLong(tap.getDatetimeUTC().toEpochSecond());
+				for (int field = 0; field < 4; field++) {
+					output.writeInt(ordinals[i * 4 + field]);
+				}
+			}
+			output.flush();
+			output.writeLong(checkedOutputStream.getChecksum().getValue());
+			output.flush();
+			channel.force(false);
+		} catch (IOException e) {
+			throw new OutputFileException("Can't write the checkpoint file.");
+		}
+		try {
+			Files.move(tempFilePath, checkpointFilePath, StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			throw new OutputFileException("Can't write the checkpoint file.");
+		}
+	}
+
+	/**
+	 * read method loads a checkpoint from the checkpoint file.
+	 * 
+	 * @param checkpointFilePath
+	 * @return checkpoint
+	 * @throws InputFileException
+	 */
+	public static TripCheckpoint read(Path checkpointFilePath) throws InputFileException {
+		ByteBuffer buffer;
+		try (FileChannel channel = FileChannel.open(checkpointFilePath, StandardOpenOption.READ)) {
+			if (channel.size() < HEADER_SIZE + CHECKSUM_SIZE) {
+				throw new InputFileException("Checkpoint file is corrupted.");
+			}
+			buffer = ByteBuffer.allocate((int) channel.size());
+			while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+				// Read the whole checkpoint file sequentially
+			}
+		} catch (IOException e) {
+			throw new InputFileException("Can't read the checkpoint file.");
+		}
+		CRC32 crc32 = new CRC32();
+		crc32.update(buffer.array(), 0, buffer.limit() - CHECKSUM_SIZE);
+		if (crc32.getValue() != buffer.getLong(buffer.limit() - CHECKSUM_SIZE)) {
+			throw new InputFileException("Checkpoint file is corrupted.");
+		}
+		try (DataInputStream input = new DataInputStream(
+				new ByteArrayInputStream(buffer.array(), 0, buffer.limit() - CHECKSUM_SIZE))) {
+			if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+				throw new InputFileException("Checkpoint file has an unknown format.");
+			}
+			long inputFileSize = input.readLong();
+			long inputOffset = input.readLong();
+			long outputPosition = input.readLong();
+			long tapCount = input.readLong();
+			long tripCount = input.readLong();
+			long maxEpochSecond = input.readLong();
+			long expiredJourneyCount = input.readLong();
+			long lateTapCount = input.readLong();
+			String[] strings = new String[input.readInt()];
+			for (int i = 0; i < strings.length; i++) {
+				strings[i] = input.readUTF();
+			}
+			int openTapCount = input.readInt();
+			List<Tap> openTaps = new ArrayList<Tap>(openTapCount);
+			for (int i = 0; i < openTapCount; i++) {
+				int id = input.readInt();
+				long epochSecond = input.readLong();
+				String stopId = getString(strings, input.readInt());
+				String companyId = getString(strings, input.readInt());
+				String busId = getString(strings, input.readInt());
+				String primaryAccountNumber = getString(strings, input.readInt());
+				openTaps.add(new Tap(id, DateTimeCodec.toZonedDateTime(epochSecond), TapType.ON, stopId, companyId,
+						busId, primaryAccountNumber));
+			}
+			return new TripCheckpoint(inputFileSize, inputOffset, outputPosition, tapCount, tripCount, maxEpochSecond,
+					expiredJourneyCount, lateTapCount, openTaps);
+		} catch (IOException | IndexOutOfBoundsException e) {
+			throw new InputFileException("Checkpoint file is corrupted.");
+		}
+	}
+
+	private static String getString(String[] strings, int ordinal) {
+		return ordinal == StringDictionary.NO_VALUE ? null : strings[ordinal];
+	}
+
+	public long getInputFileSize() {
+		return inputFileSize;
+	}
+
+	public long getInputOffset() {
+		return inputOffset;
+	}
+
+	public long getOutputPosition() {
+		return outputPosition;
+	}
+
+	public long getTapCount() {
+		return tapCount;
+	}
+
+	public long getTripCount() {
+		return tripCount;
+	}
+
+	public long getMaxEpochSecond() {
+		return maxEpochSecond;
+	}
+
+	public long getExpiredJourneyCount() {
+		return expiredJourneyCount;
+	}
+
+	public long getLateTapCount() {
+		return lateTapCount;
+	}
+
+	public List<Tap> getOpenTaps() {
+		return openTaps;
+	}
+}
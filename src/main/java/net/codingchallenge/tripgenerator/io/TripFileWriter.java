@@ -0,0 +1,26 @@
+package net.codingchallenge.tripgenerator.io;
+
+import net.codingchallenge.tripgenerator.exception.OutputFileException;
+
+/**
+ * The TripFileWriter interface writes the generated trips into an output file
+ * one at a time. The output file is complete after the writer is closed. A
+ * writer of a failed run is aborted instead, so the output file isn't
+ * completed.
+ * 
+ * @author Gihan Rajakaruna
+ *
+ */
+public interface TripFileWriter extends TripSink, AutoCloseable {
+
+	long getTripCount();
+
+	@Override
+	void close() throws OutputFileException;
+
+	/**
+	 * abort method closes the output file without completing it. Trips which are
+	 * still buffered are dropped.
+	 */
+	void abort();
+}
@@ -0,0 +1,21 @@
+package net.codingchallenge.tripgenerator.io;
+
+import net.codingchallenge.tripgenerator.exception.OutputFileException;
+import net.codingchallenge.tripgenerator.model.Trip;
+
+/**
+ * The TripSink interface receives the generated trips one at a time.
+ * 
+ * @author Gihan Rajakaruna
+ * 
+ */
+public interface TripSink {
+
+	/**
+	 * write method accepts a generated trip.
+	 * 
+	 * @param trip
+	 * @throws OutputFileException
+	 */
+	void write(Trip trip) throws OutputFileException;
+}
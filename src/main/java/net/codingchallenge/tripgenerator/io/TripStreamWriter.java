@@ -0,0 +1,246 @@
+package net.codingchallenge.tripgenerator.io;
+
+import java.io.BufferedOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.DefaultPrettyPrinter;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import net.codingchallenge.tripgenerator.exception.OutputFileException;
+import net.codingchallenge.tripgenerator.model.Trip;
+
+/**
+ * The TripStreamWriter class writes the trips array of the output file one
+ * trip at a time using the Jackson streaming API. Each trip is written as soon
+ * as it is generated, so the trips don't need to be kept in memory. The output
+ * is buffered and written through a file channel.
+ * 
+ * @author Gihan Rajakaruna
+ * 
+ */
+public class TripStreamWriter implements TripFileWriter {
+
+	final static String TRIPS_FIELD = "trips";
+
+	final static int BUFFER_SIZE = 64 * 1024;
+
+	private final FileChannel channel;
+
+	private final OutputStream output;
+
+	private final JsonGenerator generator;
+
+	private final ObjectWriter tripWriter;
+
+	private long tripCount;
+
+	/**
+	 * Opens the output file and writes the beginning of the trips array. When
+	 * prettyPrint is false the output is written without any whitespace.
+	 * 
+	 * @param outputFilePath
+	 * @param tripWriter
+	 * @param prettyPrint
+	 * @throws OutputFileException
+	 */
+	public TripStreamWriter(String outputFilePath, ObjectWriter tripWriter, boolean prettyPrint)
+			throws OutputFileException {
+		this(outputFilePath, tripWriter, prettyPrint, 0, 0);
+	}
+
+	/**
+	 * Writes the trips array into an output stream, such as the compressor of a
+	 * compressed output file. The writer can't be synced. The output stream is
+	 * closed with the writer.
+	 * 
+	 * @param outputStream
+	 * @param tripWriter
+	 * @param prettyPrint
+	 * @throws OutputFileException
+	 */
+	public TripStreamWriter(OutputStream outputStream, ObjectWriter tripWriter, boolean prettyPrint)
+			throws OutputFileException {
+		this.tripWriter = tripWriter.without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+		this.channel = null;
+		this.output = outputStream;
+		try {
+			generator = startTrips(new BufferedOutputStream(outputStream, BUFFER_SIZE), tripWriter, prettyPrint);
+		} catch (IOException e) {
+			throw new OutputFileException();
+		}
+	}
+
+	/**
+	 * Opens the output file to continue the trips array at a position returned by
+	 * the sync method, after the given number of trips. The rest of the file is
+	 * removed. The generator is brought to the same state by writing the beginning
+	 * of the array and one value in place of the trips, without writing them to
+	 * the file, so the next trips are written with the same separators and
+	 * indentation. Position 0 starts a new file.
+	 * 
+	 * @param outputFilePath
+	 * @param tripWriter
+	 * @param prettyPrint
+	 * @param position
+	 * @param tripCount
+	 * @throws OutputFileException
+	 */
+	public TripStreamWriter(String outputFilePath, ObjectWriter tripWriter, boolean prettyPrint, long position,
+			long tripCount) throws OutputFileException {
+		// Generator is flushed only when the buffer is full or the writer is closed
+		this.tripWriter = tripWriter.without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+		try {
+			if (position > 0) {
+				channel = FileChannel.open(Paths.get(outputFilePath), StandardOpenOption.WRITE);
+				channel.truncate(position);
+				channel.position(position);
+			} else {
+				channel = FileChannel.open(Paths.get(outputFilePath), StandardOpenOption.CREATE,
+						StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+			}
+			ResumeOutputStream resumeOutputStream = new ResumeOutputStream(Channels.newOutputStream(channel),
+					position > 0);
+			output = resumeOutputStream;
+			OutputStream outputStream = new BufferedOutputStream(resumeOutputStream, BUFFER_SIZE);
+			generator = startTrips(outputStream, tripWriter, prettyPrint);
+			if (position > 0) {
+				if (tripCount > 0) {
+					generator.writeNumber(0);
+				}
+				generator.flush();
+				resumeOutputStream.discarding = false;
+			}
+			this.tripCount = tripCount;
+		} catch (IOException e) {
+			throw new OutputFileException();
+		}
+	}
+
+	/**
+	 * startTrips method creates the generator and writes the beginning of the
+	 * trips array.
+	 */
+	private static JsonGenerator startTrips(OutputStream outputStream, ObjectWriter tripWriter, boolean prettyPrint)
+			throws IOException {
+		JsonGenerator generator = tripWriter.getFactory().createGenerator(outputStream, JsonEncoding.UTF8);
+		if (prettyPrint) {
+			generator.setPrettyPrinter(new DefaultPrettyPrinter());
+		}
+		generator.writeStartObject();
+		generator.writeFieldName(TRIPS_FIELD);
+		generator.writeStartArray();
+		return generator;
+	}
+
+	@Override
+	public void write(Trip trip) throws OutputFileException {
+		try {
+			tripWriter.writeValue(generator, trip);
+			tripCount++;
+		} catch (IOException e) {
+			throw new OutputFileException();
+		}
+	}
+
+	/**
+	 * flush method writes the buffered trips to the output file.
+	 * 
+	 * @throws OutputFileException
+	 */
+	public void flush() throws OutputFileException {
+		try {
+			generator.flush();
+		} catch (IOException e) {
+			throw new OutputFileException();
+		}
+	}
+
+	/**
+	 * sync method writes the buffered trips to the output file and forces them to
+	 * the storage device.
+	 * 
+	 * @return position after the last trip
+	 * @throws OutputFileException
+	 */
+	public long sync() throws OutputFileException {
+		if (channel == null) {
+			throw new OutputFileException("Output stream can't be synced.");
+		}
+		try {
+			generator.flush();
+			channel.force(false);
+			return channel.position();
+		} catch (IOException e) {
+			throw new OutputFileException();
+		}
+	}
+
+	@Override
+	public long getTripCount() {
+		return tripCount;
+	}
+
+	/**
+	 * close method writes the end of the trips array and closes the output file.
+	 */
+	@Override
+	public void close() throws OutputFileException {
+		try {
+			generator.writeEndArray();
+			generator.writeEndObject();
+			generator.close();
+		} catch (IOException e) {
+			throw new OutputFileException();
+		}
+	}
+
+	/**
+	 * abort method closes the output file without writing the end of the trips
+	 * array, so the output isn't valid JSON.
+	 */
+	@Override
+	public void abort() {
+		try {
+			output.close();
+		} catch (IOException e) {
+			// The output file is incomplete anyway
+		}
+	}
+
+	/**
+	 * Output stream which drops the bytes written while the generator state is
+	 * restored
+	 */
+	static class ResumeOutputStream extends FilterOutputStream {
+
+		boolean discarding;
+
+		ResumeOutputStream(OutputStream outputStream, boolean discarding) {
+			super(outputStream);
+			this.discarding = discarding;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			if (!discarding) {
+				out.write(b);
+			}
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			if (!discarding) {
+				out.write(b, off, len);
+			}
+		}
+	}
+}
@@ -0,0 +1,170 @@
+package net.codingchallenge.tripgenerator.json;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * The DateTimeCodec class converts the fixed width dd-MM-yyyy HH:mm:ss tap time
+ * to and from epoch seconds by working on the digits directly. Text which
+ * doesn't fit the fixed width format is handled by the DateTimeFormatter.
+ * 
+ * @author Gihan Rajakaruna
+ *
+ */
+public final class DateTimeCodec {
+
+	public static final String PATTERN = "dd-MM-yyyy HH:mm:ss";
+
+	public static final int LENGTH = PATTERN.length();
+
+	/**
+	 * Tap times are in UTC. The zone is the same as the one created by
+	 * JsonFormat(timezone = "UTC"), so parsed values are equal to the values
+	 * parsed by Jackson.
+	 */
+	public static final ZoneId UTC = ZoneId.of("UTC");
+
+	public static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern(PATTERN).withZone(UTC);
+
+	/**
+	 * Returned by parseEpochSecond when the text isn't in the fixed width format.
+	 */
+	public static final long INVALID = Long.MIN_VALUE;
+
+	private static final int SECONDS_PER_DAY = 86400;
+
+	private static final int DAYS_0000_TO_1970 = 719468;
+
+	private DateTimeCodec() {
+	}
+
+	/**
+	 * parseEpochSecond method parses dd-MM-yyyy HH:mm:ss into the number of
+	 * seconds from 1970-01-01T00:00:00Z.
+	 * 
+	 * @param text
+	 * @param offset
+	 * @param length
+	 * @return epoch seconds or INVALID
+	 */
+	public static long parseEpochSecond(char[] text, int offset, int length) {
+		if (length != LENGTH || text[offset + 2] != '-' || text[offset + 5] != '-' || text[offset + 10] != ' '
+				|| text[offset + 13] != ':' || text[offset + 16] != ':') {
+			return INVALID;
+		}
+		int day = digits(text, offset, 2);
+		int month = digits(text, offset + 3, 2);
+		int year = digits(text, offset + 6, 4);
+		int hour = digits(text, offset + 11, 2);
+		int minute = digits(text, offset + 14, 2);
+		int second = digits(text, offset + 17, 2);
+		if (day < 1 || month < 1 || month > 12 || year < 1 || day > lengthOfMonth(year, month) || hour < 0
+				|| hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+			return INVALID;
+		}
+		return epochDay(year, month, day) * SECONDS_PER_DAY + hour * 3600 + minute * 60 + second;
+	}
+
+	/**
+	 * parseEpochSecond method parses a string. Text which isn't in the fixed width
+	 * format is parsed by the DateTimeFormatter.
+	 * 
+	 * @param text
+	 * @return epoch seconds
+	 */
+	public static long parseEpochSecond(String text) {
+		long epochSecond = parseEpochSecond(text.toCharArray(), 0, text.length());
+		if (epochSecond == INVALID) {
+			epochSecond = ZonedDateTime.parse(text, FORMATTER).toEpochSecond();
+		}
+		return epochSecond;
+	}
+
+	/**
+	 * format method writes the date and time fields of the value into the buffer
+	 * in the dd-MM-yyyy HH:mm:ss format. Values with a year outside 1 to 9999 are
+	 * formatted by the DateTimeFormatter, so the buffer may be too short for them.
+	 * 
+	 * @param value
+	 * @param buffer
+	 * @return number of characters written, or -1 if the year isn't supported
+	 */
+	public static int format(ZonedDateTime value, char[] buffer) {
+		int year = value.getYear();
+		if (year < 1 || year > 9999) {
+			return -1;
+		}
+		putDigits(buffer, 0, value.getDayOfMonth(), 2);
+		buffer[2] = '-';
+		putDigits(buffer, 3, value.getMonthValue(), 2);
+		buffer[5] = '-';
+		putDigits(buffer, 6, year, 4);
+		buffer[10] = ' ';
+		putDigits(buffer, 11, value.getHour(), 2);
+		buffer[13] = ':';
+		putDigits(buffer, 14, value.getMinute(), 2);
+		buffer[16] = ':';
+		putDigits(buffer, 17, value.getSecond(), 2);
+		return LENGTH;
+	}
+
+	/**
+	 * toZonedDateTime method creates the UTC date time of the epoch seconds.
+	 * 
+	 * @param epochSecond
+	 * @return date time
+	 */
+	public static ZonedDateTime toZonedDateTime(long epochSecond) {
+		return ZonedDateTime.ofLocal(LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC), UTC,
+				ZoneOffset.UTC);
+	}
+
+	private static int digits(char[] text, int offset, int count) {
+		int value = 0;
+		for (int i = offset; i < offset + count; i++) {
+			int digit = text[i] - '0';
+			if (digit < 0 || digit > 9) {
+				return -1_000_000;
+			}
+			value = value * 10 + digit;
+		}
+		return value;
+	}
+
+	private static void putDigits(char[] buffer, int offset, int value, int count) {
+		for (int i = offset + count - 1; i >= offset; i--) {
+			buffer[i] = (char) ('0' + value % 10);
+			value /= 10;
+		}
+	}
+
+	private static int lengthOfMonth(int year, int month) {
+		switch (month) {
+		case 2:
+			return (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+		case 4:
+		case 6:
+		case 9:
+		case 11:
+			return 30;
+		default:
+			return 31;
+		}
+	}
+
+	/**
+	 * Days from civil algorithm of the proleptic Gregorian calendar, with March as
+	 * the first month of the year so that the leap day is the last day.
+	 */
+	private static long epochDay(int year, int month, int day) {
+		int y = month <= 2 ? year - 1 : year;
+		int era = (y >= 0 ? y : y - 399) / 400;
+		int yearOfEra = y - era * 400;
+		int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+		int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+		return (long) era * 146097 + dayOfEra - DAYS_0000_TO_1970;
+	}
+}
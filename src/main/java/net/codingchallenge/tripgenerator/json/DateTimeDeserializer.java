@@ -0,0 +1,49 @@
+package net.codingchallenge.tripgenerator.json;
+
+import java.io.IOException;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdScalarDeserializer;
+
+/**
+ * The DateTimeDeserializer class reads a dd-MM-yyyy HH:mm:ss UTC tap time. The
+ * digits are read straight from the parser buffer, so no String or
+ * DateTimeFormatter parsing state is created for each tap.
+ * 
+ * @author Gihan Rajakaruna
+ *
+ */
+public class DateTimeDeserializer extends StdScalarDeserializer<ZonedDateTime> {
+
+	private static final long serialVersionUID = 1L;
+
+	public DateTimeDeserializer() {
+		super(ZonedDateTime.class);
+	}
+
+	@Override
+	public ZonedDateTime deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+		if (!parser.hasToken(JsonToken.VALUE_STRING)) {
+			return (ZonedDateTime) context.handleUnexpectedToken(ZonedDateTime.class, parser);
+		}
+		long epochSecond = DateTimeCodec.parseEpochSecond(parser.getTextCharacters(), parser.getTextOffset(),
+				parser.getTextLength());
+		if (epochSecond != DateTimeCodec.INVALID) {
+			return DateTimeCodec.toZonedDateTime(epochSecond);
+		}
+		String text = parser.getText().trim();
+		if (text.isEmpty()) {
+			return null;
+		}
+		try {
+			return ZonedDateTime.parse(text, DateTimeCodec.FORMATTER);
+		} catch (DateTimeParseException e) {
+			return (ZonedDateTime) context.handleWeirdStringValue(ZonedDateTime.class, text,
+					"Expected date time in " + DateTimeCodec.PATTERN + " format");
+		}
+	}
+}
@@ -0,0 +1,41 @@
+package net.codingchallenge.tripgenerator.json;
+
+import java.io.IOException;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdScalarSerializer;
+
+/**
+ * The DateTimeSerializer class writes a date time in dd-MM-yyyy HH:mm:ss format
+ * using the date and time fields of the value, in the same way as
+ * JsonFormat(pattern = "dd-MM-yyyy HH:mm:ss"). The digits are written into a
+ * small buffer instead of going through DateTimeFormatter.
+ * 
+ * @author Gihan Rajakaruna
+ *
+ */
+public class DateTimeSerializer extends StdScalarSerializer<ZonedDateTime> {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern(DateTimeCodec.PATTERN);
+
+	public DateTimeSerializer() {
+		super(ZonedDateTime.class);
+	}
+
+	@Override
+	public void serialize(ZonedDateTime value, JsonGenerator generator, SerializerProvider provider)
+			throws IOException {
+		char[] buffer = new char[DateTimeCodec.LENGTH];
+		int length = DateTimeCodec.format(value, buffer);
+		if (length > 0) {
+			generator.writeString(buffer, 0, length);
+		} else {
+			generator.writeString(FORMATTER.format(value));
+		}
+	}
+}
@@ -0,0 +1,388 @@
+package net.codingchallenge.tripgenerator.metrics;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import net.codingchallenge.tripgenerator.config.JacksonConfig;
+import net.codingchallenge.tripgenerator.enums.TripStatus;
+import net.codingchallenge.tripgenerator.exception.OutputFileException;
+import net.codingchallenge.tripgenerator.model.Trip;
+import net.codingchallenge.tripgenerator.service.JourneyMatcher;
+
+/**
+ * The PipelineMetrics class keeps the Micrometer meters of the trip generation
+ * stages: the time spent reading, matching, pricing and writing the trips of
+ * each file, the taps read, the trips generated by status, the fare lookups by
+ * kind of fare, the open journeys and the bytes read and written. Stages are
+ * timed once per file and counts are added once per file where possible, so the
+ * meters don't add any work for each tap. Fare lookups are counted by the
+ * service where each fare is looked up. The meters are written into a JSON
+ * summary file at the end of a run, with the tap and trip rates and the fare hit
+ * ratios of the run.
+ * 
+ * @author Gihan Rajakaruna
+ *
+ */
+@Component
+public class PipelineMetrics {
+
+	final static Logger logger = LogManager.getLogger(PipelineMetrics.class);
+
+	public final static String STAGE_READ = "read";
+
+	public final static String STAGE_MATCH = "match";
+
+	public final static String STAGE_PRICE = "price";
+
+	public final static String STAGE_WRITE = "write";
+
+	/**
+	 * Streamed files read, match, price and write each tap in turn, so the stages
+	 * are timed together.
+	 */
+	public final static String STAGE_STREAM = "stream";
+
+	/**
+	 * Maximum fares from a stop, looked up for INCOMPLETE trips
+	 */
+	public final static String FARE_MAX = "max";
+
+	/**
+	 * Fares between two stops, looked up for COMPLETED trips
+	 */
+	public final static String FARE_PAIR = "pair";
+
+	final static double[] PERCENTILES = { 0.5, 0.95, 0.99 };
+
+	final static String PERCENTILE_SUFFIX = ".percentile";
+
+	@Autowired(required = true)
+	JacksonConfig jacksonConfig;
+
+	@Value("${tripgenerator.metrics.file:}")
+	String metricsFile;
+
+	private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	private final long startTime = System.nanoTime();
+
+	private final Counter tapCounter;
+
+	private final Counter[] tripCounters;
+
+	private final Counter maxFareHitCounter;
+
+	private final Counter maxFareMissCounter;
+
+	private final Counter pairFareHitCounter;
+
+	private final Counter pairFareMissCounter;
+
+	private final Counter failedJourneyCounter;
+
+	private final Counter bytesReadCounter;
+
+	private final Counter bytesWrittenCounter;
+
+	private final DistributionSummary fileTapSummary;
+
+	/**
+	 * Matchers are weakly referenced, so the matchers of finished runs are
+	 * dropped from the open journeys gauge.
+	 */
+	private final Set<JourneyMatcher> journeyMatchers = Collections
+			.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<JourneyMatcher, Boolean>()));
+
+	public PipelineMetrics() {
+		tapCounter = Counter.builder("tripgenerator.taps").description("Taps read").register(meterRegistry);
+		tripCounters = new Counter[TripStatus.values().length];
+		for (TripStatus tripStatus : TripStatus.values()) {
+			tripCounters[tripStatus.ordinal()] = Counter.builder("tripgenerator.trips")
+					.tag("status", tripStatus.name()).description("Trips generated").register(meterRegistry);
+		}
+		maxFareHitCounter = fareLookupCounter(FARE_MAX, "hit");
+		maxFareMissCounter = fareLookupCounter(FARE_MAX, "miss");
+		pairFareHitCounter = fareLookupCounter(FARE_PAIR, "hit");
+		pairFareMissCounter = fareLookupCounter(FARE_PAIR, "miss");
+		failedJourneyCounter = Counter.builder("tripgenerator.journeys.failed")
+				.description("Journeys of the service whose trip couldn't be generated").register(meterRegistry);
+		bytesReadCounter = Counter.builder("tripgenerator.bytes.read").baseUnit("bytes")
+				.description("Bytes of the input files").register(meterRegistry);
+		bytesWrittenCounter = Counter.builder("tripgenerator.bytes.written").baseUnit("bytes")
+				.description("Bytes of the output files").register(meterRegistry);
+		fileTapSummary = DistributionSummary.builder("tripgenerator.file.taps").publishPercentiles(PERCENTILES)
+				.description("Taps of each input file").register(meterRegistry);
+		Gauge.builder("tripgenerator.journeys.open", this, PipelineMetrics::getOpenJourneyCount)
+				.description("ON taps waiting for an OFF tap").register(meterRegistry);
+	}
+
+	private Counter fareLookupCounter(String fare, String result) {
+		return Counter.builder("tripgenerator.fare.lookups").tag("fare", fare).tag("result", result)
+				.description("Fare lookups by kind of fare and whether a fare was found").register(meterRegistry);
+	}
+
+	/**
+	 * recordStage method records the time of a stage which started at the given
+	 * System.nanoTime, and returns the current System.nanoTime as the start of the
+	 * next stage.
+	 * 
+	 * @param stage
+	 * @param stageStartTime
+	 * @return end time of the stage
+	 */
+	public long recordStage(String stage, long stageStartTime) {
+		long endTime = System.nanoTime();
+		Timer.builder("tripgenerator.stage").tag("stage", stage).publishPercentiles(PERCENTILES)
+				.description("Time of a stage of one file").register(meterRegistry)
+				.record(endTime - stageStartTime, TimeUnit.NANOSECONDS);
+		return endTime;
+	}
+
+	/**
+	 * countFile method adds the taps and the sizes of the input and output files
+	 * of a finished file.
+	 * 
+	 * @param tapCount
+	 * @param inputFilePath
+	 * @param outputFilePath
+	 */
+	public void countFile(long tapCount, String inputFilePath, String outputFilePath) {
+		fileTapSummary.record(tapCount);
+		tapCounter.increment(tapCount);
+		bytesReadCounter.increment(Paths.get(inputFilePath).toFile().length());
+		bytesWrittenCounter.increment(Paths.get(outputFilePath).toFile().length());
+	}
+
+	/**
+	 * countTaps method adds taps which are not read from a file, such as the taps
+	 * of the service.
+	 * 
+	 * @param tapCount
+	 */
+	public void countTaps(long tapCount) {
+		tapCounter.increment(tapCount);
+	}
+
+	/**
+	 * countTrips method adds the trips of a file by status. Counts are added up
+	 * before they are added to the counters.
+	 * 
+	 * @param trips
+	 */
+	public void countTrips(List<Trip> trips) {
+		long[] tripCounts = new long[tripCounters.length];
+		for (Trip trip : trips) {
+			tripCounts[trip.getStatus().ordinal()]++;
+		}
+		for (TripStatus tripStatus : TripStatus.values()) {
+			countTrips(tripStatus, tripCounts[tripStatus.ordinal()]);
+		}
+	}
+
+	/**
+	 * countTrip method adds a streamed trip.
+	 * 
+	 * @param tripStatus
+	 */
+	public void countTrip(TripStatus tripStatus) {
+		countTrips(tripStatus, 1);
+	}
+
+	private void countTrips(TripStatus tripStatus, long tripCount) {
+		if (tripCount > 0) {
+			tripCounters[tripStatus.ordinal()].increment(tripCount);
+		}
+	}
+
+	/**
+	 * countFareHit method counts a fare lookup which found a fare.
+	 * 
+	 * @param fare FARE_MAX or FARE_PAIR
+	 */
+	public void countFareHit(String fare) {
+		(FARE_MAX.equals(fare) ? maxFareHitCounter : pairFareHitCounter).increment();
+	}
+
+	/**
+	 * countFareMiss method counts a fare lookup which didn't find a fare.
+	 * 
+	 * @param fare FARE_MAX or FARE_PAIR
+	 */
+	public void countFareMiss(String fare) {
+		(FARE_MAX.equals(fare) ? maxFareMissCounter : pairFareMissCounter).increment();
+	}
+
+	/**
+	 * countFailedJourney method counts a journey which was skipped because its
+	 * trip couldn't be generated.
+	 */
+	public void countFailedJourney() {
+		failedJourneyCounter.increment();
+	}
+
+	/**
+	 * getFareHitRatio method returns the share of the fare lookups of a kind which
+	 * found a fare, or NaN before the first lookup.
+	 * 
+	 * @param fare FARE_MAX or FARE_PAIR
+	 * @return hit ratio
+	 */
+	public double getFareHitRatio(String fare) {
+		boolean maxFare = FARE_MAX.equals(fare);
+		double hits = (maxFare ? maxFareHitCounter : pairFareHitCounter).count();
+		double misses = (maxFare ? maxFareMissCounter : pairFareMissCounter).count();
+		return hits + misses > 0 ? hits / (hits + misses) : Double.NaN;
+	}
+
+	/**
+	 * watchOpenJourneys method adds the open journeys of the matcher to the open
+	 * journeys gauge while the matcher is in use.
+	 * 
+	 * @param journeyMatcher
+	 */
+	public void watchOpenJourneys(JourneyMatcher journeyMatcher) {
+		journeyMatchers.add(journeyMatcher);
+	}
+
+	private double getOpenJourneyCount() {
+		synchronized (journeyMatchers) {
+			long openJourneyCount = 0;
+			for (JourneyMatcher journeyMatcher : journeyMatchers) {
+				openJourneyCount += journeyMatcher.getOpenJourneyCount();
+			}
+			return openJourneyCount;
+		}
+	}
+
+	/**
+	 * getSummary method returns the meters with the duration of the run and the
+	 * taps and trips per second. Times are in milliseconds.
+	 * 
+	 * @return metrics summary
+	 */
+	public Map<String, Object> getSummary() {
+		long durationMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+		Map<String, Object> summary = new LinkedHashMap<String, Object>();
+		summary.put("durationMillis", durationMillis);
+		summary.put("tapsPerSecond", tapCounter.count() * 1000 / durationMillis);
+		Map<String, Object> tripsPerSecond = new LinkedHashMap<String, Object>();
+		for (TripStatus tripStatus : TripStatus.values()) {
+			tripsPerSecond.put(tripStatus.name(), tripCounters[tripStatus.ordinal()].count() * 1000 / durationMillis);
+		}
+		summary.put("tripsPerSecond", tripsPerSecond);
+		Map<String, Object> fareHitRatio = new LinkedHashMap<String, Object>();
+		for (String fare : new String[] { FARE_MAX, FARE_PAIR }) {
+			double hitRatio = getFareHitRatio(fare);
+			fareHitRatio.put(fare, Double.isNaN(hitRatio) ? null : hitRatio);
+		}
+		summary.put("fareHitRatio", fareHitRatio);
+		Map<String, Object> meters = new TreeMap<String, Object>();
+		for (Meter meter : meterRegistry.getMeters()) {
+			// Percentiles are in the values of their timer or distribution summary
+			if (!meter.getId().getName().endsWith(PERCENTILE_SUFFIX)) {
+				meters.put(getMeterName(meter), getMeterValues(meter));
+			}
+		}
+		summary.put("meters", meters);
+		return summary;
+	}
+
+	/**
+	 * Meter names have the tags of the meter, e.g. tripgenerator.stage{stage=read}
+	 */
+	private static String getMeterName(Meter meter) {
+		List<Tag> tags = meter.getId().getTags();
+		if (tags.isEmpty()) {
+			return meter.getId().getName();
+		}
+		StringBuilder name = new StringBuilder(meter.getId().getName()).append('{');
+		for (int i = 0; i < tags.size(); i++) {
+			name.append(i > 0 ? "," : "").append(tags.get(i).getKey()).append('=').append(tags.get(i).getValue());
+		}
+		return name.append('}').toString();
+	}
+
+	private static Object getMeterValues(Meter meter) {
+		if (meter instanceof Counter) {
+			return ((Counter) meter).count();
+		} else if (meter instanceof Gauge) {
+			return ((Gauge) meter).value();
+		}
+		Map<String, Object> values = new LinkedHashMap<String, Object>();
+		if (meter instanceof Timer) {
+			Timer timer = (Timer) meter;
+			values.put("count", timer.count());
+			values.put("total", timer.totalTime(TimeUnit.MILLISECONDS));
+			values.put("mean", timer.mean(TimeUnit.MILLISECONDS));
+			values.put("max", timer.max(TimeUnit.MILLISECONDS));
+			for (ValueAtPercentile percentile : timer.takeSnapshot().percentileValues()) {
+				values.put("p" + Math.round(percentile.percentile() * 100), percentile.value(TimeUnit.MILLISECONDS));
+			}
+		} else if (meter instanceof DistributionSummary) {
+			DistributionSummary distributionSummary = (DistributionSummary) meter;
+			values.put("count", distributionSummary.count());
+			values.put("total", distributionSummary.totalAmount());
+			values.put("mean", distributionSummary.mean());
+			values.put("max", distributionSummary.max());
+			for (ValueAtPercentile percentile : distributionSummary.takeSnapshot().percentileValues()) {
+				values.put("p" + Math.round(percentile.percentile() * 100), percentile.value());
+			}
+		}
+		return values;
+	}
+
+	/**
+	 * writeSummary method writes the metrics summary into the configured metrics
+	 * file. Nothing is written when no metrics file is configured.
+	 * 
+	 * @throws OutputFileException
+	 */
+	public void writeSummary() throws OutputFileException {
+		if (StringUtils.isBlank(metricsFile)) {
+			return;
+		}
+		try {
+			jacksonConfig.getObjectMapper().writerWithDefaultPrettyPrinter()
+					.writeValue(Paths.get(metricsFile.trim()).toFile(), getSummary());
+			logger.debug("Metrics saved to {}.", () -> metricsFile);
+		} catch (IOException e) {
+			throw new OutputFileException("Can't write the metrics file.");
+		}
+	}
+
+	public MeterRegistry getMeterRegistry() {
+		return meterRegistry;
+	}
+
+	public String getMetricsFile() {
+		return metricsFile;
+	}
+
+	public void setMetricsFile(String metricsFile) {
+		this.metricsFile = metricsFile;
+	}
+}
@@ -0,0 +1,68 @@
+package net.codingchallenge.tripgenerator.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.util.Unbox;
+
+/**
+ * The ProgressLogger class logs the progress of a long run once every
+ * configured number of items, instead of a message for each item. Counting an
+ * item is an increment and a comparison, and the progress message is logged
+ * with unboxed parameters, so it doesn't allocate any objects when logging is
+ * garbage-free. Nothing is counted against the interval when debug logging is
+ * off. The logger isn't thread-safe.
+ * 
+ * @author Gihan Rajakaruna
+ *
+ */
+public final class ProgressLogger {
+
+	private final Logger logger;
+
+	private final String itemName;
+
+	private final long interval;
+
+	private final long startNanos = System.nanoTime();
+
+	private long count;
+
+	private long nextReport;
+
+	/**
+	 * Creates a progress logger which logs at debug level every interval items.
+	 * Interval 0 never logs the progress.
+	 * 
+	 * @param logger
+	 * @param itemName
+	 * @param interval
+	 */
+	public ProgressLogger(Logger logger, String itemName, long interval) {
+		this.logger = logger;
+		this.itemName = itemName;
+		this.interval = interval;
+		this.nextReport = interval > 0 && logger.isDebugEnabled() ? interval : Long.MAX_VALUE;
+	}
+
+	/**
+	 * increment method counts one item and logs the progress when the interval is
+	 * reached.
+	 */
+	public void increment() {
+		if (++count >= nextReport) {
+			report();
+		}
+	}
+
+	private void report() {
+		nextReport += interval;
+		long elapsedMillis = Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+		logger.debug("{} {} processed in {} ms, {} per second.", Unbox.box(count), itemName, Unbox.box(elapsedMillis),
+				Unbox.box(count * 1000 / elapsedMillis));
+	}
+
+	public long getCount() {
+		return count;
+	}
+}
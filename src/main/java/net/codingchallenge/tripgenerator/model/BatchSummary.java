@@ -0,0 +1,74 @@
+package net.codingchallenge.tripgenerator.model;
+
+import java.util.List;
+
+/**
+ * The BatchSummary class has the totals of a batch run and the summary of each
+ * input file, in input file order. It is used when marshalling the JSON
+ * summary file.
+ * 
+ * @author Gihan Rajakaruna
+ *
+ */
+public class BatchSummary {
+
+	private int fileCount;
+
+	private int failedFileCount;
+
+	private long tapCount;
+
+	private long tripCount;
+
+	private long durationMillis;
+
+	private List<TripFileSummary> files;
+
+	public int getFileCount() {
+		return fileCount;
+	}
+
+	public void setFileCount(int fileCount) {
+		this.fileCount = fileCount;
+	}
+
+	public int getFailedFileCount() {
+		return failedFileCount;
+	}
+
+	public void setFailedFileCount(int failedFileCount) {
+		this.failedFileCount = failedFileCount;
+	}
+
+	public long getTapCount() {
+		return tapCount;
+	}
+
+	public void setTapCount(long tapCount) {
+		this.tapCount = tapCount;
+	}
+
+	public long getTripCount() {
+		return tripCount;
+	}
+
+	public void setTripCount(long tripCount) {
+		this.tripCount = tripCount;
+	}
+
+	public long getDurationMillis() {
+		return durationMillis;
+	}
+
+	public void setDurationMillis(long durationMillis) {
+		this.durationMillis = durationMillis;
+	}
+
+	public List<TripFileSummary> getFiles() {
+		return files;
+	}
+
+	public void setFiles(List<TripFileSummary> files) {
+		this.files = files;
+	}
+}
@@ -0,0 +1,41 @@
+package net.codingchallenge.tripgenerator.model;
+
+/**
+ * The FareBand class is a distance band of the fare rules. A trip between two
+ * zones costs the fare of the first band whose maximum distance is not less
+ * than the distance between the zones.
+ * 
+ * @author Gihan Rajakaruna
+ *
+ */
+public class FareBand {
+
+	private double maxDistance;
+
+	private double fare;
+
+	public FareBand() {
+
+	}
+
+	public FareBand(double maxDistance, double fare) {
+		this.maxDistance = maxDistance;
+		this.fare = fare;
+	}
+
+	public double getMaxDistance() {
+		return maxDistance;
+	}
+
+	public void setMaxDistance(double maxDistance) {
+		this.maxDistance = maxDistance;
+	}
+
+	public double getFare() {
+		return fare;
+	}
+
+	public void setFare(double fare) {
+		this.fare = fare;
+	}
+}
@@ -0,0 +1,54 @@
+package net.codingchallenge.tripgenerator.model;
+
+/**
+ * The FarePeriod class is a time of day period of the fare rules, such as the
+ * morning peak, in which fares are multiplied by the multiplier. Times are
+ * HH:mm at the UTC offset of the fare rules. The period starts at the from time
+ * and ends before the to time, and a period which ends before it starts runs
+ * over midnight.
+ * 
+ * @author Gihan Rajakaruna
+ *
+ */
+public class FarePeriod {
+
+	private String from;
+
+	private String to;
+
+	private double multiplier;
+
+	public FarePeriod() {
+
+	}
+
+	public FarePeriod(String from, String to, double multiplier) {
+		this.from = from;
+		this.to = to;
+		this.multiplier = multiplier;
+	}
+
+	public String getFrom() {
+		return from;
+	}
+
+	public void setFrom(String from) {
+		this.from = from;
+	}
+
+	public String getTo() {
+		return to;
+	}
+
+	public void setTo(String to) {
+		this.to = to;
+	}
+
+	public double getMultiplier() {
+		return multiplier;
+	}
+
+	public void setMultiplier(double multiplier) {
+		this.multiplier = multiplier;
+	}
+}
@@ -0,0 +1,54 @@
+package net.codingchallenge.tripgenerator.model;
+
+import java.util.List;
+
+/**
+ * The FareRules class has the zones, distance bands and time of day periods
+ * which define the fares, in place of a fare for every pair of stops. It is
+ * used when unmarshalling the JSON fare rules file.
+ * 
+ * @author Gihan Rajakaruna
+ *
+ */
+public class FareRules {
+
+	private String utcOffset = "Z";
+
+	private List<FareZone> zones;
+
+	private List<FareBand> bands;
+
+	private List<FarePeriod> periods;
+
+	public String getUtcOffset() {
+		return utcOffset;
+	}
+
+	public void setUtcOffset(String utcOffset) {
+		this.utcOffset = utcOffset;
+	}
+
+	public List<FareZone> getZones() {
+		return zones;
+	}
+
+	public void setZones(List<FareZone> zones) {
+		this.zones = zones;
+	}
+
+	public List<FareBand> getBands() {
+		return bands;
+	}
+
+	public void setBands(List<FareBand> bands) {
+		this.bands = bands;
+	}
+
+	public List<FarePeriod> getPeriods() {
+		return periods;
+	}
+
+	public void setPeriods(List<FarePeriod> periods) {
+		this.periods = periods;
+	}
+}
@@ -0,0 +1,54 @@
+package net.codingchallenge.tripgenerator.model;
+
+import java.util.List;
+
+/**
+ * The FareZone class is a zone of the fare rules. The position of the zone is
+ * its distance along the network, such as a ring number or kilometres, and the
+ * distance between two zones is the difference of their positions.
+ * 
+ * @author Gihan Rajakaruna
+ *
+ */
+public class FareZone {
+
+	private String zone;
+
+	private double position;
+
+	private List<String> stops;
+
+	public FareZone() {
+
+	}
+
+	public FareZone(String zone, double position, List<String> stops) {
+		this.zone = zone;
+		this.position = position;
+		this.stops = stops;
+	}
+
+	public String getZone() {
+		return zone;
+	}
+
+	public void setZone(String zone) {
+		this.zone = zone;
+	}
+
+	public double getPosition() {
+		return position;
+	}
+
+	public void setPosition(double position) {
+		this.position = position;
+	}
+
+	public List<String> getStops() {
+		return stops;
+	}
+
+	public void setStops(List<String> stops) {
+		this.stops = stops;
+	}
+}
@@ -0,0 +1,74 @@
+package net.codingchallenge.tripgenerator.model;
+
+/**
+ * The JourneyKey class identifies the journey chain of a customer. ON and OFF
+ * taps can only be paired when they have the same primary account number,
+ * company id and bus id.
+ * 
+ * @author Gihan Rajakaruna
+ * 
+ */
+public final class JourneyKey {
+
+	private final String primaryAccountNumber;
+
+	private final String companyId;
+
+	private final String busId;
+
+	private final int hash;
+
+	public JourneyKey(String primaryAccountNumber, String companyId, String busId) {
+		this.primaryAccountNumber = primaryAccountNumber;
+		this.companyId = companyId;
+		this.busId = busId;
+		int result = 31 + (primaryAccountNumber == null ? 0 : primaryAccountNumber.hashCode());
+		result = 31 * result + (companyId == null ? 0 : companyId.hashCode());
+		result = 31 * result + (busId == null ? 0 : busId.hashCode());
+		this.hash = result;
+	}
+
+	public static JourneyKey of(Tap tap) {
+		return new JourneyKey(tap.getPrimaryAccountNumber(), tap.getCompanyId(), tap.getBusId());
+	}
+
+	public String getPrimaryAccountNumber() {
+		return primaryAccountNumber;
+	}
+
+	public String getCompanyId() {
+		return companyId;
+	}
+
+	public String getBusId() {
+		return busId;
+	}
+
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof JourneyKey)) {
+			return false;
+		}
+		JourneyKey other = (JourneyKey) obj;
+		return hash == other.hash && equals(primaryAccountNumber, other.primaryAccountNumber)
+				&& equals(companyId, other.companyId) && equals(busId, other.busId);
+	}
+
+	private static boolean equals(String value1, String value2) {
+		return value1 == null ? value2 == null : value1.equals(value2);
+	}
+
+	@Override
+	public String toString() {
+		return "JourneyKey [primaryAccountNumber=" + primaryAccountNumber + ", companyId=" + companyId + ", busId="
+				+ busId + "]";
+	}
+}
@@ -0,0 +1,67 @@
+package net.codingchallenge.tripgenerator.model;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The StringDictionary class gives each distinct string a dense ordinal, in the
+ * order the strings are first added. Equal strings always have the same
+ * ordinal, so ids can be compared as ints. Null has the NO_VALUE ordinal.
+ * 
+ * @author Gihan Rajakaruna
+ *
+ */
+public final class StringDictionary {
+
+	public static final int NO_VALUE = -1;
+
+	private final Map<String, Integer> ordinals = new HashMap<String, Integer>();
+
+	private String[] values = new String[16];
+
+	private int size;
+
+	/**
+	 * intern method returns the ordinal of the string, adding it to the
+	 * dictionary if it isn't there yet.
+	 * 
+	 * @param value
+	 * @return ordinal
+	 */
+	public int intern(String value) {
+		if (value == null) {
+			return NO_VALUE;
+		}
+		Integer ordinal = ordinals.get(value);
+		if (ordinal == null) {
+			if (size == values.length) {
+				values = Arrays.copyOf(values, size * 2);
+			}
+			ordinal = size;
+			values[size++] = value;
+			ordinals.put(value, ordinal);
+		}
+		return ordinal;
+	}
+
+	/**
+	 * getOrdinal method returns the ordinal of the string, or NO_VALUE if it isn't
+	 * in the dictionary.
+	 * 
+	 * @param value
+	 * @return ordinal
+	 */
+	public int getOrdinal(String value) {
+		Integer ordinal = value == null ? null : ordinals.get(value);
+		return ordinal == null ? NO_VALUE : ordinal;
+	}
+
+	public String get(int ordinal) {
+		return ordinal == NO_VALUE ? null : values[ordinal];
+	}
+
+	public int size() {
+		return size;
+	}
+}
@@ -3,9 +3,12 @@ package net.codingchallenge.tripgenerator.model;
 import java.io.Serializable;
 import java.time.ZonedDateTime;
 
-import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 
 import net.codingchallenge.tripgenerator.enums.TapType;
+import net.codingchallenge.tripgenerator.json.DateTimeDeserializer;
+import net.codingchallenge.tripgenerator.json.DateTimeSerializer;
 
 public class Tap implements Serializable {
 	
@@ -13,7 +16,8 @@ public class Tap implements Serializable {
 
 	private int id;
 	
-	@JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "dd-MM-yyyy HH:mm:ss", timezone="UTC")
+	@JsonDeserialize(using = DateTimeDeserializer.class)
+	@JsonSerialize(using = DateTimeSerializer.class)
 	private ZonedDateTime datetimeUTC;
 	
 	private TapType tapType;
@@ -0,0 +1,246 @@
+package net.codingchallenge.tripgenerator.model;
+
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import net.codingchallenge.tripgenerator.enums.TapType;
+import net.codingchallenge.tripgenerator.json.DateTimeCodec;
+import net.codingchallenge.tripgenerator.store.FareIndex;
+
+/**
+ * The TapBatch class keeps taps in columns of primitives instead of Tap
+ * objects. Tap times are epoch seconds, tap types are bytes, and stop, company,
+ * bus and account ids are ordinals of string dictionaries. Tap objects are only
+ * created when they are asked for.
+ * 
+ * The stop dictionary starts with the stops of the fare index in ordinal order,
+ * so the stop ordinals of a batch can be used to look up fares in that index.
+ * Stops without a fare get the ordinals after the last stop of the index.
+ * 
+ * @author Gihan Rajakaruna
+ *
+ */
+public final class TapBatch {
+
+	public static final byte TAP_ON = (byte) TapType.ON.ordinal();
+
+	public static final byte TAP_OFF = (byte) TapType.OFF.ordinal();
+
+	public static final byte NO_TAP_TYPE = -1;
+
+	public static final int NO_ROW = -1;
+
+	private static final TapType[] TAP_TYPES = TapType.values();
+
+	private final FareIndex fareIndex;
+
+	private final StringDictionary stopDictionary = new StringDictionary();
+
+	private final StringDictionary companyDictionary = new StringDictionary();
+
+	private final StringDictionary busDictionary = new StringDictionary();
+
+	private final StringDictionary accountDictionary = new StringDictionary();
+
+	private int size;
+
+	private int[] ids;
+
+	private long[] epochSeconds;
+
+	private byte[] tapTypes;
+
+	private int[] stops;
+
+	private int[] companies;
+
+	private int[] buses;
+
+	private int[] accounts;
+
+	public TapBatch(FareIndex fareIndex) {
+		this(fareIndex, 1024);
+	}
+
+	public TapBatch(FareIndex fareIndex, int capacity) {
+		this.fareIndex = fareIndex;
+		for (int stopOrdinal = 0; stopOrdinal < fareIndex.getStopCount(); stopOrdinal++) {
+			stopDictionary.intern(fareIndex.getStopId(stopOrdinal));
+		}
+		capacity = Math.max(capacity, 16);
+		ids = new int[capacity];
+		epochSeconds = new long[capacity];
+		tapTypes = new byte[capacity];
+		stops = new int[capacity];
+		companies = new int[capacity];
+		buses = new int[capacity];
+		accounts = new int[capacity];
+	}
+
+	/**
+	 * of method creates a batch with the taps of the list in the same order.
+	 * 
+	 * @param taps
+	 * @param fareIndex
+	 * @return tap batch
+	 */
+	public static TapBatch of(List<Tap> taps, FareIndex fareIndex) {
+		TapBatch tapBatch = new TapBatch(fareIndex, taps.size());
+		for (Tap tap : taps) {
+			tapBatch.add(tap.getId(), tap.getDatetimeUTC().toEpochSecond(), tap.getTapType(), tap.getStopId(),
+					tap.getCompanyId(), tap.getBusId(), tap.getPrimaryAccountNumber());
+		}
+		return tapBatch;
+	}
+
+	/**
+	 * add method appends a tap to the end of the batch.
+	 * 
+	 * @param id
+	 * @param epochSecond
+	 * @param tapType
+	 * @param stopId
+	 * @param companyId
+	 * @param busId
+	 * @param primaryAccountNumber
+	 */
+	public void add(int id, long epochSecond, TapType tapType, String stopId, String companyId, String busId,
+			String primaryAccountNumber) {
+		if (size == ids.length) {
+			grow();
+		}
+		ids[size] = id;
+		epochSeconds[size] = epochSecond;
+		tapTypes[size] = tapType == null ? NO_TAP_TYPE : (byte) tapType.ordinal();
+		stops[size] = stopDictionary.intern(stopId);
+		companies[size] = companyDictionary.intern(companyId);
+		buses[size] = busDictionary.intern(busId);
+		accounts[size] = accountDictionary.intern(primaryAccountNumber);
+		size++;
+	}
+
+	/**
+	 * append method adds the rows of another batch to the end of this batch. The
+	 * ordinals of the other batch are mapped to the dictionaries of this batch
+	 * once per distinct string, not once per row.
+	 * 
+	 * @param other
+	 */
+	public void append(TapBatch other) {
+		if (size + other.size > ids.length) {
+			grow(Math.max(size + other.size, ids.length * 2));
+		}
+		int[] stopOrdinals = mapOrdinals(other.stopDictionary, stopDictionary);
+		int[] companyOrdinals = mapOrdinals(other.companyDictionary, companyDictionary);
+		int[] busOrdinals = mapOrdinals(other.busDictionary, busDictionary);
+		int[] accountOrdinals = mapOrdinals(other.accountDictionary, accountDictionary);
+		System.arraycopy(other.ids, 0, ids, size, other.size);
+		System.arraycopy(other.epochSeconds, 0, epochSeconds, size, other.size);
+		System.arraycopy(other.tapTypes, 0, tapTypes, size, other.size);
+		for (int row = 0; row < other.size; row++) {
+			stops[size + row] = mapOrdinal(stopOrdinals, other.stops[row]);
+			companies[size + row] = mapOrdinal(companyOrdinals, other.companies[row]);
+			buses[size + row] = mapOrdinal(busOrdinals, other.buses[row]);
+			accounts[size + row] = mapOrdinal(accountOrdinals, other.accounts[row]);
+		}
+		size += other.size;
+	}
+
+	private static int[] mapOrdinals(StringDictionary from, StringDictionary to) {
+		int[] ordinals = new int[from.size()];
+		for (int ordinal = 0; ordinal < ordinals.length; ordinal++) {
+			ordinals[ordinal] = to.intern(from.get(ordinal));
+		}
+		return ordinals;
+	}
+
+	private static int mapOrdinal(int[] ordinals, int ordinal) {
+		return ordinal == StringDictionary.NO_VALUE ? StringDictionary.NO_VALUE : ordinals[ordinal];
+	}
+
+	private void grow() {
+		grow(ids.length * 2);
+	}
+
+	private void grow(int capacity) {
+		ids = Arrays.copyOf(ids, capacity);
+		epochSeconds = Arrays.copyOf(epochSeconds, capacity);
+		tapTypes = Arrays.copyOf(tapTypes, capacity);
+		stops = Arrays.copyOf(stops, capacity);
+		companies = Arrays.copyOf(companies, capacity);
+		buses = Arrays.copyOf(buses, capacity);
+		accounts = Arrays.copyOf(accounts, capacity);
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public FareIndex getFareIndex() {
+		return fareIndex;
+	}
+
+	public int getId(int row) {
+		return ids[row];
+	}
+
+	public long getEpochSecond(int row) {
+		return epochSeconds[row];
+	}
+
+	public byte getTapType(int row) {
+		return tapTypes[row];
+	}
+
+	public int getStop(int row) {
+		return stops[row];
+	}
+
+	public int getCompany(int row) {
+		return companies[row];
+	}
+
+	public int getBus(int row) {
+		return buses[row];
+	}
+
+	public int getAccount(int row) {
+		return accounts[row];
+	}
+
+	public int getAccountCount() {
+		return accountDictionary.size();
+	}
+
+	public ZonedDateTime getDatetimeUTC(int row) {
+		return DateTimeCodec.toZonedDateTime(epochSeconds[row]);
+	}
+
+	public String getStopId(int row) {
+		return stopDictionary.get(stops[row]);
+	}
+
+	public String getCompanyId(int row) {
+		return companyDictionary.get(companies[row]);
+	}
+
+	public String getBusId(int row) {
+		return busDictionary.get(buses[row]);
+	}
+
+	public String getPrimaryAccountNumber(int row) {
+		return accountDictionary.get(accounts[row]);
+	}
+
+	/**
+	 * getTap method creates the Tap object of a row.
+	 * 
+	 * @param row
+	 * @return tap
+	 */
+	public Tap getTap(int row) {
+		return new Tap(ids[row], getDatetimeUTC(row), tapTypes[row] == NO_TAP_TYPE ? null : TAP_TYPES[tapTypes[row]],
+				getStopId(row), getCompanyId(row), getBusId(row), getPrimaryAccountNumber(row));
+	}
+}
@@ -3,18 +3,23 @@ package net.codingchallenge.tripgenerator.model;
 import java.io.Serializable;
 import java.time.ZonedDateTime;
 
-import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 
 import net.codingchallenge.tripgenerator.enums.TripStatus;
+import net.codingchallenge.tripgenerator.json.DateTimeDeserializer;
+import net.codingchallenge.tripgenerator.json.DateTimeSerializer;
 
 public class Trip implements Serializable {
 
 	private static final long serialVersionUID = 1L;
 
-	@JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "dd-MM-yyyy HH:mm:ss")
+	@JsonSerialize(using = DateTimeSerializer.class)
+	@JsonDeserialize(using = DateTimeDeserializer.class)
 	private ZonedDateTime started;
 
-	@JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "dd-MM-yyyy HH:mm:ss")
+	@JsonSerialize(using = DateTimeSerializer.class)
+	@JsonDeserialize(using = DateTimeDeserializer.class)
 	private ZonedDateTime finished;
 
 	private Long durationSecs;
@@ -0,0 +1,23 @@
+package net.codingchallenge.tripgenerator.model;
+
+import java.util.List;
+
+/**
+ * The TripCosts class wraps list of trip cost objects. It is used when
+ * unmarshalling the JSON fare table.
+ * 
+ * @author Gihan Rajakaruna
+ *
+ */
+public class TripCosts {
+
+	List<TripCost> fares;
+
+	public List<TripCost> getFares() {
+		return fares;
+	}
+
+	public void setFares(List<TripCost> fares) {
+		this.fares = fares;
+	}
+}
@@ -0,0 +1,81 @@
+package net.codingchallenge.tripgenerator.model;
+
+/**
+ * The TripFileSummary class has the result of generating the trips of one
+ * input file. The error is null when the output file was saved. It is written
+ * into the summary of a batch run.
+ * 
+ * @author Gihan Rajakaruna
+ *
+ */
+public class TripFileSummary {
+
+	private String inputFile;
+
+	private String outputFile;
+
+	private long tapCount;
+
+	private long tripCount;
+
+	private long durationMillis;
+
+	private String error;
+
+	public TripFileSummary() {
+
+	}
+
+	public TripFileSummary(String inputFile, String outputFile) {
+		this.inputFile = inputFile;
+		this.outputFile = outputFile;
+	}
+
+	public String getInputFile() {
+		return inputFile;
+	}
+
+	public void setInputFile(String inputFile) {
+		this.inputFile = inputFile;
+	}
+
+	public String getOutputFile() {
+		return outputFile;
+	}
+
+	public void setOutputFile(String outputFile) {
+		this.outputFile = outputFile;
+	}
+
+	public long getTapCount() {
+		return tapCount;
+	}
+
+	public void setTapCount(long tapCount) {
+		this.tapCount = tapCount;
+	}
+
+	public long getTripCount() {
+		return tripCount;
+	}
+
+	public void setTripCount(long tripCount) {
+		this.tripCount = tripCount;
+	}
+
+	public long getDurationMillis() {
+		return durationMillis;
+	}
+
+	public void setDurationMillis(long durationMillis) {
+		this.durationMillis = durationMillis;
+	}
+
+	public String getError() {
+		return error;
+	}
+
+	public void setError(String error) {
+		this.error = error;
+	}
+}
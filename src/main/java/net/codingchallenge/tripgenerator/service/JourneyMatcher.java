@@ -0,0 +1,473 @@
+package net.codingchallenge.tripgenerator.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import net.codingchallenge.tripgenerator.enums.TapType;
+import net.codingchallenge.tripgenerator.exception.OutputFileException;
+import net.codingchallenge.tripgenerator.exception.TripGenerationException;
+import net.codingchallenge.tripgenerator.json.DateTimeCodec;
+import net.codingchallenge.tripgenerator.model.JourneyKey;
+import net.codingchallenge.tripgenerator.model.StringDictionary;
+import net.codingchallenge.tripgenerator.model.Tap;
+import net.codingchallenge.tripgenerator.store.OpenJourneyStore;
+
+/**
+ * The JourneyMatcher class pairs ON and OFF taps incrementally while the taps
+ * are being read. Only the ON taps which are still waiting for an OFF tap are
+ * kept in memory, one at most for each account, company and bus, which is the
+ * cursor of their journey. Input taps are expected to be in time order for
+ * each journey.
+ * 
+ * When a maximum journey length is set, the matcher keeps an event time
+ * watermark, which is the latest tap time read so far minus the allowed
+ * lateness. An OFF tap can't be more than the maximum journey length after its
+ * ON tap, so ON taps older than the watermark minus the maximum journey length
+ * are closed without an OFF tap and removed. Taps which arrive after their
+ * journey was closed are late taps.
+ * 
+ * With an open journey store, open ON taps are kept as off-heap records of
+ * string ordinals instead of Tap objects, and the ON tap is created again when
+ * its journey is closed. Expired records are removed by scanning the store
+ * each time the expiry time has moved by a quarter of the maximum journey
+ * length.
+ * 
+ * @author Gihan Rajakaruna
+ * 
+ */
+public class JourneyMatcher {
+
+	/**
+	 * The JourneyHandler interface receives each journey as soon as it is known.
+	 * The OFF tap is null when the journey is INCOMPLETE.
+	 */
+	public interface JourneyHandler {
+
+		void onJourney(Tap tapOn, Tap tapOff) throws TripGenerationException, OutputFileException;
+	}
+
+	public static final long NO_WATERMARK = Long.MIN_VALUE;
+
+	private final JourneyHandler journeyHandler;
+
+	private final Map<JourneyKey, List<Tap>> openJourneys = new LinkedHashMap<JourneyKey, List<Tap>>();
+
+	private final long maxJourneySeconds;
+
+	private final long allowedLatenessSeconds;
+
+	/**
+	 * Open ON taps in tap time order. Taps which have been matched are removed
+	 * when they expire.
+	 */
+	private final PriorityQueue<Tap> tapOnQueue;
+
+	private int openJourneyCount;
+
+	private long maxEpochSecond = NO_WATERMARK;
+
+	private long expiredJourneyCount;
+
+	private long lateTapCount;
+
+	private final OpenJourneyStore openJourneyStore;
+
+	private final StringDictionary accounts;
+
+	private final StringDictionary companies;
+
+	private final StringDictionary buses;
+
+	private final StringDictionary stops;
+
+	private final OpenJourneyStore.RecordHandler tapOffHandler;
+
+	private final OpenJourneyStore.RecordHandler expiryHandler;
+
+	private final OpenJourneyStore.RecordHandler incompleteHandler;
+
+	/**
+	 * Last ON tap record taken by the current OFF tap
+	 */
+	private boolean lastTapOnRecord;
+
+	private int lastTapOnId;
+
+	private long lastTapOnEpochSecond;
+
+	private int lastTapOnStop;
+
+	private long nextExpiryScanEpochSecond = NO_WATERMARK;
+
+	public JourneyMatcher(JourneyHandler journeyHandler) {
+		this(journeyHandler, 0, 0);
+	}
+
+	/**
+	 * Creates a matcher which closes open journeys by the watermark. A maximum
+	 * journey length of 0 keeps journeys open until the last tap.
+	 * 
+	 * @param journeyHandler
+	 * @param maxJourneySeconds
+	 * @param allowedLatenessSeconds
+	 */
+	public JourneyMatcher(JourneyHandler journeyHandler, long maxJourneySeconds, long allowedLatenessSeconds) {
+		this(journeyHandler, maxJourneySeconds, allowedLatenessSeconds, null);
+	}
+
+	/**
+	 * Creates a matcher which keeps the open ON taps in the open journey store, or
+	 * in Tap objects when the store is null.
+	 * 
+	 * @param journeyHandler
+	 * @param maxJourneySeconds
+	 * @param allowedLatenessSeconds
+	 * @param openJourneyStore
+	 */
+	public JourneyMatcher(JourneyHandler journeyHandler, long maxJourneySeconds, long allowedLatenessSeconds,
+			OpenJourneyStore openJourneyStore) {
+		this.journeyHandler = journeyHandler;
+		this.maxJourneySeconds = maxJourneySeconds;
+		this.allowedLatenessSeconds = Math.max(0, allowedLatenessSeconds);
+		this.tapOnQueue = maxJourneySeconds > 0 && openJourneyStore == null
+				? new PriorityQueue<Tap>(Comparator.comparing(Tap::getDatetimeUTC))
+				: null;
+		this.openJourneyStore = openJourneyStore;
+		if (openJourneyStore != null) {
+			accounts = new StringDictionary();
+			companies = new StringDictionary();
+			buses = new StringDictionary();
+			stops = new StringDictionary();
+			// Handlers are created once, so taking records doesn't allocate
+			// The last record taken is kept until all records have been taken, the
+			// records before it were followed by it
+			tapOffHandler = (tapId, epochSecond, stop, account, company, bus) -> {
+				if (lastTapOnRecord && epochSecond < lastTapOnEpochSecond) {
+					journeyHandler.onJourney(createTapOn(tapId, epochSecond, stop, account, company, bus), null);
+					return;
+				}
+				if (lastTapOnRecord) {
+					journeyHandler.onJourney(
+							createTapOn(lastTapOnId, lastTapOnEpochSecond, lastTapOnStop, account, company, bus),
+							null);
+				}
+				lastTapOnRecord = true;
+				lastTapOnId = tapId;
+				lastTapOnEpochSecond = epochSecond;
+				lastTapOnStop = stop;
+			};
+			expiryHandler = (tapId, epochSecond, stop, account, company, bus) -> {
+				expiredJourneyCount++;
+				journeyHandler.onJourney(createTapOn(tapId, epochSecond, stop, account, company, bus), null);
+			};
+			incompleteHandler = (tapId, epochSecond, stop, account, company, bus) -> journeyHandler
+					.onJourney(createTapOn(tapId, epochSecond, stop, account, company, bus), null);
+		} else {
+			accounts = null;
+			companies = null;
+			buses = null;
+			stops = null;
+			tapOffHandler = null;
+			expiryHandler = null;
+			incompleteHandler = null;
+		}
+	}
+
+	private boolean isWatermarkEnabled() {
+		return maxJourneySeconds > 0;
+	}
+
+	/**
+	 * accept method keeps an ON tap open until its OFF tap arrives. An OFF tap
+	 * closes the open ON tap of the same journey if it was recorded before it, so
+	 * each OFF tap is used once at most. An ON tap closes the open ON tap of the
+	 * same journey without an OFF tap. A late ON
+	 * tap is closed without an OFF tap at once, and a late OFF tap is ignored.
+	 * 
+	 * @param tap
+	 * @throws TripGenerationException
+	 * @throws OutputFileException
+	 */
+	public void accept(Tap tap) throws TripGenerationException, OutputFileException {
+		long epochSecond = 0;
+		if (isWatermarkEnabled() || openJourneyStore != null) {
+			epochSecond = tap.getDatetimeUTC().toEpochSecond();
+		}
+		if (isWatermarkEnabled()) {
+			if (epochSecond < getExpiryEpochSecond()) {
+				lateTapCount++;
+				if (tap.getTapType() == TapType.ON) {
+					expiredJourneyCount++;
+					journeyHandler.onJourney(tap, null);
+				}
+				return;
+			}
+		}
+
+		if (openJourneyStore != null) {
+			acceptRecord(tap, epochSecond);
+		} else {
+			acceptTap(tap);
+		}
+
+		if (isWatermarkEnabled() && epochSecond > maxEpochSecond) {
+			maxEpochSecond = epochSecond;
+			if (openJourneyStore != null) {
+				expireRecords();
+			} else {
+				expireJourneys();
+			}
+		}
+	}
+
+	private void acceptTap(Tap tap) throws TripGenerationException, OutputFileException {
+		JourneyKey journeyKey = JourneyKey.of(tap);
+		if (tap.getTapType() == TapType.ON) {
+			List<Tap> tapOnList = openJourneys.computeIfAbsent(journeyKey, key -> new ArrayList<Tap>(1));
+			// An ON tap followed by another ON tap doesn't have an OFF tap
+			Iterator<Tap> iterator = tapOnList.iterator();
+			while (iterator.hasNext()) {
+				Tap tapOn = iterator.next();
+				if (!tapOn.getDatetimeUTC().isAfter(tap.getDatetimeUTC())) {
+					iterator.remove();
+					openJourneyCount--;
+					journeyHandler.onJourney(tapOn, null);
+				}
+			}
+			tapOnList.add(tap);
+			openJourneyCount++;
+			if (tapOnQueue != null) {
+				tapOnQueue.add(tap);
+			}
+		} else if (tap.getTapType() == TapType.OFF) {
+			List<Tap> tapOnList = openJourneys.get(journeyKey);
+			if (tapOnList != null) {
+				// Only ON taps which arrived late can be before the open ON tap of the
+				// journey, they were followed by it
+				Tap lastTapOn = null;
+				for (Tap tapOn : tapOnList) {
+					if (tap.getDatetimeUTC().isAfter(tapOn.getDatetimeUTC())
+							&& (lastTapOn == null || !tapOn.getDatetimeUTC().isBefore(lastTapOn.getDatetimeUTC()))) {
+						lastTapOn = tapOn;
+					}
+				}
+				Iterator<Tap> iterator = tapOnList.iterator();
+				while (iterator.hasNext()) {
+					Tap tapOn = iterator.next();
+					if (tap.getDatetimeUTC().isAfter(tapOn.getDatetimeUTC())) {
+						iterator.remove();
+						openJourneyCount--;
+						journeyHandler.onJourney(tapOn, tapOn == lastTapOn ? tap : null);
+					}
+				}
+				if (tapOnList.isEmpty()) {
+					openJourneys.remove(journeyKey);
+				}
+			}
+		}
+	}
+
+	/**
+	 * acceptRecord method keeps an ON tap open as a record of the store, after
+	 * taking the records of its journey which are not after it without an OFF
+	 * tap. An OFF tap takes the records of its journey which are before it, and
+	 * the last of them is paired with it. Neither takes the expired records which
+	 * haven't been scanned yet.
+	 */
+	private void acceptRecord(Tap tap, long epochSecond) throws TripGenerationException, OutputFileException {
+		if (tap.getTapType() == TapType.ON) {
+			int account = accounts.intern(tap.getPrimaryAccountNumber());
+			int company = companies.intern(tap.getCompanyId());
+			int bus = buses.intern(tap.getBusId());
+			openJourneyStore.take(account, company, bus, isWatermarkEnabled() ? getExpiryEpochSecond() : NO_WATERMARK,
+					epochSecond + 1, incompleteHandler);
+			openJourneyStore.put(account, company, bus, tap.getId(), epochSecond, stops.intern(tap.getStopId()));
+		} else if (tap.getTapType() == TapType.OFF) {
+			int account = getOrdinal(accounts, tap.getPrimaryAccountNumber());
+			int company = getOrdinal(companies, tap.getCompanyId());
+			int bus = getOrdinal(buses, tap.getBusId());
+			// Strings which were never seen on an ON tap can't have an open journey
+			if ((account != StringDictionary.NO_VALUE || tap.getPrimaryAccountNumber() == null)
+					&& (company != StringDictionary.NO_VALUE || tap.getCompanyId() == null)
+					&& (bus != StringDictionary.NO_VALUE || tap.getBusId() == null)) {
+				openJourneyStore.take(account, company, bus,
+						isWatermarkEnabled() ? getExpiryEpochSecond() : NO_WATERMARK, epochSecond, tapOffHandler);
+				if (lastTapOnRecord) {
+					lastTapOnRecord = false;
+					journeyHandler.onJourney(
+							createTapOn(lastTapOnId, lastTapOnEpochSecond, lastTapOnStop, account, company, bus), tap);
+				}
+			}
+		}
+	}
+
+	private static int getOrdinal(StringDictionary dictionary, String value) {
+		return value == null ? StringDictionary.NO_VALUE : dictionary.getOrdinal(value);
+	}
+
+	private Tap createTapOn(int tapId, long epochSecond, int stop, int account, int company, int bus) {
+		return new Tap(tapId, DateTimeCodec.toZonedDateTime(epochSecond), TapType.ON, stops.get(stop),
+				companies.get(company), buses.get(bus), accounts.get(account));
+	}
+
+	/**
+	 * expireRecords method scans the store for expired records when the expiry
+	 * time has moved far enough since the last scan.
+	 */
+	private void expireRecords() throws TripGenerationException, OutputFileException {
+		long expiryEpochSecond = getExpiryEpochSecond();
+		if (expiryEpochSecond >= nextExpiryScanEpochSecond) {
+			openJourneyStore.expire(expiryEpochSecond, expiryHandler);
+			nextExpiryScanEpochSecond = expiryEpochSecond + Math.max(1, maxJourneySeconds / 4);
+		}
+	}
+
+	/**
+	 * expireJourneys method closes the open ON taps before the expiry time without
+	 * an OFF tap.
+	 */
+	private void expireJourneys() throws TripGenerationException, OutputFileException {
+		long expiryEpochSecond = getExpiryEpochSecond();
+		while (!tapOnQueue.isEmpty() && tapOnQueue.peek().getDatetimeUTC().toEpochSecond() < expiryEpochSecond) {
+			Tap tapOn = tapOnQueue.poll();
+			JourneyKey journeyKey = JourneyKey.of(tapOn);
+			List<Tap> tapOnList = openJourneys.get(journeyKey);
+			if (tapOnList != null && removeTap(tapOnList, tapOn)) {
+				if (tapOnList.isEmpty()) {
+					openJourneys.remove(journeyKey);
+				}
+				openJourneyCount--;
+				expiredJourneyCount++;
+				journeyHandler.onJourney(tapOn, null);
+			}
+		}
+	}
+
+	private static boolean removeTap(List<Tap> tapOnList, Tap tapOn) {
+		for (int i = 0; i < tapOnList.size(); i++) {
+			if (tapOnList.get(i) == tapOn) {
+				tapOnList.remove(i);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * complete method should be executed after the last tap. All ON taps which are
+	 * still open don't have an OFF tap.
+	 * 
+	 * @throws TripGenerationException
+	 * @throws OutputFileException
+	 */
+	public void complete() throws TripGenerationException, OutputFileException {
+		if (openJourneyStore != null) {
+			openJourneyStore.forEach((tapId, epochSecond, stop, account, company, bus) -> journeyHandler
+					.onJourney(createTapOn(tapId, epochSecond, stop, account, company, bus), null));
+			openJourneyStore.clear();
+		}
+		for (List<Tap> tapOnList : openJourneys.values()) {
+			for (Tap tapOn : tapOnList) {
+				journeyHandler.onJourney(tapOn, null);
+			}
+		}
+		openJourneys.clear();
+		openJourneyCount = 0;
+		if (tapOnQueue != null) {
+			tapOnQueue.clear();
+		}
+	}
+
+	/**
+	 * getOpenTaps method returns the ON taps of the open journeys, in the order
+	 * they are kept. It is used to save the state of the matcher.
+	 * 
+	 * @return list of tap's
+	 * @throws TripGenerationException
+	 * @throws OutputFileException
+	 */
+	public List<Tap> getOpenTaps() throws TripGenerationException, OutputFileException {
+		List<Tap> openTaps = new ArrayList<Tap>(getOpenJourneyCount());
+		if (openJourneyStore != null) {
+			openJourneyStore.forEach((tapId, epochSecond, stop, account, company, bus) -> openTaps
+					.add(createTapOn(tapId, epochSecond, stop, account, company, bus)));
+		}
+		for (List<Tap> tapOnList : openJourneys.values()) {
+			openTaps.addAll(tapOnList);
+		}
+		return openTaps;
+	}
+
+	/**
+	 * restore method brings back the state saved from another matcher. It must be
+	 * executed before the first tap.
+	 * 
+	 * @param openTaps
+	 * @param maxEpochSecond
+	 * @param expiredJourneyCount
+	 * @param lateTapCount
+	 */
+	public void restore(List<Tap> openTaps, long maxEpochSecond, long expiredJourneyCount, long lateTapCount) {
+		for (Tap tapOn : openTaps) {
+			if (openJourneyStore != null) {
+				openJourneyStore.put(accounts.intern(tapOn.getPrimaryAccountNumber()),
+						companies.intern(tapOn.getCompanyId()), buses.intern(tapOn.getBusId()), tapOn.getId(),
+						tapOn.getDatetimeUTC().toEpochSecond(), stops.intern(tapOn.getStopId()));
+			} else {
+				openJourneys.computeIfAbsent(JourneyKey.of(tapOn), key -> new ArrayList<Tap>(1)).add(tapOn);
+				openJourneyCount++;
+				if (tapOnQueue != null) {
+					tapOnQueue.add(tapOn);
+				}
+			}
+		}
+		this.maxEpochSecond = isWatermarkEnabled() ? maxEpochSecond : NO_WATERMARK;
+		this.expiredJourneyCount = expiredJourneyCount;
+		this.lateTapCount = lateTapCount;
+	}
+
+	/**
+	 * getMaxEpochSecond method returns the latest tap time read, or NO_WATERMARK
+	 * when journeys are not closed by the watermark.
+	 * 
+	 * @return epoch second
+	 */
+	public long getMaxEpochSecond() {
+		return maxEpochSecond;
+	}
+
+	/**
+	 * getWatermark method returns the event time, in epoch seconds, up to which
+	 * all taps are expected to have been read, or NO_WATERMARK before the first
+	 * tap or when journeys are not closed by the watermark.
+	 * 
+	 * @return watermark
+	 */
+	public long getWatermark() {
+		return maxEpochSecond == NO_WATERMARK ? NO_WATERMARK : maxEpochSecond - allowedLatenessSeconds;
+	}
+
+	/**
+	 * ON taps before this time can't get an OFF tap any more
+	 */
+	private long getExpiryEpochSecond() {
+		return maxEpochSecond == NO_WATERMARK ? NO_WATERMARK : getWatermark() - maxJourneySeconds;
+	}
+
+	public int getOpenJourneyCount() {
+		return openJourneyStore != null ? openJourneyStore.size() : openJourneyCount;
+	}
+
+	public long getExpiredJourneyCount() {
+		return expiredJourneyCount;
+	}
+
+	public long getLateTapCount() {
+		return lateTapCount;
+	}
+}
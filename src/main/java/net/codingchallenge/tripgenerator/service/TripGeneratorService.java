@@ -2,10 +2,14 @@ package net.codingchallenge.tripgenerator.service;
 
 import java.time.ZonedDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
 import net.codingchallenge.tripgenerator.enums.TripStatus;
 import net.codingchallenge.tripgenerator.exception.TripGenerationException;
 import net.codingchallenge.tripgenerator.model.Tap;
+import net.codingchallenge.tripgenerator.model.TapBatch;
+import net.codingchallenge.tripgenerator.store.FareIndex;
 
 /**
  * The TripGeneratorService interface provides the core capabilities require to
@@ -25,8 +29,9 @@ public interface TripGeneratorService {
 	List<Tap> getAllTapOns(List<Tap> taps);
 
 	/**
-	 * getTapOff method finds corresponding OFF tap for a ON tap. If no such tap is
-	 * found it will return null.
+	 * getTapOff method finds corresponding OFF tap for a ON tap, the same as
+	 * getTapOffs, with one scan of the input list. If no such tap is found it will
+	 * return null. Use getTapOffs to find the OFF taps of many ON taps.
 	 * 
 	 * @param taps
 	 * @param tapOn
@@ -34,6 +39,43 @@ public interface TripGeneratorService {
 	 */
 	Tap getTapOff(List<Tap> taps, Tap tapOn);
 
+	/**
+	 * getTapOffs method finds corresponding OFF tap for every ON tap in a single
+	 * pass over the input list. The OFF tap is the first OFF tap of the same
+	 * account number, company id and bus id recorded after the ON tap, unless
+	 * another ON tap of them comes first. Each OFF tap is used by one ON tap at
+	 * most. The returned map keeps the ON taps in input order and maps each of
+	 * them to its OFF tap, or to null if no such tap is found.
+	 * 
+	 * @param taps
+	 * @return map of ON tap to OFF tap
+	 */
+	Map<Tap, Tap> getTapOffs(List<Tap> taps);
+
+	/**
+	 * getTapOffRows method finds corresponding OFF tap for every ON tap of a tap
+	 * batch. The returned array has the row of the OFF tap at the row of each ON
+	 * tap, and TapBatch.NO_ROW if no such tap is found or the row isn't an ON tap.
+	 * 
+	 * @param tapBatch
+	 * @return OFF tap rows
+	 */
+	int[] getTapOffRows(TapBatch tapBatch);
+
+	/**
+	 * getTapOffRows method finds corresponding OFF tap for every ON tap of a tap
+	 * batch, the same as getTapOffRows, with the accounts split into partitions
+	 * which are matched in parallel on the fork-join pool.
+	 * 
+	 * @param tapBatch
+	 * @param forkJoinPool
+	 * @param partitionCount
+	 * @return OFF tap rows
+	 * @throws TripGenerationException
+	 */
+	int[] getTapOffRows(TapBatch tapBatch, ForkJoinPool forkJoinPool, int partitionCount)
+			throws TripGenerationException;
+
 	/**
 	 * getTripDuration method calculates the duration between tap ON and OFF times
 	 * in seconds.
@@ -46,7 +88,18 @@ public interface TripGeneratorService {
 	long getTripDuration(ZonedDateTime tapOnTime, ZonedDateTime tapOffTime) throws TripGenerationException;
 
 	/**
-	 * getTripFare method calculates the maximum fare from a bus stop.
+	 * getTripDuration method calculates the duration between tap ON and OFF epoch
+	 * seconds.
+	 * 
+	 * @param tapOnEpochSecond
+	 * @param tapOffEpochSecond
+	 * @return number of seconds
+	 * @throws TripGenerationException
+	 */
+	long getTripDuration(long tapOnEpochSecond, long tapOffEpochSecond) throws TripGenerationException;
+
+	/**
+	 * getTripFare method calculates the maximum base fare from a bus stop.
 	 * 
 	 * @param sourceBusStopId
 	 * @return trip fare
@@ -55,7 +108,18 @@ public interface TripGeneratorService {
 	double getTripFare(String sourceBusStopId) throws TripGenerationException;
 
 	/**
-	 * getTripFare method calculates the fare between two bus stops.
+	 * getTripFare method calculates the maximum fare from a bus stop at the time
+	 * of the ON tap.
+	 * 
+	 * @param sourceBusStopId
+	 * @param tapOnEpochSecond
+	 * @return trip fare
+	 * @throws TripGenerationException
+	 */
+	double getTripFare(String sourceBusStopId, long tapOnEpochSecond) throws TripGenerationException;
+
+	/**
+	 * getTripFare method calculates the base fare between two bus stops.
 	 * 
 	 * @param sourceBusStopId
 	 * @param destinationBusStopId
@@ -64,6 +128,47 @@ public interface TripGeneratorService {
 	 */
 	double getTripFare(String sourceBusStopId, String destinationBusStopId) throws TripGenerationException;
 
+	/**
+	 * getTripFare method calculates the fare between two bus stops at the time of
+	 * the ON tap.
+	 * 
+	 * @param sourceBusStopId
+	 * @param destinationBusStopId
+	 * @param tapOnEpochSecond
+	 * @return trip fare
+	 * @throws TripGenerationException
+	 */
+	double getTripFare(String sourceBusStopId, String destinationBusStopId, long tapOnEpochSecond)
+			throws TripGenerationException;
+
+	/**
+	 * getTripFare method calculates the maximum fare from a bus stop of a tap
+	 * batch at the time of the ON tap. Stop ordinals of a tap batch are the
+	 * ordinals of its fare index.
+	 * 
+	 * @param fareIndex
+	 * @param sourceStopOrdinal
+	 * @param tapOnEpochSecond
+	 * @return trip fare
+	 * @throws TripGenerationException
+	 */
+	double getTripFare(FareIndex fareIndex, int sourceStopOrdinal, long tapOnEpochSecond)
+			throws TripGenerationException;
+
+	/**
+	 * getTripFare method calculates the fare between two bus stops of a tap batch
+	 * at the time of the ON tap.
+	 * 
+	 * @param fareIndex
+	 * @param sourceStopOrdinal
+	 * @param destinationStopOrdinal
+	 * @param tapOnEpochSecond
+	 * @return trip fare
+	 * @throws TripGenerationException
+	 */
+	double getTripFare(FareIndex fareIndex, int sourceStopOrdinal, int destinationStopOrdinal, long tapOnEpochSecond)
+			throws TripGenerationException;
+
 	/**
 	 * getTripStatus methods returns the trip status by looking at from and to bus
 	 * stops.
@@ -74,4 +179,15 @@ public interface TripGeneratorService {
 	 * @throws TripGenerationException
 	 */
 	TripStatus getTripStatus(String sourceBusStopId, String destinationBusStopId) throws TripGenerationException;
+
+	/**
+	 * getTripStatus methods returns the trip status by looking at from and to bus
+	 * stop ordinals of a tap batch. StringDictionary.NO_VALUE is used when there is no stop.
+	 * 
+	 * @param sourceStopOrdinal
+	 * @param destinationStopOrdinal
+	 * @return trip status
+	 * @throws TripGenerationException
+	 */
+	TripStatus getTripStatus(int sourceStopOrdinal, int destinationStopOrdinal) throws TripGenerationException;
 }
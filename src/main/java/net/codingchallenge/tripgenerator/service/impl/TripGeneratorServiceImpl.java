@@ -2,18 +2,32 @@ package net.codingchallenge.tripgenerator.service.impl;
 
 import java.time.ZonedDateTime;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import net.codingchallenge.tripgenerator.enums.TapType;
 import net.codingchallenge.tripgenerator.enums.TripStatus;
 import net.codingchallenge.tripgenerator.exception.TripGenerationException;
+import net.codingchallenge.tripgenerator.metrics.PipelineMetrics;
+import net.codingchallenge.tripgenerator.model.JourneyKey;
+import net.codingchallenge.tripgenerator.model.StringDictionary;
 import net.codingchallenge.tripgenerator.model.Tap;
-import net.codingchallenge.tripgenerator.model.TripCost;
+import net.codingchallenge.tripgenerator.model.TapBatch;
 import net.codingchallenge.tripgenerator.service.TripGeneratorService;
+import net.codingchallenge.tripgenerator.store.FareIndex;
 import net.codingchallenge.tripgenerator.store.TripCostStore;
 
 /**
@@ -26,6 +40,14 @@ import net.codingchallenge.tripgenerator.store.TripCostStore;
 @Service("tripGeneratorService")
 public class TripGeneratorServiceImpl implements TripGeneratorService {
 
+	/**
+	 * Row ranges up to this size are sorted by insertion sort.
+	 */
+	private static final int INSERTION_SORT_THRESHOLD = 32;
+
+	@Autowired(required = true)
+	PipelineMetrics pipelineMetrics;
+
 	@Override
 	public List<Tap> getAllTapOns(List<Tap> taps) {
 		List<Tap> tapOnList = taps.stream().filter(tap -> tap.getTapType() == TapType.ON).collect(Collectors.toList());
@@ -33,21 +55,277 @@ public class TripGeneratorServiceImpl implements TripGeneratorService {
 	}
 
 	/**
-	 * The OFF tap must be recorded after the ON tap and it should have the same
-	 * account number, company id and bus id.
+	 * Taps of a journey are ordered by tap time and then by input order, as in
+	 * getTapOffs. The open ON tap is replaced by every ON tap, so the OFF tap of an
+	 * ON tap is the first OFF tap of its journey recorded after it, unless another
+	 * ON tap of the journey comes first. Taps before the ON tap don't change it,
+	 * so the list is scanned once without building the other journeys.
 	 */
 	@Override
 	public Tap getTapOff(List<Tap> taps, Tap tapOn) {
-		Optional<Tap> tapOffEntry = taps.stream()
-				.filter(tap -> (tap.getTapType() == TapType.OFF
-						&& tap.getPrimaryAccountNumber().equals(tapOn.getPrimaryAccountNumber())
-						&& tap.getCompanyId().equals(tapOn.getCompanyId()) && tap.getBusId().equals(tapOn.getBusId())
-						&& tap.getDatetimeUTC().isAfter(tapOn.getDatetimeUTC())))
-				.findFirst();
-		if (tapOffEntry != null && tapOffEntry.isPresent()) {
-			return tapOffEntry.get();
+		int tapOnIndex = -1;
+		for (int i = 0; i < taps.size() && tapOnIndex < 0; i++) {
+			if (taps.get(i) == tapOn) {
+				tapOnIndex = i;
+			}
+		}
+		if (tapOnIndex < 0 || tapOn.getTapType() != TapType.ON) {
+			return null;
+		}
+		ZonedDateTime tapOnTime = tapOn.getDatetimeUTC();
+		Tap tapOff = null;
+		int tapOffIndex = -1;
+		Tap nextTapOn = null;
+		int nextTapOnIndex = -1;
+		for (int i = 0; i < taps.size(); i++) {
+			Tap tap = taps.get(i);
+			if (i == tapOnIndex || !isSameJourney(tap, tapOn) || !isBefore(tapOnTime, tapOnIndex, tap, i)) {
+				continue;
+			}
+			if (tap.getTapType() == TapType.ON) {
+				if (nextTapOn == null || isBefore(tap.getDatetimeUTC(), i, nextTapOn, nextTapOnIndex)) {
+					nextTapOn = tap;
+					nextTapOnIndex = i;
+				}
+			} else if (tap.getTapType() == TapType.OFF && tap.getDatetimeUTC().isAfter(tapOnTime)
+					&& (tapOff == null || isBefore(tap.getDatetimeUTC(), i, tapOff, tapOffIndex))) {
+				tapOff = tap;
+				tapOffIndex = i;
+			}
+		}
+		if (tapOff != null && nextTapOn != null && isBefore(nextTapOn.getDatetimeUTC(), nextTapOnIndex, tapOff,
+				tapOffIndex)) {
+			return null;
+		}
+		return tapOff;
+	}
+
+	private static boolean isSameJourney(Tap tap1, Tap tap2) {
+		return Objects.equals(tap1.getPrimaryAccountNumber(), tap2.getPrimaryAccountNumber())
+				&& Objects.equals(tap1.getCompanyId(), tap2.getCompanyId())
+				&& Objects.equals(tap1.getBusId(), tap2.getBusId());
+	}
+
+	/**
+	 * isBefore method checks if a tap time and input index come before the tap at
+	 * the other index, in the order of a stable sort by tap time.
+	 */
+	private static boolean isBefore(ZonedDateTime time, int index, Tap tap, int tapIndex) {
+		int result = time.compareTo(tap.getDatetimeUTC());
+		return result < 0 || (result == 0 && index < tapIndex);
+	}
+
+	/**
+	 * Taps are grouped by account number, company id and bus id, and each group is
+	 * sorted by tap time. Each group is walked forwards with the open ON tap as its
+	 * cursor, so each tap is visited only once after sorting. The OFF tap must be
+	 * recorded after the open ON tap and closes it, so no OFF tap is used twice.
+	 * An ON tap which is followed by another ON tap is INCOMPLETE.
+	 */
+	@Override
+	public Map<Tap, Tap> getTapOffs(List<Tap> taps) {
+		Map<Tap, Tap> tapOffs = new LinkedHashMap<Tap, Tap>();
+		Map<JourneyKey, List<Tap>> journeys = new HashMap<JourneyKey, List<Tap>>();
+		for (Tap tap : taps) {
+			if (tap.getTapType() == TapType.ON) {
+				tapOffs.put(tap, null);
+			}
+			journeys.computeIfAbsent(JourneyKey.of(tap), key -> new ArrayList<Tap>()).add(tap);
 		}
-		return null;
+
+		for (List<Tap> journey : journeys.values()) {
+			// List.sort is stable, taps with the same time keep their input order
+			journey.sort((Tap tap1, Tap tap2) -> tap1.getDatetimeUTC().compareTo(tap2.getDatetimeUTC()));
+			Tap openTapOn = null;
+			for (Tap tap : journey) {
+				if (tap.getTapType() == TapType.ON) {
+					// The previous ON tap stays without an OFF tap
+					openTapOn = tap;
+				} else if (openTapOn != null && tap.getTapType() == TapType.OFF
+						&& tap.getDatetimeUTC().isAfter(openTapOn.getDatetimeUTC())) {
+					tapOffs.put(openTapOn, tap);
+					openTapOn = null;
+				}
+			}
+		}
+		return tapOffs;
+	}
+
+	/**
+	 * Same matching as getTapOffs on the columns of the batch. Rows are grouped by
+	 * account ordinal with a counting sort, then each account is sorted by company
+	 * ordinal, bus ordinal, tap time and row, which keeps taps with the same time
+	 * in input order. Each journey is then walked forwards as in getTapOffs.
+	 */
+	@Override
+	public int[] getTapOffRows(TapBatch tapBatch) {
+		int[] tapOffRows = new int[tapBatch.size()];
+		Arrays.fill(tapOffRows, TapBatch.NO_ROW);
+		int[] groupStarts = getGroupStarts(tapBatch);
+		int[] rows = getGroupedRows(tapBatch, groupStarts);
+		matchGroups(tapBatch, groupStarts, rows, new int[rows.length], 0, groupStarts.length - 1, tapOffRows);
+		return tapOffRows;
+	}
+
+	/**
+	 * Rows are grouped by account ordinal as in getTapOffRows, and the accounts
+	 * are split into partitions of about the same number of rows. Each partition
+	 * sorts and matches only its own range of rows, so the partitions don't share
+	 * any state.
+	 */
+	@Override
+	public int[] getTapOffRows(TapBatch tapBatch, ForkJoinPool forkJoinPool, int partitionCount)
+			throws TripGenerationException {
+		int[] tapOffRows = new int[tapBatch.size()];
+		Arrays.fill(tapOffRows, TapBatch.NO_ROW);
+		int[] groupStarts = getGroupStarts(tapBatch);
+		int[] rows = getGroupedRows(tapBatch, groupStarts);
+		int[] buffer = new int[rows.length];
+		int partitionSize = Math.max(1, (rows.length + partitionCount - 1) / partitionCount);
+		List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(partitionCount);
+		int groupCount = groupStarts.length - 1;
+		int fromGroup = 0;
+		for (int group = 1; group <= groupCount; group++) {
+			// Rows of the groups from fromGroup to the group before this one
+			int partitionRows = groupStarts[group - 1] - (fromGroup == 0 ? 0 : groupStarts[fromGroup - 1]);
+			if (partitionRows >= partitionSize || group == groupCount) {
+				int from = fromGroup;
+				int to = group;
+				tasks.add(() -> {
+					matchGroups(tapBatch, groupStarts, rows, buffer, from, to, tapOffRows);
+					return null;
+				});
+				fromGroup = group;
+			}
+		}
+		for (Future<Void> future : forkJoinPool.invokeAll(tasks)) {
+			try {
+				future.get();
+			} catch (ExecutionException e) {
+				throw new TripGenerationException(String.valueOf(e.getCause()));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new TripGenerationException("Trip generation was interrupted.");
+			}
+		}
+		return tapOffRows;
+	}
+
+	/**
+	 * getGroupStarts method counts the rows of each account. Taps without an
+	 * account number are in the first group.
+	 */
+	private static int[] getGroupStarts(TapBatch tapBatch) {
+		int[] groupStarts = new int[tapBatch.getAccountCount() + 2];
+		for (int row = 0; row < tapBatch.size(); row++) {
+			groupStarts[tapBatch.getAccount(row) + 2]++;
+		}
+		for (int group = 1; group < groupStarts.length; group++) {
+			groupStarts[group] += groupStarts[group - 1];
+		}
+		return groupStarts;
+	}
+
+	/**
+	 * getGroupedRows method places the rows of each account in its group, and
+	 * leaves groupStarts with the end of each group. Group 0 has the taps without
+	 * an account number and group g + 1 has the taps of account ordinal g, so group
+	 * g ends at groupStarts[g] and starts at the end of group g - 1.
+	 */
+	private static int[] getGroupedRows(TapBatch tapBatch, int[] groupStarts) {
+		int[] rows = new int[tapBatch.size()];
+		for (int row = 0; row < tapBatch.size(); row++) {
+			rows[groupStarts[tapBatch.getAccount(row) + 1]++] = row;
+		}
+		return rows;
+	}
+
+	private static void matchGroups(TapBatch tapBatch, int[] groupStarts, int[] rows, int[] buffer, int fromGroup,
+			int toGroup, int[] tapOffRows) {
+		for (int group = fromGroup; group < toGroup; group++) {
+			int groupStart = group == 0 ? 0 : groupStarts[group - 1];
+			int groupEnd = groupStarts[group];
+			sortRows(tapBatch, rows, buffer, groupStart, groupEnd);
+			int journeyStart = groupStart;
+			while (journeyStart < groupEnd) {
+				int journeyEnd = journeyStart + 1;
+				while (journeyEnd < groupEnd && compareJourney(tapBatch, rows[journeyStart], rows[journeyEnd]) == 0) {
+					journeyEnd++;
+				}
+				matchJourney(tapBatch, rows, journeyStart, journeyEnd, tapOffRows);
+				journeyStart = journeyEnd;
+			}
+		}
+	}
+
+	private static void matchJourney(TapBatch tapBatch, int[] rows, int from, int to, int[] tapOffRows) {
+		int openTapOnRow = TapBatch.NO_ROW;
+		for (int i = from; i < to; i++) {
+			int row = rows[i];
+			if (tapBatch.getTapType(row) == TapBatch.TAP_ON) {
+				// The previous ON tap stays without an OFF tap
+				openTapOnRow = row;
+			} else if (openTapOnRow != TapBatch.NO_ROW && tapBatch.getTapType(row) == TapBatch.TAP_OFF
+					&& tapBatch.getEpochSecond(row) > tapBatch.getEpochSecond(openTapOnRow)) {
+				tapOffRows[openTapOnRow] = row;
+				openTapOnRow = TapBatch.NO_ROW;
+			}
+		}
+	}
+
+	/**
+	 * sortRows method sorts a range of rows by merge sort, without boxing the row
+	 * numbers. Row numbers break the ties, so the order is the same as a stable
+	 * sort.
+	 */
+	private static void sortRows(TapBatch tapBatch, int[] rows, int[] buffer, int from, int to) {
+		if (to - from <= INSERTION_SORT_THRESHOLD) {
+			for (int i = from + 1; i < to; i++) {
+				int row = rows[i];
+				int j = i - 1;
+				while (j >= from && compareRows(tapBatch, rows[j], row) > 0) {
+					rows[j + 1] = rows[j];
+					j--;
+				}
+				rows[j + 1] = row;
+			}
+			return;
+		}
+		int middle = (from + to) >>> 1;
+		sortRows(tapBatch, rows, buffer, from, middle);
+		sortRows(tapBatch, rows, buffer, middle, to);
+		if (compareRows(tapBatch, rows[middle - 1], rows[middle]) <= 0) {
+			return;
+		}
+		System.arraycopy(rows, from, buffer, from, to - from);
+		int left = from;
+		int right = middle;
+		for (int i = from; i < to; i++) {
+			if (right >= to || (left < middle && compareRows(tapBatch, buffer[left], buffer[right]) <= 0)) {
+				rows[i] = buffer[left++];
+			} else {
+				rows[i] = buffer[right++];
+			}
+		}
+	}
+
+	private static int compareJourney(TapBatch tapBatch, int row1, int row2) {
+		int result = Integer.compare(tapBatch.getCompany(row1), tapBatch.getCompany(row2));
+		if (result == 0) {
+			result = Integer.compare(tapBatch.getBus(row1), tapBatch.getBus(row2));
+		}
+		return result;
+	}
+
+	private static int compareRows(TapBatch tapBatch, int row1, int row2) {
+		int result = compareJourney(tapBatch, row1, row2);
+		if (result == 0) {
+			result = Long.compare(tapBatch.getEpochSecond(row1), tapBatch.getEpochSecond(row2));
+		}
+		if (result == 0) {
+			result = Integer.compare(row1, row2);
+		}
+		return result;
 	}
 
 	@Override
@@ -60,19 +338,27 @@ public class TripGeneratorServiceImpl implements TripGeneratorService {
 		return diffSeconds;
 	}
 
+	@Override
+	public long getTripDuration(long tapOnEpochSecond, long tapOffEpochSecond) throws TripGenerationException {
+		if (tapOnEpochSecond > tapOffEpochSecond) {
+			throw new TripGenerationException("Tap OFF time must be after tap ON time.");
+		}
+		return tapOffEpochSecond - tapOnEpochSecond;
+	}
+
 	/**
 	 * When there is no OFF bus stop, the maximum fare should be calculated.
 	 */
 	@Override
 	public double getTripFare(String sourceBusStopId) throws TripGenerationException {
-		TripCost tripCost = TripCostStore.getTripCostList().stream()
-				.filter(cost -> sourceBusStopId.equals(cost.getSource()))
-				.sorted((TripCost cost1, TripCost cost2) -> Double.compare(cost2.getCost(), cost1.getCost()))
-				.findFirst().orElse(null);
-		if (tripCost == null) {
-			throw new TripGenerationException("Couldn't calculate the trip fare.");
-		}
-		return tripCost.getCost();
+		FareIndex fareIndex = TripCostStore.getFareIndex();
+		return checkMaxFare(fareIndex.getMaxFare(fareIndex.getStopOrdinal(sourceBusStopId)));
+	}
+
+	@Override
+	public double getTripFare(String sourceBusStopId, long tapOnEpochSecond) throws TripGenerationException {
+		FareIndex fareIndex = TripCostStore.getFareIndex();
+		return checkMaxFare(fareIndex.getMaxFare(fareIndex.getStopOrdinal(sourceBusStopId), tapOnEpochSecond));
 	}
 
 	/**
@@ -80,19 +366,60 @@ public class TripGeneratorServiceImpl implements TripGeneratorService {
 	 */
 	@Override
 	public double getTripFare(String sourceBusStopId, String destinationBusStopId) throws TripGenerationException {
-		double calcCost = 0.0;
-		if (!sourceBusStopId.equals(destinationBusStopId)) {
-			TripCost tripCost = TripCostStore.getTripCostList().stream()
-					.filter(cost -> sourceBusStopId.equals(cost.getSource())
-							&& destinationBusStopId.equals(cost.getDestination()))
-					.sorted((TripCost cost1, TripCost cost2) -> Double.compare(cost2.getCost(), cost1.getCost()))
-					.findAny().orElse(null);
-			if (tripCost == null) {
-				throw new TripGenerationException("Couldn't calculate the trip fare.");
-			}
-			calcCost = tripCost.getCost();
+		if (sourceBusStopId.equals(destinationBusStopId)) {
+			return 0.0;
 		}
-		return calcCost;
+		FareIndex fareIndex = TripCostStore.getFareIndex();
+		return checkFare(fareIndex.getFare(fareIndex.getStopOrdinal(sourceBusStopId),
+				fareIndex.getStopOrdinal(destinationBusStopId)));
+	}
+
+	@Override
+	public double getTripFare(String sourceBusStopId, String destinationBusStopId, long tapOnEpochSecond)
+			throws TripGenerationException {
+		if (sourceBusStopId.equals(destinationBusStopId)) {
+			return 0.0;
+		}
+		FareIndex fareIndex = TripCostStore.getFareIndex();
+		return checkFare(fareIndex.getFare(fareIndex.getStopOrdinal(sourceBusStopId),
+				fareIndex.getStopOrdinal(destinationBusStopId), tapOnEpochSecond));
+	}
+
+	@Override
+	public double getTripFare(FareIndex fareIndex, int sourceStopOrdinal, long tapOnEpochSecond)
+			throws TripGenerationException {
+		return checkMaxFare(fareIndex.getMaxFare(sourceStopOrdinal, tapOnEpochSecond));
+	}
+
+	/**
+	 * Each stop of a tap batch has its own ordinal, so the same ordinal is the
+	 * same stop.
+	 */
+	@Override
+	public double getTripFare(FareIndex fareIndex, int sourceStopOrdinal, int destinationStopOrdinal,
+			long tapOnEpochSecond) throws TripGenerationException {
+		if (sourceStopOrdinal == destinationStopOrdinal) {
+			return 0.0;
+		}
+		return checkFare(fareIndex.getFare(sourceStopOrdinal, destinationStopOrdinal, tapOnEpochSecond));
+	}
+
+	private double checkMaxFare(double maxFare) throws TripGenerationException {
+		if (Double.isNaN(maxFare)) {
+			pipelineMetrics.countFareMiss(PipelineMetrics.FARE_MAX);
+			throw new TripGenerationException("Couldn't calculate the trip fare.");
+		}
+		pipelineMetrics.countFareHit(PipelineMetrics.FARE_MAX);
+		return maxFare;
+	}
+
+	private double checkFare(double fare) throws TripGenerationException {
+		if (Double.isNaN(fare)) {
+			pipelineMetrics.countFareMiss(PipelineMetrics.FARE_PAIR);
+			throw new TripGenerationException("Couldn't calculate the trip fare.");
+		}
+		pipelineMetrics.countFareHit(PipelineMetrics.FARE_PAIR);
+		return fare;
 	}
 
 	/**
@@ -111,4 +438,17 @@ public class TripGeneratorServiceImpl implements TripGeneratorService {
 		}
 		return TripStatus.COMPLETED;
 	}
+
+	@Override
+	public TripStatus getTripStatus(int sourceStopOrdinal, int destinationStopOrdinal)
+			throws TripGenerationException {
+		if (sourceStopOrdinal == StringDictionary.NO_VALUE) {
+			throw new TripGenerationException("From bus stop can't be null.");
+		} else if (destinationStopOrdinal == StringDictionary.NO_VALUE) {
+			return TripStatus.INCOMPLETE;
+		} else if (sourceStopOrdinal == destinationStopOrdinal) {
+			return TripStatus.CANCELLED;
+		}
+		return TripStatus.COMPLETED;
+	}
 }
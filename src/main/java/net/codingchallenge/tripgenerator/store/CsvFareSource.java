@@ -0,0 +1,138 @@
+package net.codingchallenge.tripgenerator.store;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import net.codingchallenge.tripgenerator.exception.InputFileException;
+import net.codingchallenge.tripgenerator.model.TripCost;
+
+/**
+ * The CsvFareSource class loads the fare table from a CSV file. Each line has
+ * the source stop, the destination stop and the cost separated by commas. An
+ * optional header line is ignored. The file is memory mapped and split into
+ * chunks which are parsed in parallel.
+ * 
+ * @author Gihan Rajakaruna
+ *
+ */
+public class CsvFareSource implements FareSource {
+
+	final static int CHUNK_SIZE = 16 * 1024 * 1024;
+
+	final static int MAX_LINE_LENGTH = 4096;
+
+	private final Path faresFilePath;
+
+	private final int chunkSize;
+
+	public CsvFareSource(Path faresFilePath) {
+		this(faresFilePath, CHUNK_SIZE);
+	}
+
+	CsvFareSource(Path faresFilePath, int chunkSize) {
+		this.faresFilePath = faresFilePath;
+		this.chunkSize = chunkSize;
+	}
+
+	@Override
+	public List<TripCost> loadFares() throws InputFileException {
+		try (FileChannel channel = FileChannel.open(faresFilePath, StandardOpenOption.READ)) {
+			long fileSize = channel.size();
+			int chunkCount = (int) ((fileSize + chunkSize - 1) / chunkSize);
+			// Chunks are collected in file order, so the result doesn't depend on
+			// the order in which the chunks are parsed
+			List<List<TripCost>> chunks = IntStream.range(0, chunkCount).parallel()
+					.mapToObj(chunk -> parseChunk(channel, fileSize, (long) chunk * chunkSize))
+					.collect(Collectors.toList());
+			List<TripCost> tripCostList = new ArrayList<TripCost>();
+			for (List<TripCost> chunk : chunks) {
+				tripCostList.addAll(chunk);
+			}
+			return tripCostList;
+		} catch (IOException | UncheckedIOException e) {
+			throw new InputFileException("Couldn't read the fare table file.");
+		} catch (IllegalArgumentException e) {
+			throw new InputFileException(e.getMessage());
+		}
+	}
+
+	/**
+	 * parseChunk method parses all lines which start inside the chunk. The last
+	 * line may end in the next chunk.
+	 * 
+	 * @param channel
+	 * @param fileSize
+	 * @param chunkStart
+	 * @return list of trip cost's
+	 */
+	private List<TripCost> parseChunk(FileChannel channel, long fileSize, long chunkStart) {
+		long mapStart = chunkStart == 0 ? 0 : chunkStart - 1;
+		long chunkEnd = Math.min(fileSize, chunkStart + chunkSize);
+		long mapEnd = Math.min(fileSize, chunkEnd + MAX_LINE_LENGTH);
+		MappedByteBuffer buffer;
+		try {
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, mapStart, mapEnd - mapStart);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+		List<TripCost> tripCostList = new ArrayList<TripCost>();
+		int lineLimit = (int) (chunkEnd - mapStart);
+		int position = 0;
+		if (chunkStart > 0) {
+			// Line started in the previous chunk belongs to that chunk
+			while (position < buffer.limit() && buffer.get(position) != '\n') {
+				position++;
+			}
+			position++;
+		}
+		while (position < lineLimit) {
+			int lineEnd = position;
+			while (lineEnd < buffer.limit() && buffer.get(lineEnd) != '\n') {
+				lineEnd++;
+			}
+			if (lineEnd == buffer.limit() && mapEnd < fileSize) {
+				throw new IllegalArgumentException("Fare table line is longer than " + MAX_LINE_LENGTH + " bytes.");
+			}
+			TripCost tripCost = parseLine(buffer, position, lineEnd, mapStart + position == 0);
+			if (tripCost != null) {
+				tripCostList.add(tripCost);
+			}
+			position = lineEnd + 1;
+		}
+		return tripCostList;
+	}
+
+	private TripCost parseLine(MappedByteBuffer buffer, int start, int end, boolean firstLine) {
+		byte[] bytes = new byte[end - start];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = buffer.get(start + i);
+		}
+		String line = new String(bytes, StandardCharsets.UTF_8).trim();
+		if (line.isEmpty() || line.startsWith("#")) {
+			return null;
+		}
+		String[] fields = line.split(",");
+		if (fields.length != 3) {
+			throw new IllegalArgumentException("Invalid fare table line: " + line);
+		}
+		try {
+			return new TripCost(fields[0].trim(), fields[1].trim(), Double.parseDouble(fields[2].trim()));
+		} catch (NumberFormatException e) {
+			if (firstLine) {
+				// Header line
+				return null;
+			}
+			throw new IllegalArgumentException("Invalid fare table line: " + line);
+		}
+	}
+}
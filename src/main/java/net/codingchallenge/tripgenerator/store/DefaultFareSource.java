@@ -0,0 +1,29 @@
+package net.codingchallenge.tripgenerator.store;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.codingchallenge.tripgenerator.model.TripCost;
+
+/**
+ * The DefaultFareSource class provides the fares between the three bus stops
+ * used by the sample input files. It is used when no fare table file is
+ * configured.
+ * 
+ * @author Gihan Rajakaruna
+ *
+ */
+public class DefaultFareSource implements FareSource {
+
+	@Override
+	public List<TripCost> loadFares() {
+		List<TripCost> tripCostList = new ArrayList<TripCost>();
+		tripCostList.add(new TripCost("Stop1", "Stop2", 3.25));
+		tripCostList.add(new TripCost("Stop2", "Stop1", 3.25));
+		tripCostList.add(new TripCost("Stop2", "Stop3", 5.50));
+		tripCostList.add(new TripCost("Stop3", "Stop2", 5.50));
+		tripCostList.add(new TripCost("Stop1", "Stop3", 7.30));
+		tripCostList.add(new TripCost("Stop3", "Stop1", 7.30));
+		return tripCostList;
+	}
+}
@@ -0,0 +1,431 @@
+package net.codingchallenge.tripgenerator.store;
+
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.codingchallenge.tripgenerator.model.FareBand;
+import net.codingchallenge.tripgenerator.model.FarePeriod;
+import net.codingchallenge.tripgenerator.model.FareRules;
+import net.codingchallenge.tripgenerator.model.FareZone;
+import net.codingchallenge.tripgenerator.model.TripCost;
+
+/**
+ * The FareIndex class is an immutable lookup table built from the trip costs.
+ * Each bus stop is given a dense ordinal. Fares between two stops are kept in
+ * an open addressing table keyed by the packed ordinals of both stops, and the
+ * maximum fare from each stop is precomputed. Lookups don't allocate any
+ * objects.
+ * 
+ * An index compiled from fare rules has no fare for each pair of stops.
+ * Instead each stop has the ordinal of its zone, and the fares between zones
+ * are a zone by zone matrix for each fare level. Level 0 is the base fare and
+ * each multiplier of the time of day periods is another level. The level of
+ * each minute of the day is a table too, so a fare is three array reads.
+ * 
+ * @author Gihan Rajakaruna
+ * 
+ */
+public final class FareIndex {
+
+	public static final int UNKNOWN_STOP = -1;
+
+	private static final long EMPTY_KEY = -1L;
+
+	private static final long SECONDS_PER_DAY = 24 * 60 * 60;
+
+	private static final int MINUTES_PER_DAY = 24 * 60;
+
+	/**
+	 * Minute levels are bytes
+	 */
+	private static final int MAX_LEVEL_COUNT = Byte.MAX_VALUE + 1;
+
+	private final Map<String, Integer> stopOrdinals;
+
+	private final String[] stopIds;
+
+	private final long[] fareKeys;
+
+	private final double[] fares;
+
+	private final int mask;
+
+	/**
+	 * Maximum fares of each level, with the stops of a level next to each other
+	 */
+	private final double[] maxFares;
+
+	private final int fareCount;
+
+	/**
+	 * Zone ordinal of each stop, or null if the index has a fare for each pair of
+	 * stops
+	 */
+	private final int[] stopZones;
+
+	private final int zoneCount;
+
+	/**
+	 * Fares between zones of each level, with a zone by zone matrix for each level
+	 */
+	private final double[] zoneFares;
+
+	/**
+	 * Fare level of each minute of the day, or null if there is only the base
+	 * level
+	 */
+	private final byte[] minuteLevels;
+
+	private final int offsetSeconds;
+
+	private FareIndex(Map<String, Integer> stopOrdinals, String[] stopIds, long[] fareKeys, double[] fares,
+			double[] maxFares, int fareCount, int[] stopZones, int zoneCount, double[] zoneFares, byte[] minuteLevels,
+			int offsetSeconds) {
+		this.stopOrdinals = stopOrdinals;
+		this.stopIds = stopIds;
+		this.fareKeys = fareKeys;
+		this.fares = fares;
+		this.mask = fareKeys.length - 1;
+		this.maxFares = maxFares;
+		this.fareCount = fareCount;
+		this.stopZones = stopZones;
+		this.zoneCount = zoneCount;
+		this.zoneFares = zoneFares;
+		this.minuteLevels = minuteLevels;
+		this.offsetSeconds = offsetSeconds;
+	}
+
+	/**
+	 * build method creates the index from a list of trip costs. When the same pair
+	 * of stops is listed more than once, the highest cost is used.
+	 * 
+	 * @param tripCostList
+	 * @return fare index
+	 */
+	public static FareIndex build(List<TripCost> tripCostList) {
+		Map<String, Integer> stopOrdinals = new HashMap<String, Integer>();
+		for (TripCost tripCost : tripCostList) {
+			stopOrdinals.putIfAbsent(tripCost.getSource(), stopOrdinals.size());
+			stopOrdinals.putIfAbsent(tripCost.getDestination(), stopOrdinals.size());
+		}
+		String[] stopIds = new String[stopOrdinals.size()];
+		for (Map.Entry<String, Integer> entry : stopOrdinals.entrySet()) {
+			stopIds[entry.getValue()] = entry.getKey();
+		}
+
+		// Keep the table at most half full
+		int capacity = Integer.highestOneBit(Math.max(2, tripCostList.size()) * 2 - 1) << 1;
+		long[] fareKeys = new long[capacity];
+		double[] fares = new double[capacity];
+		Arrays.fill(fareKeys, EMPTY_KEY);
+		double[] maxFares = new double[stopIds.length];
+		Arrays.fill(maxFares, Double.NaN);
+
+		int fareCount = 0;
+		int mask = capacity - 1;
+		for (TripCost tripCost : tripCostList) {
+			int source = stopOrdinals.get(tripCost.getSource());
+			int destination = stopOrdinals.get(tripCost.getDestination());
+			long key = packKey(source, destination);
+			int slot = slot(key, mask);
+			while (fareKeys[slot] != EMPTY_KEY && fareKeys[slot] != key) {
+				slot = (slot + 1) & mask;
+			}
+			if (fareKeys[slot] == EMPTY_KEY) {
+				fareKeys[slot] = key;
+				fares[slot] = tripCost.getCost();
+				fareCount++;
+			} else {
+				fares[slot] = Math.max(fares[slot], tripCost.getCost());
+			}
+			if (Double.isNaN(maxFares[source]) || tripCost.getCost() > maxFares[source]) {
+				maxFares[source] = tripCost.getCost();
+			}
+		}
+		return new FareIndex(stopOrdinals, stopIds, fareKeys, fares, maxFares, fareCount, null, 0, null, null, 0);
+	}
+
+	/**
+	 * compile method creates the index from fare rules. The fare between two
+	 * zones is the fare of the first distance band which covers the distance
+	 * between them, multiplied by the multiplier of the level and rounded to
+	 * cents. Two zones further apart than the last band have no fare. A period
+	 * may lower the fares with a multiplier below 1, such as an off-peak period.
+	 * When time of day periods overlap, the highest multiplier is used.
+	 * 
+	 * @param fareRules
+	 * @return fare index
+	 * @throws IllegalArgumentException if the fare rules are not valid
+	 */
+	public static FareIndex compile(FareRules fareRules) {
+		List<FareZone> zones = fareRules.getZones() != null ? fareRules.getZones() : new ArrayList<FareZone>();
+		Map<String, Integer> stopOrdinals = new HashMap<String, Integer>();
+		List<Integer> stopZoneList = new ArrayList<Integer>();
+		for (int zone = 0; zone < zones.size(); zone++) {
+			List<String> stops = zones.get(zone).getStops();
+			if (stops == null) {
+				continue;
+			}
+			for (String stop : stops) {
+				if (stopOrdinals.putIfAbsent(stop, stopOrdinals.size()) != null) {
+					throw new IllegalArgumentException("Stop " + stop + " is in more than one zone.");
+				}
+				stopZoneList.add(zone);
+			}
+		}
+		String[] stopIds = new String[stopOrdinals.size()];
+		for (Map.Entry<String, Integer> entry : stopOrdinals.entrySet()) {
+			stopIds[entry.getValue()] = entry.getKey();
+		}
+		int[] stopZones = new int[stopIds.length];
+		for (int stop = 0; stop < stopZones.length; stop++) {
+			stopZones[stop] = stopZoneList.get(stop);
+		}
+
+		List<FareBand> bands = new ArrayList<FareBand>(
+				fareRules.getBands() != null ? fareRules.getBands() : new ArrayList<FareBand>());
+		if (bands.isEmpty()) {
+			throw new IllegalArgumentException("Fare rules must have at least one band.");
+		}
+		bands.sort(Comparator.comparingDouble(FareBand::getMaxDistance));
+
+		// Level 0 is the base fare, and each distinct multiplier is another level
+		List<Double> multipliers = new ArrayList<Double>();
+		multipliers.add(1.0);
+		byte[] minuteLevels = null;
+		if (fareRules.getPeriods() != null && !fareRules.getPeriods().isEmpty()) {
+			minuteLevels = new byte[MINUTES_PER_DAY];
+			// Minutes of a period get its level even when it is below the base fare,
+			// and only overlapping periods are compared
+			boolean[] periodMinutes = new boolean[MINUTES_PER_DAY];
+			for (FarePeriod period : fareRules.getPeriods()) {
+				if (!(period.getMultiplier() > 0)) {
+					throw new IllegalArgumentException("Fare period multiplier must be more than 0.");
+				}
+				int level = multipliers.indexOf(period.getMultiplier());
+				if (level < 0) {
+					level = multipliers.size();
+					multipliers.add(period.getMultiplier());
+				}
+				if (multipliers.size() > MAX_LEVEL_COUNT) {
+					throw new IllegalArgumentException("Fare rules have too many multipliers.");
+				}
+				int from = getMinuteOfDay(period.getFrom());
+				int to = getMinuteOfDay(period.getTo());
+				for (int minute = from; minute != to; minute = (minute + 1) % MINUTES_PER_DAY) {
+					if (!periodMinutes[minute] || period.getMultiplier() > multipliers.get(minuteLevels[minute])) {
+						minuteLevels[minute] = (byte) level;
+						periodMinutes[minute] = true;
+					}
+				}
+			}
+		}
+
+		int zoneCount = zones.size();
+		int levelCount = multipliers.size();
+		double[] zoneFares = new double[levelCount * zoneCount * zoneCount];
+		int fareCount = 0;
+		for (int fromZone = 0; fromZone < zoneCount; fromZone++) {
+			for (int toZone = 0; toZone < zoneCount; toZone++) {
+				double distance = Math.abs(zones.get(fromZone).getPosition() - zones.get(toZone).getPosition());
+				double bandFare = Double.NaN;
+				for (FareBand band : bands) {
+					if (band.getMaxDistance() >= distance) {
+						bandFare = band.getFare();
+						break;
+					}
+				}
+				if (!Double.isNaN(bandFare)) {
+					fareCount++;
+				}
+				for (int level = 0; level < levelCount; level++) {
+					zoneFares[(level * zoneCount + fromZone) * zoneCount + toZone] = Double.isNaN(bandFare) ? Double.NaN
+							: Math.round(bandFare * multipliers.get(level) * 100) / 100.0;
+				}
+			}
+		}
+
+		double[] maxFares = new double[levelCount * stopIds.length];
+		Arrays.fill(maxFares, Double.NaN);
+		for (int level = 0; level < levelCount; level++) {
+			for (int stop = 0; stop < stopIds.length; stop++) {
+				for (int toZone = 0; toZone < zoneCount; toZone++) {
+					double fare = zoneFares[(level * zoneCount + stopZones[stop]) * zoneCount + toZone];
+					int maxFareSlot = level * stopIds.length + stop;
+					if (Double.isNaN(maxFares[maxFareSlot]) || fare > maxFares[maxFareSlot]) {
+						maxFares[maxFareSlot] = fare;
+					}
+				}
+			}
+		}
+
+		int offsetSeconds;
+		try {
+			offsetSeconds = ZoneOffset.of(fareRules.getUtcOffset() != null ? fareRules.getUtcOffset() : "Z")
+					.getTotalSeconds();
+		} catch (RuntimeException e) {
+			throw new IllegalArgumentException("Invalid UTC offset " + fareRules.getUtcOffset() + ".");
+		}
+		long[] fareKeys = new long[2];
+		Arrays.fill(fareKeys, EMPTY_KEY);
+		return new FareIndex(stopOrdinals, stopIds, fareKeys, new double[2], maxFares, fareCount, stopZones,
+				zoneCount, zoneFares, minuteLevels, offsetSeconds);
+	}
+
+	private static int getMinuteOfDay(String time) {
+		try {
+			LocalTime localTime = LocalTime.parse(time);
+			return localTime.getHour() * 60 + localTime.getMinute();
+		} catch (RuntimeException e) {
+			throw new IllegalArgumentException("Invalid fare period time " + time + ".");
+		}
+	}
+
+	/**
+	 * getStopOrdinal method returns the ordinal of a bus stop, or UNKNOWN_STOP if
+	 * there is no fare from or to the stop.
+	 * 
+	 * @param stopId
+	 * @return stop ordinal
+	 */
+	public int getStopOrdinal(String stopId) {
+		Integer ordinal = stopId == null ? null : stopOrdinals.get(stopId);
+		return ordinal == null ? UNKNOWN_STOP : ordinal;
+	}
+
+	public String getStopId(int stopOrdinal) {
+		return stopIds[stopOrdinal];
+	}
+
+	public int getStopCount() {
+		return stopIds.length;
+	}
+
+	/**
+	 * getFareCount method returns the number of fares between two stops, or
+	 * between two zones if the index is compiled from fare rules.
+	 * 
+	 * @return fare count
+	 */
+	public int getFareCount() {
+		return fareCount;
+	}
+
+	/**
+	 * getZoneCount method returns the number of zones, or 0 if the index has a
+	 * fare for each pair of stops.
+	 * 
+	 * @return zone count
+	 */
+	public int getZoneCount() {
+		return zoneCount;
+	}
+
+	/**
+	 * getLevel method returns the fare level of a time, which is 0 outside of the
+	 * time of day periods.
+	 * 
+	 * @param epochSecond
+	 * @return fare level
+	 */
+	public int getLevel(long epochSecond) {
+		if (minuteLevels == null) {
+			return 0;
+		}
+		return minuteLevels[(int) (Math.floorMod(epochSecond + offsetSeconds, SECONDS_PER_DAY) / 60)];
+	}
+
+	/**
+	 * getFare method returns the base fare between two bus stops, or NaN if there
+	 * is no such fare.
+	 * 
+	 * @param sourceStopOrdinal
+	 * @param destinationStopOrdinal
+	 * @return fare
+	 */
+	public double getFare(int sourceStopOrdinal, int destinationStopOrdinal) {
+		return getLevelFare(sourceStopOrdinal, destinationStopOrdinal, 0);
+	}
+
+	/**
+	 * getFare method returns the fare between two bus stops of a trip which
+	 * started at the given time, or NaN if there is no such fare.
+	 * 
+	 * @param sourceStopOrdinal
+	 * @param destinationStopOrdinal
+	 * @param epochSecond
+	 * @return fare
+	 */
+	public double getFare(int sourceStopOrdinal, int destinationStopOrdinal, long epochSecond) {
+		return getLevelFare(sourceStopOrdinal, destinationStopOrdinal, getLevel(epochSecond));
+	}
+
+	private double getLevelFare(int sourceStopOrdinal, int destinationStopOrdinal, int level) {
+		if (sourceStopOrdinal < 0 || destinationStopOrdinal < 0) {
+			return Double.NaN;
+		}
+		if (stopZones != null) {
+			// Ordinals after the last stop of the index are stops without any fare
+			if (sourceStopOrdinal >= stopZones.length || destinationStopOrdinal >= stopZones.length) {
+				return Double.NaN;
+			}
+			return zoneFares[(level * zoneCount + stopZones[sourceStopOrdinal]) * zoneCount
+					+ stopZones[destinationStopOrdinal]];
+		}
+		long key = packKey(sourceStopOrdinal, destinationStopOrdinal);
+		int slot = slot(key, mask);
+		while (fareKeys[slot] != EMPTY_KEY) {
+			if (fareKeys[slot] == key) {
+				return fares[slot];
+			}
+			slot = (slot + 1) & mask;
+		}
+		return Double.NaN;
+	}
+
+	/**
+	 * getMaxFare method returns the maximum base fare from a bus stop, or NaN if
+	 * there is no fare from the stop. Ordinals after the last stop of the index are
+	 * stops without any fare.
+	 * 
+	 * @param sourceStopOrdinal
+	 * @return maximum fare
+	 */
+	public double getMaxFare(int sourceStopOrdinal) {
+		return getLevelMaxFare(sourceStopOrdinal, 0);
+	}
+
+	/**
+	 * getMaxFare method returns the maximum fare from a bus stop of a trip which
+	 * started at the given time, or NaN if there is no fare from the stop.
+	 * 
+	 * @param sourceStopOrdinal
+	 * @param epochSecond
+	 * @return maximum fare
+	 */
+	public double getMaxFare(int sourceStopOrdinal, long epochSecond) {
+		return getLevelMaxFare(sourceStopOrdinal, getLevel(epochSecond));
+	}
+
+	private double getLevelMaxFare(int sourceStopOrdinal, int level) {
+		if (sourceStopOrdinal < 0 || sourceStopOrdinal >= stopIds.length) {
+			return Double.NaN;
+		}
+		return maxFares[level * stopIds.length + sourceStopOrdinal];
+	}
+
+	private static long packKey(int sourceStopOrdinal, int destinationStopOrdinal) {
+		return ((long) sourceStopOrdinal << 32) | (destinationStopOrdinal & 0xFFFFFFFFL);
+	}
+
+	private static int slot(long key, int mask) {
+		long hash = key * 0x9E3779B97F4A7C15L;
+		return (int) (hash >>> 32) & mask;
+	}
+}
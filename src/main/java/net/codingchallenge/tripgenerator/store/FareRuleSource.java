@@ -0,0 +1,61 @@
+package net.codingchallenge.tripgenerator.store;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import net.codingchallenge.tripgenerator.exception.InputFileException;
+import net.codingchallenge.tripgenerator.model.FareRules;
+
+/**
+ * The FareRuleSource class loads the fare rules from a JSON file and compiles
+ * them into a fare index. The file has the utcOffset of the time of day
+ * periods, a zones array of objects with zone, position and stops attributes,
+ * a bands array of objects with maxDistance and fare attributes, and a periods
+ * array of objects with from, to and multiplier attributes. The file is parsed
+ * with the shared ObjectMapper of the JacksonConfig.
+ * 
+ * @author Gihan Rajakaruna
+ *
+ */
+public class FareRuleSource {
+
+	private final Path fareRulesFilePath;
+	private final ObjectMapper objectMapper;
+
+	public FareRuleSource(Path fareRulesFilePath, ObjectMapper objectMapper) {
+		this.fareRulesFilePath = fareRulesFilePath;
+		this.objectMapper = objectMapper;
+	}
+
+	/**
+	 * loadFareRules method reads the fare rules file.
+	 * 
+	 * @return fare rules
+	 * @throws InputFileException
+	 */
+	public FareRules loadFareRules() throws InputFileException {
+		try {
+			return objectMapper.readValue(Files.readAllBytes(fareRulesFilePath), FareRules.class);
+		} catch (IOException e) {
+			throw new InputFileException("Couldn't read the fare rules file.");
+		}
+	}
+
+	/**
+	 * loadFareIndex method reads the fare rules file and compiles the fare rules.
+	 * 
+	 * @return fare index
+	 * @throws InputFileException
+	 */
+	public FareIndex loadFareIndex() throws InputFileException {
+		FareRules fareRules = loadFareRules();
+		try {
+			return FareIndex.compile(fareRules);
+		} catch (IllegalArgumentException e) {
+			throw new InputFileException("Invalid fare rules. " + e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,23 @@
+package net.codingchallenge.tripgenerator.store;
+
+import java.util.List;
+
+import net.codingchallenge.tripgenerator.exception.InputFileException;
+import net.codingchallenge.tripgenerator.model.TripCost;
+
+/**
+ * The FareSource interface loads the cost to travel between two bus stops.
+ * 
+ * @author Gihan Rajakaruna
+ *
+ */
+public interface FareSource {
+
+	/**
+	 * loadFares method reads the complete fare table.
+	 * 
+	 * @return list of trip cost's
+	 * @throws InputFileException
+	 */
+	List<TripCost> loadFares() throws InputFileException;
+}
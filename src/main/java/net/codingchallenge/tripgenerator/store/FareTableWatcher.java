@@ -0,0 +1,100 @@
+package net.codingchallenge.tripgenerator.store;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * The FareTableWatcher class watches the fare table file and runs the reload
+ * action when the file is created or modified. The watcher runs on a daemon
+ * thread, so it never blocks trip generation.
+ * 
+ * @author Gihan Rajakaruna
+ *
+ */
+public class FareTableWatcher implements Runnable, AutoCloseable {
+
+	final static Logger logger = LogManager.getLogger(FareTableWatcher.class);
+
+	/**
+	 * Editors and copy commands usually modify a file more than once. Changes
+	 * within this delay are reloaded only once.
+	 */
+	final static long SETTLE_DELAY_MILLIS = 200;
+
+	private final Path faresFilePath;
+
+	private final Runnable reloadAction;
+
+	private WatchService watchService;
+
+	public FareTableWatcher(Path faresFilePath, Runnable reloadAction) {
+		this.faresFilePath = faresFilePath.toAbsolutePath();
+		this.reloadAction = reloadAction;
+	}
+
+	/**
+	 * start method registers the directory of the fare table with the watch
+	 * service and starts the watcher thread.
+	 * 
+	 * @throws IOException
+	 */
+	public void start() throws IOException {
+		Path directory = faresFilePath.getParent();
+		watchService = directory.getFileSystem().newWatchService();
+		directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+		Thread thread = new Thread(this, "fare-table-watcher");
+		thread.setDaemon(true);
+		thread.start();
+		logger.debug("Watching fare table file {} for changes.", () -> faresFilePath);
+	}
+
+	@Override
+	public void run() {
+		try {
+			while (true) {
+				WatchKey watchKey = watchService.take();
+				boolean changed = isFareTableChanged(watchKey);
+				if (changed) {
+					// Wait for the writer to finish and drop the events it caused
+					Thread.sleep(SETTLE_DELAY_MILLIS);
+					WatchKey pendingKey;
+					while ((pendingKey = watchService.poll(SETTLE_DELAY_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+						isFareTableChanged(pendingKey);
+					}
+					reloadAction.run();
+				}
+			}
+		} catch (ClosedWatchServiceException | InterruptedException e) {
+			logger.debug("Stopped watching fare table file {}.", () -> faresFilePath);
+		}
+	}
+
+	private boolean isFareTableChanged(WatchKey watchKey) {
+		boolean changed = false;
+		for (WatchEvent<?> event : watchKey.pollEvents()) {
+			// Events may have been lost when the directory overflows
+			if (event.kind() == StandardWatchEventKinds.OVERFLOW
+					|| faresFilePath.getFileName().equals(event.context())) {
+				changed = true;
+			}
+		}
+		watchKey.reset();
+		return changed;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (watchService != null) {
+			watchService.close();
+		}
+	}
+}
@@ -0,0 +1,55 @@
+package net.codingchallenge.tripgenerator.store;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+
+import net.codingchallenge.tripgenerator.exception.InputFileException;
+import net.codingchallenge.tripgenerator.model.TripCost;
+import net.codingchallenge.tripgenerator.model.TripCosts;
+
+/**
+ * The JsonFareSource class loads the fare table from a memory mapped JSON file.
+ * The file has the same layout as the input file, i.e. a fares array of
+ * objects with source, destination and cost attributes. It is parsed with the
+ * shared ObjectMapper of the JacksonConfig.
+ * 
+ * @author Gihan Rajakaruna
+ *
+ */
+public class JsonFareSource implements FareSource {
+
+	private final Path faresFilePath;
+
+	private final ObjectMapper objectMapper;
+
+	public JsonFareSource(Path faresFilePath, ObjectMapper objectMapper) {
+		this.faresFilePath = faresFilePath;
+		this.objectMapper = objectMapper;
+	}
+
+	@Override
+	public List<TripCost> loadFares() throws InputFileException {
+		try (FileChannel channel = FileChannel.open(faresFilePath, StandardOpenOption.READ)) {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			TripCosts tripCosts = objectMapper.readValue(new ByteBufferBackedInputStream(buffer),
+					TripCosts.class);
+			if (tripCosts.getFares() == null) {
+				return new ArrayList<TripCost>();
+			}
+			return tripCosts.getFares();
+		} catch (IOException e) {
+			throw new InputFileException("Couldn't read the fare table file.");
+		} catch (IllegalArgumentException e) {
+			// Files larger than 2GB can't be mapped into a single buffer
+			throw new InputFileException("Fare table file is too large.");
+		}
+	}
+}
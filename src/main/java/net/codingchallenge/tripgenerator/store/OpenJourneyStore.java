@@ -0,0 +1,349 @@
+package net.codingchallenge.tripgenerator.store;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import net.codingchallenge.tripgenerator.exception.OutputFileException;
+import net.codingchallenge.tripgenerator.exception.TripGenerationException;
+
+/**
+ * The OpenJourneyStore class keeps the open ON taps outside the Java heap. Each
+ * ON tap is a fixed width record in a direct byte buffer, in an open addressing
+ * table keyed by the account, company and bus ordinals. A journey key can have
+ * more than one record, in the order they were added. Records are removed with
+ * backward shift deletion, so the table never has tombstones. Putting, taking
+ * and expiring records don't allocate any objects, the table only allocates
+ * new buffers when it grows. The table is split into direct buffers of a fixed
+ * number of slots, so byte offsets fit in an int however large the table
+ * grows. The store isn't thread-safe.
+ * 
+ * @author Gihan Rajakaruna
+ *
+ */
+public final class OpenJourneyStore {
+
+	/**
+	 * The RecordHandler interface receives the records which are taken out of the
+	 * store.
+	 */
+	public interface RecordHandler {
+
+		void onRecord(int tapId, long epochSecond, int stop, int account, int company, int bus)
+				throws TripGenerationException, OutputFileException;
+	}
+
+	final static int RECORD_SIZE = 32;
+
+	private final static int USED = 0;
+
+	private final static int ACCOUNT = 4;
+
+	private final static int COMPANY = 8;
+
+	private final static int BUS = 12;
+
+	private final static int EPOCH_SECOND = 16;
+
+	private final static int TAP_ID = 24;
+
+	private final static int STOP = 28;
+
+	/**
+	 * Maximum share of used slots before the table grows
+	 */
+	final static double MAX_LOAD = 0.5;
+
+	/**
+	 * Each buffer has 2^SEGMENT_SHIFT slots, 32 MB
+	 */
+	final static int SEGMENT_SHIFT = 20;
+
+	/**
+	 * Slots are int indexes, so the table can't grow past 2^30 slots
+	 */
+	final static int MAX_CAPACITY = 1 << 30;
+
+	private final int segmentShift;
+
+	private final int segmentMask;
+
+	private final int maxCapacity;
+
+	private ByteBuffer[] segments;
+
+	private int capacity;
+
+	private int mask;
+
+	private int size;
+
+	/**
+	 * Creates a store for at least the given number of open journeys before it
+	 * grows.
+	 * 
+	 * @param initialCapacity
+	 */
+	public OpenJourneyStore(int initialCapacity) {
+		this(initialCapacity, SEGMENT_SHIFT, MAX_CAPACITY);
+	}
+
+	/**
+	 * Creates a store with buffers of 2^segmentShift slots, which can't grow past
+	 * the maximum number of slots.
+	 * 
+	 * @param initialCapacity
+	 * @param segmentShift
+	 * @param maxCapacity
+	 */
+	OpenJourneyStore(int initialCapacity, int segmentShift, int maxCapacity) {
+		this.segmentShift = segmentShift;
+		this.segmentMask = (1 << segmentShift) - 1;
+		this.maxCapacity = maxCapacity;
+		long slotCount = Math.max(8, (long) (initialCapacity / MAX_LOAD));
+		if (slotCount > maxCapacity) {
+			throw new IllegalArgumentException("Open journey store can't keep more than " + getMaxJourneyCount()
+					+ " open journeys.");
+		}
+		allocate(Integer.highestOneBit((int) slotCount * 2 - 1));
+	}
+
+	private void allocate(int newCapacity) {
+		capacity = newCapacity;
+		mask = newCapacity - 1;
+		int segmentCapacity = Math.min(newCapacity, 1 << segmentShift);
+		segments = new ByteBuffer[newCapacity / segmentCapacity];
+		for (int i = 0; i < segments.length; i++) {
+			segments[i] = ByteBuffer.allocateDirect(segmentCapacity * RECORD_SIZE).order(ByteOrder.nativeOrder());
+		}
+	}
+
+	private long getMaxJourneyCount() {
+		return (long) (maxCapacity * MAX_LOAD);
+	}
+
+	/**
+	 * put method adds an open ON tap.
+	 * 
+	 * @param account
+	 * @param company
+	 * @param bus
+	 * @param tapId
+	 * @param epochSecond
+	 * @param stop
+	 */
+	public void put(int account, int company, int bus, int tapId, long epochSecond, int stop) {
+		if (size + 1 > capacity * MAX_LOAD) {
+			grow();
+		}
+		int slot = slot(account, company, bus);
+		while (isUsed(slot)) {
+			slot = (slot + 1) & mask;
+		}
+		ByteBuffer records = getSegment(slot);
+		int offset = getOffset(slot);
+		records.putInt(offset + USED, 1);
+		records.putInt(offset + ACCOUNT, account);
+		records.putInt(offset + COMPANY, company);
+		records.putInt(offset + BUS, bus);
+		records.putLong(offset + EPOCH_SECOND, epochSecond);
+		records.putInt(offset + TAP_ID, tapId);
+		records.putInt(offset + STOP, stop);
+		size++;
+	}
+
+	/**
+	 * take method removes the records of a journey key which are in the given time
+	 * range and passes them to the handler, in the order they were added.
+	 * 
+	 * @param account
+	 * @param company
+	 * @param bus
+	 * @param fromEpochSecond
+	 * @param beforeEpochSecond
+	 * @param recordHandler
+	 * @return number of records taken
+	 * @throws TripGenerationException
+	 * @throws OutputFileException
+	 */
+	public int take(int account, int company, int bus, long fromEpochSecond, long beforeEpochSecond,
+			RecordHandler recordHandler) throws TripGenerationException, OutputFileException {
+		int takenCount = 0;
+		int slot = slot(account, company, bus);
+		while (isUsed(slot)) {
+			ByteBuffer records = getSegment(slot);
+			int offset = getOffset(slot);
+			long epochSecond = records.getLong(offset + EPOCH_SECOND);
+			if (records.getInt(offset + ACCOUNT) == account && records.getInt(offset + COMPANY) == company
+					&& records.getInt(offset + BUS) == bus && epochSecond >= fromEpochSecond
+					&& epochSecond < beforeEpochSecond) {
+				takeRecord(slot, recordHandler);
+				takenCount++;
+				// A later record has been shifted into this slot
+			} else {
+				slot = (slot + 1) & mask;
+			}
+		}
+		return takenCount;
+	}
+
+	/**
+	 * expire method removes all records before the given time and passes them to
+	 * the handler. It scans the whole table.
+	 * 
+	 * @param beforeEpochSecond
+	 * @param recordHandler
+	 * @return number of records expired
+	 * @throws TripGenerationException
+	 * @throws OutputFileException
+	 */
+	public int expire(long beforeEpochSecond, RecordHandler recordHandler)
+			throws TripGenerationException, OutputFileException {
+		if (size == 0) {
+			return 0;
+		}
+		// Start after an empty slot, so no cluster of records wraps around the start
+		// of the scan and records are only shifted to slots which are not scanned yet
+		int start = 0;
+		while (isUsed(start)) {
+			start++;
+		}
+		int expiredCount = 0;
+		int slot = (start + 1) & mask;
+		for (int scanned = 1; scanned < capacity; scanned++) {
+			while (isUsed(slot) && getSegment(slot).getLong(getOffset(slot) + EPOCH_SECOND) < beforeEpochSecond) {
+				takeRecord(slot, recordHandler);
+				expiredCount++;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return expiredCount;
+	}
+
+	/**
+	 * forEach method passes every record to the handler without removing it.
+	 * 
+	 * @param recordHandler
+	 * @throws TripGenerationException
+	 * @throws OutputFileException
+	 */
+	public void forEach(RecordHandler recordHandler) throws TripGenerationException, OutputFileException {
+		for (int slot = 0; slot < capacity; slot++) {
+			if (isUsed(slot)) {
+				ByteBuffer records = getSegment(slot);
+				int offset = getOffset(slot);
+				recordHandler.onRecord(records.getInt(offset + TAP_ID), records.getLong(offset + EPOCH_SECOND),
+						records.getInt(offset + STOP), records.getInt(offset + ACCOUNT),
+						records.getInt(offset + COMPANY), records.getInt(offset + BUS));
+			}
+		}
+	}
+
+	public void clear() {
+		for (int slot = 0; slot < capacity; slot++) {
+			getSegment(slot).putInt(getOffset(slot) + USED, 0);
+		}
+		size = 0;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	private void takeRecord(int slot, RecordHandler recordHandler) throws TripGenerationException, OutputFileException {
+		ByteBuffer records = getSegment(slot);
+		int offset = getOffset(slot);
+		int tapId = records.getInt(offset + TAP_ID);
+		long epochSecond = records.getLong(offset + EPOCH_SECOND);
+		int stop = records.getInt(offset + STOP);
+		int account = records.getInt(offset + ACCOUNT);
+		int company = records.getInt(offset + COMPANY);
+		int bus = records.getInt(offset + BUS);
+		remove(slot);
+		recordHandler.onRecord(tapId, epochSecond, stop, account, company, bus);
+	}
+
+	/**
+	 * remove method empties a slot and shifts the following records of the cluster
+	 * back, so every record stays reachable from its home slot.
+	 */
+	private void remove(int slot) {
+		int hole = slot;
+		int next = (hole + 1) & mask;
+		while (isUsed(next)) {
+			ByteBuffer records = getSegment(next);
+			int offset = getOffset(next);
+			int home = slot(records.getInt(offset + ACCOUNT), records.getInt(offset + COMPANY),
+					records.getInt(offset + BUS));
+			// Move the record if its home slot is not between the hole and the record
+			if (((next - home) & mask) >= ((next - hole) & mask)) {
+				copyRecord(next, hole);
+				hole = next;
+			}
+			next = (next + 1) & mask;
+		}
+		getSegment(hole).putInt(getOffset(hole) + USED, 0);
+		size--;
+	}
+
+	private void copyRecord(int fromSlot, int toSlot) {
+		ByteBuffer fromRecords = getSegment(fromSlot);
+		ByteBuffer toRecords = getSegment(toSlot);
+		int from = getOffset(fromSlot);
+		int to = getOffset(toSlot);
+		for (int i = 0; i < RECORD_SIZE; i += 8) {
+			toRecords.putLong(to + i, fromRecords.getLong(from + i));
+		}
+	}
+
+	private void grow() {
+		if (capacity >= maxCapacity) {
+			throw new IllegalStateException("Open journey store can't keep more than " + getMaxJourneyCount()
+					+ " open journeys.");
+		}
+		ByteBuffer[] oldSegments = segments;
+		int oldCapacity = capacity;
+		allocate(oldCapacity * 2);
+		size = 0;
+		// Records of a journey key are added again in the same order when the scan
+		// starts at an empty slot
+		int start = 0;
+		while (oldSegments[start >>> segmentShift].getInt(getOffset(start) + USED) != 0) {
+			start++;
+		}
+		for (int i = 1; i <= oldCapacity; i++) {
+			int oldSlot = (start + i) & (oldCapacity - 1);
+			ByteBuffer oldRecords = oldSegments[oldSlot >>> segmentShift];
+			int offset = getOffset(oldSlot);
+			if (oldRecords.getInt(offset + USED) != 0) {
+				put(oldRecords.getInt(offset + ACCOUNT), oldRecords.getInt(offset + COMPANY),
+						oldRecords.getInt(offset + BUS), oldRecords.getInt(offset + TAP_ID),
+						oldRecords.getLong(offset + EPOCH_SECOND), oldRecords.getInt(offset + STOP));
+			}
+		}
+	}
+
+	private boolean isUsed(int slot) {
+		return getSegment(slot).getInt(getOffset(slot) + USED) != 0;
+	}
+
+	private ByteBuffer getSegment(int slot) {
+		return segments[slot >>> segmentShift];
+	}
+
+	/**
+	 * Byte offset of the slot in its buffer
+	 */
+	private int getOffset(int slot) {
+		return (slot & segmentMask) * RECORD_SIZE;
+	}
+
+	private int slot(int account, int company, int bus) {
+		long hash = ((long) account << 32 | (company & 0xFFFFL) << 16 | (bus & 0xFFFFL)) * 0x9E3779B97F4A7C15L;
+		hash ^= hash >>> 29;
+		return (int) hash & mask;
+	}
+}
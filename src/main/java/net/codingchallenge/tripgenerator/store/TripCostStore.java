@@ -1,17 +1,34 @@
 package net.codingchallenge.tripgenerator.store;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import net.codingchallenge.tripgenerator.config.JacksonConfig;
+import net.codingchallenge.tripgenerator.exception.InputFileException;
 import net.codingchallenge.tripgenerator.model.TripCost;
 
 /**
  * The TripCostStore class populates a list with cost to travel between two bus
- * stops.
+ * stops. A FareIndex is built from the list whenever it changes, so that fares
+ * can be looked up without searching the list. The costs are loaded from the
+ * fare table file when one is configured. Otherwise the default fares are used.
+ * When a fare rules file is configured, the FareIndex is compiled from the
+ * zones and bands of the rules instead, and the cost list is empty.
  * 
  * @author Gihan Rajakaruna
  *
@@ -19,26 +36,131 @@ import net.codingchallenge.tripgenerator.model.TripCost;
 @Component
 public class TripCostStore {
 
+	final static Logger logger = LogManager.getLogger(TripCostStore.class);
+
 	private static List<TripCost> tripCostList = new ArrayList<TripCost>();
 
+	private static volatile FareIndex fareIndex = FareIndex.build(tripCostList);
+
+	@Autowired(required = true)
+	JacksonConfig jacksonConfig;
+
+	@Value("${tripgenerator.fares.file:}")
+	String faresFilePath;
+
+	@Value("${tripgenerator.fares.rules-file:}")
+	String fareRulesFilePath;
+
+	@Value("${tripgenerator.fares.watch:false}")
+	boolean watchFaresFile;
+
+	private FareTableWatcher fareTableWatcher;
+
 	/**
 	 * addCosts method should be executed after creating the bean.
+	 * 
+	 * @throws InputFileException
+	 * @throws IOException
 	 */
 	@PostConstruct
-	public void addCosts() {
-		tripCostList.add(new TripCost("Stop1", "Stop2", 3.25));
-		tripCostList.add(new TripCost("Stop2", "Stop1", 3.25));
-		tripCostList.add(new TripCost("Stop2", "Stop3", 5.50));
-		tripCostList.add(new TripCost("Stop3", "Stop2", 5.50));
-		tripCostList.add(new TripCost("Stop1", "Stop3", 7.30));
-		tripCostList.add(new TripCost("Stop3", "Stop1", 7.30));
+	public void addCosts() throws InputFileException, IOException {
+		loadCosts();
+		logger.debug("Loaded {} trip costs of {} zones.", () -> fareIndex.getFareCount(),
+				() -> fareIndex.getZoneCount());
+		String watchedFilePath = isFareRules() ? fareRulesFilePath : faresFilePath;
+		if (watchFaresFile && StringUtils.isNotBlank(watchedFilePath)) {
+			fareTableWatcher = new FareTableWatcher(Paths.get(watchedFilePath.trim()), this::reloadCosts);
+			fareTableWatcher.start();
+		}
+	}
+
+	private void loadCosts() throws InputFileException {
+		if (isFareRules()) {
+			setFareIndex(new FareRuleSource(Paths.get(fareRulesFilePath.trim()), jacksonConfig.getObjectMapper())
+					.loadFareIndex());
+		} else {
+			setTripCostList(getFareSource().loadFares());
+		}
+	}
+
+	private boolean isFareRules() {
+		return StringUtils.isNotBlank(fareRulesFilePath);
+	}
+
+	/**
+	 * reloadCosts method loads the fare table file again. A new index is built
+	 * before it replaces the current one, so trips being generated keep using the
+	 * current fares until the new ones are completely loaded. If the file can't be
+	 * loaded the current fares are kept.
+	 */
+	void reloadCosts() {
+		try {
+			loadCosts();
+			logger.info("Reloaded {} trip costs from fare table file {}.", () -> fareIndex.getFareCount(),
+					() -> isFareRules() ? fareRulesFilePath : faresFilePath);
+		} catch (InputFileException e) {
+			logger.error("Couldn't reload the fare table. Current fares are kept. {}", () -> e.getMessage());
+		}
+	}
+
+	@PreDestroy
+	public void stopWatching() throws IOException {
+		if (fareTableWatcher != null) {
+			fareTableWatcher.close();
+		}
+	}
+
+	/**
+	 * getFareSource method chooses the fare source by the extension of the fare
+	 * table file.
+	 * 
+	 * @return fare source
+	 * @throws InputFileException
+	 */
+	FareSource getFareSource() throws InputFileException {
+		if (StringUtils.isBlank(faresFilePath)) {
+			return new DefaultFareSource();
+		}
+		Path path = Paths.get(faresFilePath);
+		String fileExtention = FilenameUtils.getExtension(faresFilePath);
+		if ("csv".equalsIgnoreCase(fileExtention)) {
+			return new CsvFareSource(path);
+		} else if ("json".equalsIgnoreCase(fileExtention)) {
+			return new JsonFareSource(path, jacksonConfig.getObjectMapper());
+		}
+		throw new InputFileException("Fare table file must have the csv or json extention.");
 	}
 
 	public static List<TripCost> getTripCostList() {
 		return tripCostList;
 	}
 
-	public static void setTripCostList(List<TripCost> tripCostList) {
-		TripCostStore.tripCostList = tripCostList;
+	/**
+	 * setTripCostList method replaces the cost list and the fare index. The index
+	 * is published through a volatile field, so readers see either the old or the
+	 * new index.
+	 * 
+	 * @param tripCostList
+	 */
+	public static synchronized void setTripCostList(List<TripCost> tripCostList) {
+		FareIndex newFareIndex = FareIndex.build(tripCostList);
+		TripCostStore.tripCostList = Collections.unmodifiableList(tripCostList);
+		fareIndex = newFareIndex;
+	}
+
+	/**
+	 * setFareIndex method replaces the fare index with one compiled from fare
+	 * rules. The cost list is emptied, as the rules have no cost for each pair of
+	 * stops.
+	 * 
+	 * @param fareIndex
+	 */
+	public static synchronized void setFareIndex(FareIndex fareIndex) {
+		TripCostStore.tripCostList = Collections.emptyList();
+		TripCostStore.fareIndex = fareIndex;
+	}
+
+	public static FareIndex getFareIndex() {
+		return fareIndex;
 	}
 }
@@ -1,14 +1,18 @@
 package net.codingchallenge.tripgenerator.validator;
 
 import java.io.File;
+import java.util.List;
 
 import org.apache.commons.io.FilenameUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import net.codingchallenge.tripgenerator.codec.CodecRegistry;
 import net.codingchallenge.tripgenerator.exception.InputFileException;
 import net.codingchallenge.tripgenerator.exception.OutputFileException;
+import net.codingchallenge.tripgenerator.io.CompressedFiles;
 
 /**
  * The TripGeneratorValidator class performs basic validations.
@@ -23,26 +27,79 @@ public class TripGeneratorValidator {
 
 	final static String FILE_EXTENTION = "json";
 
+	@Autowired(required = true)
+	CodecRegistry codecRegistry;
+
+	/**
+	 * validateFilePaths method validates the input and output files of trip
+	 * generation. Both files must have a supported format, from the configured
+	 * format name or from the file extension.
+	 * 
+	 * @param inputFilePath
+	 * @param outputFilePath
+	 * @throws InputFileException
+	 * @throws OutputFileException
+	 */
 	public void validateFilePaths(String inputFilePath, String outputFilePath) throws InputFileException, OutputFileException {
 
 		// Validate input file
 		File inputFile = new File(inputFilePath);
 		if (!inputFile.exists()) {
 			throw new InputFileException("Can't find the input file.");
-		} else if (!inputFile.isFile() || !isJsonFile(inputFilePath)) {
-			throw new InputFileException("Input file is not a JSON file.");
+		} else if (!inputFile.isFile() || codecRegistry.getInputCodec(inputFilePath) == null) {
+			throw new InputFileException("Input file is not a JSON, JSON Lines, Smile, CBOR or binary tap file.");
 		}
 
 		// Validate output file
-		File outputFile = new File(outputFilePath);
-		File parentDirectory = outputFile.getParentFile();
-		if (parentDirectory == null || !parentDirectory.exists() || !parentDirectory.isDirectory()) {
-			throw new OutputFileException("Can't find the output directory. The directory must exists.");
+		validateOutputDirectory(outputFilePath);
+		if (codecRegistry.getOutputCodec(outputFilePath) == null) {
+			throw new OutputFileException("Output file must have one of the extentions "
+					+ String.join(", ", codecRegistry.getExtensions()) + ", optionally followed by "
+					+ CompressedFiles.GZIP_EXTENTION + " or " + CompressedFiles.ZSTD_EXTENTION + ".");
 		}
-		if (!inputFile.isFile() || !isJsonFile(outputFilePath)) {
+		warnIfExists(outputFilePath);
+	}
+
+	/**
+	 * validateOutputFilePath method validates an output file which is always
+	 * written as JSON.
+	 * 
+	 * @param outputFilePath
+	 * @throws OutputFileException
+	 */
+	public void validateOutputFilePath(String outputFilePath) throws OutputFileException {
+		validateOutputDirectory(outputFilePath);
+		if (!isJsonFile(outputFilePath)) {
 			throw new OutputFileException("Output file must have the json extention.");
 		}
-		if (outputFile.exists()) {
+		warnIfExists(outputFilePath);
+	}
+
+	/**
+	 * validateJsonLinesFilePath method validates an output file which is always
+	 * written as uncompressed JSON Lines, one JSON object per line.
+	 * 
+	 * @param outputFilePath
+	 * @throws OutputFileException
+	 */
+	public void validateJsonLinesFilePath(String outputFilePath) throws OutputFileException {
+		validateOutputDirectory(outputFilePath);
+		if (!isJsonLinesFile(outputFilePath)) {
+			throw new OutputFileException("Output file must have one of the extentions "
+					+ String.join(", ", getJsonLinesExtensions()) + ".");
+		}
+		warnIfExists(outputFilePath);
+	}
+
+	private void validateOutputDirectory(String outputFilePath) throws OutputFileException {
+		File parentDirectory = new File(outputFilePath).getParentFile();
+		if (parentDirectory == null || !parentDirectory.exists() || !parentDirectory.isDirectory()) {
+			throw new OutputFileException("Can't find the output directory. The directory must exists.");
+		}
+	}
+
+	private void warnIfExists(String outputFilePath) {
+		if (new File(outputFilePath).exists()) {
 			logger.warn("File {} exists. It will be overridden.", () -> outputFilePath);
 		}
 	}
@@ -55,4 +112,18 @@ public class TripGeneratorValidator {
 		}
 		return false;
 	}
+
+	boolean isJsonLinesFile(String filePath) {
+		String fileExtention = FilenameUtils.getExtension(filePath);
+		for (String extension : getJsonLinesExtensions()) {
+			if (extension.equalsIgnoreCase(fileExtention)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private List<String> getJsonLinesExtensions() {
+		return codecRegistry.getCodec(CodecRegistry.JSON_LINES, null).getExtensions();
+	}
 }
@@ -0,0 +1,158 @@
+package net.codingchallenge.tripgenerator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.concurrent.BlockingQueue;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import net.codingchallenge.tripgenerator.config.JacksonConfig;
+import net.codingchallenge.tripgenerator.enums.TripStatus;
+import net.codingchallenge.tripgenerator.exception.OutputFileException;
+import net.codingchallenge.tripgenerator.exception.TripGenerationException;
+import net.codingchallenge.tripgenerator.io.TripBatchWriter;
+import net.codingchallenge.tripgenerator.metrics.PipelineMetrics;
+import net.codingchallenge.tripgenerator.model.Tap;
+import net.codingchallenge.tripgenerator.model.Taps;
+import net.codingchallenge.tripgenerator.model.Trip;
+
+/**
+ * The TapIngestionTaskTest class verifies the resident service with
+ * newline delimited taps.
+ * 
+ * @author Gihan Rajakaruna
+ *
+ */
+@ActiveProfiles("test")
+@SpringBootTest
+public class TapIngestionTaskTest {
+
+	@Autowired
+	private TapIngestionTask tapIngestionTask;
+
+	@Autowired
+	private JacksonConfig jacksonConfig;
+
+	@Autowired
+	private PipelineMetrics pipelineMetrics;
+
+	/**
+	 * Taps of tap-data-6.json are read one per line, and the trips are written in
+	 * batches of two trips
+	 * 
+	 * @throws IOException
+	 * @throws TripGenerationException
+	 * @throws OutputFileException
+	 */
+	@Test
+	void ingestTest() throws IOException, TripGenerationException, OutputFileException {
+		Taps taps = jacksonConfig.getTapsReader()
+				.readValue(Paths.get("src/main/resources/tests/input/tap-data-6.json").toFile());
+		StringBuilder tapLines = new StringBuilder();
+		for (Tap tap : taps.getTaps()) {
+			tapLines.append(jacksonConfig.getTapWriter().writeValueAsString(tap)).append('\n');
+		}
+
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		TripBatchWriter tripBatchWriter = new TripBatchWriter(outputStream, jacksonConfig.getTripWriter(), 2, 60000);
+		long tapCount = tapIngestionTask.ingest(
+				new ByteArrayInputStream(tapLines.toString().getBytes(StandardCharsets.UTF_8)), tripBatchWriter);
+		tripBatchWriter.close();
+		assertEquals(taps.getTaps().size(), tapCount);
+		assertEquals(9, tripBatchWriter.getTripCount());
+		assertEquals(5, tripBatchWriter.getBatchCount());
+
+		int[] statusCounts = new int[TripStatus.values().length];
+		String[] tripLines = new String(outputStream.toByteArray(), StandardCharsets.UTF_8).split("\n");
+		assertEquals(9, tripLines.length);
+		for (String tripLine : tripLines) {
+			assertEquals('{', tripLine.charAt(0));
+			Trip trip = jacksonConfig.getObjectMapper().readValue(tripLine, Trip.class);
+			statusCounts[trip.getStatus().ordinal()]++;
+		}
+		assertEquals(5, statusCounts[TripStatus.COMPLETED.ordinal()]);
+		assertEquals(2, statusCounts[TripStatus.CANCELLED.ordinal()]);
+		assertEquals(2, statusCounts[TripStatus.INCOMPLETE.ordinal()]);
+	}
+
+	/**
+	 * Journeys from a stop without a fare are skipped and the taps after them are
+	 * still matched
+	 * 
+	 * @throws IOException
+	 * @throws TripGenerationException
+	 * @throws OutputFileException
+	 */
+	@Test
+	void ingestWithoutFareTest() throws IOException, TripGenerationException, OutputFileException {
+		String tapLines = getTapLine(1, "13:00:00", "ON", "Stop9", "5500005555555559")
+				+ getTapLine(2, "13:05:00", "OFF", "Stop2", "5500005555555559")
+				+ getTapLine(3, "13:10:00", "ON", "Stop9", "4111111111111111")
+				+ getTapLine(4, "13:20:00", "ON", "Stop1", "5500005555555559")
+				+ getTapLine(5, "13:25:00", "OFF", "Stop2", "5500005555555559");
+		double failedJourneys = pipelineMetrics.getMeterRegistry().get("tripgenerator.journeys.failed").counter()
+				.count();
+
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		TripBatchWriter tripBatchWriter = new TripBatchWriter(outputStream, jacksonConfig.getTripWriter(), 2, 60000);
+		long tapCount = tapIngestionTask
+				.ingest(new ByteArrayInputStream(tapLines.getBytes(StandardCharsets.UTF_8)), tripBatchWriter);
+		tripBatchWriter.close();
+		assertEquals(5, tapCount);
+		assertEquals(1, tripBatchWriter.getTripCount());
+		assertEquals(failedJourneys + 2,
+				pipelineMetrics.getMeterRegistry().get("tripgenerator.journeys.failed").counter().count());
+
+		Trip trip = jacksonConfig.getObjectMapper()
+				.readValue(new String(outputStream.toByteArray(), StandardCharsets.UTF_8).trim(), Trip.class);
+		assertEquals(TripStatus.COMPLETED, trip.getStatus());
+		assertEquals("Stop1", trip.getFromStopId());
+	}
+
+	private static String getTapLine(long id, String time, String tapType, String stopId, String account) {
+		return "{\"id\":" + id + ",\"datetimeUTC\":\"22-01-2021 " + time + "\",\"tapType\":\"" + tapType
+				+ "\",\"stopId\":\"" + stopId + "\",\"companyId\":\"Company1\",\"busId\":\"Bus37\","
+				+ "\"primaryAccountNumber\":\"" + account + "\"}\n";
+	}
+
+	/**
+	 * A batch which isn't full is written when its latency runs out, while the
+	 * service waits for more taps
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+	void maxLatencyTest() throws Exception {
+		Taps taps = jacksonConfig.getTapsReader()
+				.readValue(Paths.get("src/main/resources/tests/input/tap-data-1.json").toFile());
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		TripBatchWriter tripBatchWriter = new TripBatchWriter(outputStream, jacksonConfig.getTripWriter(), 1000, 50);
+		BlockingQueue<Tap> queue = tapIngestionTask.start();
+		queue.addAll(taps.getTaps());
+		Thread consumer = new Thread(() -> {
+			try {
+				tapIngestionTask.consumeTaps(queue, tripBatchWriter);
+			} catch (TripGenerationException | OutputFileException e) {
+				throw new IllegalStateException(e);
+			}
+		});
+		consumer.start();
+		long deadline = System.currentTimeMillis() + 5000;
+		while (outputStream.size() == 0 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertEquals(1, new String(outputStream.toByteArray(), StandardCharsets.UTF_8).split("\n").length);
+		tapIngestionTask.stop();
+		consumer.join();
+		assertEquals(1, tripBatchWriter.getTripCount());
+		assertEquals(1, tripBatchWriter.getBatchCount());
+	}
+}
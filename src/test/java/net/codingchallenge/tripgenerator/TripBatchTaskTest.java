@@ -0,0 +1,114 @@
+package net.codingchallenge.tripgenerator;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import net.codingchallenge.tripgenerator.config.JacksonConfig;
+import net.codingchallenge.tripgenerator.model.BatchSummary;
+import net.codingchallenge.tripgenerator.model.TripFileSummary;
+
+/**
+ * The TripBatchTaskTest class verifies the batch mode with the sample input
+ * files.
+ * 
+ * @author Gihan Rajakaruna
+ *
+ */
+@ActiveProfiles("test")
+@SpringBootTest
+public class TripBatchTaskTest {
+
+	@Autowired
+	private TripBatchTask tripBatchTask;
+
+	@Autowired
+	private JacksonConfig jacksonConfig;
+
+	/**
+	 * Every sample input file in the input directory generates the same output as
+	 * the expected output file, and a file which isn't valid fails alone
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	void directoryTest() throws IOException {
+		Path inputDirectory = Files.createTempDirectory("batch-input");
+		Path outputDirectory = Files.createTempDirectory("batch-output");
+		for (int i = 1; i <= 6; i++) {
+			Files.copy(Paths.get("src/main/resources/tests/input/tap-data-" + i + ".json"),
+					inputDirectory.resolve("tap-data-" + i + ".json"));
+		}
+		Files.write(inputDirectory.resolve("tap-data-7.json"), "{\"taps\": [".getBytes(StandardCharsets.UTF_8));
+		Files.write(inputDirectory.resolve("readme.txt"), "Not a tap file".getBytes(StandardCharsets.UTF_8));
+
+		int threadCount = tripBatchTask.threadCount;
+		try {
+			tripBatchTask.threadCount = 3;
+			BatchSummary batchSummary = tripBatchTask.generateTrips(
+					Collections.singletonList(inputDirectory.toString()), outputDirectory.toString());
+			assertNotNull(batchSummary);
+			assertEquals(7, batchSummary.getFileCount());
+			assertEquals(1, batchSummary.getFailedFileCount());
+			assertEquals(20, batchSummary.getTripCount());
+			for (int i = 1; i <= 6; i++) {
+				TripFileSummary tripFileSummary = batchSummary.getFiles().get(i - 1);
+				assertEquals(inputDirectory.resolve("tap-data-" + i + ".json").toString(),
+						tripFileSummary.getInputFile());
+				assertNull(tripFileSummary.getError());
+				assertArrayEquals(Files.readAllBytes(Paths.get("src/main/resources/tests/output/trip-data-" + i + ".json")),
+						Files.readAllBytes(outputDirectory.resolve("tap-data-" + i + ".json")));
+			}
+			assertNotNull(batchSummary.getFiles().get(6).getError());
+
+			BatchSummary savedBatchSummary = jacksonConfig.getObjectMapper().readValue(
+					outputDirectory.resolve(TripBatchTask.SUMMARY_FILE_NAME).toFile(), BatchSummary.class);
+			assertEquals(batchSummary.getTripCount(), savedBatchSummary.getTripCount());
+			assertEquals(7, savedBatchSummary.getFiles().size());
+		} finally {
+			tripBatchTask.threadCount = threadCount;
+		}
+	}
+
+	/**
+	 * Glob patterns select the files to process, and the output extension changes
+	 * the data format of the output files
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	void globTest() throws IOException {
+		Path outputDirectory = Files.createTempDirectory("batch-output");
+		String outputExtension = tripBatchTask.outputExtension;
+		try {
+			tripBatchTask.outputExtension = "jsonl.gz";
+			BatchSummary batchSummary = tripBatchTask.generateTrips(
+					Arrays.asList("src/main/resources/tests/input/tap-data-[56].json",
+							"src/main/resources/tests/input/tap-data-6.json"),
+					outputDirectory.toString());
+			assertNotNull(batchSummary);
+			assertEquals(2, batchSummary.getFileCount());
+			assertEquals(0, batchSummary.getFailedFileCount());
+			assertEquals(13, batchSummary.getTripCount());
+			assertTrue(Files.exists(outputDirectory.resolve("tap-data-5.jsonl.gz")));
+			assertTrue(Files.exists(outputDirectory.resolve("tap-data-6.jsonl.gz")));
+		} finally {
+			tripBatchTask.outputExtension = outputExtension;
+		}
+	}
+}
@@ -0,0 +1,151 @@
+package net.codingchallenge.tripgenerator.codec;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+import net.codingchallenge.tripgenerator.config.JacksonConfig;
+import net.codingchallenge.tripgenerator.enums.TripStatus;
+import net.codingchallenge.tripgenerator.exception.InputFileException;
+import net.codingchallenge.tripgenerator.io.CompressedFiles;
+import net.codingchallenge.tripgenerator.model.Tap;
+import net.codingchallenge.tripgenerator.model.Taps;
+import net.codingchallenge.tripgenerator.model.Trip;
+import net.codingchallenge.tripgenerator.model.Trips;
+
+/**
+ * The CodecTestFiles class writes tap files and reads trip files in the format
+ * of a codec, so tests can run the codecs on their own input and check their
+ * output.
+ * 
+ * @author Gihan Rajakaruna
+ *
+ */
+public class CodecTestFiles {
+
+	private final JacksonConfig jacksonConfig;
+
+	private final CompressedFiles compressedFiles;
+
+	public CodecTestFiles(JacksonConfig jacksonConfig, CompressedFiles compressedFiles) {
+		this.jacksonConfig = jacksonConfig;
+		this.compressedFiles = compressedFiles;
+	}
+
+	/**
+	 * writeTaps method writes the taps into a tap file of the format of the
+	 * codec.
+	 * 
+	 * @param codec
+	 * @param taps
+	 * @param outputFilePath
+	 * @throws IOException
+	 */
+	public void writeTaps(Codec codec, List<Tap> taps, String outputFilePath) throws IOException {
+		try (OutputStream outputStream = new BufferedOutputStream(compressedFiles.newOutputStream(outputFilePath))) {
+			if (CodecRegistry.JSON_LINES.equals(codec.getName())) {
+				for (Tap tap : taps) {
+					outputStream.write(jacksonConfig.getTapWriter().writeValueAsBytes(tap));
+					outputStream.write('\n');
+				}
+			} else if (CodecRegistry.BINARY.equals(codec.getName())) {
+				writeTapRecords(taps, outputStream);
+			} else {
+				Taps tapsWrapper = new Taps();
+				tapsWrapper.setTaps(taps);
+				getObjectMapper(codec).writerFor(Taps.class).writeValue(outputStream, tapsWrapper);
+			}
+		}
+	}
+
+	/**
+	 * readTrips method reads the trips of a trip file of the format of the
+	 * codec.
+	 * 
+	 * @param codec
+	 * @param inputFilePath
+	 * @return list of trip's
+	 * @throws IOException
+	 * @throws InputFileException
+	 */
+	public List<Trip> readTrips(Codec codec, String inputFilePath) throws IOException, InputFileException {
+		try (InputStream inputStream = compressedFiles.newInputStream(inputFilePath)) {
+			if (CodecRegistry.JSON_LINES.equals(codec.getName())) {
+				List<Trip> trips = new ArrayList<Trip>();
+				try (MappingIterator<Trip> iterator = jacksonConfig.getObjectMapper().readerFor(Trip.class)
+						.readValues(inputStream)) {
+					while (iterator.hasNext()) {
+						trips.add(iterator.next());
+					}
+				}
+				return trips;
+			} else if (CodecRegistry.BINARY.equals(codec.getName())) {
+				return readTripRecords(inputStream);
+			}
+			Trips trips = getObjectMapper(codec).readerFor(Trips.class).readValue(inputStream);
+			return trips.getTrips();
+		}
+	}
+
+	private ObjectMapper getObjectMapper(Codec codec) {
+		if (CodecRegistry.SMILE.equals(codec.getName())) {
+			return jacksonConfig.createObjectMapper(new SmileFactory());
+		} else if (CodecRegistry.CBOR.equals(codec.getName())) {
+			return jacksonConfig.createObjectMapper(new CBORFactory());
+		}
+		return jacksonConfig.getObjectMapper();
+	}
+
+	private static void writeTapRecords(List<Tap> taps, OutputStream outputStream) throws IOException {
+		try (RecordCodec.RecordWriter recordWriter = new RecordCodec.RecordWriter(outputStream,
+				RecordCodec.TAP_FILE_MAGIC)) {
+			for (Tap tap : taps) {
+				DataOutputStream record = recordWriter.startRecord();
+				record.writeInt(tap.getId());
+				record.writeLong(tap.getDatetimeUTC() == null ? RecordCodec.NULL_VALUE
+						: tap.getDatetimeUTC().toEpochSecond());
+				record.writeByte(tap.getTapType() == null ? RecordCodec.NULL_ORDINAL : tap.getTapType().ordinal());
+				RecordCodec.writeString(record, tap.getStopId());
+				RecordCodec.writeString(record, tap.getCompanyId());
+				RecordCodec.writeString(record, tap.getBusId());
+				RecordCodec.writeString(record, tap.getPrimaryAccountNumber());
+				recordWriter.endRecord();
+			}
+		}
+	}
+
+	private static List<Trip> readTripRecords(InputStream inputStream) throws IOException, InputFileException {
+		List<Trip> trips = new ArrayList<Trip>();
+		try (RecordCodec.RecordReader recordReader = new RecordCodec.RecordReader(inputStream,
+				RecordCodec.TRIP_FILE_MAGIC)) {
+			ByteBuffer record;
+			while ((record = recordReader.next()) != null) {
+				Trip trip = new Trip();
+				trip.setStarted(RecordCodec.toZonedDateTime(record.getLong()));
+				trip.setFinished(RecordCodec.toZonedDateTime(record.getLong()));
+				long durationSecs = record.getLong();
+				trip.setDurationSecs(durationSecs == RecordCodec.NULL_VALUE ? null : durationSecs);
+				trip.setFromStopId(RecordCodec.getString(record));
+				trip.setToStopId(RecordCodec.getString(record));
+				trip.setChargeAmount(record.get() == 0 ? null : record.getDouble());
+				trip.setCompanyId(RecordCodec.getString(record));
+				trip.setBusId(RecordCodec.getString(record));
+				trip.setPrimaryAccountNumber(RecordCodec.getString(record));
+				byte status = record.get();
+				trip.setStatus(status == RecordCodec.NULL_ORDINAL ? null : TripStatus.values()[status]);
+				trips.add(trip);
+			}
+		}
+		return trips;
+	}
+}
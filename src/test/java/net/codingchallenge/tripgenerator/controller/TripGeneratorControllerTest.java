@@ -1,27 +1,54 @@
 package net.codingchallenge.tripgenerator.controller;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.text.ParseException;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
 
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.ActiveProfiles;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import net.codingchallenge.tripgenerator.codec.Codec;
+import net.codingchallenge.tripgenerator.codec.CodecRegistry;
+import net.codingchallenge.tripgenerator.codec.CodecTestFiles;
 import net.codingchallenge.tripgenerator.enums.TapType;
 import net.codingchallenge.tripgenerator.enums.TripStatus;
 import net.codingchallenge.tripgenerator.exception.InputFileException;
 import net.codingchallenge.tripgenerator.exception.OutputFileException;
 import net.codingchallenge.tripgenerator.exception.TripGenerationException;
+import net.codingchallenge.tripgenerator.generator.TapDataGenerator;
+import net.codingchallenge.tripgenerator.io.CompressedFiles;
+import net.codingchallenge.tripgenerator.io.TripCheckpoint;
+import net.codingchallenge.tripgenerator.io.TripFileWriter;
+import net.codingchallenge.tripgenerator.metrics.PipelineMetrics;
 import net.codingchallenge.tripgenerator.model.Tap;
+import net.codingchallenge.tripgenerator.model.TapBatch;
 import net.codingchallenge.tripgenerator.model.Trip;
+import net.codingchallenge.tripgenerator.store.TripCostStore;
 
 /**
  * The TripGeneratorControllerTest class performs integrated testing by
@@ -323,4 +350,483 @@ public class TripGeneratorControllerTest {
 		tripGeneratorController.writeTripsToOutputFile(trips, outputFile.getAbsolutePath());
 		assertTrue(outputFile.exists());
 	}
+
+	/**
+	 * Streaming the input files must generate the same trips as reading all the
+	 * taps first. Trips are generated when the OFF tap is read, so only the order
+	 * of the trips can be different.
+	 * 
+	 * @throws InputFileException
+	 * @throws TripGenerationException
+	 * @throws OutputFileException
+	 */
+	@Test
+	void streamTripsFromInputFileTest() throws InputFileException, TripGenerationException, OutputFileException {
+		for (int i = 1; i <= 6; i++) {
+			File inputFile = new File("src/main/resources/tests/input/tap-data-" + i + ".json");
+
+			List<Tap> taps = tripGeneratorController.readTapsFromInputFile(inputFile.getAbsolutePath());
+			List<String> expectedTrips = tripGeneratorController.generateTripsFromTaps(taps).stream()
+					.map(Trip::toString).sorted().collect(Collectors.toList());
+
+			List<Trip> streamedTrips = new ArrayList<Trip>();
+			long tapCount = tripGeneratorController.streamTripsFromInputFile(inputFile.getAbsolutePath(),
+					streamedTrips::add);
+			assertEquals(taps.size(), tapCount);
+			assertEquals(expectedTrips,
+					streamedTrips.stream().map(Trip::toString).sorted().collect(Collectors.toList()));
+		}
+	}
+
+	/**
+	 * A streaming run which fails after some checkpoints leaves the checkpoint
+	 * file. Running it again continues from the checkpoint and the output must be
+	 * the same as the output of a run without a failure.
+	 * 
+	 * @throws InputFileException
+	 * @throws TripGenerationException
+	 * @throws OutputFileException
+	 * @throws IOException
+	 */
+	@Test
+	void streamTripsWithCheckpointsTest()
+			throws InputFileException, TripGenerationException, OutputFileException, IOException {
+		Path directory = Files.createTempDirectory("checkpoint");
+		String inputFilePath = directory.resolve("tap-data.json").toString();
+		String expectedOutputFilePath = directory.resolve("trip-data-expected.json").toString();
+		String outputFilePath = directory.resolve("trip-data.json").toString();
+		Path checkpointFilePath = Paths.get(outputFilePath + TripGeneratorController.CHECKPOINT_FILE_EXTENTION);
+		new TapDataGenerator(42, 2000).writeTaps(inputFilePath, 20000,
+				tripGeneratorController.jacksonConfig.getTapWriter());
+		try {
+			tripGeneratorController.checkpointIntervalTaps = 1000;
+			assertEquals(20000,
+					tripGeneratorController.streamTripsWithCheckpoints(inputFilePath, expectedOutputFilePath));
+
+			// A tap which isn't valid JSON after the middle of the file fails the run
+			byte[] taps = Files.readAllBytes(Paths.get(inputFilePath));
+			String text = new String(taps, StandardCharsets.UTF_8);
+			byte[] corruptedTaps = taps.clone();
+			corruptedTaps[text.indexOf("\"ON\"", text.length() / 2)] = '#';
+			Files.write(Paths.get(inputFilePath), corruptedTaps);
+			assertThrows(InputFileException.class,
+					() -> tripGeneratorController.streamTripsWithCheckpoints(inputFilePath, outputFilePath));
+			assertTrue(Files.exists(checkpointFilePath));
+			assertTrue(TripCheckpoint.read(checkpointFilePath).getTapCount() >= 10000);
+
+			Files.write(Paths.get(inputFilePath), taps);
+			tripGeneratorController.streamTripsWithCheckpoints(inputFilePath, outputFilePath);
+		} finally {
+			tripGeneratorController.checkpointIntervalTaps = 0;
+		}
+		assertFalse(Files.exists(checkpointFilePath));
+		assertArrayEquals(Files.readAllBytes(Paths.get(expectedOutputFilePath)),
+				Files.readAllBytes(Paths.get(outputFilePath)));
+	}
+
+	/**
+	 * A run which fails after the output file was opened, here on a stop without
+	 * a fare, must not leave an output file which looks complete. Aborted writers
+	 * don't write the buffered trips.
+	 * 
+	 * @throws InputFileException
+	 * @throws TripGenerationException
+	 * @throws OutputFileException
+	 * @throws IOException
+	 */
+	@Test
+	void failedRunOutputTest() throws InputFileException, TripGenerationException, OutputFileException, IOException {
+		Path directory = Files.createTempDirectory("failed");
+		String inputFilePath = directory.resolve("tap-data.json").toString();
+		String taps = new String(Files.readAllBytes(Paths.get("src/main/resources/tests/input/tap-data-1.json")),
+				StandardCharsets.UTF_8);
+		Files.write(Paths.get(inputFilePath), taps.replace("\"Stop1\"", "\"Stop9\"").getBytes(StandardCharsets.UTF_8));
+
+		boolean streamingInput = tripGeneratorController.streamingInput;
+		try {
+			for (String extension : new String[] { "json", "jsonl", "bin" }) {
+				String outputFilePath = directory.resolve("trip-data." + extension).toString();
+				for (boolean streaming : new boolean[] { false, true }) {
+					tripGeneratorController.streamingInput = streaming;
+					assertThrows(TripGenerationException.class,
+							() -> tripGeneratorController.generateTrips(inputFilePath, outputFilePath));
+					assertFalse(Files.exists(Paths.get(outputFilePath)));
+				}
+			}
+			// The run fails before the first checkpoint, so it can't be continued
+			tripGeneratorController.streamingInput = true;
+			tripGeneratorController.checkpointIntervalTaps = 1000;
+			String outputFilePath = directory.resolve("trip-data-checkpoint.json").toString();
+			assertThrows(TripGenerationException.class,
+					() -> tripGeneratorController.generateTrips(inputFilePath, outputFilePath));
+			assertFalse(Files.exists(Paths.get(outputFilePath)));
+		} finally {
+			tripGeneratorController.streamingInput = streamingInput;
+			tripGeneratorController.checkpointIntervalTaps = 0;
+		}
+
+		Trip trip = tripGeneratorController
+				.generateTripsFromTaps(
+						tripGeneratorController.readTapsFromInputFile("src/main/resources/tests/input/tap-data-1.json"))
+				.get(0);
+		for (String extension : new String[] { "json", "jsonl", "bin" }) {
+			String outputFilePath = directory.resolve("trip-data-aborted." + extension).toString();
+			TripFileWriter tripFileWriter = tripGeneratorController.codecRegistry.getCodec(null, outputFilePath)
+					.createTripWriter(outputFilePath, true);
+			tripFileWriter.write(trip);
+			tripFileWriter.abort();
+			assertEquals(0, new File(outputFilePath).length());
+		}
+	}
+
+	/**
+	 * Compact output must contain the same trips as the pretty printed output
+	 * without the whitespace.
+	 * 
+	 * @throws InputFileException
+	 * @throws TripGenerationException
+	 * @throws OutputFileException
+	 * @throws IOException
+	 */
+	@Test
+	void writeTripsToOutputFileCompactTest()
+			throws InputFileException, TripGenerationException, OutputFileException, IOException {
+
+		File inputFile = new File("src/main/resources/tests/input/tap-data-6.json");
+		File prettyOutputFile = new File("src/main/resources/tests/output/trip-data-6-pretty.json");
+		File compactOutputFile = new File("src/main/resources/tests/output/trip-data-6-compact.json");
+
+		List<Tap> taps = tripGeneratorController.readTapsFromInputFile(inputFile.getAbsolutePath());
+		List<Trip> trips = tripGeneratorController.generateTripsFromTaps(taps);
+		tripGeneratorController.writeTripsToOutputFile(trips, prettyOutputFile.getAbsolutePath());
+		try {
+			tripGeneratorController.prettyOutput = false;
+			tripGeneratorController.writeTripsToOutputFile(trips, compactOutputFile.getAbsolutePath());
+		} finally {
+			tripGeneratorController.prettyOutput = true;
+		}
+
+		ObjectMapper mapper = new ObjectMapper();
+		JsonNode prettyTrips = mapper.readTree(prettyOutputFile);
+		JsonNode compactTrips = mapper.readTree(compactOutputFile);
+		assertEquals(9, compactTrips.get("trips").size());
+		assertEquals(prettyTrips, compactTrips);
+		assertTrue(compactOutputFile.length() < prettyOutputFile.length());
+	}
+
+	/**
+	 * Generating trips in parallel must return the same trips in the same order as
+	 * generating them on a single thread.
+	 * 
+	 * @throws TripGenerationException
+	 */
+	@Test
+	void generateTripsInParallelTest() throws TripGenerationException {
+		String[] stops = { "Stop1", "Stop2", "Stop3" };
+		List<Tap> taps = new ArrayList<Tap>();
+		ZonedDateTime time = ZonedDateTime.parse("22-01-2021 06:00:00", formatter);
+		int id = 1;
+		for (int journey = 0; journey < 3; journey++) {
+			for (int customer = 0; customer < 500; customer++) {
+				String busId = "Bus" + (customer % 7);
+				String primaryAccountNumber = String.valueOf(5500005555550000L + customer);
+				taps.add(new Tap(id++, time.plusSeconds(customer), TapType.ON, stops[customer % 3], "Company1", busId,
+						primaryAccountNumber));
+				// Every fifth customer forgets to tap OFF on the second journey
+				if (journey != 1 || customer % 5 != 0) {
+					taps.add(new Tap(id++, time.plusSeconds(600 + customer), TapType.OFF,
+							stops[(customer + journey) % 3], "Company1", busId, primaryAccountNumber));
+				}
+			}
+			time = time.plusHours(1);
+		}
+
+		List<Trip> expectedTrips = tripGeneratorController.generateTripsFromTaps(taps);
+		assertEquals(1500, expectedTrips.size());
+
+		ForkJoinPool forkJoinPool = tripGeneratorController.forkJoinPool;
+		try {
+			tripGeneratorController.forkJoinPool = new ForkJoinPool(4);
+			List<Trip> trips = tripGeneratorController.generateTripsInParallel(taps);
+			assertEquals(expectedTrips.stream().map(Trip::toString).collect(Collectors.toList()),
+					trips.stream().map(Trip::toString).collect(Collectors.toList()));
+		} finally {
+			tripGeneratorController.forkJoinPool.shutdown();
+			tripGeneratorController.forkJoinPool = forkJoinPool;
+		}
+	}
+
+	/**
+	 * Trips generated from the tap batch of each input file must be the same as
+	 * the trips generated from the Tap objects, on a single thread and in
+	 * parallel.
+	 * 
+	 * @throws InputFileException
+	 * @throws TripGenerationException
+	 */
+	@Test
+	void generateTripsFromTapBatchTest() throws InputFileException, TripGenerationException {
+		ForkJoinPool forkJoinPool = tripGeneratorController.forkJoinPool;
+		int parallelThreshold = tripGeneratorController.parallelThreshold;
+		try {
+			for (int i = 1; i <= 6; i++) {
+				String inputFilePath = new File("src/main/resources/tests/input/tap-data-" + i + ".json")
+						.getAbsolutePath();
+				List<String> expectedTrips = tripGeneratorController
+						.generateTripsFromTaps(tripGeneratorController.readTapsFromInputFile(inputFilePath)).stream()
+						.map(Trip::toString).collect(Collectors.toList());
+
+				TapBatch tapBatch = tripGeneratorController.tapStreamReader.readTapBatch(inputFilePath,
+						TripCostStore.getFareIndex());
+				tripGeneratorController.forkJoinPool = null;
+				assertEquals(expectedTrips, tripGeneratorController.generateTripsFromTapBatch(tapBatch).stream()
+						.map(Trip::toString).collect(Collectors.toList()));
+
+				tripGeneratorController.forkJoinPool = new ForkJoinPool(4);
+				tripGeneratorController.parallelThreshold = 1;
+				assertEquals(expectedTrips, tripGeneratorController.generateTripsFromTapBatch(tapBatch).stream()
+						.map(Trip::toString).collect(Collectors.toList()));
+				tripGeneratorController.forkJoinPool.shutdown();
+				tripGeneratorController.parallelThreshold = parallelThreshold;
+			}
+		} finally {
+			tripGeneratorController.forkJoinPool = forkJoinPool;
+			tripGeneratorController.parallelThreshold = parallelThreshold;
+		}
+	}
+
+	/**
+	 * Reading the input file in chunks on the fork-join pool must give the same
+	 * tap batch as reading it on a single thread, and matching the accounts in
+	 * parallel must give the same trips.
+	 * 
+	 * @throws InputFileException
+	 * @throws TripGenerationException
+	 * @throws OutputFileException
+	 * @throws IOException
+	 */
+	@Test
+	void readTapBatchInParallelTest()
+			throws InputFileException, TripGenerationException, OutputFileException, IOException {
+		String inputFilePath = Files.createTempDirectory("chunks").resolve("tap-data.json").toString();
+		new TapDataGenerator(42, 2000).writeTaps(inputFilePath, 20000,
+				tripGeneratorController.jacksonConfig.getTapWriter());
+		TapBatch expectedTapBatch = tripGeneratorController.tapStreamReader.readTapBatch(inputFilePath,
+				TripCostStore.getFareIndex());
+
+		ForkJoinPool forkJoinPool = tripGeneratorController.forkJoinPool;
+		try {
+			tripGeneratorController.forkJoinPool = null;
+			List<String> expectedTrips = tripGeneratorController.generateTripsFromTapBatch(expectedTapBatch).stream()
+					.map(Trip::toString).collect(Collectors.toList());
+
+			tripGeneratorController.forkJoinPool = new ForkJoinPool(4);
+			for (int chunkSize : new int[] { 1000, 65536, Integer.MAX_VALUE }) {
+				TapBatch tapBatch = tripGeneratorController.tapStreamReader.readTapBatch(inputFilePath,
+						TripCostStore.getFareIndex(), tripGeneratorController.forkJoinPool, chunkSize);
+				assertEquals(expectedTapBatch.size(), tapBatch.size());
+				for (int row = 0; row < tapBatch.size(); row++) {
+					assertEquals(expectedTapBatch.getTap(row).toString(), tapBatch.getTap(row).toString());
+				}
+				assertEquals(expectedTrips, tripGeneratorController.generateTripsFromTapBatch(tapBatch).stream()
+						.map(Trip::toString).collect(Collectors.toList()));
+			}
+
+			// JSON Lines files are split at line ends
+			String lineFilePath = inputFilePath.replace(".json", ".jsonl");
+			createCodecTestFiles().writeTaps(
+					tripGeneratorController.codecRegistry.getCodec(CodecRegistry.JSON_LINES, lineFilePath),
+					tripGeneratorController.readTapsFromInputFile(inputFilePath), lineFilePath);
+			for (int chunkSize : new int[] { 1000, 65536, Integer.MAX_VALUE }) {
+				TapBatch tapBatch = tripGeneratorController.tapStreamReader.readTapLineBatch(lineFilePath,
+						TripCostStore.getFareIndex(), tripGeneratorController.forkJoinPool, chunkSize);
+				assertEquals(expectedTapBatch.size(), tapBatch.size());
+				for (int row = 0; row < tapBatch.size(); row++) {
+					assertEquals(expectedTapBatch.getTap(row).toString(), tapBatch.getTap(row).toString());
+				}
+			}
+		} finally {
+			tripGeneratorController.forkJoinPool.shutdown();
+			tripGeneratorController.forkJoinPool = forkJoinPool;
+		}
+	}
+
+	/**
+	 * Taps written in each data format must generate the same trips as the JSON
+	 * input file, and the trips written in each data format must read back the
+	 * same. Binary files are smaller than the JSON file. JSON Lines files have
+	 * one tap or trip on each line.
+	 * 
+	 * @throws InputFileException
+	 * @throws TripGenerationException
+	 * @throws OutputFileException
+	 * @throws IOException
+	 */
+	@Test
+	void codecTest() throws InputFileException, TripGenerationException, OutputFileException, IOException {
+		Path directory = Files.createTempDirectory("codecs");
+		String inputFilePath = directory.resolve("tap-data.json").toString();
+		new TapDataGenerator(42, 2000).writeTaps(inputFilePath, 20000,
+				tripGeneratorController.jacksonConfig.getTapWriter());
+		List<Tap> taps = tripGeneratorController.readTapsFromInputFile(inputFilePath);
+		List<String> expectedTrips = tripGeneratorController.generateTripsFromTaps(taps).stream()
+				.map(Trip::toString).collect(Collectors.toList());
+		CodecTestFiles codecTestFiles = createCodecTestFiles();
+
+		for (String extension : new String[] { "json", "jsonl", "ndjson", "smile", "cbor", "bin" }) {
+			Codec codec = tripGeneratorController.codecRegistry.getCodec(null, "file." + extension);
+			String codecInputFilePath = directory.resolve("tap-data-codec." + extension).toString();
+			String codecOutputFilePath = directory.resolve("trip-data-codec." + extension).toString();
+			codecTestFiles.writeTaps(codec, taps, codecInputFilePath);
+			if (!CodecRegistry.JSON.equals(codec.getName()) && !CodecRegistry.JSON_LINES.equals(codec.getName())) {
+				assertTrue(new File(codecInputFilePath).length() < new File(inputFilePath).length());
+			}
+
+			tripGeneratorController.generateTripsFromTaps(codecInputFilePath, codecOutputFilePath);
+			assertEquals(expectedTrips, codecTestFiles.readTrips(codec, codecOutputFilePath).stream()
+					.map(Trip::toString).collect(Collectors.toList()));
+
+			List<Trip> streamedTrips = new ArrayList<Trip>();
+			assertEquals(taps.size(), tripGeneratorController.streamTripsFromInputFile(codecInputFilePath,
+					streamedTrips::add));
+			assertEquals(expectedTrips.stream().sorted().collect(Collectors.toList()),
+					streamedTrips.stream().map(Trip::toString).sorted().collect(Collectors.toList()));
+		}
+	}
+
+	/**
+	 * Taps read from gzip and Zstandard compressed files, with and without the
+	 * decompression thread, must generate the same trips as the uncompressed
+	 * file, and compressed trip files must read back the same trips.
+	 * 
+	 * @throws InputFileException
+	 * @throws TripGenerationException
+	 * @throws OutputFileException
+	 * @throws IOException
+	 */
+	@Test
+	void compressedFilesTest() throws InputFileException, TripGenerationException, OutputFileException, IOException {
+		Path directory = Files.createTempDirectory("compressed");
+		String inputFilePath = directory.resolve("tap-data.json").toString();
+		new TapDataGenerator(42, 2000).writeTaps(inputFilePath, 20000,
+				tripGeneratorController.jacksonConfig.getTapWriter());
+		List<Tap> taps = tripGeneratorController.readTapsFromInputFile(inputFilePath);
+		List<String> expectedTrips = tripGeneratorController.generateTripsFromTaps(taps).stream()
+				.map(Trip::toString).collect(Collectors.toList());
+		CodecTestFiles codecTestFiles = createCodecTestFiles();
+
+		CompressedFiles compressedFiles = tripGeneratorController.compressedFiles;
+		boolean decompressionThread = compressedFiles.isDecompressionThread();
+		try {
+			for (String fileName : new String[] { "file.json.gz", "file.jsonl.zst", "file.bin.gz", "file.cbor.zst" }) {
+				Codec codec = tripGeneratorController.codecRegistry.getCodec(null, fileName);
+				String compressedInputFilePath = directory.resolve("tap-data-" + fileName).toString();
+				String compressedOutputFilePath = directory.resolve("trip-data-" + fileName).toString();
+				codecTestFiles.writeTaps(codec, taps, compressedInputFilePath);
+				assertTrue(CompressedFiles.isCompressed(compressedInputFilePath));
+				assertTrue(new File(compressedInputFilePath).length() < new File(inputFilePath).length() / 4);
+
+				for (boolean thread : new boolean[] { false, true }) {
+					compressedFiles.setDecompressionThread(thread);
+					tripGeneratorController.generateTripsFromTaps(compressedInputFilePath, compressedOutputFilePath);
+					assertEquals(expectedTrips, codecTestFiles.readTrips(codec, compressedOutputFilePath).stream()
+							.map(Trip::toString).collect(Collectors.toList()));
+
+					List<Trip> streamedTrips = new ArrayList<Trip>();
+					assertEquals(taps.size(), tripGeneratorController.streamTripsFromInputFile(compressedInputFilePath,
+							streamedTrips::add));
+					assertEquals(expectedTrips.stream().sorted().collect(Collectors.toList()),
+							streamedTrips.stream().map(Trip::toString).sorted().collect(Collectors.toList()));
+				}
+			}
+		} finally {
+			compressedFiles.setDecompressionThread(decompressionThread);
+		}
+	}
+
+	/**
+	 * Each run must add its stage times, taps, trips by status, fare lookups and
+	 * bytes to the metrics, and the summary must have the meters and rates.
+	 * 
+	 * @throws InputFileException
+	 * @throws TripGenerationException
+	 * @throws OutputFileException
+	 * @throws IOException
+	 */
+	@Test
+	void metricsTest() throws InputFileException, TripGenerationException, OutputFileException, IOException {
+		PipelineMetrics pipelineMetrics = tripGeneratorController.pipelineMetrics;
+		MeterRegistry meterRegistry = pipelineMetrics.getMeterRegistry();
+		Path directory = Files.createTempDirectory("metrics");
+		String inputFilePath = "src/main/resources/tests/input/tap-data-6.json";
+		String outputFilePath = directory.resolve("trip-data-6.json").toString();
+		long tapCount = tripGeneratorController.readTapsFromInputFile(inputFilePath).size();
+
+		for (boolean streaming : new boolean[] { false, true }) {
+			double taps = getCount(meterRegistry, "tripgenerator.taps");
+			double completedTrips = getCount(meterRegistry, "tripgenerator.trips", "status", "COMPLETED");
+			double cancelledTrips = getCount(meterRegistry, "tripgenerator.trips", "status", "CANCELLED");
+			double incompleteTrips = getCount(meterRegistry, "tripgenerator.trips", "status", "INCOMPLETE");
+			double maxFareHits = getCount(meterRegistry, "tripgenerator.fare.lookups", "fare", "max", "result", "hit");
+			double pairFareHits = getCount(meterRegistry, "tripgenerator.fare.lookups", "fare", "pair", "result",
+					"hit");
+			double bytesWritten = getCount(meterRegistry, "tripgenerator.bytes.written");
+			String[] stages = streaming ? new String[] { PipelineMetrics.STAGE_STREAM }
+					: new String[] { PipelineMetrics.STAGE_READ, PipelineMetrics.STAGE_MATCH,
+							PipelineMetrics.STAGE_PRICE, PipelineMetrics.STAGE_WRITE };
+			long[] stageCounts = new long[stages.length];
+			for (int i = 0; i < stages.length; i++) {
+				Timer timer = meterRegistry.find("tripgenerator.stage").tag("stage", stages[i]).timer();
+				stageCounts[i] = timer != null ? timer.count() : 0;
+			}
+
+			boolean streamingInput = tripGeneratorController.streamingInput;
+			try {
+				tripGeneratorController.streamingInput = streaming;
+				tripGeneratorController.generateTrips(inputFilePath, outputFilePath);
+			} finally {
+				tripGeneratorController.streamingInput = streamingInput;
+			}
+
+			assertEquals(taps + tapCount, getCount(meterRegistry, "tripgenerator.taps"));
+			assertEquals(completedTrips + 5, getCount(meterRegistry, "tripgenerator.trips", "status", "COMPLETED"));
+			assertEquals(cancelledTrips + 2, getCount(meterRegistry, "tripgenerator.trips", "status", "CANCELLED"));
+			assertEquals(incompleteTrips + 2,
+					getCount(meterRegistry, "tripgenerator.trips", "status", "INCOMPLETE"));
+			assertEquals(maxFareHits + 2,
+					getCount(meterRegistry, "tripgenerator.fare.lookups", "fare", "max", "result", "hit"));
+			assertEquals(pairFareHits + 5,
+					getCount(meterRegistry, "tripgenerator.fare.lookups", "fare", "pair", "result", "hit"));
+			assertEquals(bytesWritten + new File(outputFilePath).length(),
+					getCount(meterRegistry, "tripgenerator.bytes.written"));
+			for (int i = 0; i < stages.length; i++) {
+				assertEquals(stageCounts[i] + 1,
+						meterRegistry.get("tripgenerator.stage").tag("stage", stages[i]).timer().count());
+			}
+		}
+
+		String metricsFilePath = directory.resolve("metrics.json").toString();
+		String metricsFile = pipelineMetrics.getMetricsFile();
+		try {
+			pipelineMetrics.setMetricsFile(metricsFilePath);
+			pipelineMetrics.writeSummary();
+		} finally {
+			pipelineMetrics.setMetricsFile(metricsFile);
+		}
+		JsonNode summary = new ObjectMapper().readTree(new File(metricsFilePath));
+		assertTrue(summary.get("tapsPerSecond").asDouble() > 0);
+		assertTrue(summary.get("tripsPerSecond").get("COMPLETED").asDouble() > 0);
+		assertTrue(summary.get("meters").get("tripgenerator.stage{stage=read}").get("count").asLong() > 0);
+		assertEquals(0, summary.get("meters").get("tripgenerator.journeys.open").asDouble());
+		double pairFareHitRatio = summary.get("fareHitRatio").get("pair").asDouble();
+		assertTrue(pairFareHitRatio > 0 && pairFareHitRatio <= 1);
+	}
+
+	private CodecTestFiles createCodecTestFiles() {
+		return new CodecTestFiles(tripGeneratorController.jacksonConfig, tripGeneratorController.compressedFiles);
+	}
+
+	private static double getCount(MeterRegistry meterRegistry, String name, String... tags) {
+		return meterRegistry.get(name).tags(tags).counter().count();
+	}
 }
@@ -0,0 +1,109 @@
+package net.codingchallenge.tripgenerator.generator;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import net.codingchallenge.tripgenerator.config.JacksonConfig;
+import net.codingchallenge.tripgenerator.exception.OutputFileException;
+import net.codingchallenge.tripgenerator.model.Tap;
+import net.codingchallenge.tripgenerator.model.Taps;
+import net.codingchallenge.tripgenerator.service.TripGeneratorService;
+
+/**
+ * The TapDataGeneratorTest class verifies the synthetic tap data files.
+ * 
+ * @author Gihan Rajakaruna
+ *
+ */
+@ActiveProfiles("test")
+@SpringBootTest
+public class TapDataGeneratorTest {
+
+	@Autowired
+	private JacksonConfig jacksonConfig;
+
+	@Autowired
+	private TripGeneratorService tripGeneratorService;
+
+	@TempDir
+	Path tempDirectory;
+
+	/**
+	 * The same seed generates the same file on any number of threads, and the
+	 * file has ON taps with and without OFF taps, including cancelled journeys.
+	 * 
+	 * @throws OutputFileException
+	 * @throws IOException
+	 */
+	@Test
+	void writeTapsTest() throws OutputFileException, IOException {
+		Path singleThreadFile = tempDirectory.resolve("taps-1.json");
+		Path multiThreadFile = tempDirectory.resolve("taps-4.json");
+		createTapDataGenerator().writeTaps(singleThreadFile.toString(), 5500, jacksonConfig.getTapWriter(), 1);
+		createTapDataGenerator().writeTaps(multiThreadFile.toString(), 5500, jacksonConfig.getTapWriter(), 4);
+		assertArrayEquals(Files.readAllBytes(singleThreadFile), Files.readAllBytes(multiThreadFile));
+
+		Taps taps = jacksonConfig.getTapsReader().readValue(singleThreadFile.toFile());
+		List<Tap> tapList = taps.getTaps();
+		assertEquals(5500, tapList.size());
+		for (int i = 0; i < tapList.size(); i++) {
+			assertEquals(i + 1, tapList.get(i).getId());
+		}
+
+		int incompleteCount = 0;
+		int cancelledCount = 0;
+		int completedCount = 0;
+		for (Map.Entry<Tap, Tap> entry : tripGeneratorService.getTapOffs(tapList).entrySet()) {
+			if (entry.getValue() == null) {
+				incompleteCount++;
+			} else if (entry.getKey().getStopId().equals(entry.getValue().getStopId())) {
+				cancelledCount++;
+			} else {
+				completedCount++;
+			}
+		}
+		assertTrue(incompleteCount > 0);
+		assertTrue(cancelledCount > 0);
+		assertTrue(completedCount > 0);
+	}
+
+	/**
+	 * Bus clocks are skewed by a fixed number of seconds, so taps are no longer
+	 * in time order
+	 */
+	@Test
+	void clockSkewTest() {
+		TapDataGenerator tapDataGenerator = createTapDataGenerator();
+		tapDataGenerator.setClockSkewSeconds(30);
+		boolean outOfOrder = false;
+		List<Tap> taps = tapDataGenerator.generateTaps(2000);
+		for (int i = 1; i < taps.size(); i++) {
+			outOfOrder |= taps.get(i).getDatetimeUTC().isBefore(taps.get(i - 1).getDatetimeUTC());
+		}
+		assertTrue(outOfOrder);
+		for (int bus = 0; bus < 40; bus++) {
+			int clockSkew = tapDataGenerator.getClockSkew(0, bus);
+			assertTrue(clockSkew >= -30 && clockSkew <= 30);
+			assertEquals(clockSkew, tapDataGenerator.getClockSkew(0, bus));
+		}
+	}
+
+	private TapDataGenerator createTapDataGenerator() {
+		TapDataGenerator tapDataGenerator = new TapDataGenerator(42, 100000);
+		tapDataGenerator.chunkSize = 1000;
+		return tapDataGenerator;
+	}
+}
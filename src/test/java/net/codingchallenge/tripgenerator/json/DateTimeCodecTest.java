@@ -0,0 +1,108 @@
+package net.codingchallenge.tripgenerator.json;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.fasterxml.jackson.databind.JsonMappingException;
+
+import net.codingchallenge.tripgenerator.config.JacksonConfig;
+import net.codingchallenge.tripgenerator.enums.TripStatus;
+import net.codingchallenge.tripgenerator.model.Tap;
+import net.codingchallenge.tripgenerator.model.Trip;
+
+/**
+ * The DateTimeCodecTest class verifies the fixed width date time parsing and
+ * formatting gives the same results as DateTimeFormatter.
+ * 
+ * @author Gihan Rajakaruna
+ *
+ */
+@ActiveProfiles("test")
+@SpringBootTest
+public class DateTimeCodecTest {
+
+	@Autowired
+	private JacksonConfig jacksonConfig;
+
+	DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm:ss").withZone(DateTimeCodec.UTC);
+
+	/**
+	 * Parse and format random date times between 1900 and 2100
+	 */
+	@Test
+	void parseAndFormatTest() {
+		Random random = new Random(42);
+		char[] buffer = new char[DateTimeCodec.LENGTH];
+		long from = ZonedDateTime.parse("01-01-1900 00:00:00", formatter).toEpochSecond();
+		long to = ZonedDateTime.parse("31-12-2100 23:59:59", formatter).toEpochSecond();
+		for (int i = 0; i < 100000; i++) {
+			long epochSecond = from + (long) (random.nextDouble() * (to - from));
+			ZonedDateTime expected = ZonedDateTime.ofInstant(java.time.Instant.ofEpochSecond(epochSecond),
+					DateTimeCodec.UTC);
+			String text = formatter.format(expected);
+
+			assertEquals(epochSecond, DateTimeCodec.parseEpochSecond(text.toCharArray(), 0, text.length()));
+			assertEquals(expected, DateTimeCodec.toZonedDateTime(epochSecond));
+			assertEquals(DateTimeCodec.LENGTH, DateTimeCodec.format(expected, buffer));
+			assertEquals(text, new String(buffer));
+		}
+	}
+
+	/**
+	 * Text which isn't a valid fixed width date time isn't parsed by the fast path
+	 */
+	@Test
+	void parseInvalidTest() {
+		for (String text : new String[] { "29-02-2021 13:00:00", "31-04-2021 13:00:00", "22-13-2021 13:00:00",
+				"22-01-2021 24:00:00", "22-01-2021 13:60:00", "22/01/2021 13:00:00", "22-01-2021 13:00",
+				"2a-01-2021 13:00:00", "22-01-2021 -1:00:00" }) {
+			assertEquals(DateTimeCodec.INVALID, DateTimeCodec.parseEpochSecond(text.toCharArray(), 0, text.length()));
+		}
+		// Leap day is valid
+		assertEquals(ZonedDateTime.parse("29-02-2020 13:00:00", formatter).toEpochSecond(),
+				DateTimeCodec.parseEpochSecond("29-02-2020 13:00:00"));
+	}
+
+	/**
+	 * Tap time read by Jackson is the same as the time parsed by
+	 * DateTimeFormatter
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	void deserializeTapTest() throws IOException {
+		Tap tap = jacksonConfig.getTapReader()
+				.readValue("{\"id\":1,\"datetimeUTC\":\"22-01-2021 13:05:30\",\"tapType\":\"ON\"}");
+		assertEquals(ZonedDateTime.parse("22-01-2021 13:05:30", formatter), tap.getDatetimeUTC());
+
+		assertThrows(JsonMappingException.class, () -> jacksonConfig.getTapReader()
+				.readValue("{\"id\":1,\"datetimeUTC\":\"22-01-2021 1:05:30\",\"tapType\":\"ON\"}"));
+	}
+
+	/**
+	 * Trip times are written in dd-MM-yyyy HH:mm:ss format and null times are
+	 * written as null
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	void serializeTripTest() throws IOException {
+		Trip trip = new Trip();
+		trip.setStarted(ZonedDateTime.parse("22-01-2021 13:05:30", formatter));
+		trip.setStatus(TripStatus.INCOMPLETE);
+		String json = jacksonConfig.getTripWriter().writeValueAsString(trip);
+		assertEquals("{\"started\":\"22-01-2021 13:05:30\",\"finished\":null,\"durationSecs\":null,"
+				+ "\"fromStopId\":null,\"toStopId\":null,\"chargeAmount\":null,\"companyId\":null,\"busId\":null,"
+				+ "\"primaryAccountNumber\":null,\"status\":\"INCOMPLETE\"}", json);
+	}
+}
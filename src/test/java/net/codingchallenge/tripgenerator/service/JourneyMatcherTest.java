@@ -0,0 +1,175 @@
+package net.codingchallenge.tripgenerator.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import net.codingchallenge.tripgenerator.enums.TapType;
+import net.codingchallenge.tripgenerator.exception.OutputFileException;
+import net.codingchallenge.tripgenerator.exception.TripGenerationException;
+import net.codingchallenge.tripgenerator.generator.TapDataGenerator;
+import net.codingchallenge.tripgenerator.json.DateTimeCodec;
+import net.codingchallenge.tripgenerator.model.Tap;
+import net.codingchallenge.tripgenerator.store.OpenJourneyStore;
+
+/**
+ * The JourneyMatcherTest class verifies that open journeys are closed by the
+ * event time watermark, with and without the off-heap open journey store.
+ * 
+ * @author Gihan Rajakaruna
+ *
+ */
+public class JourneyMatcherTest {
+
+	final static long START = DateTimeCodec.parseEpochSecond("22-01-2021 13:00:00");
+
+	private final List<Tap[]> journeys = new ArrayList<Tap[]>();
+
+	/**
+	 * Without the maximum journey length, journeys are open until the end of the
+	 * input
+	 * 
+	 * @throws TripGenerationException
+	 * @throws OutputFileException
+	 */
+	@Test
+	void noWatermarkTest() throws TripGenerationException, OutputFileException {
+		JourneyMatcher journeyMatcher = new JourneyMatcher((tapOn, tapOff) -> journeys.add(new Tap[] { tapOn, tapOff }));
+		journeyMatcher.accept(createTap(1, 0, TapType.ON, "5500005555555559"));
+		journeyMatcher.accept(createTap(2, 100000, TapType.ON, "4111111111111111"));
+		assertEquals(JourneyMatcher.NO_WATERMARK, journeyMatcher.getWatermark());
+		assertEquals(2, journeyMatcher.getOpenJourneyCount());
+		assertEquals(0, journeys.size());
+		journeyMatcher.complete();
+		assertEquals(2, journeys.size());
+	}
+
+	/**
+	 * ON taps older than the watermark minus the maximum journey length are
+	 * closed without an OFF tap, and taps of closed journeys are late
+	 * 
+	 * @throws TripGenerationException
+	 * @throws OutputFileException
+	 */
+	@Test
+	void watermarkTest() throws TripGenerationException, OutputFileException {
+		JourneyMatcher journeyMatcher = new JourneyMatcher((tapOn, tapOff) -> journeys.add(new Tap[] { tapOn, tapOff }),
+				600, 60);
+		Tap tapOnA = createTap(1, 0, TapType.ON, "5500005555555559");
+		Tap tapOnB = createTap(2, 100, TapType.ON, "4111111111111111");
+		Tap tapOffB = createTap(3, 200, TapType.OFF, "4111111111111111");
+		journeyMatcher.accept(tapOnA);
+		journeyMatcher.accept(tapOnB);
+		journeyMatcher.accept(tapOffB);
+		assertEquals(START + 200 - 60, journeyMatcher.getWatermark());
+		assertEquals(1, journeys.size());
+		assertSame(tapOffB, journeys.get(0)[1]);
+
+		// Watermark moves to 640 seconds, so journeys started before 40 seconds
+		// are closed
+		journeyMatcher.accept(createTap(4, 700, TapType.ON, "122000000000003"));
+		assertEquals(2, journeys.size());
+		assertSame(tapOnA, journeys.get(1)[0]);
+		assertNull(journeys.get(1)[1]);
+		assertEquals(1, journeyMatcher.getOpenJourneyCount());
+		assertEquals(1, journeyMatcher.getExpiredJourneyCount());
+
+		// OFF tap of the closed journey is ignored and a late ON tap is closed at
+		// once
+		journeyMatcher.accept(createTap(5, 10, TapType.OFF, "5500005555555559"));
+		assertEquals(2, journeys.size());
+		Tap lateTapOn = createTap(6, 5, TapType.ON, "6011000400000000");
+		journeyMatcher.accept(lateTapOn);
+		assertEquals(3, journeys.size());
+		assertSame(lateTapOn, journeys.get(2)[0]);
+		assertNull(journeys.get(2)[1]);
+		assertEquals(2, journeyMatcher.getLateTapCount());
+
+		// Taps within the allowed lateness are matched
+		Tap tapOffLate = createTap(7, 690, TapType.OFF, "122000000000003");
+		journeyMatcher.accept(createTap(8, 650, TapType.ON, "122000000000003"));
+		journeyMatcher.accept(tapOffLate);
+		assertEquals(4, journeys.size());
+		assertSame(tapOffLate, journeys.get(3)[1]);
+		assertEquals(1, journeyMatcher.getOpenJourneyCount());
+	}
+
+	/**
+	 * Each OFF tap closes one ON tap, and an ON tap followed by another ON tap is
+	 * closed without an OFF tap at once, with and without the off-heap store
+	 * 
+	 * @throws TripGenerationException
+	 * @throws OutputFileException
+	 */
+	@Test
+	void tapOffUsedOnceTest() throws TripGenerationException, OutputFileException {
+		for (OpenJourneyStore openJourneyStore : new OpenJourneyStore[] { null, new OpenJourneyStore(16) }) {
+			List<String> actualJourneys = new ArrayList<String>();
+			JourneyMatcher journeyMatcher = new JourneyMatcher((tapOn, tapOff) -> actualJourneys
+					.add(tapOn.getId() + " " + (tapOff == null ? null : tapOff.getId())), 0, 0, openJourneyStore);
+			journeyMatcher.accept(createTap(1, 0, TapType.ON, "5500005555555559"));
+			journeyMatcher.accept(createTap(2, 10, TapType.ON, "5500005555555559"));
+			assertEquals(1, journeyMatcher.getOpenJourneyCount());
+			journeyMatcher.accept(createTap(3, 20, TapType.OFF, "5500005555555559"));
+			journeyMatcher.accept(createTap(4, 30, TapType.OFF, "5500005555555559"));
+			journeyMatcher.accept(createTap(5, 40, TapType.ON, "5500005555555559"));
+			journeyMatcher.accept(createTap(6, 40, TapType.OFF, "5500005555555559"));
+			journeyMatcher.accept(createTap(7, 50, TapType.OFF, "5500005555555559"));
+			journeyMatcher.complete();
+			assertEquals(Arrays.asList("1 null", "2 3", "5 7"), actualJourneys);
+		}
+	}
+
+	/**
+	 * Open journeys kept in the off-heap store are matched and closed the same as
+	 * open journeys kept in Tap objects
+	 * 
+	 * @throws TripGenerationException
+	 * @throws OutputFileException
+	 */
+	@Test
+	void openJourneyStoreTest() throws TripGenerationException, OutputFileException {
+		TapDataGenerator tapDataGenerator = new TapDataGenerator(42, 2000);
+		tapDataGenerator.setClockSkewSeconds(30);
+		List<Tap> taps = tapDataGenerator.generateTaps(20000);
+		for (long maxJourneySeconds : new long[] { 0, 1800 }) {
+			List<String> expectedJourneys = new ArrayList<String>();
+			List<String> actualJourneys = new ArrayList<String>();
+			JourneyMatcher journeyMatcher = new JourneyMatcher(
+					(tapOn, tapOff) -> expectedJourneys.add(toString(tapOn, tapOff)), maxJourneySeconds, 60);
+			JourneyMatcher offHeapJourneyMatcher = new JourneyMatcher(
+					(tapOn, tapOff) -> actualJourneys.add(toString(tapOn, tapOff)), maxJourneySeconds, 60,
+					new OpenJourneyStore(16));
+			for (Tap tap : taps) {
+				journeyMatcher.accept(tap);
+				offHeapJourneyMatcher.accept(tap);
+			}
+			assertEquals(journeyMatcher.getOpenJourneyCount() + expectedJourneys.size(),
+					offHeapJourneyMatcher.getOpenJourneyCount() + actualJourneys.size());
+			journeyMatcher.complete();
+			offHeapJourneyMatcher.complete();
+			assertEquals(journeyMatcher.getLateTapCount(), offHeapJourneyMatcher.getLateTapCount());
+			Collections.sort(expectedJourneys);
+			Collections.sort(actualJourneys);
+			assertEquals(expectedJourneys, actualJourneys);
+		}
+	}
+
+	private static String toString(Tap tapOn, Tap tapOff) {
+		return tapOn.getId() + " " + tapOn.getDatetimeUTC() + " " + tapOn.getStopId() + " " + tapOn.getCompanyId()
+				+ " " + tapOn.getBusId() + " " + tapOn.getPrimaryAccountNumber() + " "
+				+ (tapOff == null ? null : tapOff.getId());
+	}
+
+	private static Tap createTap(int id, long seconds, TapType tapType, String primaryAccountNumber) {
+		return new Tap(id, DateTimeCodec.toZonedDateTime(START + seconds), tapType, "Stop1", "Company1", "Bus37",
+				primaryAccountNumber);
+	}
+}
@@ -1,24 +1,43 @@
 package net.codingchallenge.tripgenerator.service;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.text.ParseException;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.ActiveProfiles;
 
+import io.micrometer.core.instrument.MeterRegistry;
+
 import net.codingchallenge.tripgenerator.enums.TapType;
 import net.codingchallenge.tripgenerator.enums.TripStatus;
 import net.codingchallenge.tripgenerator.exception.TripGenerationException;
+import net.codingchallenge.tripgenerator.metrics.PipelineMetrics;
+import net.codingchallenge.tripgenerator.model.FareBand;
+import net.codingchallenge.tripgenerator.model.FarePeriod;
+import net.codingchallenge.tripgenerator.model.FareRules;
+import net.codingchallenge.tripgenerator.model.FareZone;
+import net.codingchallenge.tripgenerator.model.StringDictionary;
 import net.codingchallenge.tripgenerator.model.Tap;
+import net.codingchallenge.tripgenerator.model.TapBatch;
+import net.codingchallenge.tripgenerator.model.TripCost;
+import net.codingchallenge.tripgenerator.store.FareIndex;
+import net.codingchallenge.tripgenerator.store.TripCostStore;
 
 /**
  * The TripGeneratorServiceTest class performs unit tests of each service method
@@ -34,6 +53,9 @@ public class TripGeneratorServiceTest {
 	@Autowired
 	private TripGeneratorService tripGeneratorService;
 
+	@Autowired
+	private PipelineMetrics pipelineMetrics;
+
 	List<Tap> taps = new ArrayList<Tap>();
 
 	DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm:ss").withZone(ZoneId.of("UTC"));
@@ -78,6 +100,157 @@ public class TripGeneratorServiceTest {
 		assertEquals(5, tapOff.getId());
 	}
 
+	/**
+	 * Test getTapOffs method
+	 */
+	@Test
+	void getTapOffsTest() {
+		// There are 3 ON taps in input data and they are returned in input order
+		Map<Tap, Tap> tapOffs = tripGeneratorService.getTapOffs(taps);
+		assertEquals(3, tapOffs.size());
+		List<Tap> tapOnList = new ArrayList<Tap>(tapOffs.keySet());
+		assertEquals(1, tapOnList.get(0).getId());
+		assertEquals(3, tapOnList.get(1).getId());
+		assertEquals(4, tapOnList.get(2).getId());
+		// Tap Id 2 is the corresponding OFF tap of Tap Id 1
+		assertEquals(2, tapOffs.get(taps.get(0)).getId());
+		// Tap Id 3 doesn't have a OFF tap entry
+		assertNull(tapOffs.get(taps.get(2)));
+		// Tap Id 5 is the corresponding OFF tap of Tap Id 4
+		assertEquals(5, tapOffs.get(taps.get(3)).getId());
+		// Result is the same as looking up the OFF tap of each ON tap
+		for (Tap tapOn : tripGeneratorService.getAllTapOns(taps)) {
+			assertEquals(tripGeneratorService.getTapOff(taps, tapOn), tapOffs.get(tapOn));
+		}
+	}
+
+	/**
+	 * Each OFF tap is used by one ON tap only, and an ON tap followed by another ON
+	 * tap of the same journey doesn't have an OFF tap
+	 */
+	@Test
+	void getTapOffsUsesTapOffOnceTest() {
+		List<Tap> journeyTaps = new ArrayList<Tap>(taps);
+		ZonedDateTime time = ZonedDateTime.parse("22-01-2021 14:00:00", formatter);
+		String[] tapTypes = { "ON", "ON", "OFF", "OFF", "ON", "OFF", "OFF" };
+		int[] minutes = { 0, 5, 10, 15, 20, 20, 25 };
+		for (int i = 0; i < tapTypes.length; i++) {
+			// Tap Id 11 is at the same time as the ON tap, so it isn't its OFF tap
+			journeyTaps.add(new Tap(i + 6, time.plusMinutes(minutes[i]), TapType.valueOf(tapTypes[i]),
+					"Stop" + (i % 3 + 1), "Company1", "Bus37", "5500005555555559"));
+		}
+
+		Map<Tap, Tap> tapOffs = tripGeneratorService.getTapOffs(journeyTaps);
+		assertEquals(2, tapOffs.get(journeyTaps.get(0)).getId());
+		assertNull(tapOffs.get(journeyTaps.get(5)));
+		assertEquals(8, tapOffs.get(journeyTaps.get(6)).getId());
+		assertEquals(12, tapOffs.get(journeyTaps.get(9)).getId());
+		for (Tap tapOn : tripGeneratorService.getAllTapOns(journeyTaps)) {
+			assertEquals(tapOffs.get(tapOn), tripGeneratorService.getTapOff(journeyTaps, tapOn));
+		}
+
+		int[] tapOffRows = tripGeneratorService.getTapOffRows(TapBatch.of(journeyTaps, TripCostStore.getFareIndex()));
+		assertEquals(TapBatch.NO_ROW, tapOffRows[5]);
+		assertEquals(7, tapOffRows[6]);
+		assertEquals(11, tapOffRows[9]);
+	}
+
+	/**
+	 * Taps without an account number aren't in the same journey as the taps of
+	 * the first account, even on the same bus
+	 * 
+	 * @throws TripGenerationException
+	 */
+	@Test
+	void getTapOffRowsWithoutAccountTest() throws TripGenerationException {
+		ZonedDateTime time = ZonedDateTime.parse("22-01-2021 14:00:00", formatter);
+		String account = "5500005555555559";
+		List<Tap> accountTaps = new ArrayList<Tap>();
+		accountTaps.add(new Tap(1, time, TapType.ON, "Stop1", "Company1", "Bus37", null));
+		accountTaps.add(new Tap(2, time.plusMinutes(5), TapType.OFF, "Stop2", "Company1", "Bus37", account));
+		accountTaps.add(new Tap(3, time.plusMinutes(10), TapType.ON, "Stop2", "Company1", "Bus37", account));
+		accountTaps.add(new Tap(4, time.plusMinutes(15), TapType.OFF, "Stop3", "Company1", "Bus37", account));
+
+		Map<Tap, Tap> tapOffs = tripGeneratorService.getTapOffs(accountTaps);
+		assertNull(tapOffs.get(accountTaps.get(0)));
+		assertEquals(4, tapOffs.get(accountTaps.get(2)).getId());
+		TapBatch tapBatch = TapBatch.of(accountTaps, TripCostStore.getFareIndex());
+		assertEquals(0, tapBatch.getAccount(1));
+		int[] expectedTapOffRows = { TapBatch.NO_ROW, TapBatch.NO_ROW, 3, TapBatch.NO_ROW };
+		assertArrayEquals(expectedTapOffRows, tripGeneratorService.getTapOffRows(tapBatch));
+		ForkJoinPool forkJoinPool = new ForkJoinPool(2);
+		try {
+			for (int partitionCount = 1; partitionCount <= 4; partitionCount++) {
+				assertArrayEquals(expectedTapOffRows,
+						tripGeneratorService.getTapOffRows(tapBatch, forkJoinPool, partitionCount));
+			}
+		} finally {
+			forkJoinPool.shutdown();
+		}
+	}
+
+	/**
+	 * Test getTapOffRows and getTapOff methods give the same OFF taps as
+	 * getTapOffs, including taps recorded at the same time
+	 */
+	@Test
+	void getTapOffRowsTest() {
+		List<Tap> randomTaps = new ArrayList<Tap>(taps);
+		Random random = new Random(7);
+		ZonedDateTime time = taps.get(0).getDatetimeUTC();
+		for (int i = 0; i < 2000; i++) {
+			randomTaps.add(new Tap(i + 6, time.plusSeconds(random.nextInt(600)),
+					random.nextBoolean() ? TapType.ON : TapType.OFF, "Stop" + (random.nextInt(3) + 1),
+					"Company" + random.nextInt(2), "Bus" + random.nextInt(3),
+					random.nextInt(20) == 0 ? null : String.valueOf(5500005555550000L + random.nextInt(40))));
+		}
+
+		TapBatch tapBatch = TapBatch.of(randomTaps, TripCostStore.getFareIndex());
+		int[] tapOffRows = tripGeneratorService.getTapOffRows(tapBatch);
+		Map<Tap, Tap> tapOffs = tripGeneratorService.getTapOffs(randomTaps);
+		for (int row = 0; row < randomTaps.size(); row++) {
+			Tap tap = randomTaps.get(row);
+			if (tap.getTapType() == TapType.ON) {
+				Tap tapOff = tapOffs.get(tap);
+				assertEquals(tapOff == null ? TapBatch.NO_ROW : randomTaps.indexOf(tapOff), tapOffRows[row]);
+				assertEquals(tapOff, tripGeneratorService.getTapOff(randomTaps, tap));
+			} else {
+				assertEquals(TapBatch.NO_ROW, tapOffRows[row]);
+			}
+		}
+	}
+
+	/**
+	 * Test the tap batch methods using stop ordinals and epoch seconds
+	 * 
+	 * @throws TripGenerationException
+	 */
+	@Test
+	void getTripFareFromTapBatchTest() throws TripGenerationException {
+		List<Tap> batchTaps = new ArrayList<Tap>(taps);
+		batchTaps.add(new Tap(6, ZonedDateTime.parse("22-01-2021 13:20:00", formatter), TapType.ON, "Stop9",
+				"Company1", "Bus37", "5500005555555559"));
+		TapBatch tapBatch = TapBatch.of(batchTaps, TripCostStore.getFareIndex());
+		FareIndex fareIndex = tapBatch.getFareIndex();
+		int stop1 = tapBatch.getStop(0);
+		int stop2 = tapBatch.getStop(1);
+		int stop9 = tapBatch.getStop(5);
+
+		assertEquals(300, tripGeneratorService.getTripDuration(tapBatch.getEpochSecond(0), tapBatch.getEpochSecond(1)));
+		assertThrows(TripGenerationException.class,
+				() -> tripGeneratorService.getTripDuration(tapBatch.getEpochSecond(1), tapBatch.getEpochSecond(0)));
+		assertEquals(7.30, tripGeneratorService.getTripFare(fareIndex, stop1, 0L));
+		assertEquals(3.25, tripGeneratorService.getTripFare(fareIndex, stop1, stop2, 0L));
+		assertEquals(0.0, tripGeneratorService.getTripFare(fareIndex, stop9, stop9, 0L));
+		// Stop9 has an ordinal in the batch but there is no fare from it
+		assertThrows(TripGenerationException.class, () -> tripGeneratorService.getTripFare(fareIndex, stop9, 0L));
+		assertThrows(TripGenerationException.class,
+				() -> tripGeneratorService.getTripFare(fareIndex, stop1, stop9, 0L));
+		assertEquals(TripStatus.COMPLETED, tripGeneratorService.getTripStatus(stop1, stop2));
+		assertEquals(TripStatus.CANCELLED, tripGeneratorService.getTripStatus(stop9, stop9));
+		assertEquals(TripStatus.INCOMPLETE, tripGeneratorService.getTripStatus(stop1, StringDictionary.NO_VALUE));
+	}
+
 	/**
 	 * Test getTripDuration method
 	 * 
@@ -130,6 +303,105 @@ public class TripGeneratorServiceTest {
 		assertEquals(5.50, tripFare);
 	}
 
+	/**
+	 * Test getTripFare method with bus stops which don't have a fare
+	 * 
+	 * @throws TripGenerationException
+	 */
+	@Test
+	void getTripFareUnknownStopTest() throws TripGenerationException {
+		// There is no fare from Stop4
+		assertThrows(TripGenerationException.class, () -> tripGeneratorService.getTripFare("Stop4"));
+		// There is no fare between Stop1 and Stop4
+		assertThrows(TripGenerationException.class, () -> tripGeneratorService.getTripFare("Stop1", "Stop4"));
+		assertThrows(TripGenerationException.class, () -> tripGeneratorService.getTripFare("Stop4", "Stop1"));
+		// Cancelled trip doesn't have a fare even when the bus stop is unknown
+		double tripFare = tripGeneratorService.getTripFare("Stop4", "Stop4");
+		assertEquals(0.00, tripFare);
+	}
+
+	/**
+	 * Test the maximum fares follow a reload of the fare table, and the maximum
+	 * fare lookups are counted apart from the fares between two stops where the
+	 * fares are looked up
+	 * 
+	 * @throws TripGenerationException
+	 */
+	@Test
+	void getTripFareAfterReloadTest() throws TripGenerationException {
+		MeterRegistry meterRegistry = pipelineMetrics.getMeterRegistry();
+		double maxFareMisses = meterRegistry.get("tripgenerator.fare.lookups")
+				.tags("fare", PipelineMetrics.FARE_MAX, "result", "miss").counter().count();
+		double maxFareHits = meterRegistry.get("tripgenerator.fare.lookups")
+				.tags("fare", PipelineMetrics.FARE_MAX, "result", "hit").counter().count();
+		double pairFareHits = meterRegistry.get("tripgenerator.fare.lookups")
+				.tags("fare", PipelineMetrics.FARE_PAIR, "result", "hit").counter().count();
+		List<TripCost> tripCostList = TripCostStore.getTripCostList();
+		try {
+			List<TripCost> reloadedTripCostList = new ArrayList<TripCost>(tripCostList);
+			reloadedTripCostList.add(new TripCost("Stop1", "Stop4", 9.10));
+			reloadedTripCostList.add(new TripCost("Stop4", "Stop1", 9.10));
+			TripCostStore.setTripCostList(reloadedTripCostList);
+			assertEquals(9.10, tripGeneratorService.getTripFare("Stop1"));
+			assertEquals(9.10, tripGeneratorService.getTripFare("Stop4"));
+		} finally {
+			TripCostStore.setTripCostList(tripCostList);
+		}
+		assertEquals(7.30, tripGeneratorService.getTripFare("Stop1"));
+		assertThrows(TripGenerationException.class, () -> tripGeneratorService.getTripFare("Stop4"));
+		assertEquals(maxFareMisses + 1, meterRegistry.get("tripgenerator.fare.lookups")
+				.tags("fare", PipelineMetrics.FARE_MAX, "result", "miss").counter().count());
+		assertEquals(maxFareHits + 3, meterRegistry.get("tripgenerator.fare.lookups")
+				.tags("fare", PipelineMetrics.FARE_MAX, "result", "hit").counter().count());
+		// A cancelled trip doesn't look up a fare
+		assertEquals(3.25, tripGeneratorService.getTripFare("Stop1", "Stop2"));
+		assertEquals(0.00, tripGeneratorService.getTripFare("Stop2", "Stop2"));
+		assertEquals(pairFareHits + 1, meterRegistry.get("tripgenerator.fare.lookups")
+				.tags("fare", PipelineMetrics.FARE_PAIR, "result", "hit").counter().count());
+		assertTrue(pipelineMetrics.getFareHitRatio(PipelineMetrics.FARE_MAX) < 1);
+	}
+
+	/**
+	 * Test getTripFare methods with a fare index compiled from fare rules. Trips
+	 * which start in a peak period cost more and trips which start in an off-peak
+	 * period cost less.
+	 * 
+	 * @throws TripGenerationException
+	 */
+	@Test
+	void getTripFareFromFareRulesTest() throws TripGenerationException {
+		FareRules fareRules = new FareRules();
+		fareRules.setZones(Arrays.asList(new FareZone("Z1", 0, Arrays.asList("Stop1", "Stop2")),
+				new FareZone("Z2", 2, Arrays.asList("Stop3"))));
+		fareRules.setBands(Arrays.asList(new FareBand(1, 2.00), new FareBand(2, 4.00)));
+		fareRules.setPeriods(Arrays.asList(new FarePeriod("07:00", "09:00", 1.5),
+				new FarePeriod("19:00", "22:00", 0.75)));
+		long offPeak = ZonedDateTime.parse("22-01-2021 13:00:00", formatter).toEpochSecond();
+		long peak = ZonedDateTime.parse("22-01-2021 08:00:00", formatter).toEpochSecond();
+		long evening = ZonedDateTime.parse("22-01-2021 20:00:00", formatter).toEpochSecond();
+
+		FareIndex fareIndex = TripCostStore.getFareIndex();
+		List<TripCost> tripCostList = TripCostStore.getTripCostList();
+		try {
+			TripCostStore.setFareIndex(FareIndex.compile(fareRules));
+			assertEquals(2.00, tripGeneratorService.getTripFare("Stop1", "Stop2", offPeak));
+			assertEquals(4.00, tripGeneratorService.getTripFare("Stop1", "Stop3", offPeak));
+			assertEquals(6.00, tripGeneratorService.getTripFare("Stop1", "Stop3", peak));
+			assertEquals(4.00, tripGeneratorService.getTripFare("Stop1"));
+			assertEquals(6.00, tripGeneratorService.getTripFare("Stop2", peak));
+			assertEquals(1.50, tripGeneratorService.getTripFare("Stop1", "Stop2", evening));
+			assertEquals(3.00, tripGeneratorService.getTripFare("Stop2", evening));
+			assertEquals(0.00, tripGeneratorService.getTripFare("Stop3", "Stop3", peak));
+			assertThrows(TripGenerationException.class,
+					() -> tripGeneratorService.getTripFare("Stop1", "Stop4", peak));
+			assertTrue(TripCostStore.getTripCostList().isEmpty());
+		} finally {
+			TripCostStore.setTripCostList(tripCostList);
+		}
+		assertEquals(fareIndex.getFareCount(), TripCostStore.getFareIndex().getFareCount());
+		assertEquals(7.30, tripGeneratorService.getTripFare("Stop1", "Stop3", peak));
+	}
+
 	/**
 	 * Test getTripStatus method for possible combinations
 	 * 
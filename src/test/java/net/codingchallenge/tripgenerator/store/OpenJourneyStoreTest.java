@@ -0,0 +1,152 @@
+package net.codingchallenge.tripgenerator.store;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import net.codingchallenge.tripgenerator.exception.OutputFileException;
+import net.codingchallenge.tripgenerator.exception.TripGenerationException;
+
+/**
+ * The OpenJourneyStoreTest class compares the off-heap open journey store with
+ * a list of records.
+ * 
+ * @author Gihan Rajakaruna
+ *
+ */
+public class OpenJourneyStoreTest {
+
+	/**
+	 * Random puts, takes and expiry scans on a small store with many collisions
+	 * and growth
+	 * 
+	 * @throws TripGenerationException
+	 * @throws OutputFileException
+	 */
+	@Test
+	void putTakeExpireTest() throws TripGenerationException, OutputFileException {
+		putTakeExpire(new OpenJourneyStore(4));
+	}
+
+	/**
+	 * Random puts, takes and expiry scans on a store split into buffers of 8
+	 * slots, so records are shifted and moved across buffers
+	 * 
+	 * @throws TripGenerationException
+	 * @throws OutputFileException
+	 */
+	@Test
+	void putTakeExpireSegmentsTest() throws TripGenerationException, OutputFileException {
+		putTakeExpire(new OpenJourneyStore(4, 3, OpenJourneyStore.MAX_CAPACITY));
+	}
+
+	private static void putTakeExpire(OpenJourneyStore openJourneyStore)
+			throws TripGenerationException, OutputFileException {
+		Random random = new Random(42);
+		List<long[]> expectedRecords = new ArrayList<long[]>();
+		List<Long> takenTapIds = new ArrayList<Long>();
+		OpenJourneyStore.RecordHandler recordHandler = (tapId, epochSecond, stop, account, company, bus) -> {
+			assertEquals(tapId % 5, stop);
+			takenTapIds.add((long) tapId);
+		};
+		long epochSecond = 0;
+		for (int tapId = 0; tapId < 20000; tapId++) {
+			epochSecond += random.nextInt(3);
+			int account = random.nextInt(500);
+			int company = random.nextInt(2);
+			int bus = random.nextInt(3);
+			int operation = random.nextInt(10);
+			if (operation < 6) {
+				openJourneyStore.put(account, company, bus, tapId, epochSecond, tapId % 5);
+				expectedRecords.add(new long[] { tapId, epochSecond, account, company, bus });
+			} else if (operation < 9) {
+				long fromEpochSecond = epochSecond - 1000;
+				List<Long> expectedTapIds = new ArrayList<Long>();
+				Iterator<long[]> iterator = expectedRecords.iterator();
+				while (iterator.hasNext()) {
+					long[] record = iterator.next();
+					if (record[2] == account && record[3] == company && record[4] == bus && record[1] >= fromEpochSecond
+							&& record[1] < epochSecond) {
+						expectedTapIds.add(record[0]);
+						iterator.remove();
+					}
+				}
+				takenTapIds.clear();
+				assertEquals(expectedTapIds.size(),
+						openJourneyStore.take(account, company, bus, fromEpochSecond, epochSecond, recordHandler));
+				assertEquals(expectedTapIds, takenTapIds);
+			} else {
+				long beforeEpochSecond = epochSecond - 2000;
+				int expectedCount = 0;
+				Iterator<long[]> iterator = expectedRecords.iterator();
+				while (iterator.hasNext()) {
+					if (iterator.next()[1] < beforeEpochSecond) {
+						expectedCount++;
+						iterator.remove();
+					}
+				}
+				takenTapIds.clear();
+				assertEquals(expectedCount, openJourneyStore.expire(beforeEpochSecond, recordHandler));
+				assertEquals(expectedCount, takenTapIds.size());
+			}
+			assertEquals(expectedRecords.size(), openJourneyStore.size());
+		}
+		assertTrue(openJourneyStore.getCapacity() >= 2 * openJourneyStore.size());
+
+		takenTapIds.clear();
+		openJourneyStore.forEach(recordHandler);
+		assertEquals(expectedRecords.size(), takenTapIds.size());
+		openJourneyStore.clear();
+		assertEquals(0, openJourneyStore.size());
+	}
+
+	/**
+	 * The store grows past 2^25 slots of one buffer of the default size, whose
+	 * byte size would overflow an int, and stops growing at the maximum number
+	 * of slots with a clear error
+	 * 
+	 * @throws TripGenerationException
+	 * @throws OutputFileException
+	 */
+	@Test
+	void growTest() throws TripGenerationException, OutputFileException {
+		// Buffers of 2 slots stand for the buffers of 2^20 slots, so 2^25 slots of
+		// the default store are 2^6 slots here
+		int maxCapacity = 1 << 8;
+		OpenJourneyStore openJourneyStore = new OpenJourneyStore(4, 1, maxCapacity);
+		int maxJourneyCount = (int) (maxCapacity * OpenJourneyStore.MAX_LOAD);
+		for (int tapId = 0; tapId < maxJourneyCount; tapId++) {
+			openJourneyStore.put(tapId % 7, 1, 1, tapId, tapId, tapId);
+		}
+		assertEquals(maxCapacity, openJourneyStore.getCapacity());
+		IllegalStateException thrownException = assertThrows(IllegalStateException.class,
+				() -> openJourneyStore.put(0, 1, 1, maxJourneyCount, maxJourneyCount, 0),
+				"Expected to get an exception, but it didn't");
+		assertEquals("Open journey store can't keep more than " + maxJourneyCount + " open journeys.",
+				thrownException.getMessage());
+
+		List<Integer> takenTapIds = new ArrayList<Integer>();
+		for (int account = 0; account < 7; account++) {
+			takenTapIds.clear();
+			openJourneyStore.take(account, 1, 1, 0, Long.MAX_VALUE,
+					(tapId, epochSecond, stop, recordAccount, company, bus) -> takenTapIds.add(tapId));
+			// Records of a journey key are still in the order they were added
+			for (int i = 0; i < takenTapIds.size(); i++) {
+				assertEquals(account + i * 7, takenTapIds.get(i));
+			}
+		}
+		assertEquals(0, openJourneyStore.size());
+
+		assertThrows(IllegalArgumentException.class,
+				() -> new OpenJourneyStore(OpenJourneyStore.MAX_CAPACITY, OpenJourneyStore.SEGMENT_SHIFT,
+						OpenJourneyStore.MAX_CAPACITY),
+				"Expected to get an exception, but it didn't");
+	}
+}
@@ -0,0 +1,203 @@
+package net.codingchallenge.tripgenerator.store;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import net.codingchallenge.tripgenerator.config.JacksonConfig;
+import net.codingchallenge.tripgenerator.exception.InputFileException;
+import net.codingchallenge.tripgenerator.model.TripCost;
+
+/**
+ * The TripCostStoreTest class performs unit tests on loading the fare table
+ * from files.
+ * 
+ * @author Gihan Rajakaruna
+ *
+ */
+@ActiveProfiles("test")
+@SpringBootTest
+public class TripCostStoreTest {
+
+	@Autowired
+	private TripCostStore tripCostStore;
+
+	@Autowired
+	private JacksonConfig jacksonConfig;
+
+	@TempDir
+	Path tempDirectory;
+
+	/**
+	 * Test loading a CSV fare table. Small chunk sizes make sure lines crossing
+	 * the chunk boundaries are parsed only once.
+	 * 
+	 * @throws IOException
+	 * @throws InputFileException
+	 */
+	@Test
+	void loadCsvFaresTest() throws IOException, InputFileException {
+		Path faresFile = tempDirectory.resolve("fares.csv");
+		Files.write(faresFile, ("source,destination,cost\n" + "Stop1,Stop2,3.25\n" + "Stop2,Stop1,3.25\r\n"
+				+ "\n" + "Stop2,Stop3,5.50\n" + "Stop1,Stop3,7.30").getBytes(StandardCharsets.UTF_8));
+
+		for (int chunkSize : new int[] { 1, 7, 16, 1024 }) {
+			List<TripCost> tripCostList = new CsvFareSource(faresFile, chunkSize).loadFares();
+			assertEquals(4, tripCostList.size());
+
+			FareIndex fareIndex = FareIndex.build(tripCostList);
+			assertEquals(3, fareIndex.getStopCount());
+			assertEquals(3.25, fareIndex.getFare(fareIndex.getStopOrdinal("Stop1"), fareIndex.getStopOrdinal("Stop2")));
+			assertEquals(3.25, fareIndex.getFare(fareIndex.getStopOrdinal("Stop2"), fareIndex.getStopOrdinal("Stop1")));
+			assertEquals(7.30, fareIndex.getMaxFare(fareIndex.getStopOrdinal("Stop1")));
+			assertEquals(5.50, fareIndex.getMaxFare(fareIndex.getStopOrdinal("Stop2")));
+		}
+	}
+
+	/**
+	 * Test loading a CSV fare table with an invalid line
+	 * 
+	 * @throws IOException
+	 */
+	@Test
+	void loadInvalidCsvFaresTest() throws IOException {
+		Path faresFile = tempDirectory.resolve("fares.csv");
+		Files.write(faresFile, "Stop1,Stop2,3.25\nStop2,Stop1,free\n".getBytes(StandardCharsets.UTF_8));
+
+		InputFileException thrownException = assertThrows(InputFileException.class,
+				() -> new CsvFareSource(faresFile).loadFares(), "Expected to get an exception, but it didn't");
+		assertTrue(thrownException.getMessage().contains("Invalid fare table line"));
+	}
+
+	/**
+	 * Test loading a JSON fare table
+	 * 
+	 * @throws IOException
+	 * @throws InputFileException
+	 */
+	@Test
+	void loadJsonFaresTest() throws IOException, InputFileException {
+		Path faresFile = tempDirectory.resolve("fares.json");
+		Files.write(faresFile,
+				("{ \"fares\" : [ { \"source\" : \"Stop1\", \"destination\" : \"Stop2\", \"cost\" : 3.25 },"
+						+ " { \"source\" : \"Stop2\", \"destination\" : \"Stop1\", \"cost\" : 4.00 } ] }")
+								.getBytes(StandardCharsets.UTF_8));
+
+		List<TripCost> tripCostList = new JsonFareSource(faresFile, jacksonConfig.getObjectMapper()).loadFares();
+		assertEquals(2, tripCostList.size());
+		assertEquals("Stop2", tripCostList.get(1).getSource());
+		assertEquals(4.00, tripCostList.get(1).getCost());
+	}
+
+	/**
+	 * Test compiling fare rules into the zone fares of each fare level. Bands are
+	 * sorted by distance, the end time of a period isn't in the period, a period
+	 * may run over midnight and an off-peak period may lower the fares.
+	 * 
+	 * @throws IOException
+	 * @throws InputFileException
+	 */
+	@Test
+	void loadFareRulesTest() throws IOException, InputFileException {
+		Path fareRulesFile = tempDirectory.resolve("fare-rules.json");
+		Files.write(fareRulesFile, ("{ \"utcOffset\" : \"+10:00\", \"zones\" : ["
+				+ " { \"zone\" : \"Z1\", \"position\" : 0, \"stops\" : [ \"Stop1\", \"Stop2\" ] },"
+				+ " { \"zone\" : \"Z2\", \"position\" : 1, \"stops\" : [ \"Stop3\" ] },"
+				+ " { \"zone\" : \"Z3\", \"position\" : 5, \"stops\" : [ \"Stop4\" ] } ],"
+				+ " \"bands\" : [ { \"maxDistance\" : 1, \"fare\" : 3.50 }, { \"maxDistance\" : 0, \"fare\" : 2.00 } ],"
+				+ " \"periods\" : [ { \"from\" : \"07:00\", \"to\" : \"09:30\", \"multiplier\" : 1.5 },"
+				+ " { \"from\" : \"16:00\", \"to\" : \"18:30\", \"multiplier\" : 1.25 },"
+				+ " { \"from\" : \"10:00\", \"to\" : \"15:00\", \"multiplier\" : 0.8 },"
+				+ " { \"from\" : \"14:00\", \"to\" : \"14:30\", \"multiplier\" : 0.9 },"
+				+ " { \"from\" : \"23:00\", \"to\" : \"01:00\", \"multiplier\" : 1.5 } ] }")
+						.getBytes(StandardCharsets.UTF_8));
+
+		FareIndex fareIndex = new FareRuleSource(fareRulesFile, jacksonConfig.getObjectMapper()).loadFareIndex();
+		assertEquals(4, fareIndex.getStopCount());
+		assertEquals(3, fareIndex.getZoneCount());
+		assertEquals(5, fareIndex.getFareCount());
+		int stop1 = fareIndex.getStopOrdinal("Stop1");
+		int stop2 = fareIndex.getStopOrdinal("Stop2");
+		int stop3 = fareIndex.getStopOrdinal("Stop3");
+		int stop4 = fareIndex.getStopOrdinal("Stop4");
+		assertEquals(2.00, fareIndex.getFare(stop1, stop2));
+		assertEquals(3.50, fareIndex.getFare(stop3, stop1));
+		assertTrue(Double.isNaN(fareIndex.getFare(stop1, stop4)));
+		assertTrue(Double.isNaN(fareIndex.getFare(stop1, fareIndex.getStopCount())));
+		assertEquals(3.50, fareIndex.getMaxFare(stop1));
+		assertEquals(2.00, fareIndex.getMaxFare(stop4));
+
+		String[] times = { "06:59", "07:00", "09:29", "09:30", "12:00", "14:15", "15:00", "17:00", "23:30", "00:30",
+				"01:00" };
+		double[] fares = { 3.50, 5.25, 5.25, 3.50, 2.80, 3.15, 3.50, 4.38, 5.25, 5.25, 3.50 };
+		for (int i = 0; i < times.length; i++) {
+			long epochSecond = OffsetDateTime.parse("2021-01-22T" + times[i] + ":00+10:00").toEpochSecond();
+			assertEquals(fares[i], fareIndex.getFare(stop1, stop3, epochSecond), times[i]);
+			assertEquals(fares[i], fareIndex.getMaxFare(stop2, epochSecond), times[i]);
+		}
+
+		Files.write(fareRulesFile, ("{ \"zones\" : [ { \"zone\" : \"Z1\", \"stops\" : [ \"Stop1\" ] },"
+				+ " { \"zone\" : \"Z2\", \"stops\" : [ \"Stop1\" ] } ],"
+				+ " \"bands\" : [ { \"maxDistance\" : 0, \"fare\" : 2.00 } ] }").getBytes(StandardCharsets.UTF_8));
+		InputFileException thrownException = assertThrows(InputFileException.class,
+				() -> new FareRuleSource(fareRulesFile, jacksonConfig.getObjectMapper()).loadFareIndex(),
+				"Expected to get an exception, but it didn't");
+		assertTrue(thrownException.getMessage().contains("more than one zone"));
+	}
+
+	/**
+	 * Test the fare source is chosen by the file extension
+	 * 
+	 * @throws InputFileException
+	 */
+	@Test
+	void getFareSourceTest() throws InputFileException {
+		String faresFilePath = tripCostStore.faresFilePath;
+		try {
+			tripCostStore.faresFilePath = "";
+			assertTrue(tripCostStore.getFareSource() instanceof DefaultFareSource);
+			tripCostStore.faresFilePath = "fares.CSV";
+			assertTrue(tripCostStore.getFareSource() instanceof CsvFareSource);
+			tripCostStore.faresFilePath = "fares.json";
+			assertTrue(tripCostStore.getFareSource() instanceof JsonFareSource);
+			tripCostStore.faresFilePath = "fares.txt";
+			assertThrows(InputFileException.class, () -> tripCostStore.getFareSource());
+		} finally {
+			tripCostStore.faresFilePath = faresFilePath;
+		}
+	}
+
+	/**
+	 * Test the reload action runs when the fare table file changes
+	 * 
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	@Test
+	void fareTableWatcherTest() throws IOException, InterruptedException {
+		Path faresFile = tempDirectory.resolve("fares.csv");
+		Files.write(faresFile, "Stop1,Stop2,3.25\n".getBytes(StandardCharsets.UTF_8));
+
+		CountDownLatch reloaded = new CountDownLatch(1);
+		try (FareTableWatcher fareTableWatcher = new FareTableWatcher(faresFile, reloaded::countDown)) {
+			fareTableWatcher.start();
+			Files.write(faresFile, "Stop1,Stop2,4.25\n".getBytes(StandardCharsets.UTF_8));
+			assertTrue(reloaded.await(30, TimeUnit.SECONDS), "Fare table should be reloaded after it changes");
+		}
+	}
+}
@@ -59,11 +59,12 @@ public class TripGeneratorValidatorTest {
 						"src/main/resources/tests/output/trip-data-1.json"),
 				"Expected to get an exception, but it didn't");
 
-		assertTrue(thrownException.getMessage().contains("Input file is not a JSON file."));
+		assertTrue(
+				thrownException.getMessage().contains("Input file is not a JSON, JSON Lines, Smile, CBOR or binary tap file."));
 	}
 
 	/**
-	 * Test with output file path doesn't have the json extension
+	 * Test with output file path doesn't have a supported extension
 	 */
 	@Test
 	void validateFilePathsTest4() {
@@ -72,7 +73,8 @@ public class TripGeneratorValidatorTest {
 						"src/main/resources/tests/output/trip-data-1"),
 				"Expected to get an exception, but it didn't");
 
-		assertTrue(thrownException.getMessage().contains("Output file must have the json extention."));
+		assertTrue(thrownException.getMessage()
+				.contains("Output file must have one of the extentions json, jsonl, ndjson, smile, sml, cbor, bin, optionally followed by gz or zst."));
 	}
 
 	/**
@@ -89,4 +91,21 @@ public class TripGeneratorValidatorTest {
 				thrownException.getMessage().contains("Can't find the output directory. The directory must exists."));
 	}
 
+	/**
+	 * Test the output file of the serve command must be a JSON Lines file
+	 * 
+	 * @throws OutputFileException
+	 */
+	@Test
+	void validateJsonLinesFilePathTest() throws OutputFileException {
+		tripGeneratorValidator.validateJsonLinesFilePath("src/main/resources/tests/output/trip-data.jsonl");
+		tripGeneratorValidator.validateJsonLinesFilePath("src/main/resources/tests/output/trip-data.ndjson");
+		OutputFileException thrownException = assertThrows(OutputFileException.class,
+				() -> tripGeneratorValidator
+						.validateJsonLinesFilePath("src/main/resources/tests/output/trip-data.json"),
+				"Expected to get an exception, but it didn't");
+
+		assertTrue(thrownException.getMessage().contains("Output file must have one of the extentions jsonl, ndjson."));
+	}
+
 }